@@ -0,0 +1,51 @@
+-- --------------------------------------------------------
+-- Monthly range partitioning for `activity_logs` + daily rollups
+-- Apply once on top of onclick_db.sql:
+--   mysql -u root -p onclick_db < sql/001_activity_logs_partitioning.sql
+--
+-- Partitioned InnoDB tables cannot have foreign keys and every unique key
+-- must contain the partitioning column, so the two foreign keys are dropped
+-- and the primary key becomes (log_id, log_date). Orphan rows are harmless:
+-- the dashboards already show "Unknown" for missing users/machines.
+--
+-- New months are added (and expired months dropped) by
+-- utils.LogRetentionManager, so only the first months are listed here.
+-- --------------------------------------------------------
+
+SET time_zone = "+00:00";
+
+ALTER TABLE `activity_logs`
+  DROP FOREIGN KEY `activity_logs_ibfk_1`,
+  DROP FOREIGN KEY `activity_logs_ibfk_2`;
+
+ALTER TABLE `activity_logs`
+  DROP PRIMARY KEY,
+  ADD PRIMARY KEY (`log_id`, `log_date`),
+  ADD KEY `idx_logdate` (`log_date`);
+
+ALTER TABLE `activity_logs`
+  PARTITION BY RANGE (UNIX_TIMESTAMP(`log_date`)) (
+    PARTITION p202511 VALUES LESS THAN (UNIX_TIMESTAMP('2025-12-01 00:00:00')),
+    PARTITION p202512 VALUES LESS THAN (UNIX_TIMESTAMP('2026-01-01 00:00:00')),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+  );
+
+--
+-- Per-day, per-user, per-action counts kept after raw partitions are dropped
+--
+CREATE TABLE IF NOT EXISTS `activity_log_daily` (
+  `log_day` date NOT NULL,
+  `user_id` int(11) NOT NULL,
+  `action` varchar(100) NOT NULL,
+  `action_count` int(11) NOT NULL,
+  PRIMARY KEY (`log_day`, `user_id`, `action`),
+  KEY `idx_user_day` (`user_id`, `log_day`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
+-- Backfill rollups for the existing rows
+INSERT INTO `activity_log_daily` (`log_day`, `user_id`, `action`, `action_count`)
+SELECT DATE(`log_date`), `user_id`, `action`, COUNT(*)
+FROM `activity_logs`
+WHERE `log_date` < CURRENT_DATE()
+GROUP BY DATE(`log_date`), `user_id`, `action`
+ON DUPLICATE KEY UPDATE `action_count` = VALUES(`action_count`);
@@ -0,0 +1,44 @@
+-- --------------------------------------------------------
+-- Capacity history: raw samples plus 1-hour and 1-day rollups
+--   mysql -u root -p onclick_db < sql/002_capacity_history.sql
+--
+-- Each running console samples its own volumes (utils.CapacitySampler),
+-- rolls its raw samples up into hourly and daily min/avg/max buckets and
+-- purges raw rows older than capacity.raw.days.
+-- --------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS `capacity_samples` (
+  `machine_id` int(11) NOT NULL,
+  `volume` varchar(64) NOT NULL,
+  `sample_time` datetime NOT NULL,
+  `free_bytes` bigint(20) NOT NULL,
+  `total_bytes` bigint(20) NOT NULL,
+  PRIMARY KEY (`machine_id`, `volume`, `sample_time`),
+  KEY `idx_machine_time` (`machine_id`, `sample_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
+CREATE TABLE IF NOT EXISTS `capacity_hourly` (
+  `machine_id` int(11) NOT NULL,
+  `volume` varchar(64) NOT NULL,
+  `bucket_start` datetime NOT NULL,
+  `min_free` bigint(20) NOT NULL,
+  `avg_free` bigint(20) NOT NULL,
+  `max_free` bigint(20) NOT NULL,
+  `total_bytes` bigint(20) NOT NULL,
+  `sample_count` int(11) NOT NULL,
+  PRIMARY KEY (`machine_id`, `volume`, `bucket_start`),
+  KEY `idx_machine_bucket` (`machine_id`, `bucket_start`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
+CREATE TABLE IF NOT EXISTS `capacity_daily` (
+  `machine_id` int(11) NOT NULL,
+  `volume` varchar(64) NOT NULL,
+  `bucket_start` datetime NOT NULL,
+  `min_free` bigint(20) NOT NULL,
+  `avg_free` bigint(20) NOT NULL,
+  `max_free` bigint(20) NOT NULL,
+  `total_bytes` bigint(20) NOT NULL,
+  `sample_count` int(11) NOT NULL,
+  PRIMARY KEY (`machine_id`, `volume`, `bucket_start`),
+  KEY `idx_machine_bucket` (`machine_id`, `bucket_start`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
@@ -0,0 +1,16 @@
+-- --------------------------------------------------------
+-- Event IDs for activity_logs so spooled events can be replayed safely
+-- Apply after 001:
+--   mysql -u root -p onclick_db < sql/003_activity_log_event_ids.sql
+--
+-- utils.LogSpool keeps log writes made while the database is unreachable
+-- and replays them later with INSERT IGNORE. A replay interrupted after the
+-- insert but before the spool is acknowledged is sent again; the unique key
+-- turns the duplicate into a no-op. Events written directly keep event_id
+-- NULL (NULLs never collide). log_date is part of the key because unique
+-- keys on the partitioned table must contain the partitioning column.
+-- --------------------------------------------------------
+
+ALTER TABLE `activity_logs`
+  ADD COLUMN `event_id` char(36) DEFAULT NULL AFTER `log_id`,
+  ADD UNIQUE KEY `uq_event` (`event_id`, `log_date`);
@@ -0,0 +1,23 @@
+-- --------------------------------------------------------
+-- Indexes behind the admin Logs tab search
+-- Apply after 001:
+--   mysql -u root -p onclick_db < sql/004_activity_log_search.sql
+--
+-- Every filter the search offers has an index ending in log_date, so a
+-- filtered search is an index range scan inside the pruned partitions and
+-- results come back newest first without a filesort:
+--   user     -> idx_user_date      (user_id, log_date)
+--   machine  -> idx_machine_date   (machine_id, log_date)
+--   type     -> idx_action_date    (action prefix, log_date); types are
+--               matched as "action LIKE 'Created partition%'"
+--   time     -> idx_logdate + partition pruning (from 001)
+--
+-- InnoDB cannot put a FULLTEXT index on a partitioned table, so free-text
+-- matches are answered by utils.LogSearchIndex over the loaded window, and
+-- by a LIKE filter on the rows the indexes above have already narrowed.
+-- --------------------------------------------------------
+
+ALTER TABLE `activity_logs`
+  ADD KEY `idx_user_date` (`user_id`, `log_date`),
+  ADD KEY `idx_machine_date` (`machine_id`, `log_date`),
+  ADD KEY `idx_action_date` (`action`(64), `log_date`);
@@ -0,0 +1,65 @@
+-- --------------------------------------------------------
+-- Change versions for users, machines and partitions
+-- Apply after onclick_db.sql:
+--   mysql -u root -p onclick_db < sql/005_change_versions.sql
+--
+-- Every insert, update or delete on the three tables appends a row to
+-- `change_log`; its auto-increment `version` is the monotonically
+-- increasing change version. dao.ChangeFeedDAO returns the rows changed
+-- (or deleted) after a version, so dashboards apply deltas instead of
+-- reloading whole tables. Triggers catch every writer, including ones
+-- that do not go through the DAOs.
+--
+-- activity_logs needs no trigger: it is append-only and log_id already
+-- increases monotonically. Old change_log rows are purged by
+-- utils.LogRetentionManager; a client whose version predates the purge
+-- gets a full reload.
+--
+-- With binary logging enabled, creating triggers may require
+-- log_bin_trust_function_creators = 1 or the SUPER privilege.
+-- --------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS `change_log` (
+  `version` bigint(20) NOT NULL AUTO_INCREMENT,
+  `table_name` varchar(20) NOT NULL,
+  `row_id` int(11) NOT NULL,
+  `op` enum('UPSERT','DELETE') NOT NULL,
+  `changed_at` timestamp NOT NULL DEFAULT current_timestamp(),
+  PRIMARY KEY (`version`),
+  KEY `idx_table_version` (`table_name`, `version`),
+  KEY `idx_changed_at` (`changed_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
+DROP TRIGGER IF EXISTS `users_ai_version`;
+DROP TRIGGER IF EXISTS `users_au_version`;
+DROP TRIGGER IF EXISTS `users_ad_version`;
+DROP TRIGGER IF EXISTS `machines_ai_version`;
+DROP TRIGGER IF EXISTS `machines_au_version`;
+DROP TRIGGER IF EXISTS `machines_ad_version`;
+DROP TRIGGER IF EXISTS `partitions_ai_version`;
+DROP TRIGGER IF EXISTS `partitions_au_version`;
+DROP TRIGGER IF EXISTS `partitions_ad_version`;
+
+CREATE TRIGGER `users_ai_version` AFTER INSERT ON `users` FOR EACH ROW
+  INSERT INTO `change_log` (`table_name`, `row_id`, `op`) VALUES ('users', NEW.`user_id`, 'UPSERT');
+CREATE TRIGGER `users_au_version` AFTER UPDATE ON `users` FOR EACH ROW
+  INSERT INTO `change_log` (`table_name`, `row_id`, `op`) VALUES ('users', NEW.`user_id`, 'UPSERT');
+CREATE TRIGGER `users_ad_version` AFTER DELETE ON `users` FOR EACH ROW
+  INSERT INTO `change_log` (`table_name`, `row_id`, `op`) VALUES ('users', OLD.`user_id`, 'DELETE');
+
+-- Cascaded deletes (users -> machines/partitions) do not fire triggers on the
+-- child tables; ChangeFeedDAO treats a changed id that no longer exists as deleted
+-- and the dashboards drop children of deleted users.
+CREATE TRIGGER `machines_ai_version` AFTER INSERT ON `machines` FOR EACH ROW
+  INSERT INTO `change_log` (`table_name`, `row_id`, `op`) VALUES ('machines', NEW.`machine_id`, 'UPSERT');
+CREATE TRIGGER `machines_au_version` AFTER UPDATE ON `machines` FOR EACH ROW
+  INSERT INTO `change_log` (`table_name`, `row_id`, `op`) VALUES ('machines', NEW.`machine_id`, 'UPSERT');
+CREATE TRIGGER `machines_ad_version` AFTER DELETE ON `machines` FOR EACH ROW
+  INSERT INTO `change_log` (`table_name`, `row_id`, `op`) VALUES ('machines', OLD.`machine_id`, 'DELETE');
+
+CREATE TRIGGER `partitions_ai_version` AFTER INSERT ON `partitions` FOR EACH ROW
+  INSERT INTO `change_log` (`table_name`, `row_id`, `op`) VALUES ('partitions', NEW.`partition_id`, 'UPSERT');
+CREATE TRIGGER `partitions_au_version` AFTER UPDATE ON `partitions` FOR EACH ROW
+  INSERT INTO `change_log` (`table_name`, `row_id`, `op`) VALUES ('partitions', NEW.`partition_id`, 'UPSERT');
+CREATE TRIGGER `partitions_ad_version` AFTER DELETE ON `partitions` FOR EACH ROW
+  INSERT INTO `change_log` (`table_name`, `row_id`, `op`) VALUES ('partitions', OLD.`partition_id`, 'DELETE');
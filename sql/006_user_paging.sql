@@ -0,0 +1,15 @@
+-- --------------------------------------------------------
+-- Index behind the paged admin Users table
+-- Apply after onclick_db.sql:
+--   mysql -u root -p onclick_db < sql/006_user_paging.sql
+--
+-- The Users table fetches one page at a time, sorted and filtered in SQL
+-- (ORDER BY <column>, user_id). Each sortable column has an index, so a
+-- page is an index range scan and never a filesort:
+--   #         -> PRIMARY            (user_id)
+--   username  -> username           (unique, from onclick_db.sql)
+--   role      -> idx_role_user      (role, user_id)
+-- --------------------------------------------------------
+
+ALTER TABLE `users`
+  ADD KEY `idx_role_user` (`role`, `user_id`);
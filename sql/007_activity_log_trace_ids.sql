@@ -0,0 +1,15 @@
+-- --------------------------------------------------------
+-- Trace IDs for activity_logs
+-- Apply after 003:
+--   mysql -u root -p onclick_db < sql/007_activity_log_trace_ids.sql
+--
+-- A log written inside a remote-operation trace (utils.Tracing) keeps the
+-- 32-hex-digit trace ID in its own column, so the action text, which the
+-- daily rollup groups by and the log search matches on, is unchanged.
+-- Logs written outside a trace keep trace_id NULL. The index serves the
+-- Logs tab search for a trace ID.
+-- --------------------------------------------------------
+
+ALTER TABLE `activity_logs`
+  ADD COLUMN `trace_id` char(32) DEFAULT NULL AFTER `event_id`,
+  ADD KEY `idx_trace` (`trace_id`);
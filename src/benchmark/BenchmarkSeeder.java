@@ -0,0 +1,204 @@
+package benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds a benchmark database with a realistic large dataset
+ * - users, machines per user, one partition row per machine, activity logs
+ *   spread over the last year (monthly partitions are created first)
+ * - tops up to the requested counts, so re-running only adds what is missing
+ * Uses its own connection with rewriteBatchedStatements for multi-row inserts.
+ */
+public class BenchmarkSeeder {
+
+    private static final int BATCH_SIZE = 5000;
+    private static final String[] ACTIONS = {
+        "User logged in successfully", "User logged out", "Created partition E: (50 GB)",
+        "Deleted partition F:", "Modified partition G: to 120 GB", "Changed password",
+        "Synchronized 4 partition(s) with database", "Refreshed activity logs",
+        "Error: Access denied while resizing D:"
+    };
+
+    private final Connection conn;
+    private final Random random = new Random(42);
+
+    public BenchmarkSeeder(Connection conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Seed up to the requested row counts
+     */
+    public void seed(int users, int machines, long logs) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            seedUsers(users);
+            seedMachines(machines);
+            seedPartitions();
+            ensureMonthlyPartitions();
+            seedLogs(logs);
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        try (Statement stmt = conn.createStatement()) {
+            System.out.println("Analyzing tables...");
+            stmt.execute("ANALYZE TABLE users, machines, partitions, activity_logs");
+        }
+    }
+
+    private long count(String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private int maxId(String table, String column) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(" + column + "), 0) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void seedUsers(int target) throws SQLException {
+        long existing = count("users");
+        int start = maxId("users", "user_id") + 1;
+        String sql = "INSERT INTO users (username, password, role) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (long i = existing; i < target; i++) {
+                long n = start + (i - existing);
+                pstmt.setString(1, "bench_user_" + n);
+                pstmt.setString(2, "bench" + n);
+                pstmt.setString(3, (n % 50 == 0) ? "ADMIN" : "USER");
+                pstmt.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) flush(pstmt, "users", i + 1, target);
+            }
+            flush(pstmt, "users", target, target);
+        }
+    }
+
+    private void seedMachines(int target) throws SQLException {
+        long existing = count("machines");
+        List<Integer> userIds = ids("SELECT user_id FROM users");
+        String sql = "INSERT INTO machines (user_id, machine_name, ip_address) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (long i = existing; i < target; i++) {
+                pstmt.setInt(1, userIds.get((int) (i % userIds.size())));
+                pstmt.setString(2, "BENCH-PC-" + i);
+                pstmt.setString(3, "10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255));
+                pstmt.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) flush(pstmt, "machines", i + 1, target);
+            }
+            flush(pstmt, "machines", target, target);
+        }
+    }
+
+    private void seedPartitions() throws SQLException {
+        String sql = "INSERT INTO partitions (machine_id, user_id, drive_letter, size_gb, created_date) " +
+                     "SELECT m.machine_id, m.user_id, 'E:', 50, CURRENT_DATE() FROM machines m " +
+                     "LEFT JOIN partitions p ON p.machine_id = m.machine_id WHERE p.partition_id IS NULL";
+        try (Statement stmt = conn.createStatement()) {
+            int rows = stmt.executeUpdate(sql);
+            conn.commit();
+            System.out.println("partitions: +" + rows);
+        }
+    }
+
+    /**
+     * Make sure every seeded month has its own partition so pruning behaves like production
+     */
+    private void ensureMonthlyPartitions() throws SQLException {
+        List<String> existing = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                     "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'activity_logs' AND PARTITION_NAME IS NOT NULL")) {
+            while (rs.next()) existing.add(rs.getString(1));
+        }
+        if (existing.isEmpty()) {
+            System.out.println("activity_logs is not partitioned (sql/001 not applied); seeding a plain table");
+            return;
+        }
+        YearMonth last = null;
+        for (String name : existing) {
+            if (name.matches("p\\d{6}")) {
+                YearMonth m = YearMonth.of(Integer.parseInt(name.substring(1, 5)), Integer.parseInt(name.substring(5, 7)));
+                if (last == null || m.isAfter(last)) last = m;
+            }
+        }
+        // Only p_future can be split, so months are added after the newest existing one
+        YearMonth month = (last == null) ? YearMonth.now().minusMonths(12) : last.plusMonths(1);
+        try (Statement stmt = conn.createStatement()) {
+            for (; !month.isAfter(YearMonth.now().plusMonths(1)); month = month.plusMonths(1)) {
+                String name = String.format("p%04d%02d", month.getYear(), month.getMonthValue());
+                stmt.executeUpdate("ALTER TABLE activity_logs REORGANIZE PARTITION p_future INTO (" +
+                        "PARTITION " + name + " VALUES LESS THAN (UNIX_TIMESTAMP('" + month.plusMonths(1).atDay(1) + " 00:00:00')), " +
+                        "PARTITION p_future VALUES LESS THAN MAXVALUE)");
+                System.out.println("activity_logs: added partition " + name);
+            }
+        }
+    }
+
+    private void seedLogs(long target) throws SQLException {
+        long existing = count("activity_logs");
+        if (existing >= target) {
+            System.out.println("activity_logs: " + existing + " row(s), nothing to add");
+            return;
+        }
+        // machine -> owner, so logs reference consistent pairs
+        List<int[]> machines = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT machine_id, user_id FROM machines")) {
+            while (rs.next()) machines.add(new int[]{rs.getInt(1), rs.getInt(2)});
+        }
+        long now = System.currentTimeMillis();
+        long yearMillis = 365L * 24 * 3600 * 1000;
+        String sql = "INSERT INTO activity_logs (user_id, machine_id, action, log_date) VALUES (?, ?, ?, ?)";
+        long startTime = System.currentTimeMillis();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (long i = existing; i < target; i++) {
+                int[] m = machines.get(random.nextInt(machines.size()));
+                pstmt.setInt(1, m[1]);
+                pstmt.setInt(2, m[0]);
+                pstmt.setString(3, ACTIONS[random.nextInt(ACTIONS.length)]);
+                pstmt.setTimestamp(4, new Timestamp(now - (long) (random.nextDouble() * yearMillis)));
+                pstmt.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    flush(pstmt, null, i + 1, target);
+                    if ((i + 1) % 500_000 == 0) {
+                        double secs = (System.currentTimeMillis() - startTime) / 1000.0;
+                        System.out.printf("activity_logs: %,d / %,d (%.0f rows/s)%n", i + 1, target, (i + 1 - existing) / secs);
+                    }
+                }
+            }
+            flush(pstmt, "activity_logs", target, target);
+        }
+    }
+
+    private void flush(PreparedStatement pstmt, String table, long done, long target) throws SQLException {
+        pstmt.executeBatch();
+        conn.commit();
+        if (table != null) {
+            System.out.printf("%s: %,d / %,d%n", table, Math.min(done, target), target);
+        }
+    }
+
+    private List<Integer> ids(String sql) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,452 @@
+package benchmark;
+
+import dao.ActivityLogHistoryDAO;
+import dao.CapacityHistoryDAO;
+import dao.MachineDAO;
+import dao.UserDAO;
+import database.DatabaseConnection;
+import models.ActivityLog;
+import models.LogSearchCriteria;
+import models.Machine;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * DAO Latency Benchmark
+ * Run this against a dedicated benchmark database (name ending in "_bench"):
+ *
+ *   java -cp out:src/mysql-connector-j-9.5.0.jar benchmark.DaoBenchmark --seed
+ *
+ * - seeds 10k users / 50k machines / 20M activity logs (see BenchmarkSeeder)
+ * - runs every DAO call and reports p50/p99 latency and throughput
+ * - prints the EXPLAIN plan of each query and fails on full scans or missed budgets
+ *
+ * Options: --seed, --users N, --machines N, --logs N, --threads N, --seconds N,
+ *          --only name-substring, --force (allow a database not named *_bench)
+ * Exit code 0 when every case passes, 1 otherwise.
+ *
+ * The DAOs share DatabaseConnection's single connection and close it after each
+ * call, so DAO cases run on one thread with the entity caches cleared before every
+ * call; only the raw SQL cases run on --threads threads, each with its own connection.
+ */
+public class DaoBenchmark {
+
+    /** One benchmarked DAO call with the query it runs and its latency budget */
+    private static class Case {
+        final String name;
+        final double p99BudgetMs;
+        final boolean fullScanAllowed;
+        final String explainSql;
+        final Function<ThreadLocalRandom, Object[]> explainParams;
+        final Op op;
+        /** true for raw SQL cases, which may run concurrently on per-worker connections */
+        final boolean ownConnection;
+
+        Case(String name, double p99BudgetMs, boolean fullScanAllowed, String explainSql,
+             Function<ThreadLocalRandom, Object[]> explainParams, Op op) {
+            this(name, p99BudgetMs, fullScanAllowed, explainSql, explainParams, op, false);
+        }
+
+        Case(String name, double p99BudgetMs, boolean fullScanAllowed, String explainSql,
+             Function<ThreadLocalRandom, Object[]> explainParams, Op op, boolean ownConnection) {
+            this.name = name;
+            this.p99BudgetMs = p99BudgetMs;
+            this.fullScanAllowed = fullScanAllowed;
+            this.explainSql = explainSql;
+            this.explainParams = explainParams;
+            this.op = op;
+            this.ownConnection = ownConnection;
+        }
+    }
+
+    private interface Op {
+        /**
+         * @param conn The worker's own connection for raw SQL cases, null for DAO cases
+         * @return false if the DAO reported a failure or found nothing
+         */
+        boolean run(ThreadLocalRandom random, Connection conn) throws Exception;
+    }
+
+    /** Existing rows sampled at startup, so point lookups always hit a real key */
+    private static final int SAMPLE_SIZE = 10_000;
+    private static int[] sampleUserIds;
+    private static String[] sampleUsernames;
+    private static String[] samplePasswords;
+    private static int[] sampleMachineIds;
+    private static String[] sampleMachineNames;
+    private static int[] sampleMachineUserIds;
+
+    private static int threads = 8;
+    private static int seconds = 10;
+    private static int maxUserId;
+    private static int maxMachineId;
+
+    public static void main(String[] args) throws Exception {
+        boolean seed = false;
+        boolean force = false;
+        String only = null;
+        int users = 10_000;
+        int machines = 50_000;
+        long logs = 20_000_000L;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed": seed = true; break;
+                case "--force": force = true; break;
+                case "--users": users = Integer.parseInt(args[++i]); break;
+                case "--machines": machines = Integer.parseInt(args[++i]); break;
+                case "--logs": logs = Long.parseLong(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--seconds": seconds = Integer.parseInt(args[++i]); break;
+                case "--only": only = args[++i]; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        System.out.println("========================================");
+        System.out.println("   DAO LATENCY BENCHMARK");
+        System.out.println("========================================");
+
+        try (Connection admin = openConnection()) {
+            String schema = admin.getCatalog();
+            System.out.println("Database: " + schema);
+            if (!force && (schema == null || !schema.endsWith("_bench"))) {
+                System.err.println("Refusing to run against '" + schema + "': point db.url at a *_bench database or pass --force");
+                System.exit(2);
+            }
+            if (seed) {
+                new BenchmarkSeeder(admin).seed(users, machines, logs);
+            }
+            maxUserId = (int) scalar(admin, "SELECT MAX(user_id) FROM users");
+            maxMachineId = (int) scalar(admin, "SELECT MAX(machine_id) FROM machines");
+            System.out.printf("Dataset: %,d users, %,d machines, %,d activity logs%n",
+                    scalar(admin, "SELECT COUNT(*) FROM users"),
+                    scalar(admin, "SELECT COUNT(*) FROM machines"),
+                    scalar(admin, "SELECT COUNT(*) FROM activity_logs"));
+            loadSamples(admin);
+            if (sampleUserIds.length == 0 || sampleMachineIds.length == 0) {
+                System.err.println("No users or machines to benchmark: run with --seed");
+                System.exit(2);
+            }
+            System.out.println("Threads: 1 for DAO cases (shared connection), " + threads
+                    + " for SQL cases, " + seconds + " s per case");
+            System.out.println();
+
+            List<String> failures = new ArrayList<>();
+            for (Case c : cases()) {
+                if (only != null && !c.name.contains(only)) continue;
+                runCase(admin, c, failures);
+            }
+
+            System.out.println();
+            System.out.println("========================================");
+            if (failures.isEmpty()) {
+                System.out.println("   ALL CASES PASSED");
+            } else {
+                System.out.println("   " + failures.size() + " FAILURE(S)");
+                for (String f : failures) System.out.println("   - " + f);
+            }
+            System.out.println("========================================");
+            System.exit(failures.isEmpty() ? 0 : 1);
+        }
+    }
+
+    private static List<Case> cases() {
+        UserDAO userDAO = new UserDAO();
+        MachineDAO machineDAO = new MachineDAO();
+        ActivityLogHistoryDAO historyDAO = new ActivityLogHistoryDAO();
+        CapacityHistoryDAO capacityDAO = new CapacityHistoryDAO();
+        long day = 24L * 3600 * 1000;
+        List<Case> cases = new ArrayList<>();
+
+        cases.add(new Case("UserDAO.getUserById", 10, false,
+                "SELECT * FROM users WHERE user_id = ?", r -> new Object[]{randomUser(r)},
+                (r, conn) -> { uncached(); return userDAO.getUserById(sampleUserIds[r.nextInt(sampleUserIds.length)]) != null; }));
+        cases.add(new Case("UserDAO.getUserByUsername", 10, false,
+                "SELECT * FROM users WHERE username = ?", r -> new Object[]{"bench_user_" + randomUser(r)},
+                (r, conn) -> { uncached(); return userDAO.getUserByUsername(sampleUsernames[r.nextInt(sampleUsernames.length)]) != null; }));
+        cases.add(new Case("UserDAO.authenticateUser", 10, false,
+                "SELECT * FROM users WHERE username = ? AND password = ?",
+                r -> new Object[]{"bench_user_1", "bench1"},
+                (r, conn) -> {
+                    int i = r.nextInt(sampleUsernames.length);
+                    return userDAO.authenticateUser(sampleUsernames[i], samplePasswords[i]) != null;
+                }));
+        cases.add(new Case("UserDAO.getAllUsers", 500, true,
+                "SELECT * FROM users", r -> new Object[0],
+                (r, conn) -> { uncached(); return userDAO.getAllUsers() != null; }));
+        cases.add(new Case("MachineDAO.getMachineById", 10, false,
+                "SELECT * FROM machines WHERE machine_id = ?", r -> new Object[]{randomMachine(r)},
+                (r, conn) -> { uncached(); return machineDAO.getMachineById(sampleMachineIds[r.nextInt(sampleMachineIds.length)]) != null; }));
+        cases.add(new Case("MachineDAO.getMachinesByUserId", 20, false,
+                "SELECT * FROM machines WHERE user_id = ?", r -> new Object[]{randomUser(r)},
+                (r, conn) -> { uncached(); return machineDAO.getMachinesByUserId(randomUser(r)) != null; }));
+        cases.add(new Case("MachineDAO.getMachineByNameAndUserId", 20, false,
+                "SELECT * FROM machines WHERE machine_name = ? AND user_id = ?",
+                r -> new Object[]{"BENCH-PC-1", 1},
+                (r, conn) -> {
+                    uncached();
+                    int i = r.nextInt(sampleMachineIds.length);
+                    return machineDAO.getMachineByNameAndUserId(sampleMachineNames[i], sampleMachineUserIds[i]) != null;
+                }));
+        cases.add(new Case("MachineDAO.getAllMachines", 1500, true,
+                "SELECT * FROM machines", r -> new Object[0],
+                (r, conn) -> { uncached(); return machineDAO.getAllMachines() != null; }));
+        cases.add(new Case("MachineDAO.updateMachine", 20, false,
+                "UPDATE machines SET user_id = ?, machine_name = ?, ip_address = ? WHERE machine_id = ?",
+                r -> new Object[]{1, "BENCH-PC-1", "10.0.0.1", 1},
+                (r, conn) -> {
+                    Machine m = machineDAO.getMachineById(sampleMachineIds[r.nextInt(sampleMachineIds.length)]);
+                    return m != null && machineDAO.updateMachine(m);
+                }));
+        cases.add(new Case("ActivityLogHistoryDAO.getLogsSince(1h)", 50, false,
+                "SELECT * FROM activity_logs WHERE log_date >= ? ORDER BY log_date, log_id",
+                r -> new Object[]{new Timestamp(System.currentTimeMillis() - 3600_000L)},
+                (r, conn) -> historyDAO.getLogsSince(new Timestamp(System.currentTimeMillis() - 3600_000L)) != null));
+        cases.add(new Case("ActivityLogHistoryDAO.searchLogs(user, 1y)", 100, false,
+                "SELECT * FROM activity_logs WHERE user_id = ? AND log_date >= ? ORDER BY log_date DESC, log_id DESC LIMIT 201",
+                r -> new Object[]{randomUser(r), new Timestamp(System.currentTimeMillis() - 365 * day)},
+                (r, conn) -> historyDAO.searchLogs(new LogSearchCriteria(randomUser(r), null, null, null,
+                        new Timestamp(System.currentTimeMillis() - 365 * day), null), null, 201) != null));
+        cases.add(new Case("ActivityLogHistoryDAO.searchLogs(machine+type, 1y)", 100, false,
+                "SELECT * FROM activity_logs WHERE machine_id = ? AND log_date >= ? AND action LIKE ? ORDER BY log_date DESC, log_id DESC LIMIT 201",
+                r -> new Object[]{randomMachine(r), new Timestamp(System.currentTimeMillis() - 365 * day), "Created partition%"},
+                (r, conn) -> historyDAO.searchLogs(new LogSearchCriteria(null, randomMachine(r), "Created partition", null,
+                        new Timestamp(System.currentTimeMillis() - 365 * day), null), null, 201) != null));
+        cases.add(new Case("ActivityLogHistoryDAO.getDailyRollups(30d)", 100, false,
+                "SELECT * FROM activity_log_daily WHERE log_day >= ? AND log_day < ? ORDER BY log_day, user_id",
+                r -> new Object[]{new java.sql.Date(System.currentTimeMillis() - 30 * day), new java.sql.Date(System.currentTimeMillis())},
+                (r, conn) -> historyDAO.getDailyRollups(new java.sql.Date(System.currentTimeMillis() - 30 * day),
+                        new java.sql.Date(System.currentTimeMillis())) != null));
+        cases.add(new Case("ActivityLogHistoryDAO.insertSpooledLogs(10)", 50, false,
+                null, null,
+                (r, conn) -> {
+                    List<ActivityLog> batch = new ArrayList<>();
+                    for (int i = 0; i < 10; i++) {
+                        ActivityLog log = new ActivityLog(randomUser(r), randomMachine(r), "Benchmark event");
+                        log.setEventId(UUID.randomUUID().toString());
+                        batch.add(log);
+                    }
+                    return historyDAO.insertSpooledLogs(batch);
+                }));
+        cases.add(new Case("CapacityHistoryDAO.getSeries(30d)", 50, false,
+                "SELECT * FROM capacity_hourly WHERE machine_id = ? AND volume = ? AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start",
+                r -> new Object[]{randomMachine(r), "C:", new Timestamp(System.currentTimeMillis() - 30 * day), new Timestamp(System.currentTimeMillis())},
+                (r, conn) -> capacityDAO.getSeries(randomMachine(r), "C:", new Timestamp(System.currentTimeMillis() - 30 * day),
+                        new Timestamp(System.currentTimeMillis())) != null));
+        // PartitionDAO is not part of this source tree; its lookups are measured as the SQL it issues
+        cases.add(new Case("partitions by machine (SQL)", 20, false,
+                "SELECT * FROM partitions WHERE machine_id = ?", r -> new Object[]{randomMachine(r)},
+                (r, conn) -> queryPartitions(conn, "SELECT * FROM partitions WHERE machine_id = ?", randomMachine(r)), true));
+        cases.add(new Case("partitions by user (SQL)", 20, false,
+                "SELECT * FROM partitions WHERE user_id = ?", r -> new Object[]{randomUser(r)},
+                (r, conn) -> queryPartitions(conn, "SELECT * FROM partitions WHERE user_id = ?", randomUser(r)), true));
+        return cases;
+    }
+
+    private static int randomUser(ThreadLocalRandom r) {
+        return 1 + r.nextInt(Math.max(1, maxUserId));
+    }
+
+    private static int randomMachine(ThreadLocalRandom r) {
+        return 1 + r.nextInt(Math.max(1, maxMachineId));
+    }
+
+    /**
+     * Measure the lookup itself, not the read-through caches in front of it
+     */
+    private static void uncached() {
+        UserDAO.invalidateCache();
+        MachineDAO.invalidateCache();
+    }
+
+    private static void loadSamples(Connection conn) throws SQLException {
+        List<Object[]> users = rows(conn, "SELECT user_id, username, password FROM users ORDER BY RAND() LIMIT " + SAMPLE_SIZE);
+        sampleUserIds = new int[users.size()];
+        sampleUsernames = new String[users.size()];
+        samplePasswords = new String[users.size()];
+        for (int i = 0; i < users.size(); i++) {
+            sampleUserIds[i] = ((Number) users.get(i)[0]).intValue();
+            sampleUsernames[i] = (String) users.get(i)[1];
+            samplePasswords[i] = (String) users.get(i)[2];
+        }
+        List<Object[]> machines = rows(conn, "SELECT machine_id, machine_name, user_id FROM machines ORDER BY RAND() LIMIT " + SAMPLE_SIZE);
+        sampleMachineIds = new int[machines.size()];
+        sampleMachineNames = new String[machines.size()];
+        sampleMachineUserIds = new int[machines.size()];
+        for (int i = 0; i < machines.size(); i++) {
+            sampleMachineIds[i] = ((Number) machines.get(i)[0]).intValue();
+            sampleMachineNames[i] = (String) machines.get(i)[1];
+            sampleMachineUserIds[i] = ((Number) machines.get(i)[2]).intValue();
+        }
+    }
+
+    private static List<Object[]> rows(Connection conn, String sql) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                Object[] row = new Object[columns];
+                for (int i = 0; i < columns; i++) row[i] = rs.getObject(i + 1);
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static boolean queryPartitions(Connection conn, String sql, int id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) { /* drain */ }
+            }
+            return true;
+        }
+    }
+
+    private static void runCase(Connection admin, Case c, List<String> failures) throws InterruptedException {
+        System.out.println("---- " + c.name + " ----");
+
+        // EXPLAIN first: a full scan fails the case even if it happens to be fast on this data
+        if (c.explainSql != null) {
+            String plan = explain(admin, c.explainSql, c.explainParams.apply(ThreadLocalRandom.current()));
+            System.out.print(plan);
+            if (!c.fullScanAllowed && plan.contains("type=ALL")) {
+                failures.add(c.name + ": full table scan");
+            }
+        }
+
+        // Warm up, then measure
+        int workers = c.ownConnection ? threads : 1;
+        runFor(c, workers, Math.max(1, seconds / 5), null);
+        long[][] perThread = new long[workers][];
+        AtomicLong errors = new AtomicLong();
+        long wallNanos = runFor(c, workers, seconds, new Object[]{perThread, errors});
+
+        long[] all = Arrays.stream(perThread).flatMapToLong(Arrays::stream).sorted().toArray();
+        if (all.length == 0) {
+            failures.add(c.name + ": no successful calls");
+            System.out.println("no successful calls");
+            return;
+        }
+        double p50 = all[(int) (all.length * 0.50)] / 1e6;
+        double p99 = all[Math.min(all.length - 1, (int) (all.length * 0.99))] / 1e6;
+        double max = all[all.length - 1] / 1e6;
+        double throughput = all.length / (wallNanos / 1e9);
+        boolean ok = p99 <= c.p99BudgetMs && errors.get() == 0;
+        System.out.printf("calls=%,d  errors=%d  p50=%.2f ms  p99=%.2f ms  max=%.2f ms  %.0f ops/s  budget p99<=%.0f ms  %s%n",
+                all.length, errors.get(), p50, p99, max, throughput, c.p99BudgetMs, ok ? "OK" : "FAIL");
+        if (p99 > c.p99BudgetMs) failures.add(String.format("%s: p99 %.2f ms > %.0f ms", c.name, p99, c.p99BudgetMs));
+        if (errors.get() > 0) failures.add(c.name + ": " + errors.get() + " error(s)");
+    }
+
+    /**
+     * Run the case on the given number of threads for the given time
+     * @param sink null for warm-up, else {long[][] per-thread latencies, AtomicLong errors}
+     * @return Wall time in nanoseconds
+     */
+    private static long runFor(Case c, int workers, int runSeconds, Object[] sink) throws InterruptedException {
+        long deadline = System.nanoTime() + runSeconds * 1_000_000_000L;
+        CountDownLatch done = new CountDownLatch(workers);
+        long start = System.nanoTime();
+        for (int t = 0; t < workers; t++) {
+            final int index = t;
+            Thread worker = new Thread(() -> {
+                long[] samples = new long[1024];
+                int n = 0;
+                Connection conn = null;
+                try {
+                    if (c.ownConnection) {
+                        conn = DatabaseConnection.openConnection(new Properties());
+                    }
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        long s = System.nanoTime();
+                        boolean ok;
+                        try {
+                            ok = c.op.run(random, conn);
+                        } catch (Exception e) {
+                            ok = false;
+                        }
+                        long elapsed = System.nanoTime() - s;
+                        if (sink == null) continue;
+                        if (!ok) {
+                            ((AtomicLong) sink[1]).incrementAndGet();
+                            continue;
+                        }
+                        if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+                        samples[n++] = elapsed;
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Error opening benchmark connection: " + e.getMessage());
+                    if (sink != null) ((AtomicLong) sink[1]).incrementAndGet();
+                } finally {
+                    if (conn != null) {
+                        try {
+                            conn.close();
+                        } catch (SQLException ignored) {
+                        }
+                    }
+                    if (sink != null) ((long[][]) sink[0])[index] = Arrays.copyOf(samples, n);
+                    done.countDown();
+                }
+            }, "bench-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        done.await();
+        return System.nanoTime() - start;
+    }
+
+    private static String explain(Connection conn, String sql, Object[] params) {
+        StringBuilder out = new StringBuilder();
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    out.append(String.format("  plan: table=%s type=%s key=%s rows=%s extra=%s%n",
+                            rs.getString("table"), rs.getString("type"), rs.getString("key"),
+                            rs.getString("rows"), rs.getString("Extra")));
+                }
+            }
+        } catch (SQLException e) {
+            out.append("  plan: unavailable (").append(e.getMessage()).append(")\n");
+        }
+        return out.toString();
+    }
+
+    private static long scalar(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Separate connection for seeding and EXPLAIN so the DAOs' shared connection is untouched
+     */
+    private static Connection openConnection() throws SQLException {
+        String url = DatabaseConnection.getUrl();
+        url += (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+        return DriverManager.getConnection(url, DatabaseConnection.getUser(), DatabaseConnection.getPassword());
+    }
+}
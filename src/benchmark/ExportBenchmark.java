@@ -0,0 +1,253 @@
+package benchmark;
+
+import database.DatabaseConnection;
+import models.ExportSummary;
+import utils.BackupManager;
+import utils.ExportFormat;
+import utils.ParallelExporter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Native exporter vs mysqldump on a seeded benchmark database (name ending in "_bench"):
+ *
+ *   java -cp out:src/mysql-connector-j-9.5.0.jar benchmark.ExportBenchmark --seed
+ *
+ * - seeds the dataset with BenchmarkSeeder (default 2M activity logs)
+ * - times mysqldump alone and mysqldump + gzip (the single-threaded pipeline the
+ *   native exporter replaces), then ParallelExporter at each thread count
+ * - reads one native export back, checking every chunk checksum and that each
+ *   table has exactly the rows COUNT(*) reports
+ *
+ * Options: --seed, --users N, --machines N, --logs N, --threads 1,2,4,8,
+ *          --runs N (median of N, default 3), --level N (default backup.compress.level),
+ *          --skip-mysqldump, --force (allow a database not named *_bench)
+ * Exit code 0 when the export verifies, 1 otherwise.
+ */
+public class ExportBenchmark {
+
+    private interface Run {
+        /** @return Bytes written */
+        long run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean seed = false;
+        boolean force = false;
+        boolean skipMysqldump = false;
+        int users = 10_000;
+        int machines = 50_000;
+        long logs = 2_000_000L;
+        int runs = 3;
+        int level = -1;
+        List<Integer> threadCounts = new ArrayList<>(List.of(1, 2, 4, 8));
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed": seed = true; break;
+                case "--force": force = true; break;
+                case "--skip-mysqldump": skipMysqldump = true; break;
+                case "--users": users = Integer.parseInt(args[++i]); break;
+                case "--machines": machines = Integer.parseInt(args[++i]); break;
+                case "--logs": logs = Long.parseLong(args[++i]); break;
+                case "--runs": runs = Integer.parseInt(args[++i]); break;
+                case "--level": level = Integer.parseInt(args[++i]); break;
+                case "--threads":
+                    threadCounts.clear();
+                    for (String n : args[++i].split(",")) threadCounts.add(Integer.parseInt(n.trim()));
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        System.out.println("========================================");
+        System.out.println("   EXPORT BENCHMARK");
+        System.out.println("========================================");
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        long totalRows = 0;
+        Properties batched = new Properties();
+        batched.setProperty("rewriteBatchedStatements", "true");
+        try (Connection admin = DatabaseConnection.openConnection(batched)) {
+            String schema = admin.getCatalog();
+            System.out.println("Database: " + schema);
+            if (!force && (schema == null || !schema.endsWith("_bench"))) {
+                System.err.println("Refusing to run against '" + schema + "': point db.url at a *_bench database or pass --force");
+                System.exit(2);
+            }
+            if (seed) {
+                new BenchmarkSeeder(admin).seed(users, machines, logs);
+            }
+            for (String table : tables(admin)) {
+                long n = scalar(admin, "SELECT COUNT(*) FROM `" + table + "`");
+                counts.put(table, n);
+                totalRows += n;
+            }
+            System.out.printf("Dataset: %,d rows in %d tables%n", totalRows, counts.size());
+        }
+        int compression = (level >= 0) ? level : (int) DatabaseConnection.getLongProperty("backup.compress.level", 6);
+        System.out.println("Runs: median of " + runs + ", compression level " + compression);
+        System.out.println();
+        System.out.printf("%-28s %10s %12s %12s%n", "case", "seconds", "output MB", "rows/s");
+
+        double baseline = 0;
+        if (!skipMysqldump) {
+            String mysqldump = BackupManager.getMysqldumpPath();
+            if (!new File(mysqldump).exists()) {
+                System.out.println("mysqldump not found at " + mysqldump + " (backup.mysqldump); skipping it");
+            } else {
+                report("mysqldump", runs, totalRows, () -> mysqldump(mysqldump, -1));
+                baseline = report("mysqldump + gzip", runs, totalRows, () -> mysqldump(mysqldump, compression));
+            }
+        }
+
+        File sample = File.createTempFile("export-benchmark", ".ocx");
+        sample.deleteOnExit();
+        for (int threads : threadCounts) {
+            ParallelExporter exporter = new ParallelExporter(threads,
+                    DatabaseConnection.getLongProperty("backup.export.split.rows", 250_000),
+                    (int) DatabaseConnection.getLongProperty("backup.export.fetch.rows", 2000), compression);
+            boolean keep = threads == threadCounts.get(threadCounts.size() - 1);
+            double seconds = report("native, " + threads + " thread(s)", runs, totalRows, () -> {
+                try (OutputStream out = keep ? new BufferedOutputStream(new FileOutputStream(sample), 1 << 20)
+                                             : OutputStream.nullOutputStream()) {
+                    ExportSummary summary = exporter.export(out, null);
+                    if (!summary.isSharedSnapshot()) System.out.println("  (no shared snapshot: ran on one connection)");
+                    return summary.getStoredBytes();
+                }
+            });
+            if (baseline > 0) System.out.printf("%-28s %9.1fx%n", "  vs mysqldump + gzip", baseline / seconds);
+        }
+
+        System.out.println();
+        System.out.println("Verifying " + sample.getName() + "...");
+        List<String> failures = verify(sample, counts);
+        System.out.println("========================================");
+        if (failures.isEmpty()) {
+            System.out.println("   EXPORT VERIFIED");
+        } else {
+            System.out.println("   " + failures.size() + " FAILURE(S)");
+            for (String f : failures) System.out.println("   - " + f);
+        }
+        System.out.println("========================================");
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Run a case several times and print its median
+     * @return Median seconds
+     */
+    private static double report(String name, int runs, long rows, Run run) throws Exception {
+        List<Double> seconds = new ArrayList<>();
+        long bytes = 0;
+        for (int i = 0; i < Math.max(1, runs); i++) {
+            long start = System.nanoTime();
+            bytes = run.run();
+            seconds.add((System.nanoTime() - start) / 1e9);
+        }
+        Collections.sort(seconds);
+        double median = seconds.get(seconds.size() / 2);
+        System.out.printf("%-28s %10.2f %12.1f %,12.0f%n", name, median, bytes / (1024.0 * 1024), rows / median);
+        return median;
+    }
+
+    /**
+     * @param level gzip level, or -1 to only count the SQL
+     * @return Bytes of output
+     */
+    private static long mysqldump(String mysqldump, int level) throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(BackupManager.clientCommand(mysqldump,
+                "--single-transaction", "--databases", DatabaseConnection.getDatabaseName()));
+        if (!DatabaseConnection.getPassword().isEmpty()) pb.environment().put("MYSQL_PWD", DatabaseConnection.getPassword());
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = pb.start();
+        CountingOutputStream counter = new CountingOutputStream();
+        try (InputStream in = process.getInputStream();
+             OutputStream out = (level > 0) ? new GZIPOutputStream(counter, 1 << 16) {
+                 { def.setLevel(level); }
+             } : counter) {
+            in.transferTo(out);
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0) throw new IOException("mysqldump exited with code " + exitCode);
+        return counter.count;
+    }
+
+    /**
+     * Read the export back: every chunk must pass its checksum and every table must
+     * hold exactly the rows the database has
+     */
+    private static List<String> verify(File export, Map<String, Long> counts) {
+        List<String> failures = new ArrayList<>();
+        try (ExportFormat.Reader reader = new ExportFormat.Reader(new BufferedInputStream(new FileInputStream(export), 1 << 20))) {
+            ExportFormat.Chunk chunk;
+            Map<String, Long> rows = new LinkedHashMap<>();
+            while ((chunk = reader.next()) != null) {
+                rows.merge(chunk.table.name, (long) chunk.rows().size(), Long::sum);
+            }
+            for (Map.Entry<String, Long> table : counts.entrySet()) {
+                long exported = rows.getOrDefault(table.getKey(), 0L);
+                String line = String.format("  %-22s %,12d rows", table.getKey(), exported);
+                if (exported != table.getValue()) {
+                    failures.add(table.getKey() + ": exported " + exported + " rows, table has " + table.getValue());
+                    line += "  MISMATCH (" + table.getValue() + ")";
+                }
+                System.out.println(line);
+            }
+            System.out.println("  triggers: " + reader.getTriggers().size());
+        } catch (IOException e) {
+            failures.add("Export unreadable: " + e.getMessage());
+        }
+        return failures;
+    }
+
+    private static List<String> tables(Connection conn) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT TABLE_NAME FROM information_schema.TABLES " +
+                     "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_TYPE = 'BASE TABLE' ORDER BY TABLE_NAME")) {
+            while (rs.next()) tables.add(rs.getString(1));
+        }
+        return tables;
+    }
+
+    private static long scalar(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        long count = 0;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package benchmark;
+
+import gui.PartitionStorage;
+import lan.LanClient;
+import lan.http.HttpAgentServer;
+import lan.http.HttpLanClient;
+import utils.DiskMonitorService;
+import utils.PartitionOperations;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Microbenchmark of the parsers that run on every poll (no database, agent or display needed):
+ *
+ *   java -cp out benchmark.ParserBenchmark
+ *
+ * Each parser runs on realistic and adversarial inputs (hundreds of volumes, multi-megabyte
+ * error output, heavily encoded forms), once as it was written before (kept below as the
+ * baseline) and once as it is now. Per case it reports the median ns/op over the measured
+ * iterations and the bytes allocated per op on the benchmark thread (what a GC profiler
+ * reports as the normalized allocation rate), after a warm-up long enough for the JIT.
+ * Both versions must return the same result for every input.
+ *
+ * Options: --warmup-ms N (default 500), --iterations N (default 5), --iteration-ms N (default 300),
+ *          --only name (run the cases whose name contains it)
+ * Exit code 1 if a rewritten parser disagrees with the baseline.
+ */
+public class ParserBenchmark {
+
+    private interface Op {
+        Object run() throws Exception;
+    }
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    // Results go here so the JIT cannot drop the work
+    private static volatile int sink;
+
+    private static int warmupMs = 500;
+    private static int iterations = 5;
+    private static int iterationMs = 300;
+
+    public static void main(String[] args) throws Exception {
+        String only = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--warmup-ms": warmupMs = Integer.parseInt(args[++i]); break;
+                case "--iterations": iterations = Integer.parseInt(args[++i]); break;
+                case "--iteration-ms": iterationMs = Integer.parseInt(args[++i]); break;
+                case "--only": only = args[++i]; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        System.out.println("========================================");
+        System.out.println("   PARSER BENCHMARK");
+        System.out.println("========================================");
+        System.out.printf("%-34s %12s %12s %12s %12s %8s%n", "case", "before ns", "after ns", "before B", "after B", "speedup");
+        List<String> failures = new ArrayList<>();
+
+        for (int volumes : new int[]{10, 500}) {
+            String body = volumesResponse(volumes, 16);
+            compare("listVolumes/" + volumes, only, failures,
+                    () -> legacyParseVolumes(new BufferedReader(new StringReader(body))),
+                    () -> HttpLanClient.parseVolumes(new BufferedReader(new StringReader(body))),
+                    ParserBenchmark::volumeKey);
+        }
+        String hostile = hostileVolumesResponse(500);
+        compare("listVolumes/hostile", only, failures,
+                () -> legacyParseVolumes(new BufferedReader(new StringReader(hostile))),
+                () -> HttpLanClient.parseVolumes(new BufferedReader(new StringReader(hostile))),
+                ParserBenchmark::volumeKey);
+
+        String rename = "drive=" + URLEncoder.encode("D", "UTF-8") + "&label=" + URLEncoder.encode("Data Disk", "UTF-8");
+        String plain = "drive=D&letter=E&sizeMB=20480";
+        String encoded = bigForm(200);
+        for (String[] form : new String[][]{{"rename", rename}, {"plain", plain}, {"200 fields", encoded}}) {
+            compare("parseForm/" + form[0], only, failures,
+                    () -> legacyParseForm(form[1]), () -> HttpAgentServer.parseForm(form[1]), m -> m);
+        }
+        for (int size : new int[]{64, 1 << 20}) {
+            byte[] bytes = encoded.substring(0, Math.min(size, encoded.length())).repeat(Math.max(1, size / encoded.length()))
+                    .getBytes(StandardCharsets.UTF_8);
+            compare("readBody/" + bytes.length + "B", only, failures,
+                    () -> legacyReadBody(new ByteArrayInputStream(bytes)),
+                    () -> HttpAgentServer.readBody(new ByteArrayInputStream(bytes)), s -> s);
+        }
+
+        List<String> drives = partitionLines(26, 0);
+        List<String> noisyDrives = partitionLines(26, 2000);
+        compare("getSystemPartitions/26", only, failures,
+                () -> legacyPartitions(drives), () -> partitions(drives), ParserBenchmark::partitionKey);
+        compare("getSystemPartitions/noisy", only, failures,
+                () -> legacyPartitions(noisyDrives), () -> partitions(noisyDrives), ParserBenchmark::partitionKey);
+
+        List<String> disks = extentLines(4);
+        List<String> manyDisks = extentLines(1000);
+        compare("unallocatedExtents/4", only, failures,
+                () -> legacyExtents(disks), () -> DiskMonitorService.parseUnallocatedExtents(disks), m -> m);
+        compare("unallocatedExtents/1000", only, failures,
+                () -> legacyExtents(manyDisks), () -> DiskMonitorService.parseUnallocatedExtents(manyDisks), m -> m);
+
+        String shortOutput = commandOutput(12, false);
+        String hugeError = commandOutput(60_000, true);
+        String hugeClean = commandOutput(60_000, false);
+        for (String[] output : new String[][]{{"short", shortOutput}, {"huge error", hugeError}, {"huge clean", hugeClean}}) {
+            compare("summarizeOutput/" + output[0], only, failures,
+                    () -> legacyLooksLikeError(0, output[1]) + "\n" + legacySummarizeOutput(output[1]),
+                    () -> PartitionOperations.looksLikeError(0, output[1]) + "\n" + PartitionOperations.summarizeOutput(output[1]),
+                    s -> s);
+        }
+
+        System.out.println("========================================");
+        if (failures.isEmpty()) {
+            System.out.println("   ALL PARSERS MATCH THEIR BASELINE");
+        } else {
+            System.out.println("   " + failures.size() + " FAILURE(S)");
+            for (String f : failures) System.out.println("   - " + f);
+        }
+        System.out.println("========================================");
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private interface Key {
+        Object of(Object result);
+    }
+
+    /**
+     * Check both versions agree, then measure both
+     */
+    private static void compare(String name, String only, List<String> failures, Op before, Op after, Key key)
+            throws Exception {
+        if (only != null && !name.contains(only)) return;
+        Object expected = key.of(before.run());
+        Object actual = key.of(after.run());
+        if (!Objects.equals(expected, actual)) {
+            failures.add(name + ": result differs from the baseline");
+        }
+        double[] b = measure(before);
+        double[] a = measure(after);
+        System.out.printf("%-34s %,12.0f %,12.0f %,12.0f %,12.0f %7.1fx%n", name, b[0], a[0], b[1], a[1], b[0] / a[0]);
+    }
+
+    /**
+     * @return {median ns/op, bytes allocated/op}
+     */
+    private static double[] measure(Op op) throws Exception {
+        long until = System.nanoTime() + warmupMs * 1_000_000L;
+        while (System.nanoTime() < until) sink += op.run().hashCode();
+
+        long thread = Thread.currentThread().getId();
+        double[] nanos = new double[Math.max(1, iterations)];
+        long allocated = 0;
+        long ops = 0;
+        for (int i = 0; i < nanos.length; i++) {
+            long count = 0;
+            long bytesBefore = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            long end = start + iterationMs * 1_000_000L;
+            long now;
+            do {
+                sink += op.run().hashCode();
+                count++;
+            } while ((now = System.nanoTime()) < end);
+            allocated += threads.getThreadAllocatedBytes(thread) - bytesBefore;
+            ops += count;
+            nanos[i] = (double) (now - start) / count;
+        }
+        Arrays.sort(nanos);
+        return new double[]{nanos[nanos.length / 2], (double) allocated / ops};
+    }
+
+    // ---------------- Inputs ----------------
+
+    private static String volumesResponse(int volumes, int freeExtents) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder("OK\n");
+        for (int i = 0; i < volumes; i++) {
+            long total = (1L + random.nextInt(4000)) << 30;
+            sb.append("VOL\t").append((char) ('C' + i % 24)).append('\t').append("Volume ").append(i)
+                    .append('\t').append((long) (total * random.nextDouble())).append('\t').append(total).append('\n');
+        }
+        for (int i = 0; i < freeExtents; i++) {
+            sb.append("FREE\t").append(i).append("\tDisk ").append(i).append('\t')
+                    .append((long) random.nextInt(1 << 30) << 8).append("\t").append(2L << 40).append('\n');
+        }
+        return sb.append("END\n").toString();
+    }
+
+    /** Long labels, bad numbers, short and padded lines, empty fields */
+    private static String hostileVolumesResponse(int volumes) {
+        StringBuilder sb = new StringBuilder("OK agent\n");
+        String longLabel = "L".repeat(4096);
+        for (int i = 0; i < volumes; i++) {
+            switch (i % 6) {
+                case 0: sb.append("VOL\tC\t").append(longLabel).append("\t123\t456\n"); break;
+                case 1: sb.append("VOL\tD\tx\tNaN\t 789 \n"); break;
+                case 2: sb.append("VOL\tE\tshort\t1\n"); break;
+                case 3: sb.append("VOL\tF\t\t1\t\t\t\n"); break;
+                case 4: sb.append("FREE\t\t\t\t5\textra\tfields\n"); break;
+                default: sb.append("garbage line ").append(i).append('\n');
+            }
+        }
+        return sb.append("END\ntrailing\n").toString();
+    }
+
+    private static String bigForm(int fields) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields; i++) {
+            if (i > 0) sb.append('&');
+            sb.append("field").append(i).append('=');
+            sb.append(i % 2 == 0 ? "value" + i : URLEncoder.encode("välue " + i + " & more/=?", "UTF-8"));
+        }
+        return sb.append("&=orphan&novalue&&bad=%zz").toString();
+    }
+
+    private static List<String> partitionLines(int drives, int noise) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < drives; i++) lines.add((char) ('A' + i) + "|" + (i * 37.25));
+        for (int i = 0; i < noise; i++) {
+            switch (i % 5) {
+                case 0: lines.add("  Z | 12.5  "); break;
+                case 1: lines.add("Temp|1.0"); break;
+                case 2: lines.add("X|1|2"); break;
+                case 3: lines.add("|5.0"); break;
+                default: lines.add("Warning: something happened on line " + i);
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> extentLines(int disks) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < disks; i++) lines.add(i + "|" + (i % 3 == 0 ? 0 : (long) i << 30));
+        lines.add("bad|line");
+        lines.add("7|8|9");
+        lines.add("8|9||");
+        return lines;
+    }
+
+    private static String commandOutput(int lines, boolean failed) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            sb.append("Resize-Partition : progress ").append(i).append(" of ").append(lines).append(" ...\n");
+        }
+        if (failed) {
+            sb.append("Resize-Partition : Access DENIED\n")
+                    .append("At line:1 char:1\n+ CategoryInfo          : PermissionDenied\n");
+        }
+        return sb.append('\n').toString();
+    }
+
+    // ---------------- Result keys (the model classes have no equals) ----------------
+
+    @SuppressWarnings("unchecked")
+    private static Object volumeKey(Object result) {
+        List<String> key = new ArrayList<>();
+        for (LanClient.RemoteVolume v : (List<LanClient.RemoteVolume>) result) {
+            key.add(v.drive + "\t" + v.label + "\t" + v.freeBytes + "\t" + v.totalBytes);
+        }
+        return key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object partitionKey(Object result) {
+        List<String> key = new ArrayList<>();
+        for (PartitionStorage.PartitionInfo p : (List<PartitionStorage.PartitionInfo>) result) key.add(p.toString());
+        return key;
+    }
+
+    private static List<PartitionStorage.PartitionInfo> partitions(List<String> lines) {
+        List<PartitionStorage.PartitionInfo> partitions = new ArrayList<>();
+        for (String line : lines) {
+            PartitionStorage.PartitionInfo partition = PartitionStorage.parsePartitionLine(line);
+            if (partition != null) partitions.add(partition);
+        }
+        return partitions;
+    }
+
+    // ---------------- Baselines: the parsers as they were ----------------
+
+    private static List<LanClient.RemoteVolume> legacyParseVolumes(BufferedReader br) throws IOException {
+        ArrayList<LanClient.RemoteVolume> list = new ArrayList<>();
+        String first = br.readLine();
+        if (first == null || !first.startsWith("OK")) throw new IOException("Remote error or no response");
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (line.equals("END")) break;
+            if (!line.startsWith("VOL\t") && !line.startsWith("FREE\t")) continue;
+            String[] parts = line.split("\t");
+            if (parts[0].equals("VOL") && parts.length >= 5) {
+                list.add(new LanClient.RemoteVolume(parts[1] + ":", parts[2],
+                        legacyParseLong(parts[3]), legacyParseLong(parts[4])));
+            } else if (parts[0].equals("FREE") && parts.length >= 5) {
+                list.add(new LanClient.RemoteVolume("Disk " + parts[1] + " (Unallocated)", parts[2],
+                        legacyParseLong(parts[3]), legacyParseLong(parts[4])));
+            }
+        }
+        return list;
+    }
+
+    private static long legacyParseLong(String s) {
+        try { return Long.parseLong(s.trim()); } catch (Exception e) { return -1L; }
+    }
+
+    private static String legacyReadBody(InputStream is) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n; while ((n = is.read(buf)) > 0) baos.write(buf, 0, n);
+        return baos.toString("UTF-8");
+    }
+
+    private static Map<String, String> legacyParseForm(String s) {
+        Map<String, String> map = new HashMap<>();
+        if (s == null || s.isEmpty()) return map;
+        for (String pair : s.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            String k = pair.substring(0, eq);
+            String v = pair.substring(eq + 1);
+            try {
+                k = URLDecoder.decode(k, "UTF-8");
+                v = URLDecoder.decode(v, "UTF-8");
+            } catch (Exception ignored) {}
+            map.put(k, v);
+        }
+        return map;
+    }
+
+    private static List<PartitionStorage.PartitionInfo> legacyPartitions(List<String> lines) {
+        List<PartitionStorage.PartitionInfo> partitions = new ArrayList<>();
+        for (String line : lines) {
+            line = line.trim();
+            if (!line.isEmpty() && line.contains("|")) {
+                String[] parts = line.split("\\|");
+                if (parts.length == 2) {
+                    String driveLetter = parts[0].trim();
+                    try {
+                        double sizeGB = Double.parseDouble(parts[1].trim());
+                        if (driveLetter.length() == 1 && Character.isLetter(driveLetter.charAt(0))) {
+                            partitions.add(new PartitionStorage.PartitionInfo(driveLetter + ":", (long) sizeGB));
+                        }
+                    } catch (NumberFormatException ignored) {
+                        // Logged by the real parser; the inputs avoid it to keep I/O out of the timing
+                    }
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private static Map<Integer, Long> legacyExtents(List<String> lines) {
+        Map<Integer, Long> extents = new LinkedHashMap<>();
+        for (String line : lines) {
+            String[] parts = line.split("\\|");
+            if (parts.length != 2) continue;
+            try {
+                int diskNum = Integer.parseInt(parts[0].trim());
+                long bytes = Long.parseLong(parts[1].trim());
+                if (bytes > 0) extents.put(diskNum, bytes);
+            } catch (NumberFormatException ignored) {}
+        }
+        return extents;
+    }
+
+    private static boolean legacyLooksLikeError(int exitCode, String result) {
+        return exitCode != 0
+                || result.toLowerCase().contains("error")
+                || result.toLowerCase().contains("denied")
+                || result.toLowerCase().contains("unauthorized")
+                || result.contains("No MSFT_Partition objects found");
+    }
+
+    private static String legacySummarizeOutput(String output) {
+        if (output == null) return "";
+        String[] lines = output.split("\n");
+        int start = Math.max(0, lines.length - 6);
+        StringBuilder sb = new StringBuilder();
+        for (int i = start; i < lines.length; i++) sb.append(lines[i]).append("\n");
+        return sb.toString().trim();
+    }
+}
@@ -0,0 +1,177 @@
+package benchmark;
+
+import database.DatabaseConnection;
+import models.ExportSummary;
+import models.RestoreSummary;
+import utils.BackupManager;
+import utils.ParallelExporter;
+import utils.ParallelRestorer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Restore verification and recovery-time measurement, into a scratch schema:
+ *
+ *   java -cp out:src/mysql-connector-j-9.5.0.jar benchmark.RestoreBenchmark
+ *
+ * - exports the configured database with ParallelExporter (or takes --file)
+ * - restores it into the scratch schema with ParallelRestorer at each thread count,
+ *   reporting load time, index build time and throughput
+ * - compares every table of the scratch copy with the source: COUNT(*) and
+ *   CHECKSUM TABLE must match, so run it while the source is quiet (a write after
+ *   the export shows up as a mismatch) and give --file only a fresh export
+ * - drops the scratch schema unless --keep is given
+ *
+ * Options: --file export.ocx, --schema name (default backup.verify.schema),
+ *          --threads 1,2,4 (default backup.restore.threads), --batch N, --keep
+ * Exit code 0 when the restored copy matches the source, 1 otherwise.
+ */
+public class RestoreBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        File file = null;
+        String schema = null;
+        boolean keep = false;
+        int batch = (int) DatabaseConnection.getLongProperty("backup.restore.batch.rows", 1000);
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--file": file = new File(args[++i]); break;
+                case "--schema": schema = args[++i]; break;
+                case "--keep": keep = true; break;
+                case "--batch": batch = Integer.parseInt(args[++i]); break;
+                case "--threads":
+                    for (String n : args[++i].split(",")) threadCounts.add(Integer.parseInt(n.trim()));
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if (threadCounts.isEmpty()) {
+            threadCounts.add((int) DatabaseConnection.getLongProperty("backup.restore.threads",
+                    Math.min(4, Runtime.getRuntime().availableProcessors())));
+        }
+        String source = DatabaseConnection.getDatabaseName();
+        if (schema == null) schema = BackupManager.getVerifySchema();
+        if (schema.equalsIgnoreCase(source)) {
+            System.err.println("The scratch schema must not be the source database");
+            System.exit(2);
+        }
+
+        System.out.println("========================================");
+        System.out.println("   RESTORE BENCHMARK");
+        System.out.println("========================================");
+        System.out.println("Source: " + source + ", scratch schema: " + schema);
+
+        if (file == null) {
+            file = File.createTempFile("restore-benchmark", ".ocx");
+            file.deleteOnExit();
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 20)) {
+                ExportSummary export = ParallelExporter.fromConfig().export(out, null);
+                System.out.printf("Exported %,d rows in %.2f s (%.1f MB)%n", export.getRows(),
+                        export.getMillis() / 1000.0, export.getStoredBytes() / (1024.0 * 1024));
+            }
+        }
+        System.out.printf("Backup: %s (%.1f MB)%n", file.getPath(), file.length() / (1024.0 * 1024));
+        System.out.println();
+        System.out.printf("%-12s %10s %10s %10s %12s %10s%n", "threads", "load s", "index s", "total s", "rows/s", "MB/s");
+
+        RestoreSummary last = null;
+        for (int threads : threadCounts) {
+            ParallelRestorer restorer = new ParallelRestorer(threads, batch);
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 20)) {
+                last = restorer.restore(in, schema, null);
+            }
+            System.out.printf("%-12d %10.2f %10.2f %10.2f %,12.0f %10.1f%n", threads,
+                    last.getLoadMillis() / 1000.0, last.getIndexMillis() / 1000.0, last.getMillis() / 1000.0,
+                    last.getRowsPerSecond(), file.length() / (1024.0 * 1024) / Math.max(0.001, last.getMillis() / 1000.0));
+        }
+
+        System.out.println();
+        System.out.println("Comparing " + schema + " with " + source + "...");
+        List<String> failures = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.openConnection(new Properties())) {
+            for (String table : tables(conn, source)) {
+                String original = quote(source) + "." + quote(table);
+                String copy = quote(schema) + "." + quote(table);
+                long sourceRows = scalar(conn, "SELECT COUNT(*) FROM " + original);
+                long sourceSum = checksum(conn, original);
+                long copyRows;
+                long copySum;
+                try {
+                    copyRows = scalar(conn, "SELECT COUNT(*) FROM " + copy);
+                    copySum = checksum(conn, copy);
+                } catch (SQLException e) {
+                    failures.add(table + ": not restored (" + e.getMessage() + ")");
+                    System.out.println(String.format("  %-22s MISSING", table));
+                    continue;
+                }
+                String line = String.format("  %-22s %,12d rows  checksum %d", table, copyRows, copySum);
+                if (sourceRows != copyRows || sourceSum != copySum) {
+                    failures.add(table + ": source has " + sourceRows + " rows (checksum " + sourceSum
+                            + "), restored copy " + copyRows + " (checksum " + copySum + ")");
+                    line += "  MISMATCH";
+                }
+                System.out.println(line);
+            }
+            if (!keep) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("DROP DATABASE " + quote(schema));
+                }
+            }
+        }
+
+        System.out.println("========================================");
+        if (failures.isEmpty()) {
+            System.out.printf("   RESTORE VERIFIED: %,d rows, recovery time %.1f s%n",
+                    last.getRows(), last.getMillis() / 1000.0);
+        } else {
+            System.out.println("   " + failures.size() + " FAILURE(S)");
+            for (String f : failures) System.out.println("   - " + f);
+        }
+        System.out.println("========================================");
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private static List<String> tables(Connection conn, String schema) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT TABLE_NAME FROM information_schema.TABLES " +
+                     "WHERE TABLE_SCHEMA = '" + schema.replace("'", "''") + "' AND TABLE_TYPE = 'BASE TABLE' ORDER BY TABLE_NAME")) {
+            while (rs.next()) tables.add(rs.getString(1));
+        }
+        return tables;
+    }
+
+    private static long checksum(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("CHECKSUM TABLE " + table)) {
+            return rs.next() ? rs.getLong(2) : -1;
+        }
+    }
+
+    private static String quote(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+
+    private static long scalar(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
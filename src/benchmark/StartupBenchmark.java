@@ -0,0 +1,109 @@
+package benchmark;
+
+import gui.AdminDashboard;
+import gui.UserDashboard;
+import models.User;
+import utils.StageTimer;
+import utils.StartupProfiler;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dashboard startup regression check (needs a display; the database is optional):
+ *
+ *   java -cp out:mysql-connector-j-9.5.0.jar benchmark.StartupBenchmark --role admin
+ *
+ * Opens the dashboard the way a login does, profiled by StartupProfiler, and
+ * waits for it to become interactive (first paint plus everything the EDT had
+ * queued before it). The first run is the cold start (classes loaded, Swing
+ * initialised); the remaining runs give the warm median. Prints the cold
+ * per-phase breakdown.
+ *
+ * Options: --role admin|user (default admin), --runs N (default 5),
+ *          --budget-ms N (default startup.budget.ms, 2000)
+ * Exit code 1 if the cold time-to-interactive is over the budget, 2 without a display.
+ */
+public class StartupBenchmark {
+
+    private static final long INTERACTIVE_TIMEOUT_MS = 30_000;
+
+    public static void main(String[] args) throws Exception {
+        String role = "admin";
+        int runs = 5;
+        long budget = StartupProfiler.getBudgetMillis();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--role": role = args[++i]; break;
+                case "--runs": runs = Integer.parseInt(args[++i]); break;
+                case "--budget-ms": budget = Long.parseLong(args[++i]); break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println("StartupBenchmark needs a display (first paint cannot be measured headless)");
+            System.exit(2);
+        }
+        boolean admin = "admin".equalsIgnoreCase(role);
+        User user = new User(1, "benchUser", "password", admin ? "ADMIN" : "USER");
+
+        StageTimer cold = null;
+        List<Long> warm = new ArrayList<>();
+        for (int run = 0; run < Math.max(1, runs); run++) {
+            StageTimer timer = runOnce(user, admin);
+            if (timer == null) {
+                System.err.println("FAIL: dashboard did not become interactive within " + INTERACTIVE_TIMEOUT_MS + " ms");
+                System.exit(1);
+            }
+            if (cold == null) {
+                cold = timer;
+            } else {
+                warm.add(timer.get(StartupProfiler.INTERACTIVE));
+            }
+        }
+
+        long coldInteractive = cold.get(StartupProfiler.INTERACTIVE);
+        System.out.printf("%n%-24s %10s%n", "cold phase", "ms");
+        for (Map.Entry<String, Long> e : cold.snapshot().entrySet()) {
+            System.out.printf("%-24s %10d%n", e.getKey(), e.getValue());
+        }
+        System.out.printf("%n%-10s %16s%n", "start", "interactive ms");
+        System.out.printf("%-10s %16d%n", "cold", coldInteractive);
+        if (!warm.isEmpty()) {
+            Collections.sort(warm);
+            System.out.printf("%-10s %16d  (median of %d)%n", "warm", warm.get(warm.size() / 2), warm.size());
+        }
+
+        boolean ok = coldInteractive <= budget;
+        System.out.println(ok ? "PASS: cold start interactive within " + budget + " ms"
+                : "FAIL: cold start took " + coldInteractive + " ms, budget " + budget + " ms");
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * @return The startup profile of one dashboard open, or null on timeout
+     */
+    private static StageTimer runOnce(User user, boolean admin) throws Exception {
+        StageTimer timer = new StageTimer("Startup");
+        StartupProfiler.begin(timer);
+        JFrame[] frame = new JFrame[1];
+        SwingUtilities.invokeAndWait(() -> {
+            frame[0] = timer.time("dashboard", () -> admin ? new AdminDashboard(user) : new UserDashboard(user));
+            frame[0].setVisible(true);
+            timer.mark("time-to-dashboard");
+        });
+
+        long deadline = System.currentTimeMillis() + INTERACTIVE_TIMEOUT_MS;
+        while (timer.get(StartupProfiler.INTERACTIVE) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        SwingUtilities.invokeAndWait(() -> frame[0].dispose());
+        return timer.get(StartupProfiler.INTERACTIVE) != null ? timer : null;
+    }
+}
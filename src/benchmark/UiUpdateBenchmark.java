@@ -0,0 +1,293 @@
+package benchmark;
+
+import gui.UiUpdateScheduler;
+import gui.VolumeListPanel;
+import models.VolumeInfo;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Disk monitor UI update benchmark (no database or display needed):
+ *
+ *   java -Djava.awt.headless=true -cp out benchmark.UiUpdateBenchmark
+ *
+ * Drives the disk monitor's refresh path and reports, per refresh tick, the
+ * bytes allocated on the refresh thread and on the EDT, the EDT time spent and
+ * the number of EDT batches:
+ * - legacy:   one invokeLater per card, unallocated cards rebuilt every tick
+ * - steady:   VolumeListPanel with nothing changed
+ * - changing: every volume changes every tick (coalesced into one batch)
+ * Then lays out and paints a host with many volumes both ways (a BoxLayout of
+ * card panels against the list's one shared renderer) in a 900x600 viewport.
+ *
+ * Options: --cards N (default 24), --ticks N (default 300), --volumes N (default 500)
+ * Exit code 1 if a steady-state tick allocates more than 256 bytes or touches the EDT.
+ */
+public class UiUpdateBenchmark {
+
+    private static final long GB = 1024L * 1024 * 1024;
+    private static final long STEADY_BYTES_PER_TICK = 256;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static long edtThreadId;
+
+    public static void main(String[] args) throws Exception {
+        int cards = 24;
+        int ticks = 300;
+        int volumes = 500;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--cards": cards = Integer.parseInt(args[++i]); break;
+                case "--ticks": ticks = Integer.parseInt(args[++i]); break;
+                case "--volumes": volumes = Integer.parseInt(args[++i]); break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        // Keep the EDT alive between scenarios (AWT would otherwise shut an idle headless EDT
+        // down and start a new thread, which would break the per-thread allocation counters)
+        Timer keepAlive = new Timer(200, e -> { });
+        keepAlive.start();
+        SwingUtilities.invokeAndWait(() -> edtThreadId = Thread.currentThread().getId());
+
+        System.out.printf("%-10s %14s %14s %12s %10s%n", "scenario", "refresh B/tick", "EDT B/tick", "EDT us/tick", "batches");
+        runLegacy(cards, ticks);
+        Result steady = runScheduled("steady", cards, ticks, false);
+        runScheduled("changing", cards, ticks, true);
+
+        System.out.printf("%n%-10s %8s %14s %12s%n", "view", "volumes", "rebuild ms", "paint ms");
+        runCardLayout(volumes);
+        runListLayout(volumes);
+
+        boolean ok = steady.refreshBytesPerTick <= STEADY_BYTES_PER_TICK && steady.batches == 0;
+        System.out.println(ok ? "PASS: steady-state refreshes are allocation-free and skip the EDT"
+                : "FAIL: steady-state refresh allocates or repaints");
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static class Result {
+        long refreshBytesPerTick;
+        long batches;
+    }
+
+    private static Result runScheduled(String name, int cardCount, int ticks, boolean changing) throws Exception {
+        UiUpdateScheduler scheduler = new UiUpdateScheduler();
+        VolumeListPanel list = new VolumeListPanel(scheduler, new String[]{"Shrink Volume"}, NO_ACTIONS);
+        // Samples are allocated up front, as the monitor thread would have handed them over
+        VolumeInfo[][] samples = new VolumeInfo[50][cardCount];
+        for (int v = 0; v < samples.length; v++) {
+            for (int i = 0; i < cardCount; i++) samples[v][i] = volume(i, changing ? 100 + v : 100);
+        }
+        list.setVolumes(java.util.Arrays.asList(samples[0]));
+        Map<Integer, Long> extents = new LinkedHashMap<>();
+        extents.put(0, 20 * GB);
+        extents.put(1, 150 * GB);
+
+        // Warm up (first paint, JIT) before measuring
+        for (int t = 0; t < 50; t++) tick(list, samples, extents, t);
+        settle();
+
+        long flushesBefore = scheduler.getFlushCount();
+        long edtNanosBefore = scheduler.getEdtNanos();
+        long edtBytesBefore = threads.getThreadAllocatedBytes(edtThreadId);
+        long refreshBytes = 0;
+        for (int t = 0; t < ticks; t++) {
+            long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            tick(list, samples, extents, 50 + t);
+            refreshBytes += threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+            // Let the frame run, like the gap between real refreshes
+            Thread.sleep(20);
+        }
+        settle();
+
+        Result r = new Result();
+        r.refreshBytesPerTick = refreshBytes / ticks;
+        r.batches = scheduler.getFlushCount() - flushesBefore;
+        long edtBytes = threads.getThreadAllocatedBytes(edtThreadId) - edtBytesBefore;
+        System.out.printf("%-10s %14d %14d %12.1f %10d%n", name, r.refreshBytesPerTick, edtBytes / ticks,
+                (scheduler.getEdtNanos() - edtNanosBefore) / 1000.0 / ticks, r.batches);
+        return r;
+    }
+
+    private static void tick(VolumeListPanel list, VolumeInfo[][] samples, Map<Integer, Long> extents, int t) {
+        VolumeInfo[] sample = samples[t % samples.length];
+        for (VolumeInfo v : sample) list.updateVolume(v);
+        list.setUnallocated(extents);
+    }
+
+    private static final VolumeListPanel.ActionHandler NO_ACTIONS = new VolumeListPanel.ActionHandler() {
+        @Override
+        public void onVolumeAction(String action, VolumeInfo volume) { }
+
+        @Override
+        public void onCreateVolume(int diskNumber) { }
+    };
+
+    private static VolumeInfo volume(int i, long freeGb) {
+        String path = "Volume" + i + ":\\";
+        return new VolumeInfo("Volume" + i, path, (i % 3 == 0) ? "Data " + i : "", freeGb * GB, 500 * GB);
+    }
+
+    /**
+     * Topology change and paint with one card panel per volume in a BoxLayout (the old view)
+     */
+    private static void runCardLayout(int count) throws Exception {
+        JPanel container = new JPanel();
+        JScrollPane scroll = new JScrollPane(container);
+        long[] rebuild = new long[1];
+        SwingUtilities.invokeAndWait(() -> {
+            container.setLayout(new BoxLayout(container, BoxLayout.Y_AXIS));
+            scroll.setSize(900, 600);
+            for (int round = 0; round < 3; round++) {
+                long s = System.nanoTime();
+                container.removeAll();
+                for (int i = 0; i < count; i++) {
+                    VolumeInfo v = volume(i, 100);
+                    JPanel card = new JPanel(new BorderLayout(6, 4));
+                    card.setMaximumSize(new Dimension(Integer.MAX_VALUE, 90));
+                    card.add(new JLabel(v.getDisplayName() + " — Free: 100GB / Total: 500GB"), BorderLayout.NORTH);
+                    JProgressBar bar = new JProgressBar(0, 100);
+                    bar.setValue(80);
+                    bar.setStringPainted(true);
+                    card.add(bar, BorderLayout.CENTER);
+                    card.add(new JLabel("Idle"), BorderLayout.SOUTH);
+                    JPopupMenu menu = new JPopupMenu();
+                    menu.add(new JMenuItem("Shrink Volume"));
+                    card.setComponentPopupMenu(menu);
+                    container.add(Box.createVerticalStrut(8));
+                    container.add(card);
+                }
+                scroll.validate();
+                rebuild[0] = System.nanoTime() - s;
+            }
+        });
+        report("cards", count, rebuild[0], paintNanos(scroll));
+    }
+
+    /**
+     * Topology change and paint with VolumeListPanel (one renderer, visible rows only)
+     */
+    private static void runListLayout(int count) throws Exception {
+        UiUpdateScheduler scheduler = new UiUpdateScheduler();
+        VolumeListPanel list = new VolumeListPanel(scheduler, new String[]{"Shrink Volume"}, NO_ACTIONS);
+        List<VolumeInfo> volumes = new ArrayList<>();
+        for (int i = 0; i < count; i++) volumes.add(volume(i, 100));
+        SwingUtilities.invokeAndWait(() -> list.setSize(900, 600));
+        long rebuild = 0;
+        for (int round = 0; round < 3; round++) {
+            // A new list each round so every round is a real topology change
+            List<VolumeInfo> copy = new ArrayList<>();
+            for (VolumeInfo v : volumes) copy.add(new VolumeInfo(v.getKey(), v.getRootPath(), v.getLabel(), v.getFreeBytes(), v.getTotalBytes()));
+            long edtBefore = scheduler.getEdtNanos();
+            list.setVolumes(round % 2 == 0 ? copy : copy.subList(1, copy.size()));
+            settle();
+            long[] validate = new long[1];
+            SwingUtilities.invokeAndWait(() -> {
+                long s = System.nanoTime();
+                list.validate();
+                validate[0] = System.nanoTime() - s;
+            });
+            rebuild = scheduler.getEdtNanos() - edtBefore + validate[0];
+        }
+        report("list", count, rebuild, paintNanos(list));
+    }
+
+    private static long paintNanos(JComponent view) throws Exception {
+        BufferedImage image = new BufferedImage(900, 600, BufferedImage.TYPE_INT_RGB);
+        long[] total = new long[1];
+        SwingUtilities.invokeAndWait(() -> {
+            for (int i = 0; i < 30; i++) {
+                Graphics g = image.getGraphics();
+                long s = System.nanoTime();
+                view.paint(g);
+                // Only the last 20 paints count (warm-up)
+                if (i >= 10) total[0] += System.nanoTime() - s;
+                g.dispose();
+            }
+        });
+        return total[0] / 20;
+    }
+
+    private static void report(String name, int count, long rebuildNanos, long paintNanos) {
+        System.out.printf("%-10s %8d %14.2f %12.2f%n", name, count, rebuildNanos / 1e6, paintNanos / 1e6);
+    }
+
+    /**
+     * The pre-scheduler refresh: an invokeLater per card that always rewrites the
+     * labels, and an unallocated container rebuilt from new panels every tick
+     */
+    private static void runLegacy(int cardCount, int ticks) throws Exception {
+        JLabel[] titles = new JLabel[cardCount];
+        JProgressBar[] bars = new JProgressBar[cardCount];
+        JPanel container = new JPanel();
+        SwingUtilities.invokeAndWait(() -> {
+            for (int i = 0; i < cardCount; i++) {
+                titles[i] = new JLabel();
+                bars[i] = new JProgressBar(0, 100);
+            }
+            container.setLayout(new BoxLayout(container, BoxLayout.Y_AXIS));
+        });
+
+        long edtNanos = 0;
+        long batches = 0;
+        long refreshBytes = 0;
+        long edtBytesBefore = threads.getThreadAllocatedBytes(edtThreadId);
+        long[] nanos = new long[1];
+        for (int t = 0; t < ticks; t++) {
+            long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int i = 0; i < cardCount; i++) {
+                final int card = i;
+                long free = 100 * GB;
+                long total = 500 * GB;
+                SwingUtilities.invokeLater(() -> {
+                    long s = System.nanoTime();
+                    int usedPercent = (int) (((double) (total - free) / total) * 100);
+                    bars[card].setValue(usedPercent);
+                    titles[card].setText("Volume " + card + " — Free: " + (free / GB) + "GB / Total: " + (total / GB) + "GB");
+                    nanos[0] += System.nanoTime() - s;
+                });
+                batches++;
+            }
+            SwingUtilities.invokeLater(() -> {
+                long s = System.nanoTime();
+                container.removeAll();
+                for (int disk = 0; disk < 2; disk++) {
+                    JPanel extentCard = new JPanel(new BorderLayout(10, 5));
+                    extentCard.setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY));
+                    extentCard.add(new JLabel("Unallocated Space on Disk " + disk + ": "
+                            + String.format("%.2f", (disk + 1) * 20.0) + " GB"), BorderLayout.NORTH);
+                    JPopupMenu menu = new JPopupMenu();
+                    menu.add(new JMenuItem("Create New Volume"));
+                    extentCard.setComponentPopupMenu(menu);
+                    container.add(Box.createVerticalStrut(5));
+                    container.add(extentCard);
+                }
+                container.revalidate();
+                container.repaint();
+                nanos[0] += System.nanoTime() - s;
+            });
+            batches++;
+            refreshBytes += threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+            Thread.sleep(20);
+        }
+        settle();
+        edtNanos = nanos[0];
+        long edtBytes = threads.getThreadAllocatedBytes(edtThreadId) - edtBytesBefore;
+        System.out.printf("%-10s %14d %14d %12.1f %10d%n", "legacy", refreshBytes / ticks, edtBytes / ticks,
+                edtNanos / 1000.0 / ticks, batches);
+    }
+
+    private static void settle() throws Exception {
+        Thread.sleep(100);
+        SwingUtilities.invokeAndWait(() -> { });
+    }
+}
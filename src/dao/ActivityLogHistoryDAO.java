@@ -0,0 +1,429 @@
+package dao;
+
+import database.DatabaseConnection;
+import models.ActivityLog;
+import models.ActivityRollup;
+import models.LogSearchCriteria;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Activity Log History Data Access Object
+ * Handles the time-partitioned side of activity_logs: hot-window reads,
+ * the activity_log_daily rollup table and monthly partition maintenance
+ * (see sql/001_activity_logs_partitioning.sql)
+ */
+public class ActivityLogHistoryDAO {
+
+    /**
+     * log_id is taken when an insert starts but only becomes visible at commit, so a
+     * lower ID can show up after a higher one was read; getLogsAfterId re-reads this
+     * many IDs below the last one seen to pick up such late commits
+     */
+    public static final int LOG_OVERLAP_IDS = 100;
+
+    private static ActivityLog mapLog(ResultSet rs) throws SQLException {
+        ActivityLog log = new ActivityLog(
+            rs.getInt("log_id"),
+            rs.getInt("user_id"),
+            rs.getInt("machine_id"),
+            rs.getString("action"),
+            rs.getTimestamp("log_date")
+        );
+        log.setTraceId(rs.getString("trace_id"));
+        return log;
+    }
+
+    /**
+     * Get raw logs newer than the given time (only touches the recent partitions)
+     * @param since Lower bound (inclusive)
+     * @return List of logs ordered by date, oldest first
+     */
+    public List<ActivityLog> getLogsSince(Timestamp since) {
+        List<ActivityLog> logs = new ArrayList<>();
+        String sql = "SELECT * FROM activity_logs WHERE log_date >= ? ORDER BY log_date, log_id";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setTimestamp(1, since);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                logs.add(mapLog(rs));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error getting recent logs: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+        return logs;
+    }
+
+    /**
+     * Get logs added after a known log ID (activity_logs is append-only and log_id
+     * only grows, so the last seen ID is its change version). The last
+     * LOG_OVERLAP_IDS IDs are read again, so callers must skip IDs they already have.
+     * @param lastLogId Highest log ID the caller already has
+     * @return Logs with an ID above lastLogId - LOG_OVERLAP_IDS, ordered by ID, or null on error
+     */
+    public List<ActivityLog> getLogsAfterId(int lastLogId) {
+        List<ActivityLog> logs = new ArrayList<>();
+        String sql = "SELECT * FROM activity_logs WHERE log_id > ? ORDER BY log_id";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, Math.max(0, lastLogId - LOG_OVERLAP_IDS));
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                logs.add(mapLog(rs));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error getting new logs: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+        return logs;
+    }
+
+    /**
+     * Search logs newest first, one page at a time (see sql/004_activity_log_search.sql)
+     * Paging is keyset-based, so later pages cost the same as the first.
+     * @param criteria Filters; null fields are ignored
+     * @param after Last log of the previous page, or null for the first page
+     * @param limit Page size
+     * @return Matching logs, newest first, or null on error
+     */
+    public List<ActivityLog> searchLogs(LogSearchCriteria criteria, ActivityLog after, int limit) {
+        return getLogsPage(criteria, true, after, 0, limit);
+    }
+
+    /**
+     * Get one page of matching logs in date order
+     * @param criteria Filters; null fields are ignored
+     * @param newestFirst Sort direction (ties broken by log ID)
+     * @param after Last log of the previous page when known; the page then starts right
+     *              after it and offset is ignored, so sequential paging never rescans
+     * @param offset Rows to skip when after is null
+     * @param limit Page size
+     * @return Matching logs, or null on error
+     */
+    public List<ActivityLog> getLogsPage(LogSearchCriteria criteria, boolean newestFirst,
+                                         ActivityLog after, int offset, int limit) {
+        List<ActivityLog> logs = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM activity_logs WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        appendCriteria(criteria, sql, params);
+
+        String cmp = newestFirst ? "<" : ">";
+        String dir = newestFirst ? "DESC" : "ASC";
+        if (after != null) {
+            sql.append(" AND (log_date " + cmp + " ? OR (log_date = ? AND log_id " + cmp + " ?))");
+            params.add(after.getLogDate());
+            params.add(after.getLogDate());
+            params.add(after.getLogId());
+        }
+        sql.append(" ORDER BY log_date " + dir + ", log_id " + dir + " LIMIT ?");
+        params.add(limit);
+        if (after == null && offset > 0) {
+            sql.append(" OFFSET ?");
+            params.add(offset);
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                logs.add(mapLog(rs));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error searching logs: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+        return logs;
+    }
+
+    /**
+     * Count the logs matching a search
+     * @param criteria Filters; null fields are ignored
+     * @return Number of matches, -1 on error
+     */
+    public int countLogs(LogSearchCriteria criteria) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM activity_logs WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        appendCriteria(criteria, sql, params);
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting logs: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    private static void appendCriteria(LogSearchCriteria criteria, StringBuilder sql, List<Object> params) {
+        if (criteria.getUserId() != null) {
+            sql.append(" AND user_id = ?");
+            params.add(criteria.getUserId());
+        }
+        if (criteria.getMachineId() != null) {
+            sql.append(" AND machine_id = ?");
+            params.add(criteria.getMachineId());
+        }
+        if (criteria.getFrom() != null) {
+            sql.append(" AND log_date >= ?");
+            params.add(criteria.getFrom());
+        }
+        if (criteria.getTo() != null) {
+            sql.append(" AND log_date < ?");
+            params.add(criteria.getTo());
+        }
+        if (criteria.getActionType() != null) {
+            sql.append(" AND action LIKE ?");
+            params.add(escapeLike(criteria.getActionType()) + "%");
+        }
+        for (String term : criteria.getTextTerms()) {
+            if (LogSearchCriteria.isTraceId(term)) {
+                sql.append(" AND trace_id = ?");
+                params.add(term);
+            } else {
+                sql.append(" AND action LIKE ?");
+                params.add("%" + escapeLike(term) + "%");
+            }
+        }
+    }
+
+    static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Insert one log with its trace ID (see sql/007_activity_log_trace_ids.sql)
+     * @param log Log to write
+     * @return true if successful, false otherwise
+     */
+    public boolean insertLog(ActivityLog log) {
+        String sql = "INSERT INTO activity_logs (trace_id, user_id, machine_id, action, log_date) VALUES (?, ?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, log.getTraceId());
+            pstmt.setInt(2, log.getUserId());
+            pstmt.setInt(3, log.getMachineId());
+            pstmt.setString(4, log.getAction());
+            pstmt.setTimestamp(5, log.getLogDate());
+            return pstmt.executeUpdate() > 0;
+
+        } catch (SQLException e) {
+            System.err.println("Error creating activity log: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Insert spooled logs in one batch, keeping their original time, event ID and trace ID.
+     * Events already present (same event_id) are skipped, so a batch can be replayed safely.
+     * @param logs Logs with event IDs (see sql/003_activity_log_event_ids.sql)
+     * @return true if successful, false otherwise
+     */
+    public boolean insertSpooledLogs(List<ActivityLog> logs) {
+        if (logs == null || logs.isEmpty()) return true;
+        String sql = "INSERT IGNORE INTO activity_logs (event_id, trace_id, user_id, machine_id, action, log_date) " +
+                     "VALUES (?, ?, ?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            for (ActivityLog log : logs) {
+                pstmt.setString(1, log.getEventId());
+                pstmt.setString(2, log.getTraceId());
+                pstmt.setInt(3, log.getUserId());
+                pstmt.setInt(4, log.getMachineId());
+                pstmt.setString(5, log.getAction());
+                pstmt.setTimestamp(6, log.getLogDate());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("Error replaying spooled logs: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Get daily rollups for a date range
+     * @param fromDay First day (inclusive)
+     * @param toDay Last day (exclusive)
+     * @return List of rollup rows ordered by day
+     */
+    public List<ActivityRollup> getDailyRollups(Date fromDay, Date toDay) {
+        List<ActivityRollup> rollups = new ArrayList<>();
+        String sql = "SELECT * FROM activity_log_daily WHERE log_day >= ? AND log_day < ? ORDER BY log_day, user_id";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setDate(1, fromDay);
+            pstmt.setDate(2, toDay);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                rollups.add(new ActivityRollup(
+                    rs.getDate("log_day"),
+                    rs.getInt("user_id"),
+                    rs.getString("action"),
+                    rs.getInt("action_count")
+                ));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error getting daily rollups: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+        return rollups;
+    }
+
+    /**
+     * Get the most recent day present in the rollup table
+     * @return Last rolled-up day, or null if the table is empty
+     */
+    public Date getLastRollupDay() {
+        String sql = "SELECT MAX(log_day) FROM activity_log_daily";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return rs.getDate(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting last rollup day: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Recompute rollups for a range of whole days (idempotent)
+     * @param fromDay First day (inclusive)
+     * @param toDay Last day (exclusive)
+     * @return Number of rows inserted or updated, -1 on error
+     */
+    public int refreshRollups(Date fromDay, Date toDay) {
+        String sql = "INSERT INTO activity_log_daily (log_day, user_id, action, action_count) " +
+                     "SELECT DATE(log_date), user_id, action, COUNT(*) FROM activity_logs " +
+                     "WHERE log_date >= ? AND log_date < ? " +
+                     "GROUP BY DATE(log_date), user_id, action " +
+                     "ON DUPLICATE KEY UPDATE action_count = VALUES(action_count)";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setTimestamp(1, new Timestamp(fromDay.getTime()));
+            pstmt.setTimestamp(2, new Timestamp(toDay.getTime()));
+            return pstmt.executeUpdate();
+
+        } catch (SQLException e) {
+            System.err.println("Error refreshing rollups: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    /**
+     * Get the partition names of activity_logs
+     * @return Partition names in order, empty if the table is not partitioned
+     */
+    public List<String> getLogPartitionNames() {
+        List<String> names = new ArrayList<>();
+        String sql = "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                     "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'activity_logs' " +
+                     "AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error listing log partitions: " + e.getMessage());
+        }
+        return names;
+    }
+
+    /**
+     * Split the catch-all p_future partition to add a new monthly partition
+     * @param name Partition name (pYYYYMM)
+     * @param upperBound First moment after the month, e.g. "2026-02-01 00:00:00"
+     * @return true if successful, false otherwise
+     */
+    public boolean addMonthlyPartition(String name, String upperBound) {
+        if (!name.matches("p\\d{6}") || !upperBound.matches("\\d{4}-\\d{2}-\\d{2} 00:00:00")) {
+            return false;
+        }
+        String sql = "ALTER TABLE activity_logs REORGANIZE PARTITION p_future INTO (" +
+                     "PARTITION " + name + " VALUES LESS THAN (UNIX_TIMESTAMP('" + upperBound + "')), " +
+                     "PARTITION p_future VALUES LESS THAN MAXVALUE)";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            stmt.executeUpdate(sql);
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("Error adding log partition " + name + ": " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Drop a monthly partition (instant, unlike DELETE)
+     * @param name Partition name (pYYYYMM)
+     * @return true if successful, false otherwise
+     */
+    public boolean dropPartition(String name) {
+        if (!name.matches("p\\d{6}")) {
+            return false;
+        }
+        String sql = "ALTER TABLE activity_logs DROP PARTITION " + name;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            stmt.executeUpdate(sql);
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("Error dropping log partition " + name + ": " + e.getMessage());
+        }
+        return false;
+    }
+}
@@ -0,0 +1,101 @@
+package dao;
+
+import database.DatabaseConnection;
+
+import java.sql.*;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Backup Data Access Object
+ * Reads the watermarks incremental backups are keyed on
+ */
+public class BackupDAO {
+
+    /**
+     * Get the lowest and highest value of an increasing key column
+     * (e.g. activity_logs.log_id); table and column come from code, never from input
+     * @return {min, max} ({0, 0} for an empty table), or null on error
+     */
+    public long[] getKeyRange(String table, String column) {
+        Connection conn = DatabaseConnection.getConnection();
+        if (conn == null) {
+            System.err.println("Error reading " + table + "." + column + " range: no database connection");
+            return null;
+        }
+        return getKeyRange(conn, table, column);
+    }
+
+    /**
+     * Same as getKeyRange(table, column), on the caller's connection (e.g. a backup's
+     * snapshot transaction), which is left open
+     */
+    public long[] getKeyRange(Connection conn, String table, String column) {
+        return getRange(conn, table, column,
+                "SELECT COALESCE(MIN(" + column + "), 0), COALESCE(MAX(" + column + "), 0) FROM " + table);
+    }
+
+    /**
+     * Get the oldest and newest value of a DATETIME column (e.g. capacity_samples.sample_time)
+     * as seconds after 1970-01-01 in the column's own time, so no session time zone applies;
+     * compare with `column > '1970-01-01' + INTERVAL n SECOND`
+     * @return {min, max} ({0, 0} for an empty table), or null on error
+     */
+    public long[] getTimeRange(String table, String column) {
+        Connection conn = DatabaseConnection.getConnection();
+        if (conn == null) {
+            System.err.println("Error reading " + table + "." + column + " range: no database connection");
+            return null;
+        }
+        return getTimeRange(conn, table, column);
+    }
+
+    /**
+     * Same as getTimeRange(table, column), on the caller's connection, which is left open
+     */
+    public long[] getTimeRange(Connection conn, String table, String column) {
+        return getRange(conn, table, column,
+                "SELECT COALESCE(TIMESTAMPDIFF(SECOND, '1970-01-01', MIN(" + column + ")), 0), " +
+                "COALESCE(TIMESTAMPDIFF(SECOND, '1970-01-01', MAX(" + column + ")), 0) FROM " + table);
+    }
+
+    private long[] getRange(Connection conn, String table, String column, String sql) {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return new long[]{rs.getLong(1), rs.getLong(2)};
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading " + table + "." + column + " range: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Get the names of the tables in the database (optional tables such as the
+     * capacity history only exist once their migration has run)
+     * @return Table names, or null on error
+     */
+    public Set<String> getTableNames() {
+        String sql = "SHOW TABLES";
+
+        Connection conn = DatabaseConnection.getConnection();
+        if (conn == null) {
+            System.err.println("Error listing tables: no database connection");
+            return null;
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            Set<String> tables = new HashSet<>();
+            while (rs.next()) {
+                tables.add(rs.getString(1));
+            }
+            return tables;
+        } catch (SQLException e) {
+            System.err.println("Error listing tables: " + e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,225 @@
+package dao;
+
+import database.DatabaseConnection;
+import models.CapacityPoint;
+import models.CapacityPoint.Resolution;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Capacity History Data Access Object
+ * Handles raw capacity samples and their hourly/daily rollups
+ * (see sql/002_capacity_history.sql)
+ */
+public class CapacityHistoryDAO {
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    /** Longest range served from hourly buckets; anything longer reads daily buckets */
+    private static final long MAX_HOURLY_RANGE_MILLIS = 31 * DAY_MILLIS;
+
+    public static int getRawRetentionDays() {
+        return (int) Math.max(1, DatabaseConnection.getLongProperty("capacity.raw.days", 2));
+    }
+
+    /**
+     * Insert raw samples in one batch (duplicates for the same second are ignored)
+     * @param samples Samples to insert
+     * @return true if successful, false otherwise
+     */
+    public boolean insertSamples(List<CapacityPoint> samples) {
+        if (samples == null || samples.isEmpty()) return true;
+        String sql = "INSERT IGNORE INTO capacity_samples (machine_id, volume, sample_time, free_bytes, total_bytes) " +
+                     "VALUES (?, ?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            for (CapacityPoint p : samples) {
+                pstmt.setInt(1, p.getMachineId());
+                pstmt.setString(2, p.getVolume());
+                pstmt.setTimestamp(3, p.getTime());
+                pstmt.setLong(4, p.getAvgFree());
+                pstmt.setLong(5, p.getTotalBytes());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("Error inserting capacity samples: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Get the start of the newest bucket already rolled up for a machine
+     * @param resolution HOURLY or DAILY
+     * @param machineId Machine ID
+     * @return Bucket start, or null if there are no buckets yet
+     */
+    public Timestamp getLastBucket(Resolution resolution, int machineId) {
+        String sql = "SELECT MAX(bucket_start) FROM " + tableFor(resolution) + " WHERE machine_id = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, machineId);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return rs.getTimestamp(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting last capacity bucket: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Recompute hourly buckets from raw samples for [from, to)
+     * @return Rows inserted or updated, -1 on error
+     */
+    public int rollupHourly(int machineId, Timestamp from, Timestamp to) {
+        String sql = "INSERT INTO capacity_hourly " +
+                     "(machine_id, volume, bucket_start, min_free, avg_free, max_free, total_bytes, sample_count) " +
+                     "SELECT machine_id, volume, DATE_FORMAT(sample_time, '%Y-%m-%d %H:00:00'), " +
+                     "MIN(free_bytes), AVG(free_bytes), MAX(free_bytes), MAX(total_bytes), COUNT(*) " +
+                     "FROM capacity_samples WHERE machine_id = ? AND sample_time >= ? AND sample_time < ? " +
+                     "GROUP BY machine_id, volume, DATE_FORMAT(sample_time, '%Y-%m-%d %H:00:00') " +
+                     "ON DUPLICATE KEY UPDATE min_free = VALUES(min_free), avg_free = VALUES(avg_free), " +
+                     "max_free = VALUES(max_free), total_bytes = VALUES(total_bytes), sample_count = VALUES(sample_count)";
+        return executeRollup(sql, machineId, from, to);
+    }
+
+    /**
+     * Recompute daily buckets from hourly buckets for [from, to); averages are weighted by sample count
+     * @return Rows inserted or updated, -1 on error
+     */
+    public int rollupDaily(int machineId, Timestamp from, Timestamp to) {
+        String sql = "INSERT INTO capacity_daily " +
+                     "(machine_id, volume, bucket_start, min_free, avg_free, max_free, total_bytes, sample_count) " +
+                     "SELECT machine_id, volume, DATE(bucket_start), " +
+                     "MIN(min_free), SUM(avg_free * sample_count) / SUM(sample_count), MAX(max_free), " +
+                     "MAX(total_bytes), SUM(sample_count) " +
+                     "FROM capacity_hourly WHERE machine_id = ? AND bucket_start >= ? AND bucket_start < ? " +
+                     "GROUP BY machine_id, volume, DATE(bucket_start) " +
+                     "ON DUPLICATE KEY UPDATE min_free = VALUES(min_free), avg_free = VALUES(avg_free), " +
+                     "max_free = VALUES(max_free), total_bytes = VALUES(total_bytes), sample_count = VALUES(sample_count)";
+        return executeRollup(sql, machineId, from, to);
+    }
+
+    private int executeRollup(String sql, int machineId, Timestamp from, Timestamp to) {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, machineId);
+            pstmt.setTimestamp(2, from);
+            pstmt.setTimestamp(3, to);
+            return pstmt.executeUpdate();
+
+        } catch (SQLException e) {
+            System.err.println("Error rolling up capacity history: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Delete raw samples older than the given time for one machine
+     * @return Rows deleted, -1 on error
+     */
+    public int purgeRawBefore(int machineId, Timestamp before) {
+        String sql = "DELETE FROM capacity_samples WHERE machine_id = ? AND sample_time < ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, machineId);
+            pstmt.setTimestamp(2, before);
+            return pstmt.executeUpdate();
+
+        } catch (SQLException e) {
+            System.err.println("Error purging capacity samples: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Pick the coarsest resolution that still gives a useful chart for the range:
+     * raw while the range is short and still retained, hourly up to a month, daily beyond.
+     */
+    public static Resolution chooseResolution(Timestamp from, Timestamp to) {
+        long span = to.getTime() - from.getTime();
+        long rawCutoff = System.currentTimeMillis() - getRawRetentionDays() * DAY_MILLIS;
+        if (span <= getRawRetentionDays() * DAY_MILLIS && from.getTime() >= rawCutoff) {
+            return Resolution.RAW;
+        }
+        if (span <= MAX_HOURLY_RANGE_MILLIS) {
+            return Resolution.HOURLY;
+        }
+        return Resolution.DAILY;
+    }
+
+    /**
+     * Get the capacity series for a volume, read from the resolution that fits the range
+     * @param machineId Machine ID
+     * @param volume Volume (e.g. "C:")
+     * @param from Range start (inclusive)
+     * @param to Range end (exclusive)
+     * @return Points ordered by time
+     */
+    public List<CapacityPoint> getSeries(int machineId, String volume, Timestamp from, Timestamp to) {
+        return getSeries(machineId, volume, from, to, chooseResolution(from, to));
+    }
+
+    public List<CapacityPoint> getSeries(int machineId, String volume, Timestamp from, Timestamp to, Resolution resolution) {
+        List<CapacityPoint> points = new ArrayList<>();
+        String sql;
+        if (resolution == Resolution.RAW) {
+            sql = "SELECT sample_time, free_bytes, total_bytes FROM capacity_samples " +
+                  "WHERE machine_id = ? AND volume = ? AND sample_time >= ? AND sample_time < ? ORDER BY sample_time";
+        } else {
+            sql = "SELECT * FROM " + tableFor(resolution) +
+                  " WHERE machine_id = ? AND volume = ? AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start";
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, machineId);
+            pstmt.setString(2, volume);
+            pstmt.setTimestamp(3, from);
+            pstmt.setTimestamp(4, to);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                if (resolution == Resolution.RAW) {
+                    points.add(new CapacityPoint(machineId, volume,
+                        rs.getTimestamp("sample_time"),
+                        rs.getLong("free_bytes"),
+                        rs.getLong("total_bytes")));
+                } else {
+                    points.add(new CapacityPoint(machineId, volume,
+                        rs.getTimestamp("bucket_start"),
+                        rs.getLong("min_free"),
+                        rs.getLong("avg_free"),
+                        rs.getLong("max_free"),
+                        rs.getLong("total_bytes"),
+                        rs.getInt("sample_count"),
+                        resolution));
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error getting capacity series: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return points;
+    }
+
+    private static String tableFor(Resolution resolution) {
+        return (resolution == Resolution.DAILY) ? "capacity_daily" : "capacity_hourly";
+    }
+}
@@ -0,0 +1,218 @@
+package dao;
+
+import database.DatabaseConnection;
+import models.ChangeSet;
+import models.Machine;
+import models.Partition;
+import models.User;
+
+import java.sql.*;
+
+/**
+ * Change Feed Data Access Object
+ * Returns rows of users, machines and partitions changed after a change version
+ * (see sql/005_change_versions.sql), so callers can apply deltas instead of reloading.
+ *
+ * Versions are handed out when a write starts but become visible when it commits,
+ * so a reader may see version 12 before 11. The returned version therefore stops
+ * before the first missing version unless that gap is older than a few seconds
+ * (a rolled-back write); rows past it are simply fetched again next time.
+ */
+public class ChangeFeedDAO {
+
+    private static final int SETTLE_SECONDS = 5;
+
+    private interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /** Newest version that is safe to start from: later ones may still have in-flight gaps */
+    private static final String SETTLED_VERSION_SQL =
+            "SELECT COALESCE(MAX(version), 0) FROM change_log WHERE changed_at < NOW() - INTERVAL " + SETTLE_SECONDS + " SECOND";
+
+    /**
+     * Get the change version to record before a full load; changes made while the
+     * load runs (or just before it) are returned again by the next delta, which is harmless
+     * @return Version, 0 if nothing changed yet, -1 on error
+     */
+    public long getCurrentVersion() {
+        String sql = SETTLED_VERSION_SQL;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting change version: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Get users changed after a version
+     * @param since Version the caller is up to date with
+     * @return Changes, or null on error
+     */
+    public ChangeSet<User> getUserChangesSince(long since) {
+        return getChangesSince("users", "user_id", since, rs -> new User(
+            rs.getInt("user_id"),
+            rs.getString("username"),
+            rs.getString("password"),
+            rs.getString("role")
+        ));
+    }
+
+    /**
+     * Get machines changed after a version (machines removed by a cascading
+     * user delete are not reported; drop them with their user)
+     * @param since Version the caller is up to date with
+     * @return Changes, or null on error
+     */
+    public ChangeSet<Machine> getMachineChangesSince(long since) {
+        return getChangesSince("machines", "machine_id", since, rs -> new Machine(
+            rs.getInt("machine_id"),
+            rs.getInt("user_id"),
+            rs.getString("machine_name"),
+            rs.getString("ip_address")
+        ));
+    }
+
+    /**
+     * Get partitions changed after a version
+     * @param since Version the caller is up to date with
+     * @return Changes, or null on error
+     */
+    public ChangeSet<Partition> getPartitionChangesSince(long since) {
+        return getChangesSince("partitions", "partition_id", since, rs -> new Partition(
+            rs.getInt("partition_id"),
+            rs.getInt("machine_id"),
+            rs.getInt("user_id"),
+            rs.getString("drive_letter"),
+            rs.getInt("size_gb"),
+            rs.getDate("created_date")
+        ));
+    }
+
+    /**
+     * Get the ids of a versioned table's rows changed after a version (for incremental backups),
+     * on the caller's connection (the backup's snapshot transaction), which is left open
+     * @param table "users", "machines" or "partitions"
+     * @param since Version the caller is up to date with
+     * @return Ids of rows that still exist (upserts) and of deleted rows, or null on error
+     */
+    public ChangeSet<Integer> getChangedIdsSince(Connection conn, String table, long since) {
+        final String idColumn;
+        switch (table) {
+            case "users": idColumn = "user_id"; break;
+            case "machines": idColumn = "machine_id"; break;
+            case "partitions": idColumn = "partition_id"; break;
+            default: throw new IllegalArgumentException("Not a versioned table: " + table);
+        }
+        try {
+            return readChangesSince(conn, table, idColumn, since, rs -> rs.getInt(idColumn));
+        } catch (SQLException e) {
+            System.err.println("Error reading " + table + " changes: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    private <T> ChangeSet<T> getChangesSince(String table, String idColumn, long since, RowMapper<T> mapper) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return readChangesSince(conn, table, idColumn, since, mapper);
+        } catch (SQLException e) {
+            System.err.println("Error reading " + table + " changes: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    private <T> ChangeSet<T> readChangesSince(Connection conn, String table, String idColumn, long since,
+                                              RowMapper<T> mapper) throws SQLException {
+        // One row per changed id: current values if it still exists, NULLs if it was deleted
+        String sql = "SELECT c.row_id, t.* FROM " +
+                     "(SELECT DISTINCT row_id FROM change_log WHERE table_name = ? AND version > ? AND version <= ?) c " +
+                     "LEFT JOIN " + table + " t ON t." + idColumn + " = c.row_id";
+
+        long oldest = queryLong(conn, "SELECT COALESCE(MIN(version), 0) FROM change_log");
+        long watermark = settledWatermark(conn, since);
+        ChangeSet<T> changes = new ChangeSet<>(watermark);
+        if (since > 0 && oldest > since + 1) {
+            // History after `since` was purged
+            changes.setFullReload(true);
+            changes.setVersion(queryLong(conn, SETTLED_VERSION_SQL));
+            return changes;
+        }
+        if (watermark == since) {
+            return changes;
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            pstmt.setLong(2, since);
+            pstmt.setLong(3, watermark);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                rs.getInt(idColumn);
+                if (rs.wasNull()) {
+                    changes.getDeletedIds().add(rs.getInt("row_id"));
+                } else {
+                    changes.getUpserts().add(mapper.map(rs));
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Highest version up to which every change is committed (or settled as rolled back)
+     */
+    private long settledWatermark(Connection conn, long since) throws SQLException {
+        String sql = "SELECT version, changed_at < NOW() - INTERVAL " + SETTLE_SECONDS + " SECOND AS settled " +
+                     "FROM change_log WHERE version > ? ORDER BY version";
+        long watermark = since;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, since);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                long version = rs.getLong("version");
+                if (version != watermark + 1 && !rs.getBoolean("settled")) {
+                    break;
+                }
+                watermark = version;
+            }
+        }
+        return watermark;
+    }
+
+    /**
+     * Delete change history older than the given time (the newest entry is always kept
+     * so the current version never goes backwards)
+     * @return Rows deleted, -1 on error
+     */
+    public int purgeChangesBefore(Timestamp before) {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "DELETE FROM change_log WHERE changed_at < ? AND version < ?")) {
+
+            long latest = queryLong(conn, "SELECT COALESCE(MAX(version), 0) FROM change_log");
+            pstmt.setTimestamp(1, before);
+            pstmt.setLong(2, latest);
+            return pstmt.executeUpdate();
+
+        } catch (SQLException e) {
+            System.err.println("Error purging change history: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    private static long queryLong(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
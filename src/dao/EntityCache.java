@@ -0,0 +1,158 @@
+package dao;
+
+import utils.Metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache shared by the DAOs
+ * Keeps the least recently used entries up to maxEntries. Entries expire after
+ * ttlMillis so changes made from another console are picked up (0 = never expire).
+ * Writers call invalidate/clear; a load that races with an invalidation is not stored.
+ * A named cache publishes its hits, misses, size and hit rate as cache.<name>.* gauges.
+ */
+public class EntityCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+    private long generation = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    private static class CacheEntry<V> {
+        final V value;
+        final long loadedAt;
+
+        CacheEntry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    public EntityCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = Math.max(0, ttlMillis);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                return size() > EntityCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param name Metric name prefix, e.g. "users.byId" for cache.users.byId.hits
+     */
+    public EntityCache(String name, int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis);
+        String prefix = "cache." + name + ".";
+        Metrics.gauge(prefix + "hits", "", this::getHits);
+        Metrics.gauge(prefix + "misses", "", this::getMisses);
+        Metrics.gauge(prefix + "size", "entries", this::size);
+        Metrics.gauge(prefix + "hit.percent", "%", this::getHitPercent);
+    }
+
+    /**
+     * Get a cached value
+     * @param key Cache key
+     * @return Cached value, or null if absent or expired
+     */
+    public synchronized V get(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (ttlMillis > 0 && System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+            entries.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Get a cached value or load it with the given loader.
+     * The loader runs outside the lock; null results are not cached.
+     */
+    public V getOrLoad(K key, Function<K, V> loader) {
+        V cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long startGeneration;
+        synchronized (this) {
+            startGeneration = generation;
+        }
+        V loaded = loader.apply(key);
+        if (loaded != null) {
+            synchronized (this) {
+                if (generation == startGeneration) {
+                    entries.put(key, new CacheEntry<>(loaded, System.currentTimeMillis()));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * @return Current generation, to pass to putAll after loading outside the cache
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Store values loaded elsewhere, unless an invalidation happened since the
+     * load started (see getGeneration)
+     */
+    public synchronized void putAll(Map<K, V> values, long startGeneration) {
+        if (generation != startGeneration) return;
+        long now = System.currentTimeMillis();
+        for (Map.Entry<K, V> value : values.entrySet()) {
+            if (value.getValue() != null) entries.put(value.getKey(), new CacheEntry<>(value.getValue(), now));
+        }
+    }
+
+    public synchronized void put(K key, V value) {
+        if (value == null) {
+            entries.remove(key);
+        } else {
+            entries.put(key, new CacheEntry<>(value, System.currentTimeMillis()));
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Share of lookups served from the cache, 0-100
+     */
+    public synchronized long getHitPercent() {
+        long lookups = hits + misses;
+        return (lookups == 0) ? 0 : hits * 100 / lookups;
+    }
+}
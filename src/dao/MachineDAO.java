@@ -5,13 +5,54 @@ import models.Machine;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Machine Data Access Object
  * Handles all database operations for Machine entity
  */
 public class MachineDAO {
+
+    // Shared read-through caches; see UserDAO for the configuration keys
+    private static final int CACHE_MAX_ENTRIES =
+            (int) DatabaseConnection.getLongProperty("cache.max.entries", 1000);
+    private static final long CACHE_TTL_MILLIS =
+            DatabaseConnection.getLongProperty("cache.ttl.seconds", 30) * 1000L;
+    private static final EntityCache<Integer, Machine> machinesById = new EntityCache<>("machines.byId", CACHE_MAX_ENTRIES, CACHE_TTL_MILLIS);
+    private static final EntityCache<String, Machine> machinesByName = new EntityCache<>("machines.byName", CACHE_MAX_ENTRIES, CACHE_TTL_MILLIS);
+    private static final EntityCache<Integer, List<Machine>> machinesByUser = new EntityCache<>("machines.byUser", CACHE_MAX_ENTRIES, CACHE_TTL_MILLIS);
+    private static final EntityCache<String, List<Machine>> allMachines = new EntityCache<>("machines.all", 1, CACHE_TTL_MILLIS);
+    private static final String ALL_MACHINES_KEY = "all";
+
+    /**
+     * Drop every cached machine (called after any write to the machines table)
+     */
+    public static void invalidateCache() {
+        machinesById.clear();
+        machinesByName.clear();
+        machinesByUser.clear();
+        allMachines.clear();
+    }
+
+    public static EntityCache<Integer, Machine> getMachineIdCache() {
+        return machinesById;
+    }
+
+    private static Machine copyOf(Machine machine) {
+        return (machine == null) ? null
+                : new Machine(machine.getMachineId(), machine.getUserId(), machine.getMachineName(), machine.getIpAddress());
+    }
+
+    private static List<Machine> copyOf(List<Machine> machines) {
+        if (machines == null) return null;
+        List<Machine> copy = new ArrayList<>(machines.size());
+        for (Machine machine : machines) {
+            copy.add(copyOf(machine));
+        }
+        return copy;
+    }
     
     /**
      * Create a new machine in the database
@@ -35,6 +76,7 @@ public class MachineDAO {
                 if (rs.next()) {
                     machine.setMachineId(rs.getInt(1));
                 }
+                invalidateCache();
                 return true;
             }
             
@@ -51,6 +93,10 @@ public class MachineDAO {
      * @return Machine object if found, null otherwise
      */
     public Machine getMachineById(int machineId) {
+        return copyOf(machinesById.getOrLoad(machineId, this::queryMachineById));
+    }
+
+    private Machine queryMachineById(int machineId) {
         String sql = "SELECT * FROM machines WHERE machine_id = ?";
         
         try (Connection conn = DatabaseConnection.getConnection();
@@ -78,9 +124,13 @@ public class MachineDAO {
     /**
      * Get all machines for a specific user where User_id = to someone's id
      * @param userId User ID
-     * @return List of machines belonging to the user
+     * @return List of machines belonging to the user, or null on error
      */
     public List<Machine> getMachinesByUserId(int userId) {
+        return copyOf(machinesByUser.getOrLoad(userId, this::queryMachinesByUserId));
+    }
+
+    private List<Machine> queryMachinesByUserId(int userId) {
         List<Machine> machines = new ArrayList<>();
         String sql = "SELECT * FROM machines WHERE user_id = ?";
         
@@ -102,15 +152,30 @@ public class MachineDAO {
         } catch (SQLException e) {
             System.err.println("Error getting machines by user: " + e.getMessage());
             e.printStackTrace();
+            // Not cached, so the next call retries
+            return null;
         }
         return machines;
     }
     
     /**
      * Get all machines from database
-     * @return List of all machines
+     * @return List of all machines, or null on error
      */
     public List<Machine> getAllMachines() {
+        long byIdGeneration = machinesById.getGeneration();
+        List<Machine> machines = allMachines.getOrLoad(ALL_MACHINES_KEY, key -> queryAllMachines());
+        if (machines != null) {
+            Map<Integer, Machine> byId = new HashMap<>();
+            for (Machine machine : machines) {
+                byId.put(machine.getMachineId(), machine);
+            }
+            machinesById.putAll(byId, byIdGeneration);
+        }
+        return copyOf(machines);
+    }
+
+    private List<Machine> queryAllMachines() {
         List<Machine> machines = new ArrayList<>();
         String sql = "SELECT * FROM machines";
         
@@ -129,6 +194,7 @@ public class MachineDAO {
         } catch (SQLException e) {
             System.err.println("Error getting all machines: " + e.getMessage());
             e.printStackTrace();
+            return null;
         }
         return machines;
     }
@@ -150,6 +216,7 @@ public class MachineDAO {
             pstmt.setInt(4, machine.getMachineId());
             
             int rowsAffected = pstmt.executeUpdate();
+            invalidateCache();
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -172,6 +239,7 @@ public class MachineDAO {
             
             pstmt.setInt(1, machineId);
             int rowsAffected = pstmt.executeUpdate();
+            invalidateCache();
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -188,6 +256,12 @@ public class MachineDAO {
      * @return Machine object if found, null otherwise
      */
     public Machine getMachineByNameAndUserId(String machineName, int userId) {
+        if (machineName == null) return null;
+        String key = userId + "|" + machineName.toLowerCase();
+        return copyOf(machinesByName.getOrLoad(key, k -> queryMachineByNameAndUserId(machineName, userId)));
+    }
+
+    private Machine queryMachineByNameAndUserId(String machineName, int userId) {
         String sql = "SELECT * FROM machines WHERE machine_name = ? AND user_id = ?";
         
         try (Connection conn = DatabaseConnection.getConnection();
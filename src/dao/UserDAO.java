@@ -5,13 +5,52 @@ import models.User;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * User Data Access Object
  * Handles all database operations for User entity
  */
 public class UserDAO {
+
+    // Shared read-through caches; the users table is small and rarely changes
+    private static final int CACHE_MAX_ENTRIES =
+            (int) DatabaseConnection.getLongProperty("cache.max.entries", 1000);
+    private static final long CACHE_TTL_MILLIS =
+            DatabaseConnection.getLongProperty("cache.ttl.seconds", 30) * 1000L;
+    private static final EntityCache<Integer, User> usersById = new EntityCache<>("users.byId", CACHE_MAX_ENTRIES, CACHE_TTL_MILLIS);
+    private static final EntityCache<String, User> usersByName = new EntityCache<>("users.byName", CACHE_MAX_ENTRIES, CACHE_TTL_MILLIS);
+    private static final EntityCache<String, List<User>> allUsers = new EntityCache<>("users.all", 1, CACHE_TTL_MILLIS);
+    private static final String ALL_USERS_KEY = "all";
+
+    /**
+     * Drop every cached user (called after any write to the users table)
+     */
+    public static void invalidateCache() {
+        usersById.clear();
+        usersByName.clear();
+        allUsers.clear();
+    }
+
+    public static EntityCache<Integer, User> getUserIdCache() {
+        return usersById;
+    }
+
+    private static User copyOf(User user) {
+        return (user == null) ? null
+                : new User(user.getUserId(), user.getUsername(), user.getPassword(), user.getRole());
+    }
+
+    private static List<User> copyOf(List<User> users) {
+        if (users == null) return null;
+        List<User> copy = new ArrayList<>(users.size());
+        for (User user : users) {
+            copy.add(copyOf(user));
+        }
+        return copy;
+    }
     
     /**
      * Create a new user in the database
@@ -59,6 +98,7 @@ public class UserDAO {
                 }
                 System.out.println(" User created successfully: " + user.getUsername());
                 pstmt.close();
+                invalidateCache();
                 return true;
             } else {
                 System.err.println(" No rows affected - user not created");
@@ -137,6 +177,11 @@ public class UserDAO {
      * @return User object if found, null otherwise
      */
     public User getUserByUsername(String username) {
+        if (username == null) return null;
+        return copyOf(usersByName.getOrLoad(username.toLowerCase(), key -> queryUserByUsername(username)));
+    }
+
+    private User queryUserByUsername(String username) {
         String sql = "SELECT * FROM users WHERE username = ?";
         
         try (Connection conn = DatabaseConnection.getConnection();
@@ -167,6 +212,10 @@ public class UserDAO {
      * @return User object if found, null otherwise
      */
     public User getUserById(int userId) {
+        return copyOf(usersById.getOrLoad(userId, this::queryUserById));
+    }
+
+    private User queryUserById(int userId) {
         String sql = "SELECT * FROM users WHERE user_id = ?";
         
         try (Connection conn = DatabaseConnection.getConnection();
@@ -193,9 +242,22 @@ public class UserDAO {
     
     /**
      * Get all users
-     * @return List of all users
+     * @return List of all users, or null on error
      */
     public List<User> getAllUsers() {
+        long byIdGeneration = usersById.getGeneration();
+        List<User> users = allUsers.getOrLoad(ALL_USERS_KEY, key -> queryAllUsers());
+        if (users != null) {
+            Map<Integer, User> byId = new HashMap<>();
+            for (User user : users) {
+                byId.put(user.getUserId(), user);
+            }
+            usersById.putAll(byId, byIdGeneration);
+        }
+        return copyOf(users);
+    }
+
+    private List<User> queryAllUsers() {
         List<User> users = new ArrayList<>();
         String sql = "SELECT * FROM users";
         
@@ -226,6 +288,108 @@ public class UserDAO {
         } catch (SQLException e) {
             System.err.println("Error getting all users: " + e.getMessage());
             e.printStackTrace();
+            // Not cached, so the next call retries
+            return null;
+        }
+        return users;
+    }
+    
+    /**
+     * Count users whose username or role contains the filter text
+     * @param filter Text to match, null or empty for all users
+     * @return Number of users, -1 on error
+     */
+    public int countUsers(String filter) {
+        boolean filtered = filter != null && !filter.trim().isEmpty();
+        String sql = "SELECT COUNT(*) FROM users" + (filtered ? " WHERE (username LIKE ? OR role LIKE ?)" : "");
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            if (filtered) {
+                String pattern = "%" + ActivityLogHistoryDAO.escapeLike(filter.trim()) + "%";
+                pstmt.setString(1, pattern);
+                pstmt.setString(2, pattern);
+            }
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting users: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Get one page of users, filtered and sorted in SQL
+     * @param filter Text the username or role must contain, null or empty for all users
+     * @param sortColumn "username", "role" or "user_id" (anything else sorts by user_id)
+     * @param ascending Sort direction (ties broken by user ID)
+     * @param after Last user of the previous page when known; the page then starts right
+     *              after it and offset is ignored
+     * @param offset Rows to skip when after is null
+     * @param limit Page size
+     * @return Users in sort order, or null on error
+     */
+    public List<User> getUsersPage(String filter, String sortColumn, boolean ascending,
+                                   User after, int offset, int limit) {
+        String column = ("username".equals(sortColumn) || "role".equals(sortColumn)) ? sortColumn : "user_id";
+        String cmp = ascending ? ">" : "<";
+        String dir = ascending ? "ASC" : "DESC";
+        List<User> users = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM users WHERE 1 = 1");
+
+        if (filter != null && !filter.trim().isEmpty()) {
+            String pattern = "%" + ActivityLogHistoryDAO.escapeLike(filter.trim()) + "%";
+            sql.append(" AND (username LIKE ? OR role LIKE ?)");
+            params.add(pattern);
+            params.add(pattern);
+        }
+        if (after != null) {
+            if (column.equals("user_id")) {
+                sql.append(" AND user_id " + cmp + " ?");
+            } else {
+                Object key = column.equals("username") ? after.getUsername() : after.getRole();
+                sql.append(" AND (" + column + " " + cmp + " ? OR (" + column + " = ? AND user_id " + cmp + " ?))");
+                params.add(key);
+                params.add(key);
+            }
+            params.add(after.getUserId());
+        }
+        sql.append(" ORDER BY ").append(column).append(' ').append(dir);
+        if (!column.equals("user_id")) {
+            sql.append(", user_id ").append(dir);
+        }
+        sql.append(" LIMIT ?");
+        params.add(limit);
+        if (after == null && offset > 0) {
+            sql.append(" OFFSET ?");
+            params.add(offset);
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                users.add(new User(
+                    rs.getInt("user_id"),
+                    rs.getString("username"),
+                    rs.getString("password"),
+                    rs.getString("role")
+                ));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error getting users page: " + e.getMessage());
+            e.printStackTrace();
+            return null;
         }
         return users;
     }
@@ -247,6 +411,7 @@ public class UserDAO {
             pstmt.setInt(4, user.getUserId());
             
             int rowsAffected = pstmt.executeUpdate();
+            invalidateCache();
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -269,6 +434,9 @@ public class UserDAO {
             
             pstmt.setInt(1, userId);
             int rowsAffected = pstmt.executeUpdate();
+            invalidateCache();
+            // machines are removed by ON DELETE CASCADE
+            MachineDAO.invalidateCache();
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -5,6 +5,7 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.net.URI;
 import java.util.Properties;
 
 public class DatabaseConnection {
@@ -13,6 +14,9 @@ public class DatabaseConnection {
     private static String DB_USER;
     private static String DB_PASSWORD;
     private static Connection connection = null;
+    private static Connection timedConnection = null;
+    private static volatile long retryAfter = 0;
+    private static final Properties CONFIG = new Properties();
 
     static {
         loadDatabaseConfig();
@@ -24,6 +28,7 @@ public class DatabaseConnection {
             FileInputStream fis = new FileInputStream("config/database.properties");
             props.load(fis);
             fis.close();
+            CONFIG.putAll(props);
 
             DB_URL = props.getProperty("db.url", "jdbc:mysql://localhost:3306/onclick_db?useSSL=false&serverTimezone=UTC");
             DB_USER = props.getProperty("db.user", "root");
@@ -39,13 +44,22 @@ public class DatabaseConnection {
     public static Connection getConnection() {
         try {
             if (connection == null || connection.isClosed()) {
+                // After a failed attempt, fail fast for a while instead of blocking every caller
+                if (System.currentTimeMillis() < retryAfter) {
+                    return null;
+                }
                 System.out.println("Connecting to Database...");
                 Class.forName("com.mysql.cj.jdbc.Driver");
+                DriverManager.setLoginTimeout((int) getLongProperty("db.connect.timeout.seconds", 5));
                 connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+                // Statements of the shared connection feed the db.* timers (see TimedConnection)
+                timedConnection = TimedConnection.wrap(connection);
+                retryAfter = 0;
             }
-            return connection;
+            return timedConnection;
         } catch (ClassNotFoundException | SQLException e) {
             e.printStackTrace();
+            retryAfter = System.currentTimeMillis() + getLongProperty("db.retry.seconds", 5) * 1000;
             return null;
         }
     }
@@ -60,6 +74,24 @@ public class DatabaseConnection {
         }
     }
 
+    /**
+     * Open a dedicated connection with extra driver properties (e.g. useCursorFetch),
+     * for long-running work that must not tie up the shared connection; the caller closes it
+     */
+    public static Connection openConnection(Properties driverProperties) throws SQLException {
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("MySQL driver not found", e);
+        }
+        Properties props = new Properties();
+        props.putAll(driverProperties);
+        props.setProperty("user", DB_USER);
+        props.setProperty("password", DB_PASSWORD);
+        DriverManager.setLoginTimeout((int) getLongProperty("db.connect.timeout.seconds", 5));
+        return DriverManager.getConnection(DB_URL, props);
+    }
+
     public static boolean testConnection() {
         try {
             Connection conn = getConnection();
@@ -81,4 +113,53 @@ public class DatabaseConnection {
     public static String getPassword() {
         return DB_PASSWORD;
     }
+
+    /**
+     * @return Database named in db.url (e.g. "onclick_db")
+     */
+    public static String getDatabaseName() {
+        String path = urlPart().getPath();
+        return (path == null || path.length() <= 1) ? "onclick_db" : path.substring(1);
+    }
+
+    public static String getHost() {
+        String host = urlPart().getHost();
+        return (host == null) ? "localhost" : host;
+    }
+
+    public static int getPort() {
+        int port = urlPart().getPort();
+        return (port < 0) ? 3306 : port;
+    }
+
+    private static URI urlPart() {
+        // "jdbc:mysql://host:port/db?..." parses as a URI once "jdbc:" is dropped
+        try {
+            return URI.create(DB_URL.substring("jdbc:".length()));
+        } catch (RuntimeException e) {
+            return URI.create("mysql://localhost:3306/onclick_db");
+        }
+    }
+
+    /**
+     * Read an extra setting from config/database.properties
+     * @param key Property name
+     * @param defaultValue Value used when the key is missing or the file was not found
+     * @return Configured value or defaultValue
+     */
+    public static String getProperty(String key, String defaultValue) {
+        String value = CONFIG.getProperty(key);
+        return (value == null || value.trim().isEmpty()) ? defaultValue : value.trim();
+    }
+
+    /**
+     * Read an extra numeric setting, falling back on missing or malformed values
+     */
+    public static long getLongProperty(String key, long defaultValue) {
+        try {
+            return Long.parseLong(getProperty(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
 }
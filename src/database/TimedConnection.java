@@ -0,0 +1,189 @@
+package database;
+
+import utils.JfrEvents;
+import utils.Metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+
+/**
+ * Wraps the shared connection so every statement's execute* calls are timed
+ * into a "db.<Caller>.<method>" timer, e.g. db.UserDAO.getUserById, and failed
+ * statements counted in db.errors. The caller is looked up once per
+ * prepareStatement/createStatement, not per execution.
+ *
+ * Executions over the SqlStatement threshold are also recorded as JFR events;
+ * for a query the event is committed with the number of rows read when its
+ * ResultSet is closed, or else when the statement is closed or executes again
+ * (closing only the statement is the common DAO pattern).
+ */
+class TimedConnection {
+
+    private static final Metrics.Counter ERRORS = Metrics.counter("db.errors");
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement && method.getReturnType().isInterface()) {
+                        String sql = (args != null && args.length > 0 && args[0] instanceof String) ? (String) args[0] : null;
+                        return wrapStatement((Statement) result, method.getReturnType(), callerMetric(), sql);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object wrapStatement(Statement statement, Class<?> type, String metric, String preparedSql) {
+        Metrics.Histogram timer = Metrics.timer(metric);
+        // Query event still waiting for its ResultSet to close
+        PendingQuery[] pending = {null};
+        InvocationHandler handler = (proxy, method, args) -> {
+            if ("close".equals(method.getName())) {
+                commit(pending);
+                return invoke(statement, method, args);
+            }
+            if (!method.getName().startsWith("execute")) {
+                return invoke(statement, method, args);
+            }
+            // Executing again closes the previous ResultSet
+            commit(pending);
+            long start = System.nanoTime();
+            JfrEvents.SqlStatement event = new JfrEvents.SqlStatement();
+            event.begin();
+            Object result;
+            try {
+                result = invoke(statement, method, args);
+            } catch (SQLException e) {
+                ERRORS.inc();
+                event.end();
+                if (event.shouldCommit()) {
+                    describe(event, metric, preparedSql, args);
+                    event.rows = -1;
+                    event.failed = true;
+                    event.commit();
+                }
+                throw e;
+            } finally {
+                timer.recordSince(start);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                describe(event, metric, preparedSql, args);
+                if (result instanceof ResultSet) {
+                    pending[0] = new PendingQuery(event);
+                    return countRows((ResultSet) result, pending[0]);
+                }
+                event.rows = rowCount(result);
+                event.commit();
+            }
+            return result;
+        };
+        return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static void describe(JfrEvents.SqlStatement event, String metric, String preparedSql, Object[] args) {
+        String sql = (preparedSql != null) ? preparedSql
+                : (args != null && args.length > 0 && args[0] instanceof String) ? (String) args[0] : "";
+        event.sqlId = metric.substring(3) + "#" + String.format("%08x", sql.hashCode());
+        event.sql = JfrEvents.abbreviate(sql);
+    }
+
+    private static long rowCount(Object result) {
+        if (result instanceof Integer) return (Integer) result;
+        if (result instanceof Long) return (Long) result;
+        if (result instanceof int[]) {
+            long rows = 0;
+            for (int n : (int[]) result) rows += Math.max(0, n);
+            return rows;
+        }
+        return -1;
+    }
+
+    /**
+     * A query's (already ended) event and the rows read so far; committed once
+     */
+    private static final class PendingQuery {
+        final JfrEvents.SqlStatement event;
+        long rows;
+        boolean committed;
+
+        PendingQuery(JfrEvents.SqlStatement event) {
+            this.event = event;
+        }
+
+        void commit() {
+            if (committed) return;
+            committed = true;
+            event.rows = rows;
+            event.commit();
+        }
+    }
+
+    private static void commit(PendingQuery[] pending) {
+        if (pending[0] != null) {
+            pending[0].commit();
+            pending[0] = null;
+        }
+    }
+
+    /**
+     * Hand out the ResultSet through a proxy that counts next() and commits the
+     * query's event on close
+     */
+    private static ResultSet countRows(ResultSet resultSet, PendingQuery query) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object result = invoke(resultSet, method, args);
+            if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                query.rows++;
+            } else if ("close".equals(method.getName())) {
+                query.commit();
+            }
+            return result;
+        };
+        return (ResultSet) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return "db.<SimpleClassName>.<method>" of the first frame outside the JDK and this package
+     */
+    private static String callerMetric() {
+        Optional<StackWalker.StackFrame> caller = WALKER.walk(frames -> frames
+                .filter(f -> !isInfrastructure(f.getClassName()))
+                .findFirst());
+        if (caller.isEmpty()) return "db.other";
+        String className = caller.get().getClassName();
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        int nested = simpleName.indexOf('$');
+        if (nested > 0) simpleName = simpleName.substring(0, nested);
+        String method = caller.get().getMethodName();
+        // lambda$getUsers$3 -> getUsers
+        if (method.startsWith("lambda$")) {
+            int end = method.indexOf('$', 7);
+            method = method.substring(7, end > 7 ? end : method.length());
+        }
+        return "db." + simpleName + "." + method;
+    }
+
+    private static boolean isInfrastructure(String className) {
+        return className.startsWith("database.") || className.startsWith("java.")
+                || className.startsWith("jdk.") || className.startsWith("com.sun.")
+                || className.contains("$Proxy");
+    }
+}
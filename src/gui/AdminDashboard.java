@@ -3,22 +3,36 @@ package gui;
 import utils.BackupManager;
 import dao.UserDAO;
 import dao.ActivityLogDAO;
+import dao.ActivityLogHistoryDAO;
+import dao.ChangeFeedDAO;
 import dao.MachineDAO;
 import models.User;
 import models.ActivityLog;
+import models.ActivityRollup;
+import models.BackupResult;
+import models.ChangeSet;
+import models.DiskEvent;
+import models.LogSearchCriteria;
 import models.Machine;
+import models.VolumeInfo;
 import utils.ActivityLogger;
+import utils.CapacitySampler;
+import utils.DiskMonitorService;
+import utils.LogRetentionManager;
+import utils.LogSearchIndex;
 import utils.PartitionOperations;
+import utils.StartupProfiler;
+import utils.Tracing;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableCellRenderer;
-import javax.swing.table.TableRowSorter;
-import javax.swing.RowFilter;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -26,13 +40,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.Set;
-import java.util.HashSet;
 import java.util.concurrent.*;
-import java.util.regex.Pattern;
 import database.DatabaseConnection;
-import javax.swing.event.DocumentEvent;
-import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import lan.LanClient;
@@ -46,12 +55,21 @@ import lan.http.HttpLanClient;
  */
 public class AdminDashboard extends JFrame {
 
-    private JPanel diskPanel;
+    private VolumeListPanel volumeList;
     private JTable userTable;
-    private TableRowSorter<DefaultTableModel> userSorter;
-    private JTextArea logArea;
-    private Timer autoRefreshTimer; // only used for compatibility; we use ScheduledExecutorService for disk refresh
-    private ArrayList<String> logs = new ArrayList<>();
+    private PagedTableModel<User> userPageModel;
+    private static final int USER_PAGE_SIZE = 100;
+    private final LogConsole logConsole = LogConsole.fromConfig();
+    private PagedTableModel<LogRow> logSearchModel;
+    private JLabel logSearchStatus;
+    private JComboBox<String> logUserCombo;
+    private JComboBox<String> logMachineCombo;
+    private final Map<String, Integer> logUserIds = new HashMap<>();
+    private final Map<String, Integer> logMachineIds = new HashMap<>();
+    private static final int LOG_SEARCH_PAGE_SIZE = 200;
+    private volatile LogSearchIndex logSearchIndex;
+    private volatile LogSearchCriteria logSearchCriteria;
+    private Timer autoRefreshTimer; // only used for compatibility; disk refresh comes from DiskMonitorService
     private User currentUser;
     private JTabbedPane tabs;
     private JPanel remoteTab;
@@ -60,6 +78,7 @@ public class AdminDashboard extends JFrame {
     private JToggleButton remoteFreezeToggle;
     private JComboBox<String> userFilterCombo;
     private JTextField userSearchField;
+    private JTextField userTableSearchField;
     private DefaultTableModel userPreviewTableModel;
     private JTable remoteTable;
     private JPanel remoteSimpleTab;
@@ -67,24 +86,59 @@ public class AdminDashboard extends JFrame {
     private JTable remoteSimpleTable;
     private JTextField remoteSimpleSearchField;
     private JLabel remoteSimpleStatusLabel;
+    // Search fields run their queries through these (debounced, latest result wins)
+    private FilterPipeline<String, String> userTableFilter;
+    private FilterPipeline<String, List<User>> userOptionsFilter;
+    private FilterPipeline<String, String> remoteSimpleFilter;
     private JTextField remoteHostField;
     private JTextField remotePortField;
 
     // DAOs for database access
     private UserDAO userDAO;
     private ActivityLogDAO activityLogDAO;
+    private ActivityLogHistoryDAO activityLogHistoryDAO;
+    private ChangeFeedDAO changeFeedDAO;
     private MachineDAO machineDAO;
 
+    // Local models kept current with change-version deltas (see ChangeFeedDAO)
+    private final Object userLoadLock = new Object();
+    private volatile long userTableVersion = -1;
+    private final RemoteDirectory remoteDirectory = new RemoteDirectory();
+    private volatile long remoteUserVersion = -1;
+    private volatile long remoteMachineVersion = -1;
+    private final Object logLoadLock = new Object();
+    private List<ActivityLog> loadedActivityLogs;
+    private List<String> loadedLogLines;
+    private int lastLoadedLogId = 0;
+    private java.time.LocalDate rollupSummaryDay;
+    private List<String> rollupSummaryLines = new ArrayList<>();
+
     // Executors for background tasks
-    private final ScheduledExecutorService diskScheduler = Executors.newSingleThreadScheduledExecutor();
     private final ExecutorService actionExecutor = Executors.newFixedThreadPool(2); // for admin actions & heavy tasks
+    // Dashboard reads and log maintenance share the database connection; run them one at a time
+    private final ExecutorService dbExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "DashboardDB");
+        t.setDaemon(true);
+        return t;
+    });
 
     // Disk UI caches
-    private final Map<String, DiskCard> diskCardMap = new HashMap<>();
-    private final Map<String, String> volumeLabelCache = new HashMap<>();
-    private final JPanel unallocatedContainer = new JPanel();
-    private volatile Set<String> lastRootKeys = new HashSet<>();
-    private volatile boolean diskSchedulerStarted = false;
+    // Disk monitor updates are batched per frame; rows are reused by key
+    private final UiUpdateScheduler uiScheduler = new UiUpdateScheduler();
+    private static final String[] DISK_ACTIONS = {"Shrink Volume", "Format Volume", "Delete Volume", "Extend Volume", "Rename Volume", "Change Drive Letter"};
+    // Samples come from the shared DiskMonitorService (one poller for every dashboard)
+    private final DiskMonitorService.Listener diskListener = new DiskMonitorService.Listener() {
+        @Override
+        public void onDiskEvent(DiskEvent event) {
+            handleDiskEvent(event);
+        }
+
+        @Override
+        public boolean isVisible() {
+            return volumeList != null && volumeList.isShowing() && (getExtendedState() & ICONIFIED) == 0;
+        }
+    };
+    private volatile boolean diskMonitorSubscribed = false;
 
     public AdminDashboard(User user) {
         this.currentUser = user;
@@ -92,6 +146,8 @@ public class AdminDashboard extends JFrame {
         // Initialize DAOs
         this.userDAO = new UserDAO();
         this.activityLogDAO = new ActivityLogDAO();
+        this.activityLogHistoryDAO = new ActivityLogHistoryDAO();
+        this.changeFeedDAO = new ChangeFeedDAO();
         this.machineDAO = new MachineDAO();
 
         setTitle("Admin Dashboard - " + user.getUsername());
@@ -99,8 +155,10 @@ public class AdminDashboard extends JFrame {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
         setLayout(new BorderLayout(10, 10));
-        // Start lightweight HTTP LAN agent on this machine
-        try { HttpAgentServer.ensureStarted(); } catch (Throwable ignored) {}
+        // Start lightweight HTTP LAN agent on this machine (binding may resolve names; keep it off the EDT)
+        actionExecutor.submit(() -> {
+            try { HttpAgentServer.ensureStarted(); } catch (Throwable ignored) {}
+        });
 
         // ---------- HEADER ----------
         JPanel header = new JPanel(new BorderLayout());
@@ -122,6 +180,7 @@ public class AdminDashboard extends JFrame {
             if (confirm == JOptionPane.YES_OPTION) {
                 addLog(currentUser.getUsername() + " logged out");
                 ActivityLogger.logLogout(currentUser.getUserId(), PartitionOperations.getMachineId(currentUser, machineDAO));
+                CapacitySampler.stop();
                 shutdownExecutors();
                 dispose();
                 new LoginForm().setVisible(true);
@@ -131,10 +190,14 @@ public class AdminDashboard extends JFrame {
         add(header, BorderLayout.NORTH);
 
         // ---------- TABS ----------
+        // Each tab is built, and starts loading its data, when it is first selected
         tabs = new JTabbedPane();
-        tabs.addTab("Users", createUserTab());
-        tabs.addTab("Disk Monitor", createDiskTab());
-        tabs.addTab("Logs", createLogTab());
+        LazyTabs lazyTabs = new LazyTabs(tabs);
+        lazyTabs.addTab("Users", this::createUserTab, this::loadUsersAsync);
+        lazyTabs.addTab("Disk Monitor", this::createDiskTab, this::ensureDiskMonitorRunning);
+        lazyTabs.addTab("Logs", this::createLogTab, this::loadActivityLogsAsync);
+        lazyTabs.addTab("Diagnostics", DiagnosticsPanel::new, null);
+        EdtLatencyProbe.start();
 
         // ---------- TOOLBAR ABOVE TABS ----------
         JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT, 15, 10));
@@ -142,19 +205,29 @@ public class AdminDashboard extends JFrame {
 
         JButton remoteSimpleBtn = new JButton("Remote Partition");
         JButton backupBtn = new JButton("Backup");
+        JButton restoreBtn = new JButton("Restore");
+        JButton verifyBtn = new JButton("Verify Backup");
 
         Font btnFont = new Font("Segoe UI", Font.BOLD, 14);
         remoteSimpleBtn.setFont(btnFont);
         backupBtn.setFont(btnFont);
+        restoreBtn.setFont(btnFont);
+        verifyBtn.setFont(btnFont);
 
         remoteSimpleBtn.setBackground(new Color(52, 152, 219));
         backupBtn.setBackground(new Color(46, 204, 113));
+        restoreBtn.setBackground(new Color(230, 126, 34));
+        verifyBtn.setBackground(new Color(142, 68, 173));
 
         remoteSimpleBtn.setForeground(Color.WHITE);
         backupBtn.setForeground(Color.WHITE);
+        restoreBtn.setForeground(Color.WHITE);
+        verifyBtn.setForeground(Color.WHITE);
 
         remoteSimpleBtn.setFocusPainted(false);
         backupBtn.setFocusPainted(false);
+        restoreBtn.setFocusPainted(false);
+        verifyBtn.setFocusPainted(false);
 
         remoteSimpleBtn.addActionListener(e -> {
             int index = tabs.indexOfTab("Remote Partition");
@@ -171,21 +244,40 @@ public class AdminDashboard extends JFrame {
         });
 
         backupBtn.addActionListener(e -> {
-            new Thread(() -> {
+            backupBtn.setEnabled(false);
+            actionExecutor.submit(() -> {
                 addLog(currentUser.getUsername() + " started database backup...");
-                String result = BackupManager.backupDatabase();
-                if (result != null) {
+                long startNanos = System.nanoTime();
+                List<BackupResult> results = BackupManager.backupDatabase((sqlBytes, storedBytes) -> {
+                    String text = "Backup " + transferText(sqlBytes, storedBytes, startNanos);
+                    SwingUtilities.invokeLater(() -> backupBtn.setText(text));
+                });
+                int ok = 0;
+                for (BackupResult r : results) {
+                    addLog("Backup " + r);
+                    if (r.isSuccess()) ok++;
+                }
+                if (!results.isEmpty() && ok == results.size()) {
                     addLog(currentUser.getUsername() + " backup completed successfully.");
                 } else {
-                    addLog(currentUser.getUsername() + " backup failed!");
+                    addLog(currentUser.getUsername() + " backup failed at " + (results.size() - ok) + " of " + results.size() + " destination(s)!");
                 }
 
-                SwingUtilities.invokeLater(() -> BackupManager.showBackupResult(result));
-            }).start();
+                SwingUtilities.invokeLater(() -> {
+                    backupBtn.setText("Backup");
+                    backupBtn.setEnabled(true);
+                    BackupManager.showBackupResult(results);
+                });
+            });
         });
 
+        restoreBtn.addActionListener(e -> restoreBackup(restoreBtn));
+        verifyBtn.addActionListener(e -> verifyBackup(verifyBtn));
+
         toolbar.add(remoteSimpleBtn);
         toolbar.add(backupBtn);
+        toolbar.add(restoreBtn);
+        toolbar.add(verifyBtn);
 
         // ---------- CENTER PANEL ----------
         JPanel centerPanel = new JPanel(new BorderLayout());
@@ -200,7 +292,7 @@ public class AdminDashboard extends JFrame {
         footer.setBorder(new EmptyBorder(10, 0, 10, 0));
         add(footer, BorderLayout.SOUTH);
 
-        // Start auto-refresh for Disk Monitor tab (we start when tab selected)
+        // Disk Monitor: reselecting the tab brings the (backed-off) monitor up to date
         tabs.addChangeListener(e -> {
             if (tabs.getSelectedIndex() == 1) {
                 ensureDiskMonitorRunning();
@@ -209,25 +301,133 @@ public class AdminDashboard extends JFrame {
 
         addLog(currentUser.getUsername() + " logged in");
 
-        // Load initial data from database in background
-        loadUsersAsync();
-        loadActivityLogsAsync();
+        // Roll up / expire old activity log partitions (once per process); queued behind
+        // the startup loads on the dashboard's database thread
+        LogRetentionManager.runMaintenanceAsync(dbExecutor);
 
-        // Start disk monitor auto-refresh immediately so it behaves like Windows' auto update
-        SwingUtilities.invokeLater(this::ensureDiskMonitorRunning);
+        // The monitor backs off while minimized; catch up as soon as the window is restored
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                DiskMonitorService.requestRefresh();
+            }
+        });
     }
 
     // ---------------- USERS TAB ----------------
+    /**
+     * Pick a backup file and stream it into the database (decompressed/decrypted on the fly);
+     * an incremental backup brings its full backup and earlier increments with it
+     */
+    private void restoreBackup(JButton restoreBtn) {
+        JFileChooser chooser = new JFileChooser();
+        File manifests = BackupManager.getRepositoryManifestDir();
+        List<String> destinations = BackupManager.getDestinations();
+        if (manifests != null) {
+            chooser.setCurrentDirectory(manifests);
+        } else if (!destinations.isEmpty()) {
+            chooser.setSelectedFile(new File(destinations.get(0)));
+        }
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File backup = chooser.getSelectedFile();
+        List<File> chain = BackupManager.getRestoreChain(backup);
+        String steps = (chain.size() > 1)
+                ? "\n(full backup " + chain.get(0).getName() + " plus " + (chain.size() - 1) + " increment(s))" : "";
+        int confirm = JOptionPane.showConfirmDialog(this,
+                "Restore the database to\n" + backup.getPath() + "?" + steps + "\nCurrent data will be replaced.",
+                "Confirm Restore", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+        if (confirm != JOptionPane.YES_OPTION) return;
+
+        restoreBtn.setEnabled(false);
+        actionExecutor.submit(() -> {
+            addLog(currentUser.getUsername() + " started restore from " + backup.getPath());
+            long startNanos = System.nanoTime();
+            BackupResult result = BackupManager.restoreToPoint(backup, (sqlBytes, storedBytes) -> {
+                String text = "Restore " + transferText(sqlBytes, storedBytes, startNanos);
+                SwingUtilities.invokeLater(() -> restoreBtn.setText(text));
+            });
+            addLog("Restore " + result);
+            SwingUtilities.invokeLater(() -> {
+                restoreBtn.setText("Restore");
+                restoreBtn.setEnabled(true);
+                if (result.isSuccess()) {
+                    JOptionPane.showMessageDialog(this, String.format("Restore complete (%.1f MB of SQL in %.1f s).",
+                            result.getBytes() / (1024.0 * 1024), result.getMillis() / 1000.0),
+                            "Restore Complete", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this, "Restore failed:\n" + result.getError(),
+                            "Restore Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+        });
+    }
+
+    /**
+     * Pick a native export and restore it into the scratch schema to prove it loads;
+     * the live database is not touched
+     */
+    private void verifyBackup(JButton verifyBtn) {
+        JFileChooser chooser = new JFileChooser();
+        List<String> destinations = BackupManager.getDestinations();
+        if (!destinations.isEmpty()) {
+            chooser.setSelectedFile(new File(destinations.get(0)));
+        }
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File backup = chooser.getSelectedFile();
+
+        verifyBtn.setEnabled(false);
+        actionExecutor.submit(() -> {
+            addLog(currentUser.getUsername() + " started verifying " + backup.getPath()
+                    + " in " + BackupManager.getVerifySchema());
+            long startNanos = System.nanoTime();
+            BackupResult result = BackupManager.verifyBackup(backup, (rowBytes, storedBytes) -> {
+                String text = "Verify " + transferText(rowBytes, storedBytes, startNanos);
+                SwingUtilities.invokeLater(() -> verifyBtn.setText(text));
+            });
+            addLog("Verify " + result);
+            SwingUtilities.invokeLater(() -> {
+                verifyBtn.setText("Verify Backup");
+                verifyBtn.setEnabled(true);
+                if (result.isSuccess()) {
+                    JOptionPane.showMessageDialog(this, String.format("Backup verified: it restores in %.1f s.",
+                            result.getMillis() / 1000.0),
+                            "Verify Complete", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this, "Verification failed:\n" + result.getError(),
+                            "Verify Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+        });
+    }
+
+    /**
+     * e.g. "120.0 MB -> 18.3 MB (42.1 MB/s)": SQL size, stored size and SQL throughput
+     */
+    private static String transferText(long sqlBytes, long storedBytes, long startNanos) {
+        double mb = 1024.0 * 1024;
+        double seconds = Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9);
+        return String.format("%.1f MB -> %.1f MB (%.1f MB/s)", sqlBytes / mb, storedBytes / mb, sqlBytes / mb / seconds);
+    }
+
     private JPanel createUserTab() {
         JPanel panel = new JPanel(new BorderLayout(10, 10));
         panel.setBorder(new EmptyBorder(15, 15, 15, 15));
 
         // Columns: Auto-increment ID, Username, Role, Status, Edit, Delete, Hidden DB ID
         String[] columns = {"#", "Username", "Role", "Status", "Edit", "Delete", "DB_ID"};
-        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+        // Rows are fetched a page at a time; sorting and filtering happen in SQL
+        userPageModel = new PagedTableModel<>(columns, USER_PAGE_SIZE, 20) {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
+            protected Object getColumnValue(User user, int rowIndex, int column) {
+                switch (column) {
+                    case 0: return rowIndex + 1;        // Auto-increment display ID
+                    case 1: return user.getUsername();
+                    case 2: return user.getRole();
+                    case 3: return "Active";            // Status
+                    case 4: return "Edit";              // Edit button placeholder
+                    case 5: return "Delete";            // Delete button placeholder
+                    default: return user.getUserId();   // Hidden database ID
+                }
             }
 
             @Override
@@ -239,9 +439,9 @@ public class AdminDashboard extends JFrame {
             }
         };
 
-        userTable = new JTable(model);
-        userSorter = new TableRowSorter<>(model);
-        userTable.setRowSorter(userSorter);
+        userTable = new JTable(userPageModel);
+        userPageModel.installHeaderSorting(userTable, 0, 1, 2);
+        userPageModel.setSortListener(this::applyUserFilter);
         userTable.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         userTable.setRowHeight(35);
         userTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -283,12 +483,11 @@ public class AdminDashboard extends JFrame {
         JPanel searchPanel = new JPanel(new BorderLayout(8, 8));
         searchPanel.add(new JLabel("Search (username / role):"), BorderLayout.WEST);
         userSearchField = new JTextField();
+        userTableSearchField = userSearchField;
         searchPanel.add(userSearchField, BorderLayout.CENTER);
-        userSearchField.getDocument().addDocumentListener(new DocumentListener() {
-            @Override public void insertUpdate(DocumentEvent e) { applyUserFilter(); }
-            @Override public void removeUpdate(DocumentEvent e) { applyUserFilter(); }
-            @Override public void changedUpdate(DocumentEvent e) { applyUserFilter(); }
-        });
+        // The table model loads in the background and drops stale pages itself
+        userTableFilter = FilterPipeline.debounceOnly("users", this::userSearchText, text -> applyUserFilter());
+        userSearchField.getDocument().addDocumentListener(userTableFilter.documentListener());
 
         // Button panel for refresh
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 10));
@@ -313,14 +512,30 @@ public class AdminDashboard extends JFrame {
     }
 
     private void applyUserFilter() {
-        if (userSorter == null) return;
-        String text = userSearchField == null ? "" : userSearchField.getText().trim();
-        if (text.isEmpty()) {
-            userSorter.setRowFilter(null);
-        } else {
-            String regex = ".*" + Pattern.quote(text) + ".*";
-            userSorter.setRowFilter(RowFilter.regexFilter("(?i)" + regex));
+        if (userPageModel == null) return;
+        final String text = userSearchText();
+        final String sortColumn;
+        switch (userPageModel.getSortColumn()) {
+            case 1: sortColumn = "username"; break;
+            case 2: sortColumn = "role"; break;
+            default: sortColumn = "user_id";
         }
+        final boolean ascending = userPageModel.getSortColumn() < 0 || userPageModel.isSortAscending();
+        userPageModel.setSource(new PagedTableModel.PageSource<>() {
+            @Override
+            public int count() {
+                return userDAO.countUsers(text);
+            }
+
+            @Override
+            public List<User> fetch(int offset, int limit, User after) {
+                return userDAO.getUsersPage(text, sortColumn, ascending, after, offset, limit);
+            }
+        });
+    }
+
+    private String userSearchText() {
+        return userTableSearchField == null ? "" : userTableSearchField.getText().trim();
     }
 
     private void doPing() {
@@ -375,7 +590,9 @@ public class AdminDashboard extends JFrame {
                 JOptionPane.YES_NO_OPTION);
         if (confirm != JOptionPane.YES_OPTION) return;
         try {
-            boolean ok = HttpLanClient.renameVolume(host, port, drive, newLabel);
+            String label = newLabel;
+            boolean ok = runRemote("remote.rename", "Remote rename of " + drive + ": to \"" + label + "\" on " + host + ":" + port,
+                    () -> HttpLanClient.renameVolume(host, port, drive, label));
             JOptionPane.showMessageDialog(this,
                     ok ? "Rename successful." : "Rename failed.",
                     ok ? "Success" : "Failed",
@@ -428,7 +645,9 @@ public class AdminDashboard extends JFrame {
                 JOptionPane.YES_NO_OPTION);
         if (confirm != JOptionPane.YES_OPTION) return;
         try {
-            boolean ok = HttpLanClient.changeDriveLetter(host, port, from, to);
+            String oldLetter = from, newLetter = to;
+            boolean ok = runRemote("remote.changeLetter", "Remote drive letter change " + oldLetter + ": to " + newLetter + ": on " + host + ":" + port,
+                    () -> HttpLanClient.changeDriveLetter(host, port, oldLetter, newLetter));
             JOptionPane.showMessageDialog(this,
                     ok ? "Drive letter changed." : "Change letter failed.",
                     ok ? "Success" : "Failed",
@@ -445,6 +664,30 @@ public class AdminDashboard extends JFrame {
         try { return Integer.parseInt(s.trim()); } catch (Exception e) { return def; }
     }
 
+    private interface RemoteCall {
+        boolean run() throws IOException;
+    }
+
+    /**
+     * Run a remote operation as one trace: the agent call, the agent's PowerShell
+     * command and the activity log row (tagged with the trace ID) share it. The
+     * trace ends before the caller shows its result dialog, so the dialog's time
+     * is not counted.
+     */
+    private boolean runRemote(String traceName, String action, RemoteCall call) throws IOException {
+        try (Tracing.Span trace = Tracing.startTrace(traceName)) {
+            boolean ok = false;
+            try {
+                ok = call.run();
+                return ok;
+            } finally {
+                trace.attr("ok", ok);
+                ActivityLogger.logCustomAction(currentUser.getUserId(), PartitionOperations.getMachineId(currentUser, machineDAO),
+                        action + (ok ? "" : " (failed)"));
+            }
+        }
+    }
+
     private void doFormatVolume() {
         String host = remoteHostField.getText().trim();
         int port = parsePort(remotePortField.getText().trim(), LanConfig.getPort());
@@ -479,7 +722,9 @@ public class AdminDashboard extends JFrame {
                 JOptionPane.YES_NO_OPTION);
         if (confirm2 != JOptionPane.YES_OPTION) return;
         try {
-            boolean ok = HttpLanClient.formatVolume(host, port, drive, fs, label);
+            String letter = drive, volumeLabel = label;
+            boolean ok = runRemote("remote.format", "Remote format of " + letter + ": as " + fs + " on " + host + ":" + port,
+                    () -> HttpLanClient.formatVolume(host, port, letter, fs, volumeLabel));
             JOptionPane.showMessageDialog(this,
                     ok ? "Format completed." : "Format failed.",
                     ok ? "Success" : "Failed",
@@ -513,7 +758,8 @@ public class AdminDashboard extends JFrame {
                 JOptionPane.YES_NO_OPTION);
         if (confirm != JOptionPane.YES_OPTION) return;
         try {
-            boolean ok = HttpLanClient.shrinkVolume(host, port, drive, gb);
+            boolean ok = runRemote("remote.shrink", "Remote shrink of " + drive + ": by " + String.format("%.2f", gb) + " GB on " + host + ":" + port,
+                    () -> HttpLanClient.shrinkVolume(host, port, drive, gb));
             JOptionPane.showMessageDialog(this,
                     ok ? "Shrink requested." : "Shrink failed.",
                     ok ? "Success" : "Failed",
@@ -547,7 +793,8 @@ public class AdminDashboard extends JFrame {
                 JOptionPane.YES_NO_OPTION);
         if (confirm != JOptionPane.YES_OPTION) return;
         try {
-            boolean ok = HttpLanClient.extendVolume(host, port, drive, gb);
+            boolean ok = runRemote("remote.extend", "Remote extend of " + drive + ": by " + String.format("%.2f", gb) + " GB on " + host + ":" + port,
+                    () -> HttpLanClient.extendVolume(host, port, drive, gb));
             JOptionPane.showMessageDialog(this,
                     ok ? "Extend requested." : "Extend failed.",
                     ok ? "Success" : "Failed",
@@ -588,7 +835,9 @@ public class AdminDashboard extends JFrame {
                 JOptionPane.YES_NO_OPTION);
         if (c2 != JOptionPane.YES_OPTION) return;
         try {
-            boolean ok = HttpLanClient.deleteVolume(host, port, d);
+            String letter = d;
+            boolean ok = runRemote("remote.delete", "Remote delete of " + letter + ": on " + host + ":" + port,
+                    () -> HttpLanClient.deleteVolume(host, port, letter));
             JOptionPane.showMessageDialog(this,
                     ok ? "Delete requested." : "Delete failed.",
                     ok ? "Success" : "Failed",
@@ -705,6 +954,8 @@ public class AdminDashboard extends JFrame {
         footer.add(controls, BorderLayout.SOUTH);
         panel.add(footer, BorderLayout.SOUTH);
 
+        userOptionsFilter = new FilterPipeline<>("user options",
+                () -> userSearchField.getText().trim().toLowerCase(), this::findFilterUsers, this::showFilterUsers);
         wireUserFilterInteractions(userPreviewTable);
         refreshRemotePreview();
         loadUserFilterOptions();
@@ -773,11 +1024,9 @@ public class AdminDashboard extends JFrame {
 
         // interactions
         refreshBtn.addActionListener(e -> refreshRemoteSimple());
-        remoteSimpleSearchField.getDocument().addDocumentListener(new DocumentListener() {
-            @Override public void insertUpdate(DocumentEvent e) { refreshRemoteSimple(); }
-            @Override public void removeUpdate(DocumentEvent e) { refreshRemoteSimple(); }
-            @Override public void changedUpdate(DocumentEvent e) { refreshRemoteSimple(); }
-        });
+        remoteSimpleFilter = FilterPipeline.debounceOnly("remote",
+                () -> remoteSimpleSearchField.getText().trim().toLowerCase(), q -> renderRemoteSimple());
+        remoteSimpleSearchField.getDocument().addDocumentListener(remoteSimpleFilter.documentListener());
 
         pingBtn.addActionListener(e -> doPing());
         listBtn.addActionListener(e -> doListVolumes());
@@ -809,50 +1058,107 @@ public class AdminDashboard extends JFrame {
         return panel;
     }
 
+    /**
+     * Bring the user/machine directory up to date (deltas after the first load), then redraw
+     */
     private void refreshRemoteSimple() {
+        if (remoteSimpleModel == null) return;
+        remoteSimpleStatusLabel.setText("Refreshing...");
+        dbExecutor.submit(() -> {
+            try {
+                // Query outside the lock; renderRemoteSimple takes it on the EDT
+                long userVersion = remoteUserVersion;
+                long machineVersion = remoteMachineVersion;
+                ChangeSet<User> userChanges = fetchUserChanges(userVersion);
+                ChangeSet<Machine> machineChanges = fetchMachineChanges(machineVersion);
+                if (userChanges == null || machineChanges == null) {
+                    SwingUtilities.invokeLater(() -> remoteSimpleStatusLabel.setText("Failed to load: database unavailable"));
+                    return;
+                }
+                synchronized (remoteDirectory) {
+                    // Another refresh applied first; these deltas start from an older version
+                    if (remoteUserVersion != userVersion || remoteMachineVersion != machineVersion) return;
+                    remoteDirectory.apply(userChanges, machineChanges);
+                    remoteUserVersion = userChanges.getVersion();
+                    remoteMachineVersion = machineChanges.getVersion();
+                }
+                SwingUtilities.invokeLater(this::renderRemoteSimple);
+            } catch (Exception ex) {
+                SwingUtilities.invokeLater(() -> remoteSimpleStatusLabel.setText("Failed to load: " + ex.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Redraw the remote list from the local directory (no database access)
+     */
+    private void renderRemoteSimple() {
         if (remoteSimpleModel == null) return;
         remoteSimpleModel.setRowCount(0);
         String q = remoteSimpleSearchField != null ? remoteSimpleSearchField.getText().trim().toLowerCase() : "";
         int count = 0;
-        try {
-            List<User> users = userDAO.getAllUsers();
-            if (users != null) {
-                for (User u : users) {
-                    List<Machine> ms = machineDAO.getMachinesByUserId(u.getUserId());
-                    if (ms == null || ms.isEmpty()) {
-                        if (q.isEmpty() || u.getUsername().toLowerCase().contains(q)) {
-                            remoteSimpleModel.addRow(new Object[]{u.getUsername(), "-", "-"});
-                            count++;
-                        }
-                        continue;
-                    }
-                    for (Machine m : ms) {
-                        if (!q.isEmpty()) {
-                            String key = (u.getUsername() + " " + m.getMachineName() + " " + m.getIpAddress()).toLowerCase();
-                            if (!key.contains(q)) continue;
-                        }
-                        remoteSimpleModel.addRow(new Object[]{u.getUsername(), m.getMachineName(), m.getIpAddress()});
+        synchronized (remoteDirectory) {
+            for (User u : remoteDirectory.users.values()) {
+                Map<Integer, Machine> ms = remoteDirectory.machinesByUser.get(u.getUserId());
+                if (ms == null || ms.isEmpty()) {
+                    if (q.isEmpty() || u.getUsername().toLowerCase().contains(q)) {
+                        remoteSimpleModel.addRow(new Object[]{u.getUsername(), "-", "-"});
                         count++;
                     }
+                    continue;
+                }
+                for (Machine m : ms.values()) {
+                    if (!q.isEmpty()) {
+                        String key = (u.getUsername() + " " + m.getMachineName() + " " + m.getIpAddress()).toLowerCase();
+                        if (!key.contains(q)) continue;
+                    }
+                    remoteSimpleModel.addRow(new Object[]{u.getUsername(), m.getMachineName(), m.getIpAddress()});
+                    count++;
                 }
             }
-            remoteSimpleStatusLabel.setText("Showing " + count + " item(s)");
-        } catch (Exception ex) {
-            remoteSimpleStatusLabel.setText("Failed to load: " + ex.getMessage());
         }
+        remoteSimpleStatusLabel.setText("Showing " + count + " item(s)");
     }
 
-    private void wireUserFilterInteractions(JTable userPreviewTable) {
-        userSearchField.getDocument().addDocumentListener(new DocumentListener() {
-            @Override
-            public void insertUpdate(DocumentEvent e) { loadUserFilterOptions(); }
+    /**
+     * Local copy of users and their machines for the Remote Partition tab, kept current with deltas
+     */
+    private static class RemoteDirectory {
+        final Map<Integer, User> users = new java.util.TreeMap<>();
+        final Map<Integer, Map<Integer, Machine>> machinesByUser = new HashMap<>();
+        final Map<Integer, Integer> machineOwner = new HashMap<>();
+
+        void apply(ChangeSet<User> userChanges, ChangeSet<Machine> machineChanges) {
+            if (userChanges.isFullReload()) users.clear();
+            if (machineChanges.isFullReload()) {
+                machinesByUser.clear();
+                machineOwner.clear();
+            }
+            for (User u : userChanges.getUpserts()) users.put(u.getUserId(), u);
+            for (Integer id : userChanges.getDeletedIds()) {
+                users.remove(id);
+                // machines go with their user (cascading delete, no change row of their own)
+                Map<Integer, Machine> gone = machinesByUser.remove(id);
+                if (gone != null) gone.keySet().forEach(machineOwner::remove);
+            }
+            for (Machine m : machineChanges.getUpserts()) {
+                removeMachine(m.getMachineId());
+                machinesByUser.computeIfAbsent(m.getUserId(), k -> new java.util.TreeMap<>()).put(m.getMachineId(), m);
+                machineOwner.put(m.getMachineId(), m.getUserId());
+            }
+            for (Integer id : machineChanges.getDeletedIds()) removeMachine(id);
+        }
 
-            @Override
-            public void removeUpdate(DocumentEvent e) { loadUserFilterOptions(); }
+        private void removeMachine(int machineId) {
+            Integer owner = machineOwner.remove(machineId);
+            if (owner == null) return;
+            Map<Integer, Machine> ms = machinesByUser.get(owner);
+            if (ms != null) ms.remove(machineId);
+        }
+    }
 
-            @Override
-            public void changedUpdate(DocumentEvent e) { loadUserFilterOptions(); }
-        });
+    private void wireUserFilterInteractions(JTable userPreviewTable) {
+        userSearchField.getDocument().addDocumentListener(userOptionsFilter.documentListener());
 
         userFilterCombo.addActionListener(e -> refreshRemotePreview());
 
@@ -872,16 +1178,30 @@ public class AdminDashboard extends JFrame {
     }
 
     private void loadUserFilterOptions() {
-        if (userFilterCombo == null) return;
+        if (userOptionsFilter == null) return;
+        userOptionsFilter.runNow();
+    }
+
+    /**
+     * Users whose name contains the search text (runs off the EDT)
+     * @return Matching users, or null if the database is unavailable
+     */
+    private List<User> findFilterUsers(String search) {
+        List<User> users = userDAO.getAllUsers();
+        if (users == null) return null;
+        List<User> matches = new ArrayList<>();
+        for (User user : users) {
+            if (search.isEmpty() || user.getUsername().toLowerCase().contains(search)) matches.add(user);
+        }
+        return matches;
+    }
+
+    private void showFilterUsers(List<User> users) {
         userFilterCombo.removeAllItems();
         userFilterCombo.addItem("All Users");
         userPreviewTableModel.setRowCount(0);
-        String search = userSearchField != null ? userSearchField.getText().trim().toLowerCase() : "";
-
-        List<User> users = userDAO.getAllUsers();
         if (users == null) return;
         for (User user : users) {
-            if (!search.isEmpty() && !user.getUsername().toLowerCase().contains(search)) continue;
             userFilterCombo.addItem(user.getUsername());
             userPreviewTableModel.addRow(new Object[]{user.getUsername(), user.getRole()});
         }
@@ -1034,60 +1354,95 @@ public class AdminDashboard extends JFrame {
     }
 
     /**
-     * Load all users from database and display in table (background)
+     * Reload the users table (background). The table holds only the pages on screen,
+     * so all this has to do is notice a change: after the first load it asks the
+     * change feed whether any user changed since the last version and, if so,
+     * has the table count again and refetch its visible pages.
      */
     private void loadUsersAsync() {
-        SwingWorker<List<User>, Void> worker = new SwingWorker<>() {
+        SwingWorker<Boolean, Void> worker = new SwingWorker<>() {
             @Override
-            protected List<User> doInBackground() {
+            protected Boolean doInBackground() {
                 if (userDAO == null) return null;
-                return userDAO.getAllUsers();
+                synchronized (userLoadLock) {
+                    if (userTableVersion >= 0) {
+                        ChangeSet<User> changes = changeFeedDAO.getUserChangesSince(userTableVersion);
+                        if (changes != null && !changes.isFullReload()) {
+                            userTableVersion = changes.getVersion();
+                            return !changes.isEmpty();
+                        }
+                    }
+                    userTableVersion = changeFeedDAO.getCurrentVersion();
+                    UserDAO.invalidateCache();
+                    return true;
+                }
             }
 
             @Override
             protected void done() {
                 try {
-                    List<User> users = get();
-                    if (users == null) {
+                    Boolean changed = get();
+                    if (changed == null) {
                         addLog("Warning: Could not load users from database (connection may be unavailable)");
-                        return;
-                    }
-                    DefaultTableModel model = (DefaultTableModel) userTable.getModel();
-                    model.setRowCount(0); // Clear existing rows
-
-                    int rowNumber = 1;
-                    for (User user : users) {
-                        Object[] row = {
-                                rowNumber++,              // Auto-increment display ID
-                                user.getUsername(),
-                                user.getRole(),
-                                "Active",                 // Status
-                                "Edit",                   // Edit button placeholder
-                                "Delete",                 // Delete button placeholder
-                                user.getUserId()          // Hidden database ID
-                        };
-                        model.addRow(row);
+                    } else if (changed) {
+                        if (userPageModel.getRowCount() == 0 && userSearchText().isEmpty()) {
+                            applyUserFilter();
+                        } else {
+                            userPageModel.reload();
+                        }
                     }
-                    addLog("Loaded " + users.size() + " users from database");
                 } catch (Exception e) {
                     addLog("Error loading users: " + e.getMessage());
                     e.printStackTrace();
                 }
             }
         };
-        worker.execute();
+        dbExecutor.execute(worker);
+    }
+
+    /**
+     * Users changed since a version, or a full load (marked fullReload) when there is
+     * no version yet, the history was purged, or change versions are unavailable
+     */
+    private ChangeSet<User> fetchUserChanges(long since) {
+        if (since >= 0) {
+            ChangeSet<User> changes = changeFeedDAO.getUserChangesSince(since);
+            if (changes != null && !changes.isFullReload()) return changes;
+        }
+        long version = changeFeedDAO.getCurrentVersion();
+        UserDAO.invalidateCache(); // the snapshot must not predate the version
+        List<User> users = userDAO.getAllUsers();
+        if (users == null) return null;
+        ChangeSet<User> full = new ChangeSet<>(version);
+        full.setFullReload(true);
+        full.getUpserts().addAll(users);
+        return full;
+    }
+
+    private ChangeSet<Machine> fetchMachineChanges(long since) {
+        if (since >= 0) {
+            ChangeSet<Machine> changes = changeFeedDAO.getMachineChangesSince(since);
+            if (changes != null && !changes.isFullReload()) return changes;
+        }
+        long version = changeFeedDAO.getCurrentVersion();
+        MachineDAO.invalidateCache();
+        List<Machine> machines = machineDAO.getAllMachines();
+        if (machines == null) return null;
+        ChangeSet<Machine> full = new ChangeSet<>(version);
+        full.setFullReload(true);
+        full.getUpserts().addAll(machines);
+        return full;
     }
 
     /**
      * Handle editing a user from table row
      */
     private void handleEditUserFromTable(int row) {
-        // Get user data from selected row (DB_ID is in column 6)
-        int userId = (int) userTable.getValueAt(row, 6);
-        String currentUsername = (String) userTable.getValueAt(row, 1);
-        String currentRole = (String) userTable.getValueAt(row, 2);
+        // Rows whose page is still loading cannot be edited yet
+        User user = userPageModel.getRow(row);
+        if (user == null) return;
 
-        handleEditUser(userId, currentUsername, currentRole);
+        handleEditUser(user.getUserId(), user.getUsername(), user.getRole());
     }
 
     /**
@@ -1215,11 +1570,10 @@ public class AdminDashboard extends JFrame {
      * Handle deleting a user from table row
      */
     private void handleDeleteUserFromTable(int row) {
-        // Get user data from selected row (DB_ID is in column 6)
-        int userId = (int) userTable.getValueAt(row, 6);
-        String username = (String) userTable.getValueAt(row, 1);
+        User user = userPageModel.getRow(row);
+        if (user == null) return;
 
-        handleDeleteUser(userId, username);
+        handleDeleteUser(user.getUserId(), user.getUsername());
     }
 
     /**
@@ -1265,12 +1619,18 @@ public class AdminDashboard extends JFrame {
 
     // ---------------- DISK TAB ----------------
     private JPanel createDiskTab() {
-        diskPanel = new JPanel();
-        diskPanel.setLayout(new BoxLayout(diskPanel, BoxLayout.Y_AXIS));
-        diskPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        volumeList = new VolumeListPanel(uiScheduler, DISK_ACTIONS, new VolumeListPanel.ActionHandler() {
+            @Override
+            public void onVolumeAction(String action, VolumeInfo volume) {
+                triggerDiskAction(action, volume);
+            }
 
-        JScrollPane scroll = new JScrollPane(diskPanel);
-        scroll.setBorder(BorderFactory.createTitledBorder("Detected Drives"));
+            @Override
+            public void onCreateVolume(int diskNumber) {
+                PartitionOperations.executeCreateVolume(AdminDashboard.this, diskNumber, currentUser, machineDAO, DiskMonitorService::requestRefresh);
+            }
+        });
+        volumeList.setBorder(BorderFactory.createTitledBorder("Detected Drives"));
 
         JPanel header = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 5));
         header.setBorder(new EmptyBorder(0, 5, 0, 5));
@@ -1281,483 +1641,540 @@ public class AdminDashboard extends JFrame {
         refreshBtn.setFocusPainted(false);
         refreshBtn.addActionListener(e -> {
             addLog(currentUser.getUsername() + " manually refreshed disk monitor");
-            SwingUtilities.invokeLater(this::buildDiskCards);
+            DiskMonitorService.requestRefresh();
         });
         header.add(refreshBtn);
 
         JPanel panel = new JPanel(new BorderLayout(10, 10));
         panel.add(header, BorderLayout.NORTH);
-        panel.add(scroll, BorderLayout.CENTER);
+        panel.add(volumeList, BorderLayout.CENTER);
 
         return panel;
     }
 
     /**
-     * Build DiskCard components once (creates cards + caches labels asynchronously)
+     * Apply one monitor event (monitor thread); the volume list coalesces
+     * changes into one update per frame
      */
-    private void buildDiskCards() {
-        diskPanel.removeAll();
-        diskCardMap.clear();
-
-        File[] roots = File.listRoots();
-        long totalDiskSize = 0;
-        Set<String> newKeys = new HashSet<>();
-
-        if (roots != null && roots.length > 0) {
-            for (File root : roots) {
-                long free = root.getFreeSpace();
-                long total = root.getTotalSpace();
-                totalDiskSize += total;
-
-                String driveKey = root.getAbsolutePath().replace("\\", "").replace(":", "");
-                newKeys.add(driveKey);
-                DiskCard card = new DiskCard(root);
-                diskCardMap.put(driveKey, card);
-
-                // Add to panel
-                diskPanel.add(Box.createVerticalStrut(8));
-                diskPanel.add(card);
-
-                // initial stats
-                card.updateStats(free, total);
-
-                // asynchronously fetch & cache volume label (avoid blocking)
-                actionExecutor.submit(() -> {
-                    try {
-                        String label = PartitionOperations.getVolumeLabel(driveKey);
-                        if (label == null) label = "";
-                        String display = label.isEmpty() ? root.getAbsolutePath() : label + " (" + root.getAbsolutePath() + ")";
-                        volumeLabelCache.put(driveKey, display);
-                        // update card title once label is known
-                        card.updateStats(root.getFreeSpace(), root.getTotalSpace());
-                    } catch (Exception ex) {
-                        // ignore label fetch failures
-                    }
-                });
-            }
+    private void handleDiskEvent(DiskEvent event) {
+        switch (event.getType()) {
+            case VOLUME_ADDED:
+            case VOLUME_REMOVED:
+                volumeList.setVolumes(DiskMonitorService.getVolumes());
+                break;
+            case USAGE_CHANGED:
+            case LABEL_CHANGED:
+                volumeList.updateVolume(event.getVolume());
+                break;
+            case UNALLOCATED_CHANGED:
+                volumeList.setUnallocated(event.getUnallocated());
+                break;
         }
+    }
 
-        // Prepare and place the unallocated container
-        diskPanel.add(Box.createVerticalStrut(5));
-        unallocatedContainer.removeAll();
-        unallocatedContainer.setLayout(new BoxLayout(unallocatedContainer, BoxLayout.Y_AXIS));
-        unallocatedContainer.setOpaque(false);
-        diskPanel.add(unallocatedContainer);
-
-        // get unallocated spaces in background and show lightweight cards in container
-        actionExecutor.submit(() -> {
-            ArrayList<UnallocExtent> unallocated = getUnallocatedExtentsBackground();
-            if (!unallocated.isEmpty()) {
-                SwingUtilities.invokeLater(() -> {
-                    unallocatedContainer.removeAll();
-                    for (UnallocExtent ext : unallocated) {
-                        double sizeGB = ext.bytes / 1_073_741_824.0;
-                        if (sizeGB < 1) continue;
-                        JPanel unallocatedCard = new JPanel(new BorderLayout(10, 5));
-                        unallocatedCard.setMaximumSize(new Dimension(Integer.MAX_VALUE, 60));
-                        unallocatedCard.setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY));
-                        unallocatedCard.setBackground(new Color(245, 245, 245));
-                        JLabel label = new JLabel("Unallocated Space on Disk " + ext.diskNumber + ": " + String.format("%.2f", sizeGB) + " GB");
-                        label.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-                        unallocatedCard.add(label, BorderLayout.NORTH);
-
-                        JPopupMenu menu = new JPopupMenu();
-                        JMenuItem createItem = new JMenuItem("Create New Volume");
-                        createItem.addActionListener(e -> PartitionOperations.executeCreateVolume(AdminDashboard.this, ext.diskNumber, currentUser, machineDAO, () -> SwingUtilities.invokeLater(this::buildDiskCards)));
-                        menu.add(createItem);
-                        unallocatedCard.setComponentPopupMenu(menu);
-
-                        unallocatedContainer.add(Box.createVerticalStrut(5));
-                        unallocatedContainer.add(unallocatedCard);
-                    }
-                    unallocatedContainer.revalidate();
-                    unallocatedContainer.repaint();
-                });
-            }
-        });
-
-        diskPanel.revalidate();
-        diskPanel.repaint();
-        lastRootKeys = newKeys;
+    private void ensureDiskMonitorRunning() {
+        if (volumeList == null) return;
+        if (!diskMonitorSubscribed) {
+            diskMonitorSubscribed = true;
+            DiskMonitorService.subscribe(diskListener);
+        } else {
+            // Back on the tab: the monitor may have slowed down while it was hidden
+            DiskMonitorService.requestRefresh();
+        }
     }
 
     /**
-     * Start scheduled periodic refresh of disk stats (non-blocking)
+     * Trigger disk action in background. The volume's row shows Working... until it finishes.
      */
-    private void startDiskScheduledRefresh() {
-        // schedule periodic updates - initial delay 5s, then every 8s
-        if (diskSchedulerStarted) return;
-        diskSchedulerStarted = true;
-        diskScheduler.scheduleWithFixedDelay(() -> {
+    private void triggerDiskAction(String action, VolumeInfo volume) {
+        File root = new File(volume.getRootPath());
+        String driveKey = volume.getKey();
+        volumeList.setBusy(driveKey, true);
+        addLog(currentUser.getUsername() + " requested " + action + " on " + root.getAbsolutePath());
+
+        // Run action in actionExecutor to avoid blocking EDT
+        actionExecutor.submit(() -> {
+            boolean success = false;
             try {
-                // Rescan roots and rebuild if topology changed
-                File[] roots = File.listRoots();
-                Set<String> newKeys = new HashSet<>();
-                if (roots != null) {
-                    for (File r : roots) {
-                        newKeys.add(r.getAbsolutePath().replace("\\", "").replace(":", ""));
-                    }
-                }
-                if (!newKeys.equals(lastRootKeys)) {
-                    lastRootKeys = newKeys;
-                    SwingUtilities.invokeLater(this::buildDiskCards);
-                    return;
+                String drive = driveKey;
+                long freeBytes = root.getFreeSpace();
+                long totalBytes = root.getTotalSpace();
+
+                // Call existing PartitionOperations - these calls may show confirmations/dialogs.
+                // If PartitionOperations shows Swing dialogs, they may require EDT; adapt PartitionOperations to use
+                // SwingUtilities.invokeAndWait for confirmations and keep heavy work off EDT.
+                switch (action) {
+                    case "Shrink Volume":
+                        PartitionOperations.executeShrinkVolume(AdminDashboard.this, drive, totalBytes, freeBytes, currentUser, machineDAO, DiskMonitorService::requestRefresh);
+                        success = true; // assume PartitionOperations handles success/failure internally and uses callback
+                        break;
+                    case "Format Volume":
+                        PartitionOperations.executeFormatVolume(AdminDashboard.this, drive, currentUser, machineDAO, () -> {
+                            DiskMonitorService.requestRefresh();
+                            addLog(action + " finished for " + drive);
+                        });
+                        success = true;
+                        break;
+                    case "Delete Volume":
+                        PartitionOperations.executeDeleteVolume(AdminDashboard.this, drive, currentUser, machineDAO, () -> {
+                            DiskMonitorService.requestRefresh();
+                            addLog(action + " finished for " + drive);
+                        });
+                        success = true;
+                        break;
+                    case "Extend Volume":
+                        PartitionOperations.executeExtendVolume(AdminDashboard.this, drive, totalBytes, freeBytes, currentUser, machineDAO, () -> {
+                            DiskMonitorService.requestRefresh();
+                            addLog(action + " finished for " + drive);
+                        });
+                        success = true;
+                        break;
+                    case "Rename Volume":
+                        PartitionOperations.executeRenameVolume(AdminDashboard.this, drive, currentUser, machineDAO, () -> {
+                            // a requested sample re-reads the labels
+                            DiskMonitorService.requestRefresh();
+                            addLog(action + " finished for " + drive);
+                        });
+                        success = true;
+                        break;
+                    case "Change Drive Letter":
+                        PartitionOperations.executeChangeDriveLetter(AdminDashboard.this, drive, currentUser, machineDAO, () -> {
+                            // drive key may change after drive letter change -> the monitor reports it as removed/added
+                            DiskMonitorService.requestRefresh();
+                            addLog(action + " finished for " + drive);
+                        });
+                        success = true;
+                        break;
                 }
-
-                // update stats for each card
-                for (Map.Entry<String, DiskCard> entry : diskCardMap.entrySet()) {
-                    DiskCard card = entry.getValue();
-                    File root = card.getRootFile();
-                    long free = root.getFreeSpace();
-                    long total = root.getTotalSpace();
-                    card.updateStats(free, total);
+            } catch (Exception ex) {
+                addLog("Error running action " + action + ": " + ex.getMessage());
+                ex.printStackTrace();
+            } finally {
+                // final update: sample at the fast interval again
+                DiskMonitorService.requestRefresh();
+                volumeList.setBusy(driveKey, false);
+
+                if (success) {
+                    ActivityLogger.logCustomAction(currentUser.getUserId(), PartitionOperations.getMachineId(currentUser, machineDAO), action + " executed on " + driveKey);
+                } else {
+                    addLog("Action " + action + " may have failed on " + driveKey);
                 }
-
-                // Refresh unallocated spaces in background and update container
-                actionExecutor.submit(() -> {
-                    ArrayList<UnallocExtent> unalloc = getUnallocatedExtentsBackground();
-                    SwingUtilities.invokeLater(() -> {
-                        unallocatedContainer.removeAll();
-                        if (unalloc != null && !unalloc.isEmpty()) {
-                            for (UnallocExtent ext : unalloc) {
-                                double sizeGB = ext.bytes / 1_073_741_824.0;
-                                if (sizeGB < 1) continue;
-                                JPanel unallocatedCard = new JPanel(new BorderLayout(10, 5));
-                                unallocatedCard.setMaximumSize(new Dimension(Integer.MAX_VALUE, 60));
-                                unallocatedCard.setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY));
-                                unallocatedCard.setBackground(new Color(245, 245, 245));
-                                JLabel label = new JLabel("Unallocated Space on Disk " + ext.diskNumber + ": " + String.format("%.2f", sizeGB) + " GB");
-                                label.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-                                unallocatedCard.add(label, BorderLayout.NORTH);
-
-                                JPopupMenu menu = new JPopupMenu();
-                                JMenuItem createItem = new JMenuItem("Create New Volume");
-                                createItem.addActionListener(e -> PartitionOperations.executeCreateVolume(AdminDashboard.this, ext.diskNumber, currentUser, machineDAO, () -> SwingUtilities.invokeLater(this::buildDiskCards)));
-                                menu.add(createItem);
-                                unallocatedCard.setComponentPopupMenu(menu);
-
-                                unallocatedContainer.add(Box.createVerticalStrut(5));
-                                unallocatedContainer.add(unallocatedCard);
-                            }
-                        }
-                        unallocatedContainer.revalidate();
-                        unallocatedContainer.repaint();
-                    });
-                });
-            } catch (Throwable t) {
-                t.printStackTrace();
             }
-        }, 3, 2, TimeUnit.SECONDS);
+        });
     }
 
-    private void ensureDiskMonitorRunning() {
-        if (diskPanel == null) return;
-        if (diskCardMap.isEmpty()) {
-            buildDiskCards();
-        }
-        startDiskScheduledRefresh();
-    }
+    // ---------------- LOG TAB ----------------
+    private JPanel createLogTab() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(new EmptyBorder(10, 10, 10, 10));
 
-    /**
-     * DiskCard component representing a single drive; actions run in actionExecutor.
-     */
-    private class DiskCard extends JPanel {
-        private final File root;
-        private final JLabel titleLabel;
-        private final JProgressBar progress;
-        private final JLabel statusLabel;
-        private volatile boolean busy = false;
-
-        public DiskCard(File root) {
-            this.root = root;
-            setLayout(new BorderLayout(6, 4));
-            setMaximumSize(new Dimension(Integer.MAX_VALUE, 90));
-            setBorder(BorderFactory.createCompoundBorder(
-                    BorderFactory.createLineBorder(new Color(200, 200, 200)),
-                    new EmptyBorder(6, 10, 6, 10)
-            ));
-            setBackground(Color.WHITE);
-
-            titleLabel = new JLabel("", JLabel.LEFT);
-            titleLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-            progress = new JProgressBar(0, 100);
-            progress.setStringPainted(true);
-            progress.setPreferredSize(new Dimension(800, 25));
-            statusLabel = new JLabel("", JLabel.LEFT);
-            statusLabel.setFont(new Font("Segoe UI", Font.ITALIC, 12));
-
-            add(titleLabel, BorderLayout.NORTH);
-            add(progress, BorderLayout.CENTER);
-            add(statusLabel, BorderLayout.SOUTH);
-
-            // build context menu once and attach
-            JPopupMenu menu = new JPopupMenu();
-            String[] actions = {"Shrink Volume", "Format Volume", "Delete Volume", "Extend Volume", "Rename Volume", "Change Drive Letter"};
-            for (String action : actions) {
-                JMenuItem item = new JMenuItem(action);
-                item.addActionListener(evt -> triggerDiskAction(action));
-                menu.add(item);
+        logSearchModel = new PagedTableModel<>(new String[]{"Date", "User", "Machine", "Action"}, LOG_SEARCH_PAGE_SIZE, 25) {
+            @Override
+            protected Object getColumnValue(LogRow row, int rowIndex, int column) {
+                switch (column) {
+                    case 0: return row.log.getLogDate();
+                    case 1: return row.username;
+                    case 2: return row.machineName;
+                    default: return row.log.getAction();
+                }
             }
-            setComponentPopupMenu(menu);
-        }
+        };
+        JTable logSearchTable = new JTable(logSearchModel);
+        logSearchTable.setFont(new Font("Consolas", Font.PLAIN, 13));
+        logSearchTable.getColumnModel().getColumn(0).setPreferredWidth(160);
+        logSearchTable.getColumnModel().getColumn(1).setPreferredWidth(110);
+        logSearchTable.getColumnModel().getColumn(2).setPreferredWidth(130);
+        logSearchTable.getColumnModel().getColumn(3).setPreferredWidth(520);
+        logSearchTable.getColumnModel().getColumn(3).setCellRenderer(new SearchHighlightRenderer());
+        // Only the date order has an index behind it
+        logSearchModel.installHeaderSorting(logSearchTable, 0);
+        logSearchModel.setSortListener(this::runLogSearch);
+
+        // ---- search bar ----
+        JPanel searchBar = new JPanel(new FlowLayout(FlowLayout.LEFT, 6, 0));
+        logUserCombo = new JComboBox<>(new String[]{"All users"});
+        logMachineCombo = new JComboBox<>(new String[]{"All machines"});
+        JComboBox<String> typeCombo = new JComboBox<>();
+        typeCombo.addItem("All types");
+        for (String type : ActivityLogger.ACTION_TYPES) typeCombo.addItem(type);
+        JTextField fromField = new JTextField(8);
+        JTextField toField = new JTextField(8);
+        fromField.setToolTipText("From date (yyyy-MM-dd), empty = no limit");
+        toField.setToolTipText("To date (yyyy-MM-dd, inclusive), empty = no limit");
+        JTextField textField = new JTextField(12);
+        textField.setToolTipText("Words the action must contain");
+        JButton searchBtn = new JButton("Search");
+        JButton clearBtn = new JButton("Show All");
+
+        searchBar.add(logUserCombo);
+        searchBar.add(logMachineCombo);
+        searchBar.add(typeCombo);
+        searchBar.add(new JLabel("From:"));
+        searchBar.add(fromField);
+        searchBar.add(new JLabel("To:"));
+        searchBar.add(toField);
+        searchBar.add(textField);
+        searchBar.add(searchBtn);
+        searchBar.add(clearBtn);
+        loadLogSearchFiltersAsync();
+
+        // ---- log view / search results ----
+        CardLayout cards = new CardLayout();
+        JPanel center = new JPanel(cards);
+        center.add(logConsole, "all");
+        center.add(new JScrollPane(logSearchTable), "search");
+
+        logSearchStatus = new JLabel(" ");
+
+        Runnable startSearch = () -> {
+            try {
+                logSearchCriteria = new LogSearchCriteria(
+                        selectedId(logUserCombo, logUserIds),
+                        selectedId(logMachineCombo, logMachineIds),
+                        typeCombo.getSelectedIndex() > 0 ? (String) typeCombo.getSelectedItem() : null,
+                        textField.getText(),
+                        parseDay(fromField.getText(), 0),
+                        parseDay(toField.getText(), 1));
+            } catch (java.time.format.DateTimeParseException ex) {
+                JOptionPane.showMessageDialog(this, "Dates must be yyyy-MM-dd", "Search", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            cards.show(center, "search");
+            runLogSearch();
+        };
+        searchBtn.addActionListener(e -> startSearch.run());
+        textField.addActionListener(e -> startSearch.run());
+        clearBtn.addActionListener(e -> {
+            cards.show(center, "all");
+            logSearchStatus.setText(" ");
+        });
 
-        public File getRootFile() {
-            return root;
-        }
+        JButton refreshLogsBtn = new JButton("Refresh Activity Logs");
+        refreshLogsBtn.addActionListener(e -> {
+            loadActivityLogsAsync();
+            addLog(currentUser.getUsername() + " refreshed activity logs");
+            ActivityLogger.logCustomAction(currentUser.getUserId(), PartitionOperations.getMachineId(currentUser, machineDAO), "Refreshed activity logs");
+        });
 
-        public String getDriveKey() {
-            return root.getAbsolutePath().replace("\\", "").replace(":", "");
-        }
+        JPanel south = new JPanel(new BorderLayout(6, 0));
+        JPanel pager = new JPanel(new FlowLayout(FlowLayout.LEFT, 6, 0));
+        pager.add(logSearchStatus);
+        south.add(pager, BorderLayout.WEST);
+        south.add(refreshLogsBtn, BorderLayout.EAST);
 
-        /**
-         * Update UI stats on EDT (safe)
-         */
-        public void updateStats(long freeBytes, long totalBytes) {
-            SwingUtilities.invokeLater(() -> {
-                int usedPercent = (totalBytes == 0) ? 0 : (int) (((double) (totalBytes - freeBytes) / totalBytes) * 100);
-                progress.setValue(Math.max(0, Math.min(100, usedPercent)));
-                String drivePath = root.getAbsolutePath();
-                String driveKey = getDriveKey();
-                String label = volumeLabelCache.getOrDefault(driveKey, drivePath);
-                titleLabel.setText(label + " — Free: " + (freeBytes / (1024L * 1024 * 1024)) + "GB / Total: " + (totalBytes / (1024L * 1024 * 1024)) + "GB");
-                statusLabel.setText(busy ? "Working..." : "Idle");
-            });
-        }
+        panel.add(searchBar, BorderLayout.NORTH);
+        panel.add(center, BorderLayout.CENTER);
+        panel.add(south, BorderLayout.SOUTH);
+        return panel;
+    }
 
-        public void setBusy(boolean b) {
-            this.busy = b;
-            SwingUtilities.invokeLater(() -> statusLabel.setText(b ? "Working..." : "Idle"));
-        }
+    /**
+     * Fill the user and machine filters from the (cached) DAOs
+     */
+    private void loadLogSearchFiltersAsync() {
+        SwingWorker<Void, Void> worker = new SwingWorker<>() {
+            private List<User> users;
+            private List<Machine> machines;
 
-        /**
-         * Trigger disk action in background. Updates card state optimistically then finalizes.
-         */
-        private void triggerDiskAction(String action) {
-            setBusy(true);
-            addLog(currentUser.getUsername() + " requested " + action + " on " + root.getAbsolutePath());
+            @Override
+            protected Void doInBackground() {
+                users = userDAO.getAllUsers();
+                machines = machineDAO.getAllMachines();
+                return null;
+            }
 
-            // Run action in actionExecutor to avoid blocking EDT
-            actionExecutor.submit(() -> {
-                boolean success = false;
-                try {
-                    String drive = getDriveKey();
-                    long freeBytes = root.getFreeSpace();
-                    long totalBytes = root.getTotalSpace();
-
-                    // Call existing PartitionOperations - these calls may show confirmations/dialogs.
-                    // If PartitionOperations shows Swing dialogs, they may require EDT; adapt PartitionOperations to use
-                    // SwingUtilities.invokeAndWait for confirmations and keep heavy work off EDT.
-                    switch (action) {
-                        case "Shrink Volume":
-                            PartitionOperations.executeShrinkVolume(AdminDashboard.this, drive, totalBytes, freeBytes, currentUser, machineDAO, () -> SwingUtilities.invokeLater(() -> buildDiskCards()));
-                            success = true; // assume PartitionOperations handles success/failure internally and uses callback
-                            break;
-                        case "Format Volume":
-                            PartitionOperations.executeFormatVolume(AdminDashboard.this, drive, currentUser, machineDAO, () -> {
-                                long newFree = root.getFreeSpace();
-                                long newTotal = root.getTotalSpace();
-                                updateStats(newFree, newTotal);
-                                addLog(action + " finished for " + drive);
-                            });
-                            success = true;
-                            break;
-                        case "Delete Volume":
-                            PartitionOperations.executeDeleteVolume(AdminDashboard.this, drive, currentUser, machineDAO, () -> {
-                                SwingUtilities.invokeLater(() -> buildDiskCards());
-                                addLog(action + " finished for " + drive);
-                            });
-                            success = true;
-                            break;
-                        case "Extend Volume":
-                            PartitionOperations.executeExtendVolume(AdminDashboard.this, drive, totalBytes, freeBytes, currentUser, machineDAO, () -> {
-                                SwingUtilities.invokeLater(() -> buildDiskCards());
-                                addLog(action + " finished for " + drive);
-                            });
-                            success = true;
-                            break;
-                        case "Rename Volume":
-                            PartitionOperations.executeRenameVolume(AdminDashboard.this, drive, currentUser, machineDAO, () -> {
-                                // label might change; clear cache and refresh
-                                volumeLabelCache.remove(drive);
-                                updateStats(root.getFreeSpace(), root.getTotalSpace());
-                                addLog(action + " finished for " + drive);
-                            });
-                            success = true;
-                            break;
-                        case "Change Drive Letter":
-                            PartitionOperations.executeChangeDriveLetter(AdminDashboard.this, drive, currentUser, machineDAO, () -> {
-                                // drive key may change after drive letter change -> rebuild disks
-                                SwingUtilities.invokeLater(() -> {
-                                    buildDiskCards();
-                                });
-                                addLog(action + " finished for " + drive);
-                            });
-                            success = true;
-                            break;
+            @Override
+            protected void done() {
+                if (users != null) {
+                    for (User u : users) {
+                        logUserIds.put(u.getUsername(), u.getUserId());
+                        logUserCombo.addItem(u.getUsername());
                     }
-                } catch (Exception ex) {
-                    addLog("Error running action " + action + ": " + ex.getMessage());
-                    ex.printStackTrace();
-                } finally {
-                    // final update: requery stats
-                    long finalFree = root.getFreeSpace();
-                    long finalTotal = root.getTotalSpace();
-                    updateStats(finalFree, finalTotal);
-                    setBusy(false);
-
-                    if (success) {
-                        ActivityLogger.logCustomAction(currentUser.getUserId(), PartitionOperations.getMachineId(currentUser, machineDAO), action + " executed on " + getDriveKey());
-                    } else {
-                        addLog("Action " + action + " may have failed on " + getDriveKey());
+                }
+                if (machines != null) {
+                    for (Machine m : machines) {
+                        String label = m.getMachineName() + " #" + m.getMachineId();
+                        logMachineIds.put(label, m.getMachineId());
+                        logMachineCombo.addItem(label);
                     }
                 }
-            });
-        }
+            }
+        };
+        dbExecutor.execute(worker);
+    }
+
+    private static Integer selectedId(JComboBox<String> combo, Map<String, Integer> ids) {
+        return (combo.getSelectedIndex() > 0) ? ids.get((String) combo.getSelectedItem()) : null;
+    }
+
+    private static java.sql.Timestamp parseDay(String text, int plusDays) {
+        if (text == null || text.trim().isEmpty()) return null;
+        return java.sql.Timestamp.valueOf(java.time.LocalDate.parse(text.trim()).plusDays(plusDays).atStartOfDay());
     }
 
     /**
-     * Background version of getUnallocatedSpaces (calls powershell) - safe to run off EDT
+     * Point the results table at a new search. Searches inside the loaded window
+     * read the local index (all matches known up front); anything older is counted
+     * and paged in the database, one page per screenful.
      */
-    private ArrayList<Long> getUnallocatedSpacesBackground() {
-        ArrayList<Long> unallocatedList = new ArrayList<>();
-        try {
-            String command = "Get-Disk | ForEach-Object { $_.LargestFreeExtent }";
-            ProcessBuilder pb = new ProcessBuilder("powershell.exe", "-Command", command);
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty()) {
-                    try {
-                        long bytes = Long.parseLong(line);
-                        if (bytes > 0) unallocatedList.add(bytes);
-                    } catch (NumberFormatException ignored) {}
+    private void runLogSearch() {
+        final LogSearchCriteria criteria = logSearchCriteria;
+        final LogSearchIndex index = logSearchIndex;
+        if (criteria == null) return;
+        final boolean newestFirst = !(logSearchModel.getSortColumn() == 0 && logSearchModel.isSortAscending());
+        final boolean fromIndex = index != null && index.covers(criteria);
+        final long start = System.nanoTime();
+        logSearchStatus.setText("Searching...");
+
+        logSearchModel.setCountListener(count -> {
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            logSearchStatus.setText(count < 0
+                    ? "Search failed (database unavailable?)"
+                    : count + " match(es) | " + elapsedMs + " ms" + (fromIndex ? " (loaded window)" : " (database)"));
+        });
+        logSearchModel.setSource(new PagedTableModel.PageSource<>() {
+            private List<ActivityLog> matches;
+            // Machines seen by this search (misses too); only the page loader thread touches it
+            private final Map<Integer, Machine> machines = new HashMap<>();
+
+            @Override
+            public int count() {
+                if (!fromIndex) return activityLogHistoryDAO.countLogs(criteria);
+                matches = index.search(criteria);
+                if (!newestFirst) java.util.Collections.reverse(matches);
+                return matches.size();
+            }
+
+            @Override
+            public List<LogRow> fetch(int offset, int limit, LogRow after) {
+                List<ActivityLog> pageLogs = fromIndex
+                        ? matches.subList(Math.min(offset, matches.size()), Math.min(offset + limit, matches.size()))
+                        : activityLogHistoryDAO.getLogsPage(criteria, newestFirst,
+                                after != null ? after.log : null, offset, limit);
+                if (pageLogs == null) return null;
+                // Resolve names here so the table never waits on a lookup
+                List<LogRow> rows = new ArrayList<>(pageLogs.size());
+                for (ActivityLog log : pageLogs) {
+                    Machine m = machineFor(machines, log.getMachineId());
+                    rows.add(new LogRow(log, usernameFor(log.getUserId()), (m != null) ? m.getMachineName() : "Unknown"));
                 }
+                return rows;
             }
-            reader.close();
-        } catch (Exception e) {
-            addLog("Error detecting unallocated space (background): " + e.getMessage());
-        }
-        return unallocatedList;
+        });
     }
 
-    private static class UnallocExtent {
-        int diskNumber;
-        long bytes;
-        UnallocExtent(int diskNumber, long bytes) { this.diskNumber = diskNumber; this.bytes = bytes; }
+    /**
+     * One row of the log search table
+     */
+    private static class LogRow {
+        final ActivityLog log;
+        final String username;
+        final String machineName;
+
+        LogRow(ActivityLog log, String username, String machineName) {
+            this.log = log;
+            this.username = username;
+            this.machineName = machineName;
+        }
     }
 
-    private ArrayList<UnallocExtent> getUnallocatedExtentsBackground() {
-        ArrayList<UnallocExtent> list = new ArrayList<>();
-        try {
-            String command = "Get-Disk | ForEach-Object { Write-Output ($_.Number.ToString() + '|' + $_.LargestFreeExtent) }";
-            ProcessBuilder pb = new ProcessBuilder("powershell.exe", "-Command", command);
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty() && line.contains("|")) {
-                    String[] parts = line.split("\\|");
-                    if (parts.length == 2) {
-                        try {
-                            int diskNum = Integer.parseInt(parts[0].trim());
-                            long bytes = Long.parseLong(parts[1].trim());
-                            if (bytes > 0) list.add(new UnallocExtent(diskNum, bytes));
-                        } catch (NumberFormatException ignored) {}
-                    }
+    /**
+     * Renders the action column with the searched words highlighted
+     */
+    private class SearchHighlightRenderer extends javax.swing.table.DefaultTableCellRenderer {
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            LogSearchCriteria criteria = logSearchCriteria;
+            if (value == null || criteria == null) return this;
+            String text = value.toString();
+            String lower = text.toLowerCase();
+            List<String> terms = new ArrayList<>(java.util.Arrays.asList(criteria.getTextTerms()));
+            if (criteria.getActionType() != null) terms.add(criteria.getActionType().toLowerCase());
+
+            boolean[] marked = new boolean[text.length()];
+            boolean any = false;
+            for (String term : terms) {
+                if (term.isEmpty()) continue;
+                for (int i = lower.indexOf(term); i >= 0; i = lower.indexOf(term, i + term.length())) {
+                    java.util.Arrays.fill(marked, i, i + term.length(), true);
+                    any = true;
                 }
             }
-            reader.close();
-        } catch (Exception e) {
-            addLog("Error detecting unallocated extents: " + e.getMessage());
+            if (!any) return this;
+            StringBuilder html = new StringBuilder("<html>");
+            for (int i = 0; i < text.length(); i++) {
+                if (marked[i] && (i == 0 || !marked[i - 1])) html.append("<span style='background:#ffeb3b'>");
+                char c = text.charAt(i);
+                html.append(c == '<' ? "&lt;" : c == '>' ? "&gt;" : c == '&' ? "&amp;" : String.valueOf(c));
+                if (marked[i] && (i == text.length() - 1 || !marked[i + 1])) html.append("</span>");
+            }
+            setText(html.append("</html>").toString());
+            return this;
         }
-        return list;
-    }
-
-    // ---------------- LOG TAB ----------------
-    private JPanel createLogTab() {
-        JPanel panel = new JPanel(new BorderLayout(10, 10));
-        panel.setBorder(new EmptyBorder(10, 10, 10, 10));
-
-        logArea = new JTextArea();
-        logArea.setFont(new Font("Consolas", Font.PLAIN, 13));
-        logArea.setEditable(false);
-        updateLogArea();
-
-        JButton refreshLogsBtn = new JButton("Refresh Activity Logs");
-        refreshLogsBtn.addActionListener(e -> {
-            loadActivityLogsAsync();
-            addLog(currentUser.getUsername() + " refreshed activity logs");
-            ActivityLogger.logCustomAction(currentUser.getUserId(), PartitionOperations.getMachineId(currentUser, machineDAO), "Refreshed activity logs");
-        });
-
-        panel.add(new JScrollPane(logArea), BorderLayout.CENTER);
-        panel.add(refreshLogsBtn, BorderLayout.SOUTH);
-        return panel;
     }
 
     /**
-     * Load activity logs from database in background and display
+     * Load activity logs from database in background and display.
+     * Raw lines come from the hot window only; older days are read from the daily rollups.
+     * After the first load only logs newer than the last seen log_id are fetched.
      */
     private void loadActivityLogsAsync() {
-        SwingWorker<List<ActivityLog>, Void> worker = new SwingWorker<>() {
+        final int hotDays = LogRetentionManager.getHotWindowDays();
+        SwingWorker<List<String>, Void> worker = new SwingWorker<>() {
+            private int rawCount = 0;
+            private int newCount = -1;
+
             @Override
-            protected List<ActivityLog> doInBackground() {
-                if (activityLogDAO == null) return null;
-                return activityLogDAO.getAllLogs();
+            protected List<String> doInBackground() {
+                if (activityLogHistoryDAO == null) return null;
+                synchronized (logLoadLock) {
+                    java.time.LocalDate hotStart = java.time.LocalDate.now().minusDays(hotDays);
+                    java.sql.Timestamp windowStart = java.sql.Timestamp.valueOf(hotStart.atStartOfDay());
+
+                    List<ActivityLog> activityLogs;
+                    List<String> logLines;
+                    if (loadedActivityLogs == null) {
+                        activityLogs = activityLogHistoryDAO.getLogsSince(windowStart);
+                        if (activityLogs == null) return null;
+                        logLines = formatLogLines(activityLogs);
+                    } else {
+                        List<ActivityLog> added = activityLogHistoryDAO.getLogsAfterId(lastLoadedLogId);
+                        if (added == null) return null;
+                        // Drop what slid out of the window, append what is new
+                        activityLogs = new ArrayList<>(loadedActivityLogs.size() + added.size());
+                        logLines = new ArrayList<>(activityLogs.size());
+                        // IDs already shown that the overlap re-read may return again
+                        java.util.Set<Integer> recentIds = new java.util.HashSet<>();
+                        int overlapStart = lastLoadedLogId - ActivityLogHistoryDAO.LOG_OVERLAP_IDS;
+                        for (int i = 0; i < loadedActivityLogs.size(); i++) {
+                            ActivityLog loaded = loadedActivityLogs.get(i);
+                            if (loaded.getLogId() > overlapStart) recentIds.add(loaded.getLogId());
+                            if (!loaded.getLogDate().before(windowStart)) {
+                                activityLogs.add(loaded);
+                                logLines.add(loadedLogLines.get(i));
+                            }
+                        }
+                        newCount = 0;
+                        boolean inOrder = true;
+                        for (ActivityLog log : added) {
+                            if (!recentIds.add(log.getLogId()) || log.getLogDate().before(windowStart)) continue;
+                            newCount++;
+                            if (!activityLogs.isEmpty()
+                                    && log.getLogDate().before(activityLogs.get(activityLogs.size() - 1).getLogDate())) {
+                                inOrder = false; // e.g. a spooled event replayed late
+                            }
+                            activityLogs.add(log);
+                        }
+                        if (inOrder) {
+                            logLines.addAll(formatLogLines(activityLogs.subList(logLines.size(), activityLogs.size())));
+                        } else {
+                            activityLogs.sort(java.util.Comparator.comparing(ActivityLog::getLogDate)
+                                    .thenComparingInt(ActivityLog::getLogId));
+                            logLines = formatLogLines(activityLogs);
+                        }
+                    }
+                    for (ActivityLog log : activityLogs) {
+                        lastLoadedLogId = Math.max(lastLoadedLogId, log.getLogId());
+                    }
+                    loadedActivityLogs = activityLogs;
+                    loadedLogLines = logLines;
+                    rawCount = activityLogs.size();
+                    logSearchIndex = new LogSearchIndex(activityLogs, windowStart);
+
+                    // Rollups only change once a day
+                    if (!hotStart.equals(rollupSummaryDay)) {
+                        rollupSummaryLines = buildRollupSummary(hotStart, hotDays);
+                        rollupSummaryDay = hotStart;
+                    }
+
+                    List<String> lines = new ArrayList<>(rollupSummaryLines);
+                    lines.add("=== Activity Logs from Database (last " + hotDays + " days) ===");
+                    lines.addAll(logLines);
+                    return lines;
+                }
             }
 
             @Override
             protected void done() {
                 try {
-                    List<ActivityLog> activityLogs = get();
-                    if (activityLogs == null) {
+                    List<String> lines = get();
+                    if (lines == null) {
                         addLog("Warning: Could not load activity logs from database (connection may be unavailable)");
                         return;
                     }
 
-                    logs.clear();
-                    logs.add("=== Activity Logs from Database ===");
-
-                    // Cache user/machine lookups to reduce DB calls
-                    Map<Integer, String> userCache = new HashMap<>();
-                    Map<Integer, String> machineCache = new HashMap<>();
-
-                    for (ActivityLog log : activityLogs) {
-                        String username = userCache.computeIfAbsent(log.getUserId(), id -> {
-                            User u = userDAO.getUserById(id);
-                            return (u != null) ? u.getUsername() : "Unknown";
-                        });
-                        String machineName = machineCache.computeIfAbsent(log.getMachineId(), id -> {
-                            Machine m = machineDAO.getMachineById(id);
-                            return (m != null) ? m.getMachineName() : "Unknown";
-                        });
-
-                        String logEntry = String.format("[%s] User: %s | Machine: %s | Action: %s",
-                                log.getLogDate().toString(),
-                                username,
-                                machineName,
-                                log.getAction());
-                        logs.add(logEntry);
-                    }
-
-                    logs.add("=== End of Database Logs ===");
-                    logs.add("");
-                    logs.add("=== Local Session Logs ===");
-
-                    updateLogArea();
-                    addLog("Loaded " + activityLogs.size() + " activity logs from database");
+                    lines.add("=== End of Database Logs ===");
+                    lines.add("");
+                    lines.add("=== Local Session Logs ===");
+                    logConsole.setLines(lines);
+                    addLog(newCount < 0
+                            ? "Loaded " + rawCount + " activity logs from database"
+                            : "Fetched " + newCount + " new activity log(s) (" + rawCount + " in window)");
                 } catch (Exception e) {
                     addLog("Error loading activity logs: " + e.getMessage());
                     e.printStackTrace();
                 }
             }
         };
-        worker.execute();
+        dbExecutor.execute(worker);
+    }
+
+    private List<String> formatLogLines(List<ActivityLog> activityLogs) {
+        // Logs repeat a handful of machines; remember each one (misses too) for this load
+        Map<Integer, Machine> machines = new HashMap<>();
+        List<String> lines = new ArrayList<>(activityLogs.size());
+        for (ActivityLog log : activityLogs) {
+            Machine m = machineFor(machines, log.getMachineId());
+            lines.add(String.format("[%s] User: %s | Machine: %s | Action: %s%s",
+                    log.getLogDate().toString(),
+                    usernameFor(log.getUserId()),
+                    (m != null) ? m.getMachineName() : "Unknown",
+                    log.getAction(),
+                    (log.getTraceId() != null) ? " | Trace: " + log.getTraceId() : ""));
+        }
+        return lines;
+    }
+
+    private List<String> buildRollupSummary(java.time.LocalDate hotStart, int hotDays) {
+        List<String> lines = new ArrayList<>();
+        java.time.LocalDate summaryStart = hotStart.minusMonths(LogRetentionManager.getRetentionMonths());
+        List<ActivityRollup> rollups = activityLogHistoryDAO.getDailyRollups(
+                java.sql.Date.valueOf(summaryStart), java.sql.Date.valueOf(hotStart));
+        if (rollups != null && !rollups.isEmpty()) {
+            lines.add("=== Daily Summary (older than " + hotDays + " days) ===");
+            // rows are ordered by day, user; fold actions into one line per day/user
+            int i = 0;
+            while (i < rollups.size()) {
+                ActivityRollup first = rollups.get(i);
+                int total = 0;
+                int j = i;
+                while (j < rollups.size()
+                        && rollups.get(j).getLogDay().equals(first.getLogDay())
+                        && rollups.get(j).getUserId() == first.getUserId()) {
+                    total += rollups.get(j).getActionCount();
+                    j++;
+                }
+                lines.add(String.format("[%s] User: %s | %d action(s)",
+                        first.getLogDay(), usernameFor(first.getUserId()), total));
+                i = j;
+            }
+            lines.add("");
+        }
+        return lines;
+    }
+
+    private Machine machineFor(Map<Integer, Machine> memo, int machineId) {
+        if (!memo.containsKey(machineId)) {
+            memo.put(machineId, machineDAO.getMachineById(machineId));
+        }
+        return memo.get(machineId);
+    }
+
+    private String usernameFor(int userId) {
+        User u = userDAO.getUserById(userId);
+        return (u != null) ? u.getUsername() : "Unknown";
     }
 
     /**
@@ -1765,36 +2182,21 @@ public class AdminDashboard extends JFrame {
      */
     private void shutdownExecutors() {
         try {
-            diskScheduler.shutdownNow();
+            DiskMonitorService.unsubscribe(diskListener);
+            if (userTableFilter != null) userTableFilter.cancel();
+            if (userOptionsFilter != null) userOptionsFilter.cancel();
+            if (remoteSimpleFilter != null) remoteSimpleFilter.cancel();
             actionExecutor.shutdownNow();
+            dbExecutor.shutdownNow();
         } catch (Exception ignored) {
         }
     }
 
     private void addLog(String message) {
-        String logEntry = "[" + java.time.LocalTime.now().withNano(0) + "] " + message;
-        logs.add(logEntry);
-        // keep logs bounded to avoid huge memory growth
-        if (logs.size() > 1000) {
-            // remove oldest 200
-            for (int i = 0; i < 200; i++) logs.remove(0);
-        }
-        updateLogArea();
-    }
-
-    private void updateLogArea() {
-        if (logArea != null) {
-            StringBuilder sb = new StringBuilder();
-            for (String log : logs) sb.append(log).append("\n");
-            logArea.setText(sb.toString());
-            // keep caret at end
-            logArea.setCaretPosition(logArea.getDocument().getLength());
-        }
+        // bounded ring buffer; the view catches up once per frame
+        logConsole.append("[" + java.time.LocalTime.now().withNano(0) + "] " + message);
     }
  
-    // ------------------- POWERSHELL METHODS -------------------
-    // Left intact - getUnallocatedSpacesBackground used above instead of blocking calls on EDT
-
     // Make sure to call shutdownExecutors() before exit (done in logout and dispose)
 
     @Override
@@ -1802,4 +2204,18 @@ public class AdminDashboard extends JFrame {
         shutdownExecutors();
         super.dispose();
     }
+
+    @Override
+    protected JRootPane createRootPane() {
+        // Reports the first paint to the startup profile
+        JRootPane pane = new JRootPane() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                StartupProfiler.firstPaint();
+            }
+        };
+        pane.setOpaque(true);
+        return pane;
+    }
 }
@@ -0,0 +1,231 @@
+package gui;
+
+import models.MetricSnapshot;
+import utils.FlightRecording;
+import utils.Metrics;
+import utils.Tracing;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Diagnostics tab: every metric of the in-process registry, refreshed once a
+ * second while the tab is on screen. Timers show their percentiles in
+ * milliseconds; the rate column is the change of a counter (or a histogram's
+ * sample count) per second since the previous refresh. Export writes the
+ * current snapshot to a tab-separated file for a bug report, Save Flight
+ * Recording dumps the last minutes of the continuous JFR recording, and
+ * Export Traces writes the recent remote-operation traces for chrome://tracing.
+ */
+public class DiagnosticsPanel extends JPanel {
+
+    private static final int REFRESH_MILLIS = 1000;
+    private static final String[] COLUMNS = {"Metric", "Type", "Count", "Rate/s", "Mean", "p50", "p90", "p99", "Max", "Value"};
+
+    private final MetricTableModel model = new MetricTableModel();
+    private final JTextField filterField = new JTextField(16);
+    private final JLabel countLabel = new JLabel(" ");
+    private final JLabel statusLabel = new JLabel(" ");
+    private final Timer refreshTimer = new Timer(REFRESH_MILLIS, e -> refreshIfShowing());
+    private final Map<String, Long> lastTotals = new HashMap<>();
+    private long lastRefreshNanos = 0;
+
+    public DiagnosticsPanel() {
+        super(new BorderLayout(10, 10));
+        setBorder(new EmptyBorder(10, 10, 10, 10));
+
+        JTable table = new JTable(model);
+        table.setFont(new Font("Consolas", Font.PLAIN, 13));
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(260);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JPanel bar = new JPanel(new FlowLayout(FlowLayout.LEFT, 6, 0));
+        JButton exportBtn = new JButton("Export...");
+        JButton resetBtn = new JButton("Reset");
+        JButton recordingBtn = new JButton("Save Flight Recording...");
+        recordingBtn.setToolTipText("Save the last minutes of shell, SQL and LAN activity for JDK Mission Control");
+        JButton tracesBtn = new JButton("Export Traces...");
+        tracesBtn.setToolTipText("Save recent remote operations, console to agent, for chrome://tracing or Perfetto");
+        filterField.setToolTipText("Show metrics whose name contains this text");
+        filterField.addActionListener(e -> refresh());
+        exportBtn.addActionListener(e -> exportSnapshot());
+        recordingBtn.addActionListener(e -> saveFlightRecording());
+        tracesBtn.addActionListener(e -> exportTraces());
+        resetBtn.addActionListener(e -> {
+            Metrics.reset();
+            lastTotals.clear();
+            refresh();
+        });
+        bar.add(new JLabel("Filter:"));
+        bar.add(filterField);
+        bar.add(exportBtn);
+        bar.add(resetBtn);
+        bar.add(recordingBtn);
+        bar.add(tracesBtn);
+        bar.add(countLabel);
+        bar.add(statusLabel);
+        add(bar, BorderLayout.NORTH);
+
+        refresh();
+    }
+
+    @Override
+    public void removeNotify() {
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refreshTimer.start();
+    }
+
+    private void refreshIfShowing() {
+        if (isShowing()) refresh();
+    }
+
+    private void refresh() {
+        long now = System.nanoTime();
+        double seconds = (lastRefreshNanos == 0) ? 0 : (now - lastRefreshNanos) / 1e9;
+        lastRefreshNanos = now;
+        String filter = filterField.getText().trim().toLowerCase(Locale.ROOT);
+        List<Object[]> rows = new ArrayList<>();
+        for (MetricSnapshot m : Metrics.snapshot()) {
+            long total = m.isDistribution() ? m.getCount() : m.getValue();
+            Long previous = lastTotals.put(m.getName(), total);
+            if (!filter.isEmpty() && !m.getName().toLowerCase(Locale.ROOT).contains(filter)) continue;
+            String rate = "";
+            if (!"gauge".equals(m.getType()) && previous != null && seconds > 0) {
+                rate = String.format("%.1f", Math.max(0, total - previous) / seconds);
+            }
+            if (m.isDistribution()) {
+                rows.add(new Object[]{m.getName(), m.getType(), m.getCount(), rate,
+                        format(m, (long) m.getMean()), format(m, m.getP50()), format(m, m.getP90()),
+                        format(m, m.getP99()), format(m, m.getMax()), ""});
+            } else {
+                String value = m.getUnit().isEmpty() ? String.valueOf(m.getValue()) : m.getValue() + " " + m.getUnit();
+                rows.add(new Object[]{m.getName(), m.getType(), "", rate, "", "", "", "", "", value});
+            }
+        }
+        model.setRows(rows);
+        countLabel.setText(rows.size() + " metrics");
+    }
+
+    private static String format(MetricSnapshot m, long value) {
+        if (m.getCount() == 0) return "";
+        if ("ns".equals(m.getUnit())) return String.format("%.2f ms", value / 1e6);
+        return m.getUnit().isEmpty() ? String.valueOf(value) : value + " " + m.getUnit();
+    }
+
+    private void exportSnapshot() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("metrics-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".tsv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        try {
+            int count = Metrics.writeSnapshot(file);
+            statusLabel.setText("Exported " + count + " metrics to " + file.getName());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Could not export metrics: " + ex.getMessage(),
+                    "Export Failed", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void exportTraces() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("traces-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        try {
+            int count = Tracing.writeTraceFile(file);
+            statusLabel.setText("Exported " + count + " spans to " + file.getName());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Could not export traces: " + ex.getMessage(),
+                    "Export Failed", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void saveFlightRecording() {
+        if (!FlightRecording.isRunning()) {
+            JOptionPane.showMessageDialog(this, "Flight recording is not running (disabled with jfr.enabled=false,\n"
+                    + "or it failed to start; see the console output).", "Flight Recording", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        long window = FlightRecording.getWindowMinutes();
+        String input = JOptionPane.showInputDialog(this, "Minutes to save (up to " + window + "):", window);
+        if (input == null) return;
+        long minutes;
+        try {
+            minutes = Math.min(window, Math.max(1, Long.parseLong(input.trim())));
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Enter a whole number of minutes.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("oneclick-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jfr"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        statusLabel.setText("Saving flight recording...");
+        // Copying the recording's chunks can take a moment; keep it off the EDT
+        Thread t = new Thread(() -> {
+            try {
+                FlightRecording.dump(minutes, file);
+                SwingUtilities.invokeLater(() -> statusLabel.setText(
+                        "Saved the last " + minutes + " minutes to " + file.getName()));
+            } catch (IOException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    statusLabel.setText(" ");
+                    JOptionPane.showMessageDialog(this, "Could not save the flight recording: " + ex.getMessage(),
+                            "Save Failed", JOptionPane.ERROR_MESSAGE);
+                });
+            }
+        }, "flight-recording-dump");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static class MetricTableModel extends AbstractTableModel {
+        private List<Object[]> rows = new ArrayList<>();
+
+        void setRows(List<Object[]> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            return rows.get(rowIndex)[columnIndex];
+        }
+    }
+}
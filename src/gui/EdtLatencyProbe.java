@@ -0,0 +1,57 @@
+package gui;
+
+import utils.Metrics;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Measures how long the EDT takes to pick up a posted task: a daemon thread
+ * posts a probe every 100 ms (only once the previous one has run) and the
+ * delay lands in the edt.latency timer. Delays over 250 ms, long enough for
+ * the user to notice the console freezing, are also counted in edt.stalls.
+ */
+public class EdtLatencyProbe {
+
+    private static final long INTERVAL_MILLIS = 100;
+    private static final long STALL_NANOS = 250_000_000L;
+
+    private static final Metrics.Histogram LATENCY = Metrics.timer("edt.latency");
+    private static final Metrics.Counter STALLS = Metrics.counter("edt.stalls");
+
+    private static Thread thread;
+
+    /**
+     * Start the probe once per process (any thread)
+     */
+    public static synchronized void start() {
+        if (thread != null) return;
+        thread = new Thread(EdtLatencyProbe::run, "edt-latency-probe");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void run() {
+        Object done = new Object();
+        while (true) {
+            long posted = System.nanoTime();
+            boolean[] ran = {false};
+            SwingUtilities.invokeLater(() -> {
+                long delay = System.nanoTime() - posted;
+                LATENCY.record(delay);
+                if (delay > STALL_NANOS) STALLS.inc();
+                synchronized (done) {
+                    ran[0] = true;
+                    done.notifyAll();
+                }
+            });
+            try {
+                synchronized (done) {
+                    while (!ran[0]) done.wait();
+                }
+                Thread.sleep(INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package gui;
+
+import database.DatabaseConnection;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Debounce-and-switch pipeline behind a filter input (e.g. a search field)
+ * - changes within the quiet period (filter.debounce.ms, default 250) collapse
+ *   into one query, run with the input as it is when the period ends
+ * - a new change cancels the query in flight; a result that arrives after its
+ *   input was superseded is dropped, so only the latest query is ever applied
+ * - an input equal to the one whose result is showing runs no query
+ * The query runs off the EDT, one at a time, and the result is applied on the EDT. Counters of
+ * triggers, started, cancelled and applied queries show how much work the
+ * pipeline saves.
+ *
+ * All methods except the counters must be called on the EDT.
+ */
+public class FilterPipeline<Q, R> {
+
+    // One thread: queries go through the DAOs' single shared connection, so a cancelled
+    // query that is still reading must finish before the next one starts
+    private static final ExecutorService queryExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "FilterQuery");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String name;
+    private final Supplier<Q> input;
+    private final Function<Q, R> query;
+    private final Consumer<R> apply;
+    private final boolean direct;
+    private final Timer quietTimer;
+
+    // EDT only
+    private int generation = 0;
+    private Future<?> inFlight;
+    private boolean pending = false;
+    private boolean hasApplied = false;
+    private Q appliedInput;
+
+    private final AtomicLong triggered = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+
+    /**
+     * @param name Used in error messages
+     * @param input Reads the current input (on the EDT)
+     * @param query Runs the query for an input (off the EDT); may be interrupted when cancelled
+     * @param apply Shows a result (on the EDT)
+     */
+    public FilterPipeline(String name, Supplier<Q> input, Function<Q, R> query, Consumer<R> apply) {
+        this(name, debounceMillis(), input, query, apply, false);
+    }
+
+    private FilterPipeline(String name, int quietMillis, Supplier<Q> input, Function<Q, R> query,
+                           Consumer<R> apply, boolean direct) {
+        this.name = name;
+        this.input = input;
+        this.query = query;
+        this.apply = apply;
+        this.direct = direct;
+        quietTimer = new Timer(quietMillis, e -> run(false));
+        quietTimer.setRepeats(false);
+    }
+
+    /**
+     * Pipeline without a background query: the input itself is applied on the EDT once it
+     * settles (for filters whose work is cheap or already asynchronous, e.g. a PagedTableModel)
+     */
+    public static <Q> FilterPipeline<Q, Q> debounceOnly(String name, Supplier<Q> input, Consumer<Q> apply) {
+        return new FilterPipeline<>(name, debounceMillis(), input, Function.identity(), apply, true);
+    }
+
+    /**
+     * The input changed: cancel the query in flight and (re)start the quiet period
+     */
+    public void trigger() {
+        triggered.incrementAndGet();
+        supersede();
+        pending = true;
+        quietTimer.restart();
+    }
+
+    /**
+     * Run now with the current input, skipping the quiet period (e.g. a Refresh button)
+     */
+    public void runNow() {
+        quietTimer.stop();
+        run(true);
+    }
+
+    /**
+     * Drop any pending or running query (e.g. when the view closes)
+     */
+    public void cancel() {
+        quietTimer.stop();
+        pending = false;
+        supersede();
+    }
+
+    /**
+     * @return Listener that triggers the pipeline on every change of a document
+     */
+    public DocumentListener documentListener() {
+        return new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { trigger(); }
+            @Override public void removeUpdate(DocumentEvent e) { trigger(); }
+            @Override public void changedUpdate(DocumentEvent e) { trigger(); }
+        };
+    }
+
+    private void run(boolean force) {
+        boolean wasPending = pending;
+        pending = false;
+        final Q q = input.get();
+        if (!force && (!wasPending || (hasApplied && Objects.equals(q, appliedInput)))) return;
+        supersede();
+        started.incrementAndGet();
+        final int gen = generation;
+        if (direct) {
+            applyResult(gen, q, query.apply(q));
+            return;
+        }
+        inFlight = queryExecutor.submit(() -> {
+            final R result;
+            try {
+                result = query.apply(q);
+            } catch (RuntimeException e) {
+                System.err.println("Error running " + name + " filter: " + e.getMessage());
+                SwingUtilities.invokeLater(() -> {
+                    if (gen == generation) inFlight = null;
+                });
+                return;
+            }
+            if (Thread.currentThread().isInterrupted()) return;
+            SwingUtilities.invokeLater(() -> applyResult(gen, q, result));
+        });
+    }
+
+    private void applyResult(int gen, Q q, R result) {
+        // Superseded while the result was on its way (already counted as cancelled)
+        if (gen != generation) return;
+        inFlight = null;
+        hasApplied = true;
+        appliedInput = q;
+        applied.incrementAndGet();
+        apply.accept(result);
+    }
+
+    /**
+     * Invalidate the current query; its result will be dropped if it still arrives
+     */
+    private void supersede() {
+        generation++;
+        if (inFlight != null) {
+            inFlight.cancel(true);
+            inFlight = null;
+            cancelled.incrementAndGet();
+        }
+    }
+
+    public long getTriggeredCount() {
+        return triggered.get();
+    }
+
+    public long getStartedCount() {
+        return started.get();
+    }
+
+    public long getCancelledCount() {
+        return cancelled.get();
+    }
+
+    public long getAppliedCount() {
+        return applied.get();
+    }
+
+    /**
+     * One-line counters, e.g. "users: 10 changes, 1 queries, 0 cancelled, 1 applied"
+     */
+    public String summary() {
+        return name + ": " + triggered.get() + " changes, " + started.get() + " queries, "
+                + cancelled.get() + " cancelled, " + applied.get() + " applied";
+    }
+
+    private static int debounceMillis() {
+        return (int) Math.max(0, DatabaseConnection.getLongProperty("filter.debounce.ms", 250));
+    }
+}
@@ -0,0 +1,68 @@
+package gui;
+
+import utils.StartupProfiler;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Tabs of a JTabbedPane whose content is built the first time they are
+ * selected. Each tab starts as an empty placeholder; on first selection the
+ * builder runs (timed as "tab:<title>" during a profiled startup) and then
+ * the tab's onFirstShow hook, which is where its background loads start.
+ *
+ * Register LazyTabs before other change listeners of the pane: Swing notifies
+ * the latest listener first, so theirs run before the tab is built and can
+ * tell by the content still being null.
+ *
+ * All methods must be called on the EDT.
+ */
+public class LazyTabs {
+
+    private static class PendingTab {
+        final String title;
+        final Supplier<? extends JComponent> builder;
+        final Runnable onFirstShow;
+
+        PendingTab(String title, Supplier<? extends JComponent> builder, Runnable onFirstShow) {
+            this.title = title;
+            this.builder = builder;
+            this.onFirstShow = onFirstShow;
+        }
+    }
+
+    private final JTabbedPane tabs;
+    private final Map<Component, PendingTab> pending = new HashMap<>();
+
+    public LazyTabs(JTabbedPane tabs) {
+        this.tabs = tabs;
+        tabs.addChangeListener(e -> buildSelected());
+    }
+
+    /**
+     * @param builder Creates the tab content on first selection
+     * @param onFirstShow Runs right after the content is built (may be null)
+     */
+    public void addTab(String title, Supplier<? extends JComponent> builder, Runnable onFirstShow) {
+        JPanel placeholder = new JPanel(new BorderLayout());
+        pending.put(placeholder, new PendingTab(title, builder, onFirstShow));
+        tabs.addTab(title, placeholder);
+        // In case selecting the first tab on add did not go through a change event
+        if (tabs.getSelectedComponent() == placeholder) buildSelected();
+    }
+
+    private void buildSelected() {
+        Component selected = tabs.getSelectedComponent();
+        PendingTab tab = pending.remove(selected);
+        if (tab == null) return;
+        JComponent content = StartupProfiler.time("tab:" + tab.title, tab.builder);
+        JPanel placeholder = (JPanel) selected;
+        placeholder.add(content, BorderLayout.CENTER);
+        placeholder.revalidate();
+        placeholder.repaint();
+        if (tab.onFirstShow != null) tab.onFirstShow.run();
+    }
+}
@@ -0,0 +1,237 @@
+package gui;
+
+import database.DatabaseConnection;
+import utils.LogRingBuffer;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import java.awt.*;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Scrollable log view backed by a LogRingBuffer.
+ *
+ * append() may be called from any thread; lines are collected in the buffer and
+ * pushed to the view at most once per frame. Two views are available:
+ * - document: a read-only JTextArea that only appends the new text and trims
+ *   whole lines from the head once it runs past capacity
+ * - virtualized: a JList reading straight from the buffer, so only the visible
+ *   rows are ever laid out or painted (100k retained lines cost nothing to show)
+ *
+ * Settings (config/database.properties):
+ *   log.console.lines        lines kept per console (default 100000)
+ *   log.console.virtualized  use the list view (default true)
+ */
+public class LogConsole extends JScrollPane {
+
+    private static final int FRAME_MILLIS = 33;
+    private static final int PROTOTYPE_CHARS = 180;
+    private static final Font LOG_FONT = new Font("Consolas", Font.PLAIN, 13);
+
+    private final LogRingBuffer buffer;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final Timer flushTimer;
+
+    // Virtualized view
+    private final JList<String> list;
+    private final LineModel model;
+
+    // Document view
+    private final JTextArea textArea;
+
+    // Range of the buffer the view currently shows (EDT only)
+    private long shownFirst = 0;
+    private long shownNext = 0;
+    private int shownGeneration = 0;
+
+    public LogConsole(int capacity, boolean virtualized) {
+        this.buffer = new LogRingBuffer(capacity);
+        if (virtualized) {
+            model = new LineModel();
+            list = new JList<>(model);
+            list.setFont(LOG_FONT);
+            // Fixed cell size: the list never measures rows, whatever their count
+            list.setPrototypeCellValue("M".repeat(PROTOTYPE_CHARS));
+            list.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+            textArea = null;
+            setViewportView(list);
+        } else {
+            textArea = new JTextArea();
+            textArea.setFont(LOG_FONT);
+            textArea.setEditable(false);
+            list = null;
+            model = null;
+            setViewportView(textArea);
+        }
+        flushTimer = new Timer(FRAME_MILLIS, e -> flush());
+        flushTimer.setRepeats(false);
+    }
+
+    /**
+     * Console sized from the log.console.* settings
+     */
+    public static LogConsole fromConfig() {
+        int capacity = (int) Math.max(100, DatabaseConnection.getLongProperty("log.console.lines", 100_000));
+        boolean virtualized = Boolean.parseBoolean(DatabaseConnection.getProperty("log.console.virtualized", "true"));
+        return new LogConsole(capacity, virtualized);
+    }
+
+    /**
+     * Add a line (any thread)
+     */
+    public void append(String line) {
+        buffer.add(line);
+        scheduleFlush();
+    }
+
+    /**
+     * Replace the whole content (any thread)
+     */
+    public void setLines(Collection<String> lines) {
+        buffer.replaceAll(lines);
+        scheduleFlush();
+    }
+
+    /**
+     * @return Snapshot of the lines currently buffered, oldest first (any thread)
+     */
+    public List<String> getLines() {
+        synchronized (buffer) {
+            return buffer.since(buffer.firstSeq());
+        }
+    }
+
+    public int getLineCount() {
+        return buffer.size();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            // Timer.restart() is thread-safe; every append within the frame shares one flush
+            flushTimer.restart();
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        boolean atBottom = isAtBottom();
+        long first;
+        long next;
+        int generation;
+        List<String> pending = null;
+        synchronized (buffer) {
+            first = buffer.firstSeq();
+            next = buffer.nextSeq();
+            generation = buffer.generation();
+            if (list == null) {
+                pending = buffer.since(generation == shownGeneration ? shownNext : first);
+            }
+        }
+
+        if (list != null) {
+            flushList(first, next, generation);
+        } else if (generation != shownGeneration) {
+            textArea.setText(joinLines(pending));
+            shownFirst = first;
+            shownNext = next;
+            shownGeneration = generation;
+        } else {
+            flushDocument(pending, next);
+        }
+
+        if (atBottom) scrollToBottom();
+    }
+
+    private void flushList(long first, long next, int generation) {
+        int oldSize = (int) (shownNext - shownFirst);
+        long newFirst = Math.max(shownFirst, first);
+        int removed = (int) (newFirst - shownFirst);
+        if (generation != shownGeneration || removed >= oldSize) {
+            // Cleared, replaced, or everything shown has been overwritten
+            shownGeneration = generation;
+            shownNext = shownFirst;
+            model.removed(0, oldSize);
+            shownFirst = first;
+            shownNext = next;
+            model.appended(0, (int) (next - first));
+            return;
+        }
+        if (removed > 0) {
+            shownFirst = newFirst;
+            model.removed(0, removed);
+        }
+        if (next > shownNext) {
+            int start = (int) (shownNext - shownFirst);
+            int count = (int) (next - shownNext);
+            shownNext = next;
+            model.appended(start, count);
+        }
+    }
+
+    private void flushDocument(List<String> added, long next) {
+        shownNext = next;
+        if (added.isEmpty()) return;
+        textArea.append(joinLines(added));
+
+        // Trim whole lines from the head in chunks, so the cost is amortized over many appends
+        Document doc = textArea.getDocument();
+        Element root = doc.getDefaultRootElement();
+        int excess = root.getElementCount() - 1 - buffer.capacity();
+        if (excess >= Math.max(1, buffer.capacity() / 20)) {
+            try {
+                doc.remove(0, root.getElement(excess - 1).getEndOffset());
+            } catch (BadLocationException ignored) {
+            }
+        }
+    }
+
+    private boolean isAtBottom() {
+        JScrollBar bar = getVerticalScrollBar();
+        return bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - 20;
+    }
+
+    private void scrollToBottom() {
+        if (list != null) {
+            int last = model.getSize() - 1;
+            if (last >= 0) list.ensureIndexIsVisible(last);
+        } else {
+            textArea.setCaretPosition(textArea.getDocument().getLength());
+        }
+    }
+
+    private static String joinLines(List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) sb.append(line).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * List model over the range of the buffer the view has been told about
+     */
+    private class LineModel extends AbstractListModel<String> {
+
+        @Override
+        public int getSize() {
+            return (int) (shownNext - shownFirst);
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            String line = buffer.get(shownFirst + index);
+            // Overwritten since the last flush; the next flush removes the row
+            return line != null ? line : "";
+        }
+
+        void removed(int start, int count) {
+            if (count > 0) fireIntervalRemoved(this, start, start + count - 1);
+        }
+
+        void appended(int start, int count) {
+            if (count > 0) fireIntervalAdded(this, start, start + count - 1);
+        }
+    }
+}
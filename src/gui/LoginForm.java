@@ -9,10 +9,19 @@ import models.Machine;
 import models.Partition;
 import gui.PartitionStorage.PartitionInfo;
 import utils.ActivityLogger;
+import utils.CapacitySampler;
+import utils.FlightRecording;
+import utils.StageTimer;
+import utils.StartupProfiler;
 import javax.swing.*;
 import java.awt.*;
 import java.sql.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class LoginForm extends JFrame {
 
@@ -26,6 +35,28 @@ public class LoginForm extends JFrame {
     // Store logged in user
     public static User currentUser = null;
 
+    // Timings of the most recent login (time-to-dashboard breakdown)
+    public static volatile StageTimer lastLoginTimings = null;
+
+    private static final String STEP_MACHINE = "Registering machine";
+    private static final String STEP_AUDIT = "Recording login";
+    private static final String STEP_DISCOVERY = "Discovering partitions";
+    private static final String STEP_SYNC = "Syncing partitions";
+
+    // Background login steps; daemon threads so a closed app does not wait on PowerShell.
+    // The DAOs share one connection, so every database step runs on the single
+    // LoginPipeline thread; only the PowerShell discovery runs beside it.
+    private static final ExecutorService loginExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "LoginPipeline");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final ExecutorService discoveryExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "LoginDiscovery");
+        t.setDaemon(true);
+        return t;
+    });
+
     public LoginForm() {
         userDAO = new UserDAO();
         machineDAO = new MachineDAO();
@@ -93,93 +124,172 @@ public class LoginForm extends JFrame {
             return;
         }
 
-        try {
-            // Test database connection first
-            if (DatabaseConnection.getConnection() == null) {
-                JOptionPane.showMessageDialog(this, 
-                    "Database Connection Failed!\n\n" +
-                    "Possible causes:\n" +
-                    "1. MySQL JDBC Driver not found\n" +
-                    "   - Download mysql-connector-java JAR\n" +
-                    "   - Add to project classpath\n\n" +
-                    "2. MySQL/MariaDB not running\n" +
-                    "   - Start MySQL service\n\n" +
-                    "3. Database 'onclick_db' doesn't exist\n" +
-                    "   - Import onclick_db.sql\n\n" +
-                    "Check console for detailed error messages.", 
-                    "Database Error", 
-                    JOptionPane.ERROR_MESSAGE);
-                return;
-            }
+        // Only the credential check happens before the dashboard opens; it runs off the EDT
+        final StageTimer timer = new StageTimer("Login");
+        setLoginBusy(true);
+        SwingWorker<User, Void> worker = new SwingWorker<>() {
+            private boolean databaseDown = false;
 
-            // Authenticate user from database
-            User user = userDAO.authenticateUser(username, password);
-            
-            if (user != null) {
-                currentUser = user;
-                
-                // Get or create current machine for logging
-                Machine currentMachine = machineDAO.getOrCreateCurrentMachine(user.getUserId());
-                
-                // Log successful login activity
-                if (currentMachine != null) {
-                    ActivityLogger.logLogin(user.getUserId(), currentMachine.getMachineId());
+            @Override
+            protected User doInBackground() {
+                // Test database connection first
+                if (timer.time("connect", DatabaseConnection::getConnection) == null) {
+                    databaseDown = true;
+                    return null;
                 }
-                
-                // Fetch and save partitions to database
-                saveSystemPartitionsToDatabase(user);
-                
-                if (user.isAdmin()) {
-                    JOptionPane.showMessageDialog(this, "Welcome Admin: " + user.getUsername() + "!");
-                    new AdminDashboard(user).setVisible(true);
-                } else {
-                    JOptionPane.showMessageDialog(this, "Welcome User: " + user.getUsername() + "!");
-                    new UserDashboard(user).setVisible(true);
+                // Authenticate user from database
+                return timer.time("authenticate", () -> userDAO.authenticateUser(username, password));
+            }
+
+            @Override
+            protected void done() {
+                setLoginBusy(false);
+                try {
+                    User user = get();
+                    if (databaseDown) {
+                        JOptionPane.showMessageDialog(LoginForm.this, 
+                            "Database Connection Failed!\n\n" +
+                            "Possible causes:\n" +
+                            "1. MySQL JDBC Driver not found\n" +
+                            "   - Download mysql-connector-java JAR\n" +
+                            "   - Add to project classpath\n\n" +
+                            "2. MySQL/MariaDB not running\n" +
+                            "   - Start MySQL service\n\n" +
+                            "3. Database 'onclick_db' doesn't exist\n" +
+                            "   - Import onclick_db.sql\n\n" +
+                            "Check console for detailed error messages.", 
+                            "Database Error", 
+                            JOptionPane.ERROR_MESSAGE);
+                    } else if (user != null) {
+                        openDashboard(user, timer);
+                    } else {
+                        JOptionPane.showMessageDialog(LoginForm.this, 
+                            "Invalid credentials!\n\n" +
+                            "Please check your username and password.\n\n",
+                            "Login Failed", 
+                            JOptionPane.ERROR_MESSAGE);
+                    }
+                } catch (Exception ex) {
+                    Throwable cause = (ex.getCause() != null) ? ex.getCause() : ex;
+                    System.err.println("Login error: " + cause.getMessage());
+                    cause.printStackTrace();
+                    JOptionPane.showMessageDialog(LoginForm.this, 
+                        "An error occurred during login!\n\n" +
+                        "Error: " + cause.getMessage() + "\n\n" +
+                        "Check console for details.", 
+                        "Error", 
+                        JOptionPane.ERROR_MESSAGE);
                 }
-                this.dispose();
-            } else {
-                JOptionPane.showMessageDialog(this, 
-                    "Invalid credentials!\n\n" +
-                    "Please check your username and password.\n\n",
-                    "Login Failed", 
-                    JOptionPane.ERROR_MESSAGE);
             }
-        } catch (Exception ex) {
-            System.err.println("Login error: " + ex.getMessage());
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, 
-                "An error occurred during login!\n\n" +
-                "Error: " + ex.getMessage() + "\n\n" +
-                "Check console for details.", 
-                "Error", 
-                JOptionPane.ERROR_MESSAGE);
+        };
+        worker.execute();
+    }
+
+    private void setLoginBusy(boolean busy) {
+        loginButton.setEnabled(!busy);
+        signupButton.setEnabled(!busy);
+        loginButton.setText(busy ? "Signing in..." : "Login");
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+
+    /**
+     * Open the dashboard right away, then finish the rest of the login in the background
+     */
+    private void openDashboard(User user, StageTimer timer) {
+        currentUser = user;
+        // Tab builds and the first paint are added to this login's profile
+        StartupProfiler.begin(timer);
+        JFrame dashboard = timer.time("dashboard",
+                () -> user.isAdmin() ? new AdminDashboard(user) : new UserDashboard(user));
+        dashboard.setVisible(true);
+        timer.mark("time-to-dashboard");
+        System.out.println(timer.summary());
+        this.dispose();
+        runBackgroundSteps(user, dashboard, timer);
+    }
+
+    /**
+     * Partition discovery runs beside the database steps; machine registration,
+     * the login audit and the partition sync run in order on one thread.
+     */
+    private void runBackgroundSteps(User user, JFrame dashboard, StageTimer timer) {
+        LoginProgressDialog progress = new LoginProgressDialog(dashboard,
+                STEP_MACHINE, STEP_AUDIT, STEP_DISCOVERY, STEP_SYNC);
+        progress.setVisible(true);
+
+        // PowerShell discovery does not touch the database, so it does not wait for it
+        CompletableFuture<List<PartitionInfo>> partitions = CompletableFuture.supplyAsync(
+                () -> runStep(timer, progress, STEP_DISCOVERY, PartitionStorage::getSystemPartitions, p -> p != null),
+                discoveryExecutor);
+
+        CompletableFuture<Boolean> steps = CompletableFuture.supplyAsync(() -> {
+            // Get or create current machine for logging
+            Machine machine = runStep(timer, progress, STEP_MACHINE,
+                    () -> machineDAO.getOrCreateCurrentMachine(user.getUserId()), m -> m != null);
+
+            // Log successful login activity
+            boolean audited = runStep(timer, progress, STEP_AUDIT, () -> {
+                if (machine == null) return false;
+                boolean logged = ActivityLogger.logLogin(user.getUserId(), machine.getMachineId());
+                // Start recording capacity history for this machine's volumes
+                CapacitySampler.start(machine.getMachineId());
+                return logged;
+            }, ok -> ok) == Boolean.TRUE;
+
+            // Save fetched partitions to database
+            List<PartitionInfo> parts = partitions.join();
+            boolean synced = runStep(timer, progress, STEP_SYNC,
+                    () -> saveSystemPartitionsToDatabase(user, machine, parts), ok -> ok) == Boolean.TRUE;
+            return audited && synced;
+        }, loginExecutor);
+
+        steps.whenComplete((ok, ex) -> {
+            if (ex != null) {
+                System.err.println("Error finishing login: " + ex.getMessage());
+                ex.printStackTrace();
+            }
+            timer.mark("all-steps");
+            lastLoginTimings = timer;
+            System.out.println(timer.summary());
+        });
+    }
+
+    private static <T> T runStep(StageTimer timer, LoginProgressDialog progress, String step,
+                                 Supplier<T> work, Predicate<T> succeeded) {
+        T result = null;
+        boolean ok = false;
+        try {
+            result = timer.time(step, work);
+            ok = succeeded.test(result);
+        } catch (Exception e) {
+            System.err.println("Login step '" + step + "' failed: " + e.getMessage());
         }
+        Long millis = timer.get(step);
+        progress.stepFinished(step, ok, (millis != null) ? millis : 0);
+        return result;
     }
 
     /**
-     * Fetch system partitions and save them to the database
+     * Save the discovered system partitions to the database
      * @param user The logged-in user
+     * @param currentMachine This machine's row (null if registration failed)
+     * @param systemPartitions Partitions found by PartitionStorage.getSystemPartitions
+     * @return true if the sync ran, false otherwise
      */
-    private void saveSystemPartitionsToDatabase(User user) {
+    private boolean saveSystemPartitionsToDatabase(User user, Machine currentMachine, List<PartitionInfo> systemPartitions) {
         try {
-            System.out.println("\n=== Fetching and Saving System Partitions ===");
-            
-            // Get or create the current machine
-            Machine currentMachine = machineDAO.getOrCreateCurrentMachine(user.getUserId());
+            System.out.println("\n=== Saving System Partitions ===");
             
             if (currentMachine == null) {
                 System.err.println("Error: Could not get or create current machine");
-                return;
+                return false;
             }
             
             System.out.println("Machine: " + currentMachine.getMachineName() + " (ID: " + currentMachine.getMachineId() + ")");
             
-            // Get all system partitions
-            List<PartitionInfo> systemPartitions = PartitionStorage.getSystemPartitions();
-            
-            if (systemPartitions.isEmpty()) {
+            if (systemPartitions == null || systemPartitions.isEmpty()) {
                 System.out.println("No partitions detected on this system");
-                return;
+                return true;
             }
             
             System.out.println("Found " + systemPartitions.size() + " partition(s)");
@@ -236,6 +346,7 @@ public class LoginForm extends JFrame {
                 ActivityLogger.logSystemSync(user.getUserId(), currentMachine.getMachineId(), 
                     savedCount + skippedCount);
             }
+            return true;
             
         } catch (Exception e) {
             System.err.println("Error saving partitions to database: " + e.getMessage());
@@ -243,18 +354,17 @@ public class LoginForm extends JFrame {
             
             // Log error activity
             try {
-                Machine currentMachine = machineDAO.getOrCreateCurrentMachine(user.getUserId());
-                if (currentMachine != null) {
-                    ActivityLogger.logError(user.getUserId(), currentMachine.getMachineId(), 
-                        "Failed to sync partitions: " + e.getMessage());
-                }
+                ActivityLogger.logError(user.getUserId(), currentMachine.getMachineId(), 
+                    "Failed to sync partitions: " + e.getMessage());
             } catch (Exception logEx) {
                 System.err.println("Failed to log error: " + logEx.getMessage());
             }
         }
+        return false;
     }
     
     public static void main(String[] args) {
+        FlightRecording.startAsync();
         SwingUtilities.invokeLater(() -> new LoginForm().setVisible(true));
     }
 }
@@ -0,0 +1,70 @@
+package gui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small non-modal panel shown over a freshly opened dashboard while the
+ * background login steps (machine registration, audit, partition sync) finish.
+ * All methods may be called from any thread; the dialog closes itself
+ * shortly after the last step completes.
+ */
+public class LoginProgressDialog extends JDialog {
+
+    private final Map<String, JLabel> stepLabels = new LinkedHashMap<>();
+    private final JProgressBar progressBar;
+    private int finished = 0;
+
+    public LoginProgressDialog(Window owner, String... steps) {
+        super(owner, "Finishing sign-in", ModalityType.MODELESS);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        setFocusableWindowState(false);
+
+        JPanel panel = new JPanel(new GridLayout(steps.length + 1, 1, 4, 4));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 14, 10, 14));
+        for (String step : steps) {
+            JLabel label = new JLabel("• " + step + "...");
+            label.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+            stepLabels.put(step, label);
+            panel.add(label);
+        }
+        progressBar = new JProgressBar(0, steps.length);
+        progressBar.setStringPainted(true);
+        progressBar.setString("0 / " + steps.length);
+        panel.add(progressBar);
+        setContentPane(panel);
+        pack();
+        setSize(Math.max(getWidth(), 300), getHeight());
+
+        // Bottom-right corner of the dashboard, out of the way
+        if (owner != null) {
+            Rectangle b = owner.getBounds();
+            setLocation(b.x + b.width - getWidth() - 20, b.y + b.height - getHeight() - 20);
+        }
+    }
+
+    /**
+     * Mark a step as done
+     * @param step Step name passed to the constructor
+     * @param ok Whether the step succeeded
+     * @param millis How long it took
+     */
+    public void stepFinished(String step, boolean ok, long millis) {
+        SwingUtilities.invokeLater(() -> {
+            JLabel label = stepLabels.get(step);
+            if (label == null) return;
+            label.setText((ok ? "✓ " : "✗ ") + step + " (" + millis + " ms)");
+            label.setForeground(ok ? new Color(46, 125, 50) : new Color(198, 40, 40));
+            finished++;
+            progressBar.setValue(finished);
+            progressBar.setString(finished + " / " + stepLabels.size());
+            if (finished == stepLabels.size()) {
+                Timer closeTimer = new Timer(1500, e -> dispose());
+                closeTimer.setRepeats(false);
+                closeTimer.start();
+            }
+        });
+    }
+}
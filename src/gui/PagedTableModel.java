@@ -0,0 +1,239 @@
+package gui;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.JTableHeader;
+import javax.swing.table.TableColumn;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Table model that only holds the pages of rows the table has asked for.
+ *
+ * Rows come from a PageSource one page at a time on a single background thread;
+ * until a page arrives its cells read as null. The page after (or before)
+ * the one being shown is prefetched, and at most maxPages pages are kept
+ * (least recently used are dropped), so heap use does not grow with the
+ * row count. Sorting and filtering belong to the source (i.e. SQL); a new
+ * source or a sort change reloads the model.
+ *
+ * All methods must be called on the EDT.
+ */
+public abstract class PagedTableModel<T> extends AbstractTableModel {
+
+    /**
+     * Where the rows come from; both methods run off the EDT
+     */
+    public interface PageSource<T> {
+        /** @return Total rows, -1 on error */
+        int count();
+
+        /**
+         * @param offset First row of the page
+         * @param limit Page size
+         * @param after Last row of the previous page if it is loaded (for keyset paging), else null
+         * @return Rows of the page, or null on error
+         */
+        List<T> fetch(int offset, int limit, T after);
+    }
+
+    // One thread: sources share the database connection, so count/fetch must not overlap
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "TablePageLoader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String[] columns;
+    private final int pageSize;
+    private final Map<Integer, List<T>> pages;
+    private final Set<Integer> loading = new HashSet<>();
+
+    private PageSource<T> source;
+    private int rowCount = 0;
+    private int generation = 0;
+    private Future<?> pendingReload;
+    private volatile int lastPageShown = 0;
+    private IntConsumer countListener;
+    private Runnable sortListener;
+    private int sortColumn = -1;
+    private boolean sortAscending = true;
+
+    protected PagedTableModel(String[] columns, int pageSize, int maxPages) {
+        this.columns = columns;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > Math.max(3, maxPages);
+            }
+        };
+    }
+
+    /**
+     * Value of one cell of a loaded row
+     */
+    protected abstract Object getColumnValue(T row, int rowIndex, int column);
+
+    /**
+     * Replace the source and reload (count plus first page) in the background
+     */
+    public void setSource(PageSource<T> newSource) {
+        source = newSource;
+        reload();
+    }
+
+    /**
+     * Drop every cached page and count again (e.g. after the data changed)
+     */
+    public void reload() {
+        final PageSource<T> src = source;
+        final int gen = ++generation;
+        pages.clear();
+        loading.clear();
+        // A newer source or sort makes the running count/first page useless
+        if (pendingReload != null) pendingReload.cancel(true);
+        pendingReload = null;
+        if (src == null) {
+            rowCount = 0;
+            fireTableDataChanged();
+            return;
+        }
+        final int firstPage = lastPageShown;
+        pendingReload = loader.submit(() -> {
+            int count = src.count();
+            int page = (count > 0 && firstPage * pageSize < count) ? firstPage : 0;
+            List<T> rows = (count > 0) ? src.fetch(page * pageSize, pageSize, null) : null;
+            SwingUtilities.invokeLater(() -> {
+                if (gen != generation) return;
+                pendingReload = null;
+                rowCount = Math.max(0, count);
+                if (rows != null) pages.put(page, rows);
+                fireTableDataChanged();
+                if (countListener != null) countListener.accept(count);
+            });
+        });
+    }
+
+    /**
+     * Called on the EDT with the row count after every reload (-1 if counting failed)
+     */
+    public void setCountListener(IntConsumer listener) {
+        this.countListener = listener;
+    }
+
+    /**
+     * Called when the user clicks a sortable header; the listener should set a source sorted
+     * by getSortColumn()/isSortAscending()
+     */
+    public void setSortListener(Runnable listener) {
+        this.sortListener = listener;
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isSortAscending() {
+        return sortAscending;
+    }
+
+    /**
+     * Make header clicks on the given columns sort through the source; the sorted
+     * column shows an arrow. Use instead of a RowSorter (which would read every row).
+     */
+    public void installHeaderSorting(JTable table, int... sortableColumns) {
+        JTableHeader header = table.getTableHeader();
+        header.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.convertColumnIndexToModel(header.columnAtPoint(e.getPoint()));
+                boolean sortable = false;
+                for (int c : sortableColumns) sortable |= (c == column);
+                if (!sortable) return;
+                sortAscending = (column != sortColumn) || !sortAscending;
+                sortColumn = column;
+                for (int c = 0; c < table.getColumnModel().getColumnCount(); c++) {
+                    TableColumn tc = table.getColumnModel().getColumn(c);
+                    int modelIndex = tc.getModelIndex();
+                    tc.setHeaderValue(columns[modelIndex]
+                            + (modelIndex == sortColumn ? (sortAscending ? " ▲" : " ▼") : ""));
+                }
+                header.repaint();
+                if (sortListener != null) sortListener.run();
+            }
+        });
+    }
+
+    /**
+     * @return The row if its page is loaded, else null
+     */
+    public T getRow(int rowIndex) {
+        List<T> page = pages.get(rowIndex / pageSize);
+        int i = rowIndex % pageSize;
+        return (page != null && i < page.size()) ? page.get(i) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        int pageIndex = rowIndex / pageSize;
+        lastPageShown = pageIndex;
+        List<T> page = pages.get(pageIndex);
+        if (page == null) {
+            request(pageIndex);
+            return null;
+        }
+        // Stay one page ahead of scrolling in whichever direction it is heading
+        request((rowIndex % pageSize >= pageSize / 2) ? pageIndex + 1 : pageIndex - 1);
+        int i = rowIndex % pageSize;
+        return (i < page.size()) ? getColumnValue(page.get(i), rowIndex, columnIndex) : null;
+    }
+
+    private void request(int pageIndex) {
+        if (pageIndex < 0 || pageIndex * pageSize >= rowCount) return;
+        if (pages.containsKey(pageIndex) || !loading.add(pageIndex)) return;
+
+        final PageSource<T> src = source;
+        final int gen = generation;
+        List<T> previous = pages.get(pageIndex - 1);
+        final T after = (previous != null && previous.size() == pageSize) ? previous.get(pageSize - 1) : null;
+        loader.submit(() -> {
+            // Skip pages scrolled past before their turn came (e.g. dragging the scrollbar)
+            List<T> rows = (Math.abs(pageIndex - lastPageShown) <= 2)
+                    ? src.fetch(pageIndex * pageSize, pageSize, after) : null;
+            SwingUtilities.invokeLater(() -> {
+                if (gen != generation) return;
+                loading.remove(pageIndex);
+                if (rows == null) return;
+                pages.put(pageIndex, rows);
+                int first = pageIndex * pageSize;
+                int last = Math.min(rowCount, first + pageSize) - 1;
+                if (last >= first) fireTableRowsUpdated(first, last);
+            });
+        });
+    }
+}
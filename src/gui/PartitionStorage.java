@@ -69,22 +69,8 @@ public class PartitionStorage {
             
             String line;
             while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty() && line.contains("|")) {
-                    String[] parts = line.split("\\|");
-                    if (parts.length == 2) {
-                        String driveLetter = parts[0].trim();
-                        try {
-                            double sizeGB = Double.parseDouble(parts[1].trim());
-                            // Only add valid drive letters (single character)
-                            if (driveLetter.length() == 1 && Character.isLetter(driveLetter.charAt(0))) {
-                                partitions.add(new PartitionInfo(driveLetter + ":", (long) sizeGB));
-                            }
-                        } catch (NumberFormatException e) {
-                            System.err.println("Error parsing size for drive " + driveLetter + ": " + parts[1]);
-                        }
-                    }
-                }
+                PartitionInfo partition = parsePartitionLine(line);
+                if (partition != null) partitions.add(partition);
             }
             
             // Read any errors
@@ -104,4 +90,48 @@ public class PartitionStorage {
         
         return partitions;
     }
+
+    private static final String[] DRIVE_NAMES = new String[26];
+
+    static {
+        for (int i = 0; i < DRIVE_NAMES.length; i++) DRIVE_NAMES[i] = (char) ('A' + i) + ":";
+    }
+
+    /**
+     * Parse one "letter|sizeGB" line of the Get-PSDrive output, without splitting it
+     * @return The partition, or null for a line that is not one
+     */
+    public static PartitionInfo parsePartitionLine(String line) {
+        int start = 0;
+        int end = line.length();
+        while (start < end && line.charAt(start) <= ' ') start++;
+        while (end > start && line.charAt(end - 1) <= ' ') end--;
+        int bar = line.indexOf('|', start);
+        if (bar < 0 || bar >= end) return null;
+        // Exactly two fields; trailing empty ones do not count
+        int sizeEnd = line.indexOf('|', bar + 1);
+        if (sizeEnd < 0 || sizeEnd > end) sizeEnd = end;
+        for (int i = sizeEnd; i < end; i++) {
+            if (line.charAt(i) != '|') return null;
+        }
+        if (sizeEnd == bar + 1) return null;
+
+        int driveStart = start;
+        int driveEnd = bar;
+        while (driveStart < driveEnd && line.charAt(driveStart) <= ' ') driveStart++;
+        while (driveEnd > driveStart && line.charAt(driveEnd - 1) <= ' ') driveEnd--;
+        double sizeGB;
+        try {
+            sizeGB = Double.parseDouble(line.substring(bar + 1, sizeEnd));
+        } catch (NumberFormatException e) {
+            System.err.println("Error parsing size for drive " + line.substring(driveStart, driveEnd) + ": "
+                    + line.substring(bar + 1, sizeEnd));
+            return null;
+        }
+        // Only valid drive letters (single character)
+        if (driveEnd - driveStart != 1 || !Character.isLetter(line.charAt(driveStart))) return null;
+        char letter = line.charAt(driveStart);
+        String drive = (letter >= 'A' && letter <= 'Z') ? DRIVE_NAMES[letter - 'A'] : letter + ":";
+        return new PartitionInfo(drive, (long) sizeGB);
+    }
 }
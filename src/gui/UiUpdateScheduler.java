@@ -0,0 +1,97 @@
+package gui;
+
+import javax.swing.*;
+import java.util.ArrayList;
+
+/**
+ * Collects UI updates posted from any thread and runs them on the EDT in one
+ * batch per frame, instead of one invokeLater per change.
+ *
+ * An update is a Runnable that reads the latest state of its component, so
+ * posting the same instance again before the frame runs is a no-op: ten stat
+ * changes to one view cost one repaint. Components keep one Runnable each
+ * (e.g. VolumeListPanel), which keeps steady-state posting allocation-free.
+ */
+public class UiUpdateScheduler {
+
+    private static final int FRAME_MILLIS = 16;
+
+    private final Object lock = new Object();
+    private ArrayList<Runnable> pending = new ArrayList<>();
+    private ArrayList<Runnable> running = new ArrayList<>();
+    private boolean scheduled = false;
+    private final Timer frameTimer;
+
+    // Totals for diagnostics and the UI benchmark (guarded by lock)
+    private long flushCount = 0;
+    private long updateCount = 0;
+    private long edtNanos = 0;
+
+    public UiUpdateScheduler() {
+        frameTimer = new Timer(FRAME_MILLIS, e -> flush());
+        frameTimer.setRepeats(false);
+    }
+
+    /**
+     * Run an update on the EDT with the next frame (any thread)
+     */
+    public void post(Runnable update) {
+        synchronized (lock) {
+            // Few distinct components post per frame, so a scan beats a hash set here
+            for (int i = 0; i < pending.size(); i++) {
+                if (pending.get(i) == update) return;
+            }
+            pending.add(update);
+            if (!scheduled) {
+                scheduled = true;
+                frameTimer.restart();
+            }
+        }
+    }
+
+    private void flush() {
+        ArrayList<Runnable> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = running;
+            running = batch;
+            scheduled = false;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                batch.get(i).run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        synchronized (lock) {
+            flushCount++;
+            updateCount += batch.size();
+            edtNanos += elapsed;
+        }
+        batch.clear();
+    }
+
+    public long getFlushCount() {
+        synchronized (lock) {
+            return flushCount;
+        }
+    }
+
+    public long getUpdateCount() {
+        synchronized (lock) {
+            return updateCount;
+        }
+    }
+
+    /**
+     * @return Total time spent running updates on the EDT
+     */
+    public long getEdtNanos() {
+        synchronized (lock) {
+            return edtNanos;
+        }
+    }
+}
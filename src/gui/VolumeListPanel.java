@@ -0,0 +1,418 @@
+package gui;
+
+import models.VolumeInfo;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Disk monitor view: one row per volume followed by one row per disk with
+ * unallocated space, in a JList with a fixed row height.
+ *
+ * Only visible rows are painted, all by one shared renderer that stamps the
+ * title, usage bar and status of each row, and every row shares one context
+ * menu (volume actions or "Create New Volume", depending on the row). Rows
+ * keep their display strings, which are rebuilt only when a value changes at
+ * display precision (whole GB, whole percent), so a host with hundreds of
+ * volumes costs no more per frame than the rows on screen.
+ *
+ * setVolumes(), updateVolume(), setUnallocated() and setBusy() may be called
+ * from any thread; changes are applied once per frame through the shared
+ * UiUpdateScheduler, and an unchanged update returns without allocating.
+ */
+public class VolumeListPanel extends JScrollPane {
+
+    /**
+     * Called on the EDT when a context menu item is chosen
+     */
+    public interface ActionHandler {
+        void onVolumeAction(String action, VolumeInfo volume);
+
+        void onCreateVolume(int diskNumber);
+    }
+
+    private static final long GB = 1024L * 1024 * 1024;
+    private static final int ROW_HEIGHT = 72;
+
+    private final UiUpdateScheduler scheduler;
+    private final Runnable applyUpdate = this::applyPending;
+    private final RowModel model = new RowModel();
+    private final JList<Row> list = new JList<>(model);
+    private final JPopupMenu menu = new JPopupMenu();
+    private final List<JMenuItem> volumeItems = new ArrayList<>();
+    private final List<Component> volumeSeparators = new ArrayList<>();
+    private final JMenuItem createItem = new JMenuItem("Create New Volume");
+    private Row menuRow;
+
+    // Requested state (guarded by this)
+    private List<VolumeInfo> pendingVolumes;
+    private final Map<String, VolumeInfo> pendingUpdates = new HashMap<>();
+    private Map<Integer, Long> pendingUnallocated;
+    private Map<Integer, Long> lastUnallocated;
+    private final Map<String, Boolean> pendingBusy = new HashMap<>();
+    private final Map<String, VolumeInfo> latest = new HashMap<>();
+    private final Map<String, Boolean> busyKeys = new HashMap<>();
+
+    // Rows on screen (EDT only)
+    private final Map<String, Row> rowsByKey = new HashMap<>();
+
+    /**
+     * @param volumeActions Context menu items for volume rows; null adds a separator
+     */
+    public VolumeListPanel(UiUpdateScheduler scheduler, String[] volumeActions, ActionHandler handler) {
+        this.scheduler = scheduler;
+        list.setCellRenderer(new RowRenderer());
+        list.setFixedCellHeight(ROW_HEIGHT);
+        // Keeps BasicListUI from measuring every row for the list width; rows span the viewport anyway
+        list.setFixedCellWidth(200);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setBorder(new EmptyBorder(6, 6, 6, 6));
+        setViewportView(list);
+        getVerticalScrollBar().setUnitIncrement(ROW_HEIGHT / 3);
+
+        for (String action : volumeActions) {
+            if (action == null) {
+                JSeparator separator = new JPopupMenu.Separator();
+                volumeSeparators.add(separator);
+                menu.add(separator);
+                continue;
+            }
+            JMenuItem item = new JMenuItem(action);
+            item.addActionListener(e -> {
+                if (menuRow != null && menuRow.volume != null) handler.onVolumeAction(action, menuRow.volume);
+            });
+            volumeItems.add(item);
+            menu.add(item);
+        }
+        createItem.addActionListener(e -> {
+            if (menuRow != null && menuRow.volume == null) handler.onCreateVolume(menuRow.diskNumber);
+        });
+        menu.add(createItem);
+
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                maybeShowMenu(e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                maybeShowMenu(e);
+            }
+        });
+    }
+
+    private void maybeShowMenu(MouseEvent e) {
+        if (!e.isPopupTrigger()) return;
+        int index = list.locationToIndex(e.getPoint());
+        if (index < 0 || !list.getCellBounds(index, index).contains(e.getPoint())) return;
+        list.setSelectedIndex(index);
+        menuRow = model.getElementAt(index);
+        boolean volumeRow = menuRow.volume != null;
+        for (JMenuItem item : volumeItems) {
+            item.setVisible(volumeRow);
+            item.setEnabled(!menuRow.busy);
+        }
+        for (Component separator : volumeSeparators) separator.setVisible(volumeRow);
+        createItem.setVisible(!volumeRow);
+        menu.show(list, e.getX(), e.getY());
+    }
+
+    /**
+     * Replace the volume rows (topology change); busy flags of kept volumes are preserved
+     */
+    public void setVolumes(List<VolumeInfo> volumes) {
+        synchronized (this) {
+            pendingVolumes = new ArrayList<>(volumes);
+            pendingUpdates.clear();
+            latest.clear();
+            for (VolumeInfo v : volumes) latest.put(v.getKey(), v);
+        }
+        scheduler.post(applyUpdate);
+    }
+
+    /**
+     * New figures or label for a listed volume; ignored if unchanged at display precision
+     */
+    public void updateVolume(VolumeInfo volume) {
+        synchronized (this) {
+            VolumeInfo shown = latest.get(volume.getKey());
+            if (shown == null || sameOnScreen(shown, volume)) return;
+            latest.put(volume.getKey(), volume);
+            pendingUpdates.put(volume.getKey(), volume);
+        }
+        scheduler.post(applyUpdate);
+    }
+
+    /**
+     * Largest free extent per disk; extents under 1 GB are not listed
+     */
+    public void setUnallocated(Map<Integer, Long> bytesByDisk) {
+        synchronized (this) {
+            if (bytesByDisk.equals(lastUnallocated)) return;
+            lastUnallocated = new HashMap<>(bytesByDisk);
+            pendingUnallocated = lastUnallocated;
+        }
+        scheduler.post(applyUpdate);
+    }
+
+    public void setBusy(String volumeKey, boolean busy) {
+        synchronized (this) {
+            if (busy == Boolean.TRUE.equals(busyKeys.get(volumeKey))) return;
+            busyKeys.put(volumeKey, busy);
+            pendingBusy.put(volumeKey, busy);
+        }
+        scheduler.post(applyUpdate);
+    }
+
+    public synchronized boolean isBusy(String volumeKey) {
+        return Boolean.TRUE.equals(busyKeys.get(volumeKey));
+    }
+
+    /**
+     * @return Rows currently listed (volumes plus unallocated extents)
+     */
+    public int getRowCount() {
+        return model.getSize();
+    }
+
+    private static boolean sameOnScreen(VolumeInfo a, VolumeInfo b) {
+        return a.getFreeBytes() / GB == b.getFreeBytes() / GB
+                && a.getTotalBytes() / GB == b.getTotalBytes() / GB
+                && usedPercent(a) == usedPercent(b)
+                && a.getLabel().equals(b.getLabel())
+                && a.getRootPath().equals(b.getRootPath());
+    }
+
+    private static int usedPercent(VolumeInfo v) {
+        long total = v.getTotalBytes();
+        if (total <= 0) return 0;
+        int percent = (int) (((double) (total - v.getFreeBytes()) / total) * 100);
+        return Math.max(0, Math.min(100, percent));
+    }
+
+    private void applyPending() {
+        List<VolumeInfo> volumes;
+        List<VolumeInfo> updates = null;
+        Map<Integer, Long> extents;
+        Map<String, Boolean> busy = null;
+        synchronized (this) {
+            volumes = pendingVolumes;
+            pendingVolumes = null;
+            if (!pendingUpdates.isEmpty()) {
+                updates = new ArrayList<>(pendingUpdates.values());
+                pendingUpdates.clear();
+            }
+            extents = pendingUnallocated;
+            pendingUnallocated = null;
+            if (!pendingBusy.isEmpty()) {
+                busy = new HashMap<>(pendingBusy);
+                pendingBusy.clear();
+            }
+        }
+
+        if (volumes != null) model.setVolumes(volumes);
+        if (extents != null) model.setExtents(extents);
+        if (updates != null) {
+            for (VolumeInfo v : updates) {
+                Row row = rowsByKey.get(v.getKey());
+                if (row != null && row.setVolume(v)) model.rowChanged(row);
+            }
+        }
+        if (busy != null) {
+            for (Map.Entry<String, Boolean> e : busy.entrySet()) {
+                Row row = rowsByKey.get(e.getKey());
+                if (row != null && row.setBusy(e.getValue())) model.rowChanged(row);
+            }
+        }
+    }
+
+    /**
+     * One list row; display strings are built when values change, not per paint
+     */
+    static final class Row {
+        final int diskNumber;
+        VolumeInfo volume;
+        long extentBytes;
+        boolean busy;
+        int index;
+        String title;
+        int percent;
+
+        Row(VolumeInfo volume) {
+            this.diskNumber = -1;
+            setVolume(volume);
+        }
+
+        Row(int diskNumber, long bytes) {
+            this.diskNumber = diskNumber;
+            setExtent(bytes);
+        }
+
+        /** @return True if the row looks different */
+        boolean setVolume(VolumeInfo v) {
+            String newTitle = v.getDisplayName() + " — Free: " + (v.getFreeBytes() / GB) + "GB / Total: "
+                    + (v.getTotalBytes() / GB) + "GB";
+            int newPercent = usedPercent(v);
+            volume = v;
+            if (newTitle.equals(title) && newPercent == percent) return false;
+            title = newTitle;
+            percent = newPercent;
+            return true;
+        }
+
+        boolean setExtent(long bytes) {
+            if (bytes == extentBytes && title != null) return false;
+            extentBytes = bytes;
+            title = "Unallocated Space on Disk " + diskNumber + ": " + String.format("%.2f", bytes / (double) GB) + " GB";
+            return true;
+        }
+
+        boolean setBusy(boolean newBusy) {
+            if (newBusy == busy) return false;
+            busy = newBusy;
+            return true;
+        }
+    }
+
+    private class RowModel extends AbstractListModel<Row> {
+        private final List<Row> rows = new ArrayList<>();
+        private int volumeCount = 0;
+
+        @Override
+        public int getSize() {
+            return rows.size();
+        }
+
+        @Override
+        public Row getElementAt(int index) {
+            return rows.get(index);
+        }
+
+        void setVolumes(List<VolumeInfo> volumes) {
+            int oldSize = rows.size();
+            List<Row> extents = new ArrayList<>(rows.subList(volumeCount, rows.size()));
+            Map<String, Row> previous = new HashMap<>(rowsByKey);
+            rows.clear();
+            rowsByKey.clear();
+            for (VolumeInfo v : volumes) {
+                Row row = previous.get(v.getKey());
+                if (row == null) {
+                    row = new Row(v);
+                } else {
+                    row.setVolume(v);
+                }
+                rowsByKey.put(v.getKey(), row);
+                rows.add(row);
+            }
+            volumeCount = rows.size();
+            rows.addAll(extents);
+            reindex(0);
+            fireReplaced(oldSize);
+        }
+
+        void setExtents(Map<Integer, Long> bytesByDisk) {
+            List<Row> old = rows.subList(volumeCount, rows.size());
+            Map<Integer, Row> previous = new HashMap<>();
+            for (Row row : old) previous.put(row.diskNumber, row);
+            List<Row> extents = new ArrayList<>();
+            boolean structural = false;
+            for (Map.Entry<Integer, Long> e : new TreeMap<>(bytesByDisk).entrySet()) {
+                if (e.getValue() < GB) continue;
+                Row row = previous.remove(e.getKey());
+                if (row == null) {
+                    row = new Row(e.getKey(), e.getValue());
+                    structural = true;
+                } else if (row.setExtent(e.getValue())) {
+                    fireContentsChanged(this, row.index, row.index);
+                }
+                extents.add(row);
+            }
+            structural |= !previous.isEmpty();
+            if (!structural) return;
+            int oldSize = rows.size();
+            old.clear();
+            rows.addAll(extents);
+            reindex(volumeCount);
+            fireReplaced(oldSize);
+        }
+
+        void rowChanged(Row row) {
+            if (row.index < rows.size() && rows.get(row.index) == row) {
+                fireContentsChanged(this, row.index, row.index);
+            }
+        }
+
+        private void reindex(int from) {
+            for (int i = from; i < rows.size(); i++) rows.get(i).index = i;
+        }
+
+        private void fireReplaced(int oldSize) {
+            int newSize = rows.size();
+            if (newSize < oldSize) fireIntervalRemoved(this, newSize, oldSize - 1);
+            if (newSize > oldSize) fireIntervalAdded(this, oldSize, newSize - 1);
+            if (Math.min(oldSize, newSize) > 0) fireContentsChanged(this, 0, Math.min(oldSize, newSize) - 1);
+        }
+    }
+
+    /**
+     * The one component that paints every row (flyweight): it is re-stamped with each
+     * row's title, usage and status, then painted in that row's bounds
+     */
+    private static class RowRenderer extends JPanel implements ListCellRenderer<Row> {
+        private static final Color VOLUME_BACKGROUND = Color.WHITE;
+        private static final Color EXTENT_BACKGROUND = new Color(245, 245, 245);
+        private static final Color SELECTED_BACKGROUND = new Color(227, 240, 252);
+
+        private final JLabel titleLabel = new JLabel("", JLabel.LEFT);
+        private final JProgressBar progress = new JProgressBar(0, 100);
+        private final JLabel statusLabel = new JLabel("", JLabel.LEFT);
+
+        RowRenderer() {
+            super(new BorderLayout(6, 4));
+            setBorder(BorderFactory.createCompoundBorder(
+                    BorderFactory.createCompoundBorder(new EmptyBorder(0, 0, 6, 0),
+                            BorderFactory.createLineBorder(new Color(200, 200, 200))),
+                    new EmptyBorder(4, 10, 4, 10)
+            ));
+            titleLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+            progress.setStringPainted(true);
+            statusLabel.setFont(new Font("Segoe UI", Font.ITALIC, 12));
+            add(titleLabel, BorderLayout.NORTH);
+            add(progress, BorderLayout.CENTER);
+            add(statusLabel, BorderLayout.SOUTH);
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Row> list, Row row, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            titleLabel.setText(row.title);
+            if (row.volume != null) {
+                progress.setVisible(true);
+                progress.setValue(row.percent);
+                statusLabel.setText(row.busy ? "Working..." : "Idle");
+                setBackground(isSelected ? SELECTED_BACKGROUND : VOLUME_BACKGROUND);
+            } else {
+                progress.setVisible(false);
+                statusLabel.setText("Right-click to create a volume");
+                setBackground(isSelected ? SELECTED_BACKGROUND : EXTENT_BACKGROUND);
+            }
+            return this;
+        }
+
+        // A stamp is never shown on its own: skip the repaint requests its setters would queue
+        @Override
+        public void repaint(long tm, int x, int y, int width, int height) {}
+
+        @Override
+        public void repaint(Rectangle r) {}
+    }
+}
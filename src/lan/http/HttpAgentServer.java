@@ -1,9 +1,12 @@
 package lan.http;
 
+import com.sun.net.httpserver.Filter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import lan.LanConfig;
+import utils.JfrEvents;
+import utils.Tracing;
 import utils.PartitionOperations;
 
 import java.io.*;
@@ -21,14 +24,14 @@ public class HttpAgentServer {
         try {
             InetAddress bindAddr = InetAddress.getByName(LanConfig.getBindAddress());
             server = HttpServer.create(new InetSocketAddress(bindAddr, LanConfig.getPort()), 0);
-            server.createContext("/ping", new PingHandler());
-            server.createContext("/volumes", new VolumesHandler());
-            server.createContext("/rename", new RenameHandler());
-            server.createContext("/change-letter", new ChangeLetterHandler());
-            server.createContext("/format", new FormatHandler());
-            server.createContext("/delete", new DeleteHandler());
-            server.createContext("/shrink", new ShrinkHandler());
-            server.createContext("/extend", new ExtendHandler());
+            addContext("/ping", new PingHandler());
+            addContext("/volumes", new VolumesHandler());
+            addContext("/rename", new RenameHandler());
+            addContext("/change-letter", new ChangeLetterHandler());
+            addContext("/format", new FormatHandler());
+            addContext("/delete", new DeleteHandler());
+            addContext("/shrink", new ShrinkHandler());
+            addContext("/extend", new ExtendHandler());
             server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
             server.start();
             running = true;
@@ -37,6 +40,60 @@ public class HttpAgentServer {
         }
     }
 
+    private static void addContext(String path, HttpHandler handler) {
+        server.createContext(path, handler).getFilters().add(REQUEST_EVENTS);
+    }
+
+    /**
+     * Records every request as an AgentRequest flight recorder event, and continues
+     * the console's trace when the request carries a traceparent header
+     */
+    private static final Filter REQUEST_EVENTS = new Filter() {
+        @Override
+        public void doFilter(HttpExchange ex, Chain chain) throws IOException {
+            Tracing.Span span = Tracing.continueTrace(ex.getRequestHeaders().getFirst(Tracing.TRACEPARENT),
+                    "agent " + ex.getRequestURI().getPath());
+            JfrEvents.AgentRequest event = new JfrEvents.AgentRequest();
+            event.begin();
+            try {
+                chain.doFilter(ex);
+            } finally {
+                span.close();
+                event.end();
+                if (event.shouldCommit()) {
+                    event.method = ex.getRequestMethod();
+                    event.path = ex.getRequestURI().getPath();
+                    event.client = ex.getRemoteAddress().getAddress().getHostAddress();
+                    event.status = ex.getResponseCode();
+                    String length = ex.getRequestHeaders().getFirst("Content-Length");
+                    event.requestBytes = parseLongSafe(length);
+                    event.traceId = span.getTraceId();
+                    event.commit();
+                }
+            }
+        }
+
+        @Override
+        public String description() {
+            return "Flight recorder events and trace context for agent requests";
+        }
+    };
+
+    /**
+     * Report the request's hops so far (agent, shell) to a tracing client in a
+     * Server-Timing header; call before sendResponseHeaders
+     */
+    private static void addServerTiming(HttpExchange ex) {
+        Tracing.Span span = Tracing.current();
+        if (span.isRecording()) {
+            ex.getResponseHeaders().set(Tracing.SERVER_TIMING, span.serverTiming());
+        }
+    }
+
+    private static long parseLongSafe(String s) {
+        try { return s == null ? 0 : Long.parseLong(s.trim()); } catch (NumberFormatException e) { return 0; }
+    }
+
     private static class DeleteHandler implements HttpHandler {
         @Override public void handle(HttpExchange ex) throws IOException {
             if (!"POST".equalsIgnoreCase(ex.getRequestMethod())) {
@@ -95,6 +152,7 @@ public class HttpAgentServer {
             String command = "Set-Volume -DriveLetter " + drive.toUpperCase() + " -NewFileSystemLabel '" + escaped + "'";
             int code;
             String out;
+            JfrEvents.ShellCommand event = JfrEvents.ShellCommand.start("agent", command);
             try {
                 ProcessBuilder pb = new ProcessBuilder("powershell.exe", "-NoProfile", "-NonInteractive", "-Command", command);
                 pb.redirectErrorStream(true);
@@ -111,6 +169,8 @@ public class HttpAgentServer {
             } catch (Exception e) {
                 code = -1; out = e.getMessage();
             }
+            event.finish(code, out == null ? 0 : out.length());
+            addServerTiming(ex);
             if (code == 0) {
                 byte[] ok = "OK\n".getBytes(StandardCharsets.UTF_8);
                 ex.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
@@ -166,6 +226,7 @@ public class HttpAgentServer {
             }
             String command = "$old='" + oldDrive + "';$new='" + newLetter + "';$p=Get-Partition -DriveLetter $old; if($p){ Set-Partition -DriveLetter $old -NewDriveLetter $new -ErrorAction Stop } else { throw 'Partition not found' }";
             int code; String out;
+            JfrEvents.ShellCommand event = JfrEvents.ShellCommand.start("agent", command);
             try {
                 ProcessBuilder pb = new ProcessBuilder("powershell.exe", "-NoProfile", "-NonInteractive", "-Command", command);
                 pb.redirectErrorStream(true);
@@ -180,6 +241,8 @@ public class HttpAgentServer {
             } catch (Exception e) {
                 code = -1; out = e.getMessage();
             }
+            event.finish(code, out == null ? 0 : out.length());
+            addServerTiming(ex);
             if (code == 0) {
                 byte[] ok = "OK\n".getBytes(StandardCharsets.UTF_8);
                 ex.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
@@ -196,31 +259,50 @@ public class HttpAgentServer {
 
     private static String readBody(HttpExchange ex) throws IOException {
         try (InputStream is = ex.getRequestBody()) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte[] buf = new byte[4096];
-            int n; while ((n = is.read(buf)) > 0) baos.write(buf, 0, n);
-            return baos.toString("UTF-8");
+            return readBody(is);
         }
     }
 
-    private static java.util.Map<String,String> parseForm(String s) {
+    /**
+     * Read a request body as UTF-8 (the bytes are decoded straight from the read buffer)
+     */
+    public static String readBody(InputStream is) throws IOException {
+        return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse an application/x-www-form-urlencoded body; pairs without a name are skipped,
+     * and a name or value that does not decode is kept as sent
+     */
+    public static java.util.Map<String,String> parseForm(String s) {
         java.util.Map<String,String> map = new java.util.HashMap<>();
         if (s == null || s.isEmpty()) return map;
-        String[] pairs = s.split("&");
-        for (String pair : pairs) {
-            int eq = pair.indexOf('=');
-            if (eq <= 0) continue;
-            String k = pair.substring(0, eq);
-            String v = pair.substring(eq + 1);
-            try {
-                k = URLDecoder.decode(k, "UTF-8");
-                v = URLDecoder.decode(v, "UTF-8");
-            } catch (Exception ignored) {}
-            map.put(k, v);
+        int start = 0;
+        while (start <= s.length()) {
+            int amp = s.indexOf('&', start);
+            if (amp < 0) amp = s.length();
+            int eq = s.indexOf('=', start);
+            if (eq > start && eq < amp) {
+                String k = s.substring(start, eq);
+                String v = s.substring(eq + 1, amp);
+                try {
+                    k = decode(k);
+                    v = decode(v);
+                } catch (Exception ignored) {}
+                map.put(k, v);
+            }
+            start = amp + 1;
         }
         return map;
     }
 
+    /**
+     * URLDecoder.decode, skipped (it allocates a builder either way) when nothing is encoded
+     */
+    private static String decode(String s) throws UnsupportedEncodingException {
+        return (s.indexOf('%') < 0 && s.indexOf('+') < 0) ? s : URLDecoder.decode(s, "UTF-8");
+    }
+
     private static class PingHandler implements HttpHandler {
         @Override public void handle(HttpExchange ex) throws IOException {
             byte[] body = "OK PONG\n".getBytes(StandardCharsets.UTF_8);
@@ -242,6 +324,7 @@ public class HttpAgentServer {
                     "Write-Output (\"FREE`t\" + $disk.Number + \"`t\" + ($name -replace \"`t\", \" \") + \"`t\" + $unalloc + \"`t\" + [int64]$disk.Size) } }";
             int code;
             String out;
+            JfrEvents.ShellCommand event = JfrEvents.ShellCommand.start("agent", command);
             try {
                 ProcessBuilder pb = new ProcessBuilder("powershell.exe", "-NoProfile", "-NonInteractive", "-Command", command);
                 pb.redirectErrorStream(true);
@@ -258,6 +341,8 @@ public class HttpAgentServer {
             } catch (Exception e) {
                 code = -1; out = e.getMessage();
             }
+            event.finish(code, out == null ? 0 : out.length());
+            addServerTiming(ex);
 
             StringBuilder resp = new StringBuilder();
             resp.append("OK\n");
@@ -409,6 +494,7 @@ public class HttpAgentServer {
 
     private static void runAndRespond(HttpExchange ex, String command) throws IOException {
         int code; String out;
+        JfrEvents.ShellCommand event = JfrEvents.ShellCommand.start("agent", command);
         try {
             ProcessBuilder pb = new ProcessBuilder("powershell.exe", "-NoProfile", "-NonInteractive", "-Command", "$ErrorActionPreference='Stop'; " + command);
             pb.redirectErrorStream(true);
@@ -423,6 +509,8 @@ public class HttpAgentServer {
         } catch (Exception e) {
             code = -1; out = e.getMessage();
         }
+        event.finish(code, out == null ? 0 : out.length());
+        addServerTiming(ex);
         if (code == 0) {
             byte[] ok = "OK\n".getBytes(StandardCharsets.UTF_8);
             ex.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
@@ -1,6 +1,9 @@
 package lan.http;
 
 import lan.LanClient;
+import utils.JfrEvents;
+import utils.Metrics;
+import utils.Tracing;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -14,222 +17,218 @@ import java.util.List;
 
 public class HttpLanClient {
 
+    private static final Metrics.Histogram PING = Metrics.timer("http.client.ping");
+    private static final Metrics.Histogram VOLUMES = Metrics.timer("http.client.volumes");
+    private static final Metrics.Counter ERRORS = Metrics.counter("http.client.errors");
+
     public static boolean ping(String host, int port) {
+        long start = System.nanoTime();
+        JfrEvents.LanClientCall event = JfrEvents.LanClientCall.start(host, port, "/ping");
+        Tracing.Span span = startSpan(host, port, "/ping");
+        String error = null;
         try {
             URL url = new URL("http", host, port, "/ping");
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
             conn.setConnectTimeout(2000);
             conn.setReadTimeout(2000);
             conn.setRequestMethod("GET");
+            propagate(span, conn);
             int code = conn.getResponseCode();
+            event.status = code;
+            Tracing.recordServerTiming(span, conn.getHeaderField(Tracing.SERVER_TIMING), "agent " + host + ":" + port);
             if (code != 200) return false;
             try (BufferedReader br = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
                 String line = br.readLine();
                 return line != null && line.startsWith("OK");
             }
         } catch (IOException e) {
+            ERRORS.inc();
+            error = e.toString();
             return false;
+        } finally {
+            PING.recordSince(start);
+            event.finish(error);
+            endSpan(span, event.status, error);
         }
     }
 
     public static List<LanClient.RemoteVolume> listVolumes(String host, int port) throws IOException {
-        URL url = new URL("http", host, port, "/volumes");
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setConnectTimeout(2500);
-        conn.setReadTimeout(8000);
-        conn.setRequestMethod("GET");
-        int code = conn.getResponseCode();
-        if (code != 200) throw new IOException("HTTP status " + code);
-        ArrayList<LanClient.RemoteVolume> list = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-            String first = br.readLine();
-            if (first == null || !first.startsWith("OK")) {
-                throw new IOException("Remote error or no response");
-            }
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.equals("END")) break;
-                if (!line.startsWith("VOL\t") && !line.startsWith("FREE\t")) continue;
-                String[] parts = line.split("\t");
-                if (parts[0].equals("VOL") && parts.length >= 5) {
-                    String drive = parts[1];
-                    String label = parts[2];
-                    long free = parseLongSafe(parts[3]);
-                    long total = parseLongSafe(parts[4]);
-                    list.add(new LanClient.RemoteVolume(drive + ":", label, free, total));
-                } else if (parts[0].equals("FREE") && parts.length >= 5) {
-                    String diskId = parts[1];
-                    String name = parts[2];
-                    long free = parseLongSafe(parts[3]);
-                    long total = parseLongSafe(parts[4]);
-                    list.add(new LanClient.RemoteVolume("Disk " + diskId + " (Unallocated)", name, free, total));
-                }
+        long start = System.nanoTime();
+        JfrEvents.LanClientCall event = JfrEvents.LanClientCall.start(host, port, "/volumes");
+        Tracing.Span span = startSpan(host, port, "/volumes");
+        String error = null;
+        try {
+            URL url = new URL("http", host, port, "/volumes");
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setConnectTimeout(2500);
+            conn.setReadTimeout(8000);
+            conn.setRequestMethod("GET");
+            propagate(span, conn);
+            int code = conn.getResponseCode();
+            event.status = code;
+            Tracing.recordServerTiming(span, conn.getHeaderField(Tracing.SERVER_TIMING), "agent " + host + ":" + port);
+            if (code != 200) throw new IOException("HTTP status " + code);
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+                return parseVolumes(br);
             }
+        } catch (IOException e) {
+            ERRORS.inc();
+            error = e.toString();
+            throw e;
+        } finally {
+            VOLUMES.recordSince(start);
+            event.finish(error);
+            endSpan(span, event.status, error);
+        }
+    }
+
+    /**
+     * Parse a /volumes response: "OK", then "VOL\tletter\tlabel\tfree\ttotal" and
+     * "FREE\tdisk\tname\tfree\ttotal" lines up to "END"; other lines are skipped.
+     * Fields are located in place, so only the strings kept in the result are allocated.
+     */
+    public static List<LanClient.RemoteVolume> parseVolumes(BufferedReader br) throws IOException {
+        String first = br.readLine();
+        if (first == null || !first.startsWith("OK")) {
+            throw new IOException("Remote error or no response");
+        }
+        ArrayList<LanClient.RemoteVolume> list = new ArrayList<>();
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (line.equals("END")) break;
+            boolean vol = line.startsWith("VOL\t");
+            if (!vol && !line.startsWith("FREE\t")) continue;
+            int idEnd = line.indexOf('\t', vol ? 4 : 5);
+            int labelEnd = (idEnd < 0) ? -1 : line.indexOf('\t', idEnd + 1);
+            int freeEnd = (labelEnd < 0) ? -1 : line.indexOf('\t', labelEnd + 1);
+            // Five fields, the last non-empty (or more fields after it)
+            if (freeEnd < 0 || !hasField(line, freeEnd + 1)) continue;
+            int totalEnd = line.indexOf('\t', freeEnd + 1);
+            if (totalEnd < 0) totalEnd = line.length();
+            String id = line.substring(vol ? 4 : 5, idEnd);
+            String label = line.substring(idEnd + 1, labelEnd);
+            long free = parseLongSafe(line, labelEnd + 1, freeEnd);
+            long total = parseLongSafe(line, freeEnd + 1, totalEnd);
+            list.add(vol ? new LanClient.RemoteVolume(id + ":", label, free, total)
+                         : new LanClient.RemoteVolume("Disk " + id + " (Unallocated)", label, free, total));
         }
         return list;
     }
 
+    private static boolean hasField(String line, int from) {
+        for (int i = from; i < line.length(); i++) {
+            if (line.charAt(i) != '\t') return true;
+        }
+        return false;
+    }
+
     public static boolean renameVolume(String host, int port, String drive, String newLabel) throws IOException {
-        URL url = new URL("http", host, port, "/rename");
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setConnectTimeout(4000);
-        conn.setReadTimeout(10000);
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
-        conn.setDoOutput(true);
         String body = "drive=" + URLEncoder.encode(drive, "UTF-8") +
                 "&label=" + URLEncoder.encode(newLabel, "UTF-8");
-        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
-        conn.setFixedLengthStreamingMode(bytes.length);
-        try (java.io.OutputStream os = conn.getOutputStream()) {
-            os.write(bytes);
-        }
-        int code = conn.getResponseCode();
-        if (code == 200) return true;
-        String err;
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(
-                (conn.getErrorStream() != null ? conn.getErrorStream() : conn.getInputStream()),
-                StandardCharsets.UTF_8))) {
-            StringBuilder sb = new StringBuilder();
-            String line; while ((line = br.readLine()) != null) sb.append(line).append('\n');
-            err = sb.toString();
-        }
-        throw new IOException(err.isEmpty() ? ("HTTP " + code) : err.trim());
+        return post(host, port, "/rename", 4000, 10000, body);
     }
 
     public static boolean formatVolume(String host, int port, String drive, String fs, String label) throws IOException {
-        URL url = new URL("http", host, port, "/format");
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setConnectTimeout(5000);
-        conn.setReadTimeout(600000); // formatting can take long
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
-        conn.setDoOutput(true);
         String body = "drive=" + URLEncoder.encode(drive, "UTF-8") +
                 "&fs=" + URLEncoder.encode(fs, "UTF-8") +
                 "&label=" + URLEncoder.encode(label == null ? "" : label, "UTF-8");
-        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
-        conn.setFixedLengthStreamingMode(bytes.length);
-        try (java.io.OutputStream os = conn.getOutputStream()) { os.write(bytes); }
-        int code = conn.getResponseCode();
-        if (code == 200) return true;
-        String err;
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(
-                (conn.getErrorStream() != null ? conn.getErrorStream() : conn.getInputStream()),
-                StandardCharsets.UTF_8))) {
-            StringBuilder sb = new StringBuilder();
-            String line; while ((line = br.readLine()) != null) sb.append(line).append('\n');
-            err = sb.toString();
-        }
-        throw new IOException(err.isEmpty() ? ("HTTP " + code) : err.trim());
+        return post(host, port, "/format", 5000, 600000, body); // formatting can take long
     }
 
     public static boolean deleteVolume(String host, int port, String drive) throws IOException {
-        URL url = new URL("http", host, port, "/delete");
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setConnectTimeout(5000);
-        conn.setReadTimeout(600000);
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
-        conn.setDoOutput(true);
         String body = "drive=" + URLEncoder.encode(drive, "UTF-8");
-        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
-        conn.setFixedLengthStreamingMode(bytes.length);
-        try (java.io.OutputStream os = conn.getOutputStream()) { os.write(bytes); }
-        int code = conn.getResponseCode();
-        if (code == 200) return true;
-        String err;
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(
-                (conn.getErrorStream() != null ? conn.getErrorStream() : conn.getInputStream()),
-                StandardCharsets.UTF_8))) {
-            StringBuilder sb = new StringBuilder();
-            String line; while ((line = br.readLine()) != null) sb.append(line).append('\n');
-            err = sb.toString();
-        }
-        throw new IOException(err.isEmpty() ? ("HTTP " + code) : err.trim());
+        return post(host, port, "/delete", 5000, 600000, body);
     }
 
     public static boolean shrinkVolume(String host, int port, String drive, double shrinkGB) throws IOException {
-        URL url = new URL("http", host, port, "/shrink");
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setConnectTimeout(5000);
-        conn.setReadTimeout(300000);
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
-        conn.setDoOutput(true);
         String body = "drive=" + URLEncoder.encode(drive, "UTF-8") +
                 "&shrinkGB=" + URLEncoder.encode(String.valueOf(shrinkGB), "UTF-8");
-        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
-        conn.setFixedLengthStreamingMode(bytes.length);
-        try (java.io.OutputStream os = conn.getOutputStream()) { os.write(bytes); }
-        int code = conn.getResponseCode();
-        if (code == 200) return true;
-        String err;
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(
-                (conn.getErrorStream() != null ? conn.getErrorStream() : conn.getInputStream()),
-                StandardCharsets.UTF_8))) {
-            StringBuilder sb = new StringBuilder();
-            String line; while ((line = br.readLine()) != null) sb.append(line).append('\n');
-            err = sb.toString();
-        }
-        throw new IOException(err.isEmpty() ? ("HTTP " + code) : err.trim());
+        return post(host, port, "/shrink", 5000, 300000, body);
     }
 
     public static boolean extendVolume(String host, int port, String drive, double extendGB) throws IOException {
-        URL url = new URL("http", host, port, "/extend");
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setConnectTimeout(5000);
-        conn.setReadTimeout(300000);
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
-        conn.setDoOutput(true);
         String body = "drive=" + URLEncoder.encode(drive, "UTF-8") +
                 "&extendGB=" + URLEncoder.encode(String.valueOf(extendGB), "UTF-8");
-        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
-        conn.setFixedLengthStreamingMode(bytes.length);
-        try (java.io.OutputStream os = conn.getOutputStream()) { os.write(bytes); }
-        int code = conn.getResponseCode();
-        if (code == 200) return true;
-        String err;
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(
-                (conn.getErrorStream() != null ? conn.getErrorStream() : conn.getInputStream()),
-                StandardCharsets.UTF_8))) {
-            StringBuilder sb = new StringBuilder();
-            String line; while ((line = br.readLine()) != null) sb.append(line).append('\n');
-            err = sb.toString();
-        }
-        throw new IOException(err.isEmpty() ? ("HTTP " + code) : err.trim());
+        return post(host, port, "/extend", 5000, 300000, body);
     }
 
     public static boolean changeDriveLetter(String host, int port, String drive, String newLetter) throws IOException {
-        URL url = new URL("http", host, port, "/change-letter");
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setConnectTimeout(5000);
-        conn.setReadTimeout(15000);
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
-        conn.setDoOutput(true);
         String body = "drive=" + URLEncoder.encode(drive, "UTF-8") +
                 "&new=" + URLEncoder.encode(newLetter, "UTF-8");
-        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
-        conn.setFixedLengthStreamingMode(bytes.length);
-        try (java.io.OutputStream os = conn.getOutputStream()) {
-            os.write(bytes);
-        }
-        int code = conn.getResponseCode();
-        if (code == 200) return true;
-        String err;
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(
-                (conn.getErrorStream() != null ? conn.getErrorStream() : conn.getInputStream()),
-                StandardCharsets.UTF_8))) {
-            StringBuilder sb = new StringBuilder();
-            String line; while ((line = br.readLine()) != null) sb.append(line).append('\n');
-            err = sb.toString();
+        return post(host, port, "/change-letter", 5000, 15000, body);
+    }
+
+    /**
+     * POST a form to the agent, timed as http.client.<endpoint>, recorded as a LanClientCall
+     * event and, inside a trace, as a "lan <path>" span carrying the trace to the agent
+     * @return true on HTTP 200
+     * @throws IOException carrying the agent's error text for any other status
+     */
+    private static boolean post(String host, int port, String path, int connectTimeout, int readTimeout,
+                                String body) throws IOException {
+        Metrics.Histogram timer = Metrics.timer("http.client." + path.substring(1));
+        long start = System.nanoTime();
+        JfrEvents.LanClientCall event = JfrEvents.LanClientCall.start(host, port, path);
+        Tracing.Span span = startSpan(host, port, path);
+        String error = null;
+        try {
+            URL url = new URL("http", host, port, path);
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setConnectTimeout(connectTimeout);
+            conn.setReadTimeout(readTimeout);
+            conn.setRequestMethod("POST");
+            conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
+            propagate(span, conn);
+            conn.setDoOutput(true);
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            conn.setFixedLengthStreamingMode(bytes.length);
+            try (java.io.OutputStream os = conn.getOutputStream()) {
+                os.write(bytes);
+            }
+            int code = conn.getResponseCode();
+            event.status = code;
+            Tracing.recordServerTiming(span, conn.getHeaderField(Tracing.SERVER_TIMING), "agent " + host + ":" + port);
+            if (code == 200) return true;
+            String err;
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                    (conn.getErrorStream() != null ? conn.getErrorStream() : conn.getInputStream()),
+                    StandardCharsets.UTF_8))) {
+                StringBuilder sb = new StringBuilder();
+                String line; while ((line = br.readLine()) != null) sb.append(line).append('\n');
+                err = sb.toString();
+            }
+            throw new IOException(err.isEmpty() ? ("HTTP " + code) : err.trim());
+        } catch (IOException e) {
+            ERRORS.inc();
+            error = e.getMessage();
+            throw e;
+        } finally {
+            timer.recordSince(start);
+            event.finish(error);
+            endSpan(span, event.status, error);
         }
-        throw new IOException(err.isEmpty() ? ("HTTP " + code) : err.trim());
     }
 
-    private static long parseLongSafe(String s) {
-        try { return Long.parseLong(s.trim()); } catch (Exception e) { return -1L; }
+    /**
+     * Child span of the current trace for one agent call (inert outside a trace)
+     */
+    private static Tracing.Span startSpan(String host, int port, String path) {
+        return Tracing.startSpan("lan " + path).attr("agent", host + ":" + port);
+    }
+
+    private static void propagate(Tracing.Span span, HttpURLConnection conn) {
+        if (span.isRecording()) conn.setRequestProperty(Tracing.TRACEPARENT, span.traceparent());
+    }
+
+    private static void endSpan(Tracing.Span span, int status, String error) {
+        span.attr("status", status);
+        if (error != null) span.attr("error", error);
+        span.close();
+    }
+
+    private static long parseLongSafe(String s, int begin, int end) {
+        while (begin < end && s.charAt(begin) <= ' ') begin++;
+        while (end > begin && s.charAt(end - 1) <= ' ') end--;
+        try { return Long.parseLong(s, begin, end, 10); } catch (Exception e) { return -1L; }
     }
 }
@@ -8,6 +8,8 @@ import java.sql.Timestamp;
  */
 public class ActivityLog {
     private int logId;
+    private String eventId;
+    private String traceId;
     private int userId;
     private int machineId;
     private String action;
@@ -40,6 +42,25 @@ public class ActivityLog {
         this.logId = logId;
     }
     
+    public String getEventId() {
+        return eventId;
+    }
+    
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+    
+    /**
+     * @return Trace the log was written in (see utils.Tracing), or null
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+    
+    public void setTraceId(String traceId) {
+        this.traceId = traceId;
+    }
+    
     public int getUserId() {
         return userId;
     }
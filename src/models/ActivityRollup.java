@@ -0,0 +1,67 @@
+package models;
+
+import java.sql.Date;
+
+/**
+ * ActivityRollup Model Class
+ * Represents one row of activity_log_daily (per-day, per-user, per-action count)
+ */
+public class ActivityRollup {
+    private Date logDay;
+    private int userId;
+    private String action;
+    private int actionCount;
+
+    // Constructors
+    public ActivityRollup() {}
+
+    public ActivityRollup(Date logDay, int userId, String action, int actionCount) {
+        this.logDay = logDay;
+        this.userId = userId;
+        this.action = action;
+        this.actionCount = actionCount;
+    }
+
+    // Getters and Setters
+    public Date getLogDay() {
+        return logDay;
+    }
+
+    public void setLogDay(Date logDay) {
+        this.logDay = logDay;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    public void setActionCount(int actionCount) {
+        this.actionCount = actionCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ActivityRollup{" +
+                "logDay=" + logDay +
+                ", userId=" + userId +
+                ", action='" + action + '\'' +
+                ", actionCount=" + actionCount +
+                '}';
+    }
+}
@@ -0,0 +1,98 @@
+package models;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * BackupCatalogEntry Model Class
+ * One backup of a chain: a full dump, or an increment on top of its parent.
+ * The watermarks record how far the backup reaches (e.g. "activity_logs" =
+ * highest log_id, "version" = change version), which is where the next
+ * increment starts.
+ */
+public class BackupCatalogEntry {
+
+    public enum Type { FULL, INCREMENTAL }
+
+    private final String id;
+    private final Type type;
+    private final String parentId;
+    private final String fileName;
+    private final long bytes;
+    private final String sha256;
+    private final long createdAt;
+    private final Map<String, Long> watermarks;
+
+    public BackupCatalogEntry(String id, Type type, String parentId, String fileName, long bytes,
+                              String sha256, long createdAt, Map<String, Long> watermarks) {
+        this.id = id;
+        this.type = type;
+        this.parentId = parentId;
+        this.fileName = fileName;
+        this.bytes = bytes;
+        this.sha256 = sha256;
+        this.createdAt = createdAt;
+        this.watermarks = Collections.unmodifiableMap(new LinkedHashMap<>(watermarks));
+    }
+
+    // Getters
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isFull() {
+        return type == Type.FULL;
+    }
+
+    /**
+     * @return Id of the backup this increment applies on top of, null for a full backup
+     */
+    public String getParentId() {
+        return parentId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public Map<String, Long> getWatermarks() {
+        return watermarks;
+    }
+
+    /**
+     * @return The watermark, or 0 if the backup did not record it
+     */
+    public long getWatermark(String key) {
+        Long value = watermarks.get(key);
+        return (value != null) ? value : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "BackupCatalogEntry{" +
+                "id='" + id + '\'' +
+                ", type=" + type +
+                ", parentId='" + parentId + '\'' +
+                ", fileName='" + fileName + '\'' +
+                ", bytes=" + bytes +
+                ", watermarks=" + watermarks +
+                '}';
+    }
+}
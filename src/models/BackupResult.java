@@ -0,0 +1,69 @@
+package models;
+
+/**
+ * BackupResult Model Class
+ * Outcome of one backup at one destination: the file written, its size and
+ * SHA-256 (of the bytes as written), how long the destination took, and the
+ * error if it failed. A failed destination keeps its previous backup.
+ * A restore reports the file it read, the SQL bytes restored and the file's SHA-256.
+ */
+public class BackupResult {
+    private final String destination;
+    private final boolean success;
+    private final long bytes;
+    private final String sha256;
+    private final long millis;
+    private final String error;
+
+    private BackupResult(String destination, boolean success, long bytes, String sha256, long millis, String error) {
+        this.destination = destination;
+        this.success = success;
+        this.bytes = bytes;
+        this.sha256 = sha256;
+        this.millis = millis;
+        this.error = error;
+    }
+
+    public static BackupResult success(String destination, long bytes, String sha256, long millis) {
+        return new BackupResult(destination, true, bytes, sha256, millis, null);
+    }
+
+    public static BackupResult failure(String destination, long bytes, long millis, String error) {
+        return new BackupResult(destination, false, bytes, null, millis, error);
+    }
+
+    // Getters
+    public String getDestination() {
+        return destination;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return Hex SHA-256 of the backup file, null if the destination failed
+     */
+    public String getSha256() {
+        return sha256;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return success
+                ? destination + " (" + bytes + " bytes, " + millis + " ms, sha256 " + sha256 + ")"
+                : destination + " FAILED: " + error;
+    }
+}
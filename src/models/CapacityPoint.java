@@ -0,0 +1,130 @@
+package models;
+
+import java.sql.Timestamp;
+
+/**
+ * CapacityPoint Model Class
+ * One point of a volume's capacity history. For raw samples min/avg/max are equal;
+ * for hourly and daily buckets they summarize the samples in the bucket.
+ */
+public class CapacityPoint {
+
+    public enum Resolution { RAW, HOURLY, DAILY }
+
+    private int machineId;
+    private String volume;
+    private Timestamp time;
+    private long minFree;
+    private long avgFree;
+    private long maxFree;
+    private long totalBytes;
+    private int sampleCount;
+    private Resolution resolution;
+
+    // Constructors
+    public CapacityPoint() {}
+
+    public CapacityPoint(int machineId, String volume, Timestamp time, long freeBytes, long totalBytes) {
+        this(machineId, volume, time, freeBytes, freeBytes, freeBytes, totalBytes, 1, Resolution.RAW);
+    }
+
+    public CapacityPoint(int machineId, String volume, Timestamp time, long minFree, long avgFree, long maxFree,
+                         long totalBytes, int sampleCount, Resolution resolution) {
+        this.machineId = machineId;
+        this.volume = volume;
+        this.time = time;
+        this.minFree = minFree;
+        this.avgFree = avgFree;
+        this.maxFree = maxFree;
+        this.totalBytes = totalBytes;
+        this.sampleCount = sampleCount;
+        this.resolution = resolution;
+    }
+
+    // Getters and Setters
+    public int getMachineId() {
+        return machineId;
+    }
+
+    public void setMachineId(int machineId) {
+        this.machineId = machineId;
+    }
+
+    public String getVolume() {
+        return volume;
+    }
+
+    public void setVolume(String volume) {
+        this.volume = volume;
+    }
+
+    public Timestamp getTime() {
+        return time;
+    }
+
+    public void setTime(Timestamp time) {
+        this.time = time;
+    }
+
+    public long getMinFree() {
+        return minFree;
+    }
+
+    public void setMinFree(long minFree) {
+        this.minFree = minFree;
+    }
+
+    public long getAvgFree() {
+        return avgFree;
+    }
+
+    public void setAvgFree(long avgFree) {
+        this.avgFree = avgFree;
+    }
+
+    public long getMaxFree() {
+        return maxFree;
+    }
+
+    public void setMaxFree(long maxFree) {
+        this.maxFree = maxFree;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(int sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public Resolution getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(Resolution resolution) {
+        this.resolution = resolution;
+    }
+
+    @Override
+    public String toString() {
+        return "CapacityPoint{" +
+                "machineId=" + machineId +
+                ", volume='" + volume + '\'' +
+                ", time=" + time +
+                ", minFree=" + minFree +
+                ", avgFree=" + avgFree +
+                ", maxFree=" + maxFree +
+                ", totalBytes=" + totalBytes +
+                ", resolution=" + resolution +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ChangeSet Model Class
+ * Rows of one table changed after a given change version: current values of
+ * inserted/updated rows and the IDs of deleted ones. When fullReload is set the
+ * requested version is older than the retained change history and the caller
+ * must reload the whole table instead.
+ */
+public class ChangeSet<T> {
+    private final List<T> upserts = new ArrayList<>();
+    private final List<Integer> deletedIds = new ArrayList<>();
+    private long version;
+    private boolean fullReload;
+
+    // Constructors
+    public ChangeSet() {}
+
+    public ChangeSet(long version) {
+        this.version = version;
+    }
+
+    public boolean isEmpty() {
+        return upserts.isEmpty() && deletedIds.isEmpty() && !fullReload;
+    }
+
+    // Getters and Setters
+    public List<T> getUpserts() {
+        return upserts;
+    }
+
+    public List<Integer> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isFullReload() {
+        return fullReload;
+    }
+
+    public void setFullReload(boolean fullReload) {
+        this.fullReload = fullReload;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{" +
+                "upserts=" + upserts.size() +
+                ", deletedIds=" + deletedIds.size() +
+                ", version=" + version +
+                ", fullReload=" + fullReload +
+                '}';
+    }
+}
@@ -0,0 +1,63 @@
+package models;
+
+import java.util.Map;
+
+/**
+ * DiskEvent Model Class
+ * A change seen by the disk monitor. Volume events carry the volume's new
+ * state (its last known state for VOLUME_REMOVED); UNALLOCATED_CHANGED
+ * carries the largest free extent per disk number.
+ */
+public class DiskEvent {
+
+    public enum Type { VOLUME_ADDED, VOLUME_REMOVED, USAGE_CHANGED, LABEL_CHANGED, UNALLOCATED_CHANGED }
+
+    private final Type type;
+    private final VolumeInfo volume;
+    private final Map<Integer, Long> unallocated;
+
+    public DiskEvent(Type type, VolumeInfo volume) {
+        this(type, volume, null);
+    }
+
+    public DiskEvent(Type type, VolumeInfo volume, Map<Integer, Long> unallocated) {
+        this.type = type;
+        this.volume = volume;
+        this.unallocated = unallocated;
+    }
+
+    // Getters
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The volume, or null for UNALLOCATED_CHANGED
+     */
+    public VolumeInfo getVolume() {
+        return volume;
+    }
+
+    /**
+     * @return Disk number to free bytes (read-only), or null for volume events
+     */
+    public Map<Integer, Long> getUnallocated() {
+        return unallocated;
+    }
+
+    /**
+     * @return True if volumes were added or removed (cards must be laid out again)
+     */
+    public boolean isTopologyChange() {
+        return type == Type.VOLUME_ADDED || type == Type.VOLUME_REMOVED;
+    }
+
+    @Override
+    public String toString() {
+        return "DiskEvent{" +
+                "type=" + type +
+                ", volume=" + volume +
+                ", unallocated=" + unallocated +
+                '}';
+    }
+}
@@ -0,0 +1,78 @@
+package models;
+
+/**
+ * ExportSummary Model Class
+ * What a native export wrote: tables, rows and chunks, the size of the rows
+ * before and after compression, how long it took and on how many connections.
+ * sharedSnapshot is false when the export fell back to a single connection
+ * because the parallel snapshots could not be synchronized.
+ */
+public class ExportSummary {
+    private final int tables;
+    private final long rows;
+    private final long chunks;
+    private final long rawBytes;
+    private final long storedBytes;
+    private final long millis;
+    private final int connections;
+    private final boolean sharedSnapshot;
+
+    public ExportSummary(int tables, long rows, long chunks, long rawBytes, long storedBytes,
+                         long millis, int connections, boolean sharedSnapshot) {
+        this.tables = tables;
+        this.rows = rows;
+        this.chunks = chunks;
+        this.rawBytes = rawBytes;
+        this.storedBytes = storedBytes;
+        this.millis = millis;
+        this.connections = connections;
+        this.sharedSnapshot = sharedSnapshot;
+    }
+
+    // Getters
+    public int getTables() {
+        return tables;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getChunks() {
+        return chunks;
+    }
+
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public boolean isSharedSnapshot() {
+        return sharedSnapshot;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportSummary{" +
+                "tables=" + tables +
+                ", rows=" + rows +
+                ", chunks=" + chunks +
+                ", rawBytes=" + rawBytes +
+                ", storedBytes=" + storedBytes +
+                ", millis=" + millis +
+                ", connections=" + connections +
+                ", sharedSnapshot=" + sharedSnapshot +
+                '}';
+    }
+}
@@ -0,0 +1,131 @@
+package models;
+
+import java.sql.Timestamp;
+
+/**
+ * LogSearchCriteria Model Class
+ * Filters for the admin log search; null fields are not filtered on
+ */
+public class LogSearchCriteria {
+    private Integer userId;
+    private Integer machineId;
+    private String actionType;
+    private String text;
+    private Timestamp from;
+    private Timestamp to;
+
+    // Constructors
+    public LogSearchCriteria() {}
+
+    public LogSearchCriteria(Integer userId, Integer machineId, String actionType, String text,
+                             Timestamp from, Timestamp to) {
+        this.userId = userId;
+        this.machineId = machineId;
+        this.actionType = blankToNull(actionType);
+        this.text = blankToNull(text);
+        this.from = from;
+        this.to = to;
+    }
+
+    private static String blankToNull(String s) {
+        return (s == null || s.trim().isEmpty()) ? null : s.trim();
+    }
+
+    /**
+     * Check a log against every filter (used for the in-memory window)
+     */
+    public boolean matches(ActivityLog log) {
+        if (userId != null && log.getUserId() != userId) return false;
+        if (machineId != null && log.getMachineId() != machineId) return false;
+        if (from != null && log.getLogDate().before(from)) return false;
+        if (to != null && !log.getLogDate().before(to)) return false;
+        String action = (log.getAction() == null) ? "" : log.getAction();
+        if (actionType != null && !action.regionMatches(true, 0, actionType, 0, actionType.length())) return false;
+        String lower = action.toLowerCase();
+        for (String term : getTextTerms()) {
+            if (isTraceId(term) ? !term.equals(log.getTraceId()) : !lower.contains(term)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * A search word that is a whole trace ID (32 hex digits) matches the log's trace_id
+     * instead of its action text
+     */
+    public static boolean isTraceId(String term) {
+        if (term.length() != 32) return false;
+        for (int i = 0; i < term.length(); i++) {
+            if (Character.digit(term.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Free-text words, lowercased; a log matches when its action contains all of them
+     * (a trace ID is matched against the log's trace instead, see isTraceId)
+     */
+    public String[] getTextTerms() {
+        return (text == null) ? new String[0] : text.toLowerCase().split("\\s+");
+    }
+
+    // Getters and Setters
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public Integer getMachineId() {
+        return machineId;
+    }
+
+    public void setMachineId(Integer machineId) {
+        this.machineId = machineId;
+    }
+
+    public String getActionType() {
+        return actionType;
+    }
+
+    public void setActionType(String actionType) {
+        this.actionType = blankToNull(actionType);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = blankToNull(text);
+    }
+
+    public Timestamp getFrom() {
+        return from;
+    }
+
+    public void setFrom(Timestamp from) {
+        this.from = from;
+    }
+
+    public Timestamp getTo() {
+        return to;
+    }
+
+    public void setTo(Timestamp to) {
+        this.to = to;
+    }
+
+    @Override
+    public String toString() {
+        return "LogSearchCriteria{" +
+                "userId=" + userId +
+                ", machineId=" + machineId +
+                ", actionType='" + actionType + '\'' +
+                ", text='" + text + '\'' +
+                ", from=" + from +
+                ", to=" + to +
+                '}';
+    }
+}
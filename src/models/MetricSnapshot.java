@@ -0,0 +1,98 @@
+package models;
+
+/**
+ * MetricSnapshot Model Class
+ * Point-in-time reading of one metric of the in-process registry. Counters
+ * and gauges only carry a value; histograms and timers also carry the number
+ * of samples, their mean and percentiles, in the metric's unit ("ns" for timers).
+ */
+public class MetricSnapshot {
+    private final String name;
+    private final String type;
+    private final String unit;
+    private final long count;
+    private final long value;
+    private final double mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long max;
+
+    public MetricSnapshot(String name, String type, String unit, long count, long value,
+                          double mean, long p50, long p90, long p99, long max) {
+        this.name = name;
+        this.type = type;
+        this.unit = unit;
+        this.count = count;
+        this.value = value;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    // Getters
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return "counter", "gauge", "histogram" or "timer"
+     */
+    public String getType() {
+        return type;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The counter total, the gauge reading, or the sum of all samples
+     */
+    public long getValue() {
+        return value;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public boolean isDistribution() {
+        return "histogram".equals(type) || "timer".equals(type);
+    }
+
+    @Override
+    public String toString() {
+        return "MetricSnapshot{" +
+                "name='" + name + '\'' +
+                ", type='" + type + '\'' +
+                ", count=" + count +
+                ", value=" + value +
+                ", p50=" + p50 +
+                ", p99=" + p99 +
+                ", max=" + max +
+                '}';
+    }
+}
@@ -0,0 +1,68 @@
+package models;
+
+/**
+ * RepositorySnapshot Model Class
+ * One backup in the deduplicating repository: the dump's size and SHA-256, how
+ * many chunks it references, and how many of them (and how many stored bytes)
+ * it added, i.e. what the backup actually cost in storage.
+ */
+public class RepositorySnapshot {
+    private final String id;
+    private final long createdAt;
+    private final long bytes;
+    private final String sha256;
+    private final int chunkCount;
+    private final int newChunks;
+    private final long newStoredBytes;
+
+    public RepositorySnapshot(String id, long createdAt, long bytes, String sha256,
+                              int chunkCount, int newChunks, long newStoredBytes) {
+        this.id = id;
+        this.createdAt = createdAt;
+        this.bytes = bytes;
+        this.sha256 = sha256;
+        this.chunkCount = chunkCount;
+        this.newChunks = newChunks;
+        this.newStoredBytes = newStoredBytes;
+    }
+
+    // Getters
+    public String getId() {
+        return id;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public int getNewChunks() {
+        return newChunks;
+    }
+
+    public long getNewStoredBytes() {
+        return newStoredBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "RepositorySnapshot{" +
+                "id='" + id + '\'' +
+                ", bytes=" + bytes +
+                ", chunkCount=" + chunkCount +
+                ", newChunks=" + newChunks +
+                ", newStoredBytes=" + newStoredBytes +
+                '}';
+    }
+}
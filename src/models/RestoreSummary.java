@@ -0,0 +1,84 @@
+package models;
+
+import java.util.Map;
+
+/**
+ * RestoreSummary Model Class
+ * What a parallel restore loaded: tables and rows, the backup bytes read, and
+ * where the time went - loading rows, then building the indexes and foreign
+ * keys that were deferred until the data was in. millis is the whole restore,
+ * i.e. the recovery time for this backup on this server. tableRows holds each
+ * table's row count as read from the export (checked against its end record).
+ */
+public class RestoreSummary {
+    private final int tables;
+    private final long rows;
+    private final long storedBytes;
+    private final long loadMillis;
+    private final long indexMillis;
+    private final long millis;
+    private final int connections;
+    private final Map<String, Long> tableRows;
+
+    public RestoreSummary(int tables, long rows, long storedBytes, long loadMillis,
+                          long indexMillis, long millis, int connections, Map<String, Long> tableRows) {
+        this.tables = tables;
+        this.rows = rows;
+        this.storedBytes = storedBytes;
+        this.loadMillis = loadMillis;
+        this.indexMillis = indexMillis;
+        this.millis = millis;
+        this.connections = connections;
+        this.tableRows = tableRows;
+    }
+
+    // Getters
+    public int getTables() {
+        return tables;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    public long getIndexMillis() {
+        return indexMillis;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public Map<String, Long> getTableRows() {
+        return tableRows;
+    }
+
+    public double getRowsPerSecond() {
+        return (millis > 0) ? rows * 1000.0 / millis : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "RestoreSummary{" +
+                "tables=" + tables +
+                ", rows=" + rows +
+                ", storedBytes=" + storedBytes +
+                ", loadMillis=" + loadMillis +
+                ", indexMillis=" + indexMillis +
+                ", millis=" + millis +
+                ", connections=" + connections +
+                '}';
+    }
+}
@@ -0,0 +1,61 @@
+package models;
+
+/**
+ * VolumeInfo Model Class
+ * One mounted volume as last sampled by the disk monitor: its key (drive
+ * letter without ":" or "\"), root path, label and free/total bytes.
+ * Instances are immutable; a new sample produces a new instance.
+ */
+public class VolumeInfo {
+    private final String key;
+    private final String rootPath;
+    private final String label;
+    private final long freeBytes;
+    private final long totalBytes;
+
+    public VolumeInfo(String key, String rootPath, String label, long freeBytes, long totalBytes) {
+        this.key = key;
+        this.rootPath = rootPath;
+        this.label = (label != null) ? label : "";
+        this.freeBytes = freeBytes;
+        this.totalBytes = totalBytes;
+    }
+
+    // Getters
+    public String getKey() {
+        return key;
+    }
+
+    public String getRootPath() {
+        return rootPath;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getFreeBytes() {
+        return freeBytes;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return "Label (C:\)", or just the root path for an unlabelled volume
+     */
+    public String getDisplayName() {
+        return label.isEmpty() ? rootPath : label + " (" + rootPath + ")";
+    }
+
+    @Override
+    public String toString() {
+        return "VolumeInfo{" +
+                "key='" + key + '\'' +
+                ", label='" + label + '\'' +
+                ", freeBytes=" + freeBytes +
+                ", totalBytes=" + totalBytes +
+                '}';
+    }
+}
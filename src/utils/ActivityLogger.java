@@ -1,6 +1,7 @@
 package utils;
 
 import dao.ActivityLogDAO;
+import dao.ActivityLogHistoryDAO;
 import dao.MachineDAO;
 import models.ActivityLog;
 import models.Machine;
@@ -12,27 +13,60 @@ import models.Machine;
 public class ActivityLogger {
     
     private static ActivityLogDAO activityLogDAO = new ActivityLogDAO();
+    private static ActivityLogHistoryDAO activityLogHistoryDAO = new ActivityLogHistoryDAO();
     private static MachineDAO machineDAO = new MachineDAO();
+    private static final Metrics.Histogram LOG_TIMER = Metrics.timer("activity.log");
+    private static final Metrics.Counter SPOOLED = Metrics.counter("activity.spooled");
+    private static final Metrics.Counter DROPPED = Metrics.counter("activity.dropped");
+
+    static {
+        // Pick up events spooled by a previous run
+        LogSpool.resumeReplay();
+    }
     
     /**
-     * Log a user activity
+     * Log a user activity. Inside a trace the row keeps the trace ID in trace_id
+     * (sql/007_activity_log_trace_ids.sql), so the row and the trace can be matched up.
      * @param userId User ID
      * @param machineId Machine ID
      * @param action Description of the action
-     * @return true if logged successfully, false otherwise
+     * @return true if logged or spooled successfully, false otherwise
      */
     public static boolean log(int userId, int machineId, String action) {
+        Tracing.Span span = Tracing.startSpan("activity.log");
+        try {
+            return write(userId, machineId, action, Tracing.currentTraceId());
+        } finally {
+            span.close();
+        }
+    }
+
+    private static boolean write(int userId, int machineId, String action, String traceId) {
+        ActivityLog log = new ActivityLog(userId, machineId, action);
+        log.setTraceId(traceId);
+        long start = System.nanoTime();
         try {
-            ActivityLog log = new ActivityLog(userId, machineId, action);
-            boolean success = activityLogDAO.createLog(log);
-            if (success) {
+            // While older events wait in the spool, queue behind them to keep the order;
+            // a traced log goes through insertLog, which writes its trace_id
+            if (!LogSpool.hasPending()
+                    && (traceId == null ? activityLogDAO.createLog(log) : activityLogHistoryDAO.insertLog(log))) {
+                LOG_TIMER.recordSince(start);
                 System.out.println("[Activity Log] User " + userId + " - " + action);
+                return true;
             }
-            return success;
         } catch (Exception e) {
             System.err.println("Error logging activity: " + e.getMessage());
-            return false;
         }
+        // Database unavailable (or behind): keep the event locally and replay it later
+        boolean spooled = LogSpool.append(log);
+        LOG_TIMER.recordSince(start);
+        if (spooled) {
+            SPOOLED.inc();
+            System.out.println("[Activity Log] Spooled for replay: User " + userId + " - " + action);
+        } else {
+            DROPPED.inc();
+        }
+        return spooled;
     }
     
     /**
@@ -54,6 +88,13 @@ public class ActivityLogger {
         }
     }
     
+    /** Action prefixes written by the methods below (offered as types in the admin log search) */
+    public static final String[] ACTION_TYPES = {
+        "User logged in", "User logged out", "Created partition", "Deleted partition",
+        "Modified partition", "Registered machine", "Created new user", "Deleted user",
+        "Modified user", "Changed password", "Synchronized", "Error"
+    };
+    
     // Predefined activity types for consistency
     
     public static boolean logLogin(int userId, int machineId) {
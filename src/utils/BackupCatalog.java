@@ -0,0 +1,278 @@
+package utils;
+
+import models.BackupCatalogEntry;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The backup chains of one destination, kept in "<stem>.catalog" next to the
+ * backup files (one tab-separated line per backup, oldest first):
+ *   id  type  parent  file  bytes  sha256  created  watermarks
+ * A chain is a full backup followed by increments, each naming the previous
+ * backup as its parent. Files are named "<stem>-<id>-full<ext>" / "-inc<ext>".
+ * Not thread-safe: backups and restores of one destination do not overlap.
+ */
+public class BackupCatalog {
+
+    private static final String SUFFIX = ".catalog";
+    private static final String HEADER = "# id\ttype\tparent\tfile\tbytes\tsha256\tcreated\twatermarks";
+
+    private final File dir;
+    private final String stem;
+    private final String extension;
+
+    private BackupCatalog(File dir, String stem, String extension) {
+        this.dir = dir;
+        this.stem = stem;
+        this.extension = extension;
+    }
+
+    /**
+     * Catalog of a configured destination, e.g. "X:\backups\onclick_backup.sql.gz"
+     * keeps "onclick_backup.catalog" and "onclick_backup-<id>-full.sql.gz" in X:\backups
+     */
+    public static BackupCatalog forDestination(String path) {
+        File target = new File(path).getAbsoluteFile();
+        String name = target.getName();
+        int dot = name.indexOf(".sql");
+        if (dot < 0) dot = name.indexOf('.');
+        if (dot <= 0) dot = name.length();
+        return new BackupCatalog(target.getParentFile(), name.substring(0, dot), name.substring(dot));
+    }
+
+    /**
+     * Find the catalog in the backup's folder that lists it
+     * @return The catalog, or null if the file is a standalone backup
+     */
+    public static BackupCatalog findFor(File backup) throws IOException {
+        File dir = backup.getAbsoluteFile().getParentFile();
+        File[] catalogs = (dir != null) ? dir.listFiles((d, name) -> name.endsWith(SUFFIX)) : null;
+        if (catalogs == null) return null;
+        for (File file : catalogs) {
+            String stem = file.getName().substring(0, file.getName().length() - SUFFIX.length());
+            BackupCatalog catalog = new BackupCatalog(dir, stem, "");
+            if (catalog.findByFile(backup.getName()) != null) return catalog;
+        }
+        return null;
+    }
+
+    public File getFile() {
+        return new File(dir, stem + SUFFIX);
+    }
+
+    /**
+     * @return Where the backup with this id is written
+     */
+    public File fileFor(String id, BackupCatalogEntry.Type type) {
+        return new File(dir, stem + "-" + id + (type == BackupCatalogEntry.Type.FULL ? "-full" : "-inc") + extension);
+    }
+
+    public File resolve(BackupCatalogEntry entry) {
+        return new File(dir, entry.getFileName());
+    }
+
+    /**
+     * @return Every entry, oldest first (empty if the catalog does not exist yet)
+     */
+    public List<BackupCatalogEntry> load() throws IOException {
+        File file = getFile();
+        List<BackupCatalogEntry> entries = new ArrayList<>();
+        if (!file.isFile()) return entries;
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            entries.add(parse(line));
+        }
+        return entries;
+    }
+
+    /**
+     * @return The newest entry, or null if there is none
+     */
+    public BackupCatalogEntry getLatest() throws IOException {
+        List<BackupCatalogEntry> entries = load();
+        return entries.isEmpty() ? null : entries.get(entries.size() - 1);
+    }
+
+    public BackupCatalogEntry findByFile(String fileName) throws IOException {
+        for (BackupCatalogEntry entry : load()) {
+            if (entry.getFileName().equals(fileName)) return entry;
+        }
+        return null;
+    }
+
+    /**
+     * @return Number of increments on top of the newest full backup (-1 if there is no full backup)
+     */
+    public int incrementsSinceFull() throws IOException {
+        List<BackupCatalogEntry> entries = load();
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i).isFull()) return entries.size() - 1 - i;
+        }
+        return -1;
+    }
+
+    /**
+     * Backups to restore, in order, to get the database to the state of the given one:
+     * its full backup and every increment up to and including it
+     * @throws IOException If the id is unknown or a parent link is missing
+     */
+    public List<BackupCatalogEntry> chainTo(String id) throws IOException {
+        Map<String, BackupCatalogEntry> byId = new LinkedHashMap<>();
+        for (BackupCatalogEntry entry : load()) byId.put(entry.getId(), entry);
+        List<BackupCatalogEntry> chain = new ArrayList<>();
+        BackupCatalogEntry entry = byId.get(id);
+        if (entry == null) throw new IOException("Backup " + id + " is not in " + getFile().getName());
+        while (true) {
+            chain.add(entry);
+            if (entry.isFull()) break;
+            BackupCatalogEntry parent = byId.get(entry.getParentId());
+            if (parent == null) {
+                throw new IOException("Backup " + entry.getId() + " needs " + entry.getParentId() + ", which is not in the catalog");
+            }
+            entry = parent;
+        }
+        Collections.reverse(chain);
+        return chain;
+    }
+
+    /**
+     * Check that a chain can be restored: it starts with a full backup, every increment
+     * follows its parent with watermarks that never go back, and every file is present
+     * with the recorded size and SHA-256 (this reads every file)
+     * @return null if the chain is intact, otherwise what is wrong
+     */
+    public String verify(List<BackupCatalogEntry> chain) {
+        if (chain.isEmpty() || !chain.get(0).isFull()) return "Chain does not start with a full backup";
+        BackupCatalogEntry previous = null;
+        for (BackupCatalogEntry entry : chain) {
+            if (previous != null) {
+                if (!previous.getId().equals(entry.getParentId())) {
+                    return entry.getFileName() + " does not follow " + previous.getFileName();
+                }
+                for (Map.Entry<String, Long> mark : previous.getWatermarks().entrySet()) {
+                    Long next = entry.getWatermarks().get(mark.getKey());
+                    if (next == null || next < mark.getValue()) {
+                        return entry.getFileName() + " goes back on " + mark.getKey() + " (" + next + " < " + mark.getValue() + ")";
+                    }
+                }
+            }
+            File file = resolve(entry);
+            if (!file.isFile()) return file.getName() + " is missing";
+            if (file.length() != entry.getBytes()) {
+                return file.getName() + " has " + file.length() + " bytes, catalog says " + entry.getBytes();
+            }
+            try {
+                String sha = sha256(file);
+                if (!sha.equals(entry.getSha256())) return file.getName() + " does not match its checksum (" + sha + ")";
+            } catch (IOException e) {
+                return "Cannot read " + file.getName() + ": " + e.getMessage();
+            }
+            previous = entry;
+        }
+        return null;
+    }
+
+    /**
+     * Record a backup that has been written and verified
+     */
+    public void append(BackupCatalogEntry entry) throws IOException {
+        List<BackupCatalogEntry> entries = load();
+        entries.add(entry);
+        save(entries);
+    }
+
+    /**
+     * Keep the newest keepChains chains; older backups are deleted with their entries
+     * @return The entries removed
+     */
+    public List<BackupCatalogEntry> prune(int keepChains) throws IOException {
+        List<BackupCatalogEntry> entries = load();
+        int fulls = 0;
+        int cut = 0;
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i).isFull() && ++fulls == keepChains) {
+                cut = i;
+                break;
+            }
+        }
+        if (fulls < keepChains || cut == 0) return new ArrayList<>();
+        List<BackupCatalogEntry> removed = new ArrayList<>(entries.subList(0, cut));
+        // Drop the entries first: a crash now leaves stray files, never entries without files
+        save(entries.subList(cut, entries.size()));
+        for (BackupCatalogEntry entry : removed) {
+            File file = resolve(entry);
+            file.delete();
+            new File(file.getPath() + ".sha256").delete();
+        }
+        return removed;
+    }
+
+    /**
+     * Rewrite the catalog atomically, so a crash leaves either the old or the new one
+     */
+    private void save(List<BackupCatalogEntry> entries) throws IOException {
+        File file = getFile();
+        File part = new File(file.getPath() + ".part");
+        try (FileOutputStream out = new FileOutputStream(part);
+             Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            w.write(HEADER + "\n");
+            for (BackupCatalogEntry entry : entries) w.write(format(entry) + "\n");
+            w.flush();
+            out.getFD().sync();
+        }
+        BackupManager.moveIntoPlace(part, file);
+    }
+
+    private static String format(BackupCatalogEntry e) {
+        StringBuilder marks = new StringBuilder();
+        for (Map.Entry<String, Long> mark : e.getWatermarks().entrySet()) {
+            if (marks.length() > 0) marks.append(',');
+            marks.append(mark.getKey()).append('=').append(mark.getValue());
+        }
+        return String.join("\t", e.getId(), e.getType().name(), e.getParentId() != null ? e.getParentId() : "-",
+                e.getFileName(), Long.toString(e.getBytes()), e.getSha256(), Long.toString(e.getCreatedAt()),
+                marks.length() > 0 ? marks.toString() : "-");
+    }
+
+    private BackupCatalogEntry parse(String line) throws IOException {
+        String[] f = line.split("\t");
+        if (f.length != 8) throw new IOException("Corrupt line in " + getFile().getName() + ": " + line);
+        try {
+            Map<String, Long> watermarks = new LinkedHashMap<>();
+            if (!f[7].equals("-")) {
+                for (String mark : f[7].split(",")) {
+                    int eq = mark.indexOf('=');
+                    watermarks.put(mark.substring(0, eq), Long.parseLong(mark.substring(eq + 1)));
+                }
+            }
+            return new BackupCatalogEntry(f[0], BackupCatalogEntry.Type.valueOf(f[1]), f[2].equals("-") ? null : f[2],
+                    f[3], Long.parseLong(f[4]), f[5], Long.parseLong(f[6]), watermarks);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt line in " + getFile().getName() + ": " + line, e);
+        }
+    }
+
+    private static String sha256(File file) throws IOException {
+        MessageDigest digest = BackupManager.sha256();
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[256 * 1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) digest.update(buffer, 0, n);
+        }
+        return BackupManager.toHex(digest.digest());
+    }
+}
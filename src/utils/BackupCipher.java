@@ -0,0 +1,201 @@
+package utils;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Authenticated encryption of a backup stream, block by block (AES-256-GCM)
+ *
+ * File layout: "OCB1", 16-byte salt, then frames of [4-byte length][ciphertext + tag].
+ * The key is derived from the passphrase and the salt (PBKDF2, fresh salt per file);
+ * frame i uses the block index as nonce and carries a "last" flag in its
+ * authenticated data, and an empty last frame closes the file. Reordered,
+ * altered or truncated files therefore fail to decrypt instead of restoring
+ * partial data. Frames are sealed independently, so blocks can be encrypted
+ * in parallel.
+ */
+public class BackupCipher {
+
+    public static final byte[] MAGIC = "OCB1".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int SALT_BYTES = 16;
+    private static final int TAG_BITS = 128;
+    private static final int KDF_ITERATIONS = 210_000;
+    // A block never grows past this once sealed; anything larger is a corrupt length
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    private final SecretKey key;
+    private final byte[] salt;
+
+    private BackupCipher(char[] passphrase, byte[] salt) throws GeneralSecurityException {
+        this.salt = salt;
+        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+        byte[] raw = factory.generateSecret(new PBEKeySpec(passphrase, salt, KDF_ITERATIONS, 256)).getEncoded();
+        this.key = new SecretKeySpec(raw, "AES");
+    }
+
+    /**
+     * New cipher with a random salt, for writing one backup file
+     */
+    public static BackupCipher forEncryption(char[] passphrase) throws GeneralSecurityException {
+        byte[] salt = new byte[SALT_BYTES];
+        new SecureRandom().nextBytes(salt);
+        return new BackupCipher(passphrase, salt);
+    }
+
+    /**
+     * @return Magic and salt; written once before the first frame
+     */
+    public byte[] header() {
+        byte[] header = Arrays.copyOf(MAGIC, MAGIC.length + SALT_BYTES);
+        System.arraycopy(salt, 0, header, MAGIC.length, SALT_BYTES);
+        return header;
+    }
+
+    /**
+     * Encrypt one block into a length-prefixed frame (thread-safe)
+     * @param index Position of the block in the file, from 0
+     * @param last True only for the closing frame
+     */
+    public byte[] seal(byte[] block, int length, long index, boolean last) throws GeneralSecurityException {
+        Cipher cipher = cipher(Cipher.ENCRYPT_MODE, index, last);
+        byte[] frame = new byte[4 + cipher.getOutputSize(length)];
+        int n = cipher.doFinal(block, 0, length, frame, 4);
+        ByteBuffer.wrap(frame).putInt(0, n);
+        return frame;
+    }
+
+    /**
+     * Plaintext of an encrypted backup; read() fails if any frame does not authenticate
+     * or the closing frame is missing. Check isComplete() at the end when another stream
+     * reads on top of this one (GZIPInputStream takes a failed read between members for
+     * the end of its input).
+     * @param in Positioned after the magic
+     */
+    public static DecryptingStream decrypting(InputStream in, char[] passphrase) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] salt = new byte[SALT_BYTES];
+        data.readFully(salt);
+        BackupCipher cipher;
+        try {
+            cipher = new BackupCipher(passphrase, salt);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot derive backup key: " + e.getMessage(), e);
+        }
+        return cipher.new DecryptingStream(data);
+    }
+
+    private Cipher cipher(int mode, long index, boolean last) throws GeneralSecurityException {
+        byte[] nonce = new byte[12];
+        ByteBuffer.wrap(nonce).putLong(4, index);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(mode, key, new GCMParameterSpec(TAG_BITS, nonce));
+        cipher.updateAAD(new byte[]{(byte) (last ? 1 : 0)});
+        return cipher;
+    }
+
+    public class DecryptingStream extends InputStream {
+        private final DataInputStream in;
+        private byte[] block = new byte[0];
+        private int pos = 0;
+        private long index = 0;
+        private boolean done = false;
+
+        DecryptingStream(DataInputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * @return True once the closing frame has been read and authenticated
+         */
+        public boolean isComplete() {
+            return done;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) return -1;
+            return block[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!fill()) return -1;
+            int n = Math.min(len, block.length - pos);
+            System.arraycopy(block, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        /**
+         * Non-zero while frames remain: GZIPInputStream only looks for a further member
+         * (one per block) when its source reports available bytes
+         */
+        @Override
+        public int available() {
+            return (pos < block.length) ? block.length - pos : (done ? 0 : 1);
+        }
+
+        private boolean fill() throws IOException {
+            while (pos == block.length) {
+                if (done) return false;
+                byte[] frame;
+                try {
+                    int length = in.readInt();
+                    if (length < 0 || length > MAX_FRAME_BYTES) throw new IOException("Encrypted backup is corrupt (frame " + index + ")");
+                    frame = new byte[length];
+                    in.readFully(frame);
+                } catch (EOFException e) {
+                    throw new IOException("Encrypted backup is truncated (no closing frame)");
+                }
+                block = open(frame);
+                pos = 0;
+                index++;
+            }
+            return true;
+        }
+
+        /**
+         * Decrypt a frame, trying the closing-frame flag when the normal one does not authenticate
+         */
+        private byte[] open(byte[] frame) throws IOException {
+            try {
+                return cipher(Cipher.DECRYPT_MODE, index, false).doFinal(frame);
+            } catch (AEADBadTagException notData) {
+                try {
+                    byte[] last = cipher(Cipher.DECRYPT_MODE, index, true).doFinal(frame);
+                    done = true;
+                    if (in.read() != -1) throw new IOException("Encrypted backup has data after its closing frame");
+                    return last;
+                } catch (AEADBadTagException e) {
+                    throw new IOException("Encrypted backup failed authentication at frame " + index
+                            + " (wrong passphrase or damaged file)");
+                } catch (GeneralSecurityException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -1,73 +1,1413 @@
 package utils;
 
+import dao.BackupDAO;
+import dao.ChangeFeedDAO;
+import database.DatabaseConnection;
+import models.BackupCatalogEntry;
+import models.BackupResult;
+import models.RepositorySnapshot;
+import models.RestoreSummary;
+import models.ChangeSet;
+
 import javax.swing.*;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.SequenceInputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Database backup: mysqldump runs once and its output is streamed to every
+ * destination in parallel, with no intermediate file
+ * - the dump is cut into blocks that are gzip-compressed on several threads
+ *   (backup.compress.level, default 6, 0 = plain SQL; backup.compress.threads)
+ *   and, if backup.encryption.passphrase is set, sealed with AES-GCM (BackupCipher);
+ *   the destination names get ".gz" / ".enc" accordingly
+ * - each destination has its own writer thread and a small buffer, so a slow
+ *   destination only delays itself until its buffer is full, and one that
+ *   accepts nothing for backup.stall.seconds (default 30) is dropped
+ * - every copy is written to "<file>.part", checked against the SHA-256 of what
+ *   was sent, then moved over the previous backup with a "<file>.sha256" beside it;
+ *   a failed destination keeps its previous backup
+ * - destinations come from backup.destinations (separated by ';'), mysqldump
+ *   from backup.mysqldump
+ * - backups form chains: a full dump, then increments holding only what changed
+ *   (activity_logs/change_log/capacity_samples rows past the last watermark,
+ *   users/machines/partitions rows changed since the last change version, the small
+ *   rollup tables whole), all read from one SnapshotSql transaction; every destination keeps a BackupCatalog, a new chain starts every
+ *   backup.full.every backups and backup.keep.chains chains are kept
+ * - with backup.format=native every backup is a full ParallelExporter export (".ocx")
+ *   written to the destinations the same way, instead of a mysqldump chain;
+ *   verifyBackup restores such an export into a scratch schema to prove it loads
+ *   and matches the live tables (COUNT(*) and CHECKSUM TABLE)
+ * - if backup.repository is set, full dumps go to a deduplicating BackupRepository
+ *   there instead of the destinations: only chunks no earlier backup had are stored.
+ *   Its chunks are not encrypted and it has no fan-out, so a backup fails rather than
+ *   run with backup.encryption.passphrase or backup.destinations also set
+ */
 public class BackupManager {
 
-    // Change this if your MySQL is installed elsewhere
+    public interface ProgressListener {
+        /**
+         * Called on the backup/restore thread a few times per second
+         * @param sqlBytes SQL dumped (or restored) so far
+         * @param storedBytes Bytes written to (or read from) the backup file so far
+         */
+        void onProgress(long sqlBytes, long storedBytes);
+    }
+
+    // Defaults if database.properties does not set backup.mysqldump / backup.destinations
     private static final String MYSQLDUMP_PATH = "C:\\xampp\\mysql\\bin\\mysqldump.exe";
-    private static final String DB_NAME = "onclick_db";
-    private static final String DB_USER = "root"; // using root
-    private static final String DB_PASSWORD = ""; // empty password
+    private static final String MYSQL_PATH = "C:\\xampp\\mysql\\bin\\mysql.exe";
+    private static final String BACKUP_PATHS =
+            "X:\\backups\\onclick_backup.sql;G:\\My Drive\\OneclickPartitionBackup\\onclick_backup.sql";
+    // The clients connect with the application's own settings (db.url, db.user, db.password)
+    private static final String DB_NAME = DatabaseConnection.getDatabaseName();
+    private static final String DB_USER = DatabaseConnection.getUser();
+    private static final String DB_PASSWORD = DatabaseConnection.getPassword();
+
+    // Compression block; blocks are compressed independently
+    private static final int CHUNK_BYTES = 256 * 1024;
+    // Up to 4 MB buffered per destination
+    private static final int QUEUE_CHUNKS = 16;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    private static final byte[] END = new byte[0];
+
+    // Tables restored from change_log ids, parents first, with their id columns
+    private static final String[][] VERSIONED_TABLES = {
+            {"users", "user_id"}, {"machines", "machine_id"}, {"partitions", "partition_id"}};
+    // Small derived tables, copied whole into every increment when they exist
+    private static final String[] WHOLE_TABLES = {"activity_log_daily", "capacity_hourly", "capacity_daily"};
+    // More changed ids than this and the whole table is cheaper to dump than an IN list
+    private static final int MAX_CHANGED_IDS = 1000;
+    // Log ids are taken before their insert commits; re-copying a few keeps a late commit
+    // from falling behind the watermark (REPLACE makes the overlap harmless)
+    private static final long LOG_OVERLAP_IDS = 100;
+    // Consoles stamp capacity samples with their own clocks; re-copying the last hour
+    // keeps a late insert or a clock a little behind from falling behind the watermark
+    private static final long SAMPLE_OVERLAP_SECONDS = 3600;
+
+    public static String getMysqldumpPath() {
+        return DatabaseConnection.getProperty("backup.mysqldump", MYSQLDUMP_PATH);
+    }
+
+    public static String getMysqlPath() {
+        return DatabaseConnection.getProperty("backup.mysql", MYSQL_PATH);
+    }
+
+    /**
+     * @return Backup files to write, with the extension of the configured format
+     */
+    public static List<String> getDestinations() {
+        boolean exports = isNativeFormat();
+        String suffix = (getCompressionLevel() > 0 ? ".gz" : "") + (getPassphrase() != null ? ".enc" : "");
+        List<String> destinations = new ArrayList<>();
+        for (String path : DatabaseConnection.getProperty("backup.destinations", BACKUP_PATHS).split(";")) {
+            path = path.trim();
+            if (path.isEmpty()) continue;
+            if (exports) {
+                // "onclick_backup.sql" keeps its stem: onclick_backup-<id>-full.ocx
+                if (path.endsWith(".sql")) path = path.substring(0, path.length() - ".sql".length());
+                destinations.add(path.endsWith(ExportFormat.SUFFIX) ? path : path + ExportFormat.SUFFIX);
+            } else {
+                destinations.add(path.endsWith(suffix) ? path : path + suffix);
+            }
+        }
+        return destinations;
+    }
+
+    /**
+     * @return Whether backups are native exports (backup.format=native) rather than mysqldump SQL
+     */
+    public static boolean isNativeFormat() {
+        return "native".equalsIgnoreCase(DatabaseConnection.getProperty("backup.format", "sql"));
+    }
+
+    /**
+     * @return Where the repository keeps its manifests, or null if backup.repository is not set
+     */
+    public static File getRepositoryManifestDir() {
+        String repository = DatabaseConnection.getProperty("backup.repository", "");
+        return repository.isEmpty() ? null : new BackupRepository(new File(repository)).getManifestDir();
+    }
+
+    static int getCompressionLevel() {
+        return (int) Math.min(9, Math.max(0, DatabaseConnection.getLongProperty("backup.compress.level", 6)));
+    }
+
+    /**
+     * @return The encryption passphrase, or null if backups are not encrypted
+     */
+    private static char[] getPassphrase() {
+        String passphrase = DatabaseConnection.getProperty("backup.encryption.passphrase", "");
+        return passphrase.isEmpty() ? null : passphrase.toCharArray();
+    }
+
+    /**
+     * Dump the database once and write it to every destination (call off the EDT):
+     * an increment on top of the previous backup when every destination has it,
+     * otherwise a full backup that starts a new chain
+     * @param progress Notified while the dump runs (may be null)
+     * @return One result per destination, in configuration order
+     */
+    public static List<BackupResult> backupDatabase(ProgressListener progress) {
+        List<String> destinations = getDestinations();
+        long start = System.currentTimeMillis();
+        String repository = DatabaseConnection.getProperty("backup.repository", "");
+        if (isNativeFormat()) {
+            if (getPassphrase() != null) {
+                return failAll(destinations, start, "backup.format=native exports are not encrypted; "
+                        + "clear backup.encryption.passphrase or backup.format");
+            }
+            if (!repository.isEmpty()) {
+                return failAll(destinations, start, "backup.format=native cannot be stored in backup.repository; "
+                        + "clear one of them");
+            }
+        } else if (!new File(getMysqldumpPath()).exists()) {
+            return failAll(destinations, start, "Cannot find mysqldump at " + getMysqldumpPath());
+        }
+        if (!repository.isEmpty()) {
+            String conflict = getRepositoryConflict();
+            if (conflict != null) {
+                return List.of(BackupResult.failure(repository, 0, System.currentTimeMillis() - start, conflict));
+            }
+            return List.of(backupToRepository(new File(repository), start, progress));
+        }
+        if (destinations.isEmpty()) return new ArrayList<>();
+
+        List<BackupCatalog> catalogs = new ArrayList<>();
+        for (String path : destinations) catalogs.add(BackupCatalog.forDestination(path));
+        BackupPlan plan = planBackup(catalogs, start);
+        List<String> paths = new ArrayList<>();
+        for (BackupCatalog catalog : catalogs) paths.add(catalog.fileFor(plan.id, plan.type).getPath());
+
+        List<BackupResult> results;
+        try (InputStream sql = plan.open()) {
+            results = storeStream(sql, paths, start, progress, plan.exported);
+        } catch (IOException e) {
+            return failAll(paths, start, "Backup error: " + e.getMessage());
+        }
+
+        int keepChains = (int) Math.max(1, DatabaseConnection.getLongProperty("backup.keep.chains", 2));
+        for (int i = 0; i < results.size(); i++) {
+            BackupResult r = results.get(i);
+            if (!r.isSuccess()) continue;
+            BackupCatalog catalog = catalogs.get(i);
+            try {
+                catalog.append(new BackupCatalogEntry(plan.id, plan.type, plan.parentId,
+                        new File(r.getDestination()).getName(), new File(r.getDestination()).length(),
+                        r.getSha256(), start, plan.watermarks));
+                for (BackupCatalogEntry old : catalog.prune(keepChains)) {
+                    System.out.println("Backup pruned: " + catalog.resolve(old).getPath());
+                }
+            } catch (IOException e) {
+                // Without its entry the file cannot be chained, so the next backup will be full
+                results.set(i, BackupResult.failure(r.getDestination(), r.getBytes(), r.getMillis(),
+                        "Written, but the catalog update failed: " + e.getMessage()));
+            }
+        }
+        return results;
+    }
 
-    private static final String[] BACKUP_PATHS = {
-            "X:\\backups\\onclick_backup.sql",
-            "G:\\My Drive\\OneclickPartitionBackup\\onclick_backup.sql"
-    };
+    /**
+     * @return Why backup.repository cannot be used with the other settings, or null if it can
+     */
+    private static String getRepositoryConflict() {
+        if (getPassphrase() != null) {
+            return "backup.repository does not encrypt its chunks; clear backup.encryption.passphrase "
+                    + "or backup.repository";
+        }
+        if (!DatabaseConnection.getProperty("backup.destinations", "").isEmpty()) {
+            return "backup.repository replaces backup.destinations; clear one of them";
+        }
+        return null;
+    }
 
-    public static String backupDatabase() {
+    /**
+     * Dump the whole database into the repository, then apply its retention policy
+     * (backup.repository.keep.daily / .weekly / .monthly) and delete unreferenced chunks
+     * @return Outcome: the destination is the new manifest, getBytes() the size of the dump
+     */
+    private static BackupResult backupToRepository(File dir, long start, ProgressListener progress) {
+        BackupRepository repository = new BackupRepository(dir);
+        int threads = (int) Math.max(1, DatabaseConnection.getLongProperty("backup.compress.threads",
+                Runtime.getRuntime().availableProcessors()));
+        RepositorySnapshot snapshot;
         try {
-            File mysqldump = new File(MYSQLDUMP_PATH);
-            if (!mysqldump.exists()) {
-                JOptionPane.showMessageDialog(null,
-                        "Backup Error\nCannot find mysqldump.exe. Please check path:\n" + MYSQLDUMP_PATH,
-                        "Backup Error", JOptionPane.ERROR_MESSAGE);
-                return null;
-            }
-
-            for (String path : BACKUP_PATHS) {
-                File backupFile = new File(path);
-                backupFile.getParentFile().mkdirs(); // create parent directories if not exist
-
-                // Build command
-                String command;
-                if (DB_PASSWORD.isEmpty()) {
-                    command = String.format("\"%s\" -u%s --databases %s -r \"%s\"",
-                            MYSQLDUMP_PATH, DB_USER, DB_NAME, path);
-                } else {
-                    command = String.format("\"%s\" -u%s -p%s --databases %s -r \"%s\"",
-                            MYSQLDUMP_PATH, DB_USER, DB_PASSWORD, DB_NAME, path);
-                }
-
-                // Execute backup
-                Process process = Runtime.getRuntime().exec(command);
-                int exitCode = process.waitFor();
-                if (exitCode != 0) {
-                    JOptionPane.showMessageDialog(null,
-                            "Backup failed at path:\n" + path,
-                            "Backup Error", JOptionPane.ERROR_MESSAGE);
-                    return null;
+            Closeable lock = repository.lock();
+            try (InputStream sql = new DumpStream(clientCommand(getMysqldumpPath(),
+                    "--single-transaction", "--databases", DB_NAME))) {
+                snapshot = repository.backup(sql, getCompressionLevel(), threads, progress);
+                System.out.printf("Backup %s: %,d bytes in %d chunks, %d new (%,d bytes stored)%n", snapshot.getId(),
+                        snapshot.getBytes(), snapshot.getChunkCount(), snapshot.getNewChunks(), snapshot.getNewStoredBytes());
+                try {
+                    for (RepositorySnapshot old : repository.applyRetention(
+                            (int) DatabaseConnection.getLongProperty("backup.repository.keep.daily", 7),
+                            (int) DatabaseConnection.getLongProperty("backup.repository.keep.weekly", 4),
+                            (int) DatabaseConnection.getLongProperty("backup.repository.keep.monthly", 12))) {
+                        System.out.println("Backup pruned: " + old.getId());
+                    }
+                    long[] freed = repository.collectGarbage();
+                    long[] usage = repository.usage();
+                    System.out.printf("Backup repository: %,d chunks removed (%,d bytes), %,d chunks (%,d bytes) kept%n",
+                            freed[0], freed[1], usage[0], usage[1]);
+                } catch (IOException e) {
+                    // The backup itself is complete; clean-up is retried next time
+                    System.err.println("Error cleaning up backup repository: " + e.getMessage());
                 }
+            } finally {
+                lock.close();
+            }
+        } catch (IOException e) {
+            return BackupResult.failure(dir.getPath(), 0, System.currentTimeMillis() - start, "Backup error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BackupResult.failure(dir.getPath(), 0, System.currentTimeMillis() - start, "Backup interrupted");
+        }
+        return BackupResult.success(repository.manifestFile(snapshot.getId()).getPath(), snapshot.getBytes(),
+                snapshot.getSha256(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Compress/encrypt a SQL stream once and write it to every path, keeping only
+     * copies that match what was sent (the stream's read errors fail every path)
+     * @param stored Write the stream as it is (a native export is already compressed)
+     */
+    private static List<BackupResult> storeStream(InputStream sql, List<String> paths, long start,
+                                                  ProgressListener progress, boolean stored) {
+        long stallSeconds = Math.max(1, DatabaseConnection.getLongProperty("backup.stall.seconds", 30));
+        int level = stored ? 0 : getCompressionLevel();
+        int threads = (int) Math.max(1, DatabaseConnection.getLongProperty("backup.compress.threads",
+                Runtime.getRuntime().availableProcessors()));
+        char[] passphrase = stored ? null : getPassphrase();
+        BackupCipher cipher = null;
+        if (passphrase != null) {
+            try {
+                cipher = BackupCipher.forEncryption(passphrase);
+            } catch (GeneralSecurityException e) {
+                return failAll(paths, start, "Cannot set up encryption: " + e.getMessage());
+            }
+        }
+        final BackupCipher blockCipher = cipher;
+
+        ExecutorService writers = Executors.newFixedThreadPool(paths.size(), r -> {
+            Thread t = new Thread(r, "BackupWriter");
+            t.setDaemon(true);
+            return t;
+        });
+        List<Destination> destinations = new ArrayList<>();
+        Fanout fanout = new Fanout(destinations);
+        try {
+            for (String path : paths) {
+                Destination d = new Destination(path, start, stallSeconds);
+                d.future = writers.submit(d::write);
+                destinations.add(d);
             }
 
-            // Success
-            return "Backup successful!\nSaved to:\n" + String.join("\n", BACKUP_PATHS);
+            long dumped = 0;
+            long lastProgress = 0;
+            if (blockCipher != null) fanout.accept(blockCipher.header());
+            try (ParallelBlockEncoder encoder = new ParallelBlockEncoder("BackupEncoder", threads,
+                         (block, length, index) -> encodeBlock(block, length, index, level, blockCipher), fanout)) {
+                while (true) {
+                    // The encoder keeps the block until it is written, so every block is its own array
+                    byte[] block = new byte[CHUNK_BYTES];
+                    int n = sql.readNBytes(block, 0, CHUNK_BYTES);
+                    if (n <= 0) break;
+                    dumped += n;
+                    encoder.write(block, n);
+                    long now = System.currentTimeMillis();
+                    if (progress != null && now - lastProgress >= PROGRESS_INTERVAL_MS) {
+                        lastProgress = now;
+                        progress.onProgress(dumped, fanout.bytes);
+                    }
+                }
+                encoder.finish();
+                if (blockCipher != null) {
+                    fanout.accept(blockCipher.seal(new byte[0], 0, encoder.getBlockCount(), true));
+                }
+            }
+            if (progress != null) progress.onProgress(dumped, fanout.bytes);
 
-        } catch (IOException | InterruptedException e) {
+            String sha = toHex(fanout.digest.digest());
+            for (Destination d : destinations) d.finish(sha, null);
+            return collect(destinations, stallSeconds);
+        } catch (IOException | GeneralSecurityException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
-                    "Backup Error\n" + e.getMessage(),
+            for (Destination d : destinations) d.finish(null, "Backup error: " + e.getMessage());
+            return collect(destinations, stallSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (Destination d : destinations) d.finish(null, "Backup interrupted");
+            return collect(destinations, stallSeconds);
+        } finally {
+            writers.shutdown();
+        }
+    }
+
+    /**
+     * Stream a backup into the mysql client (call off the EDT); the format (plain SQL,
+     * gzip, encrypted) is read from the file itself, and nothing is unpacked to disk.
+     * A repository manifest is reassembled from its chunks, and a native export is
+     * loaded in parallel by ParallelRestorer without the mysql client.
+     * @param progress Notified while the restore runs (may be null)
+     * @return Outcome: getBytes() is the SQL restored, getSha256() the checksum of the file read
+     */
+    public static BackupResult restoreDatabase(File backup, ProgressListener progress) {
+        if (ExportFormat.isExport(backup)) return restoreExport(backup, progress);
+        long start = System.currentTimeMillis();
+        String mysql = getMysqlPath();
+        if (!new File(mysql).exists()) {
+            return BackupResult.failure(backup.getPath(), 0, 0, "Cannot find mysql client at " + mysql);
+        }
+        MessageDigest digest = sha256();
+        long restored = 0;
+        Process process = null;
+        File errFile = null;
+        boolean snapshot = backup.getName().endsWith(BackupRepository.MANIFEST_SUFFIX);
+        try (CountingInputStream file = new CountingInputStream(new DigestInputStream(
+                     snapshot ? BackupRepository.openSnapshot(backup) : new FileInputStream(backup), digest));
+             InputStream sql = snapshot ? file : openBackup(new BufferedInputStream(file, CHUNK_BYTES))) {
+            ProcessBuilder pb = new ProcessBuilder(clientCommand(mysql));
+            if (!DB_PASSWORD.isEmpty()) pb.environment().put("MYSQL_PWD", DB_PASSWORD);
+            errFile = File.createTempFile("mysql", ".err");
+            pb.redirectError(errFile);
+            pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            process = pb.start();
+
+            long lastProgress = 0;
+            String readError = null;
+            String clientError = null;
+            try (OutputStream client = process.getOutputStream()) {
+                byte[] buffer = new byte[CHUNK_BYTES];
+                while (true) {
+                    int n;
+                    try {
+                        n = sql.read(buffer);
+                    } catch (IOException e) {
+                        // Damaged backup: stop the client rather than let it run a cut-off statement
+                        readError = (e.getMessage() != null) ? e.getMessage() : e.toString();
+                        process.destroyForcibly();
+                        break;
+                    }
+                    if (n <= 0) break;
+                    client.write(buffer, 0, n);
+                    restored += n;
+                    long now = System.currentTimeMillis();
+                    if (progress != null && now - lastProgress >= PROGRESS_INTERVAL_MS) {
+                        lastProgress = now;
+                        progress.onProgress(restored, file.count);
+                    }
+                }
+            } catch (IOException e) {
+                // The client quit early; its exit code says why
+                clientError = e.toString();
+            }
+            int exitCode = process.waitFor();
+            if (progress != null) progress.onProgress(restored, file.count);
+            long millis = System.currentTimeMillis() - start;
+            if (readError != null) {
+                return BackupResult.failure(backup.getPath(), restored, millis, "Restore stopped: " + readError);
+            }
+            if (exitCode != 0) {
+                return BackupResult.failure(backup.getPath(), restored, millis,
+                        "mysql exited with code " + exitCode + errorText(errFile));
+            }
+            if (clientError != null) {
+                return BackupResult.failure(backup.getPath(), restored, millis, "Restore stopped: " + clientError);
+            }
+            String sha = toHex(digest.digest());
+            String expected = readChecksum(backup);
+            if (expected != null && !expected.equals(sha)) {
+                return BackupResult.failure(backup.getPath(), restored, millis,
+                        "Restored, but the file does not match its .sha256 (" + sha + ")");
+            }
+            return BackupResult.success(backup.getPath(), restored, sha, millis);
+        } catch (IOException e) {
+            return BackupResult.failure(backup.getPath(), restored, System.currentTimeMillis() - start,
+                    "Restore error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BackupResult.failure(backup.getPath(), restored, System.currentTimeMillis() - start, "Restore interrupted");
+        } finally {
+            if (process != null && process.isAlive()) process.destroyForcibly();
+            if (errFile != null) errFile.delete();
+        }
+    }
+
+    /**
+     * Load a native export into the database with ParallelRestorer
+     * @return Outcome: getBytes() is the size of the export read
+     */
+    private static BackupResult restoreExport(File backup, ProgressListener progress) {
+        long start = System.currentTimeMillis();
+        MessageDigest digest = sha256();
+        try (InputStream in = new BufferedInputStream(
+                new DigestInputStream(new FileInputStream(backup), digest), CHUNK_BYTES)) {
+            RestoreSummary summary = ParallelRestorer.fromConfig().restore(in, DB_NAME, progress);
+            System.out.printf("Restored %,d rows in %d tables: %.1f s loading, %.1f s building indexes%n",
+                    summary.getRows(), summary.getTables(), summary.getLoadMillis() / 1000.0, summary.getIndexMillis() / 1000.0);
+            String sha = toHex(digest.digest());
+            String expected = readChecksum(backup);
+            if (expected != null && !expected.equals(sha)) {
+                return BackupResult.failure(backup.getPath(), summary.getStoredBytes(), System.currentTimeMillis() - start,
+                        "Restored, but the file does not match its .sha256 (" + sha + ")");
+            }
+            return BackupResult.success(backup.getPath(), summary.getStoredBytes(), sha, System.currentTimeMillis() - start);
+        } catch (IOException | SQLException e) {
+            return BackupResult.failure(backup.getPath(), 0, System.currentTimeMillis() - start,
+                    "Restore error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BackupResult.failure(backup.getPath(), 0, System.currentTimeMillis() - start, "Restore interrupted");
+        }
+    }
+
+    /**
+     * @return Schema verifyBackup restores into (backup.verify.schema, default "<database>_restore_check")
+     */
+    public static String getVerifySchema() {
+        return DatabaseConnection.getProperty("backup.verify.schema", DB_NAME + "_restore_check");
+    }
+
+    /**
+     * Prove a native export restores, without touching the live database (call off the EDT):
+     * it is loaded into the scratch schema with ParallelRestorer, every table there must hold
+     * the rows the export counted and match the live table by COUNT(*) and CHECKSUM TABLE,
+     * and the restored tables are removed again. Verify a fresh export: rows written to the
+     * live database since the export show up as differences.
+     * The scratch schema must not exist or be empty; it is dropped only if this run created it.
+     * @param progress Notified while the restore runs (may be null)
+     * @return Outcome: getBytes() is the size of the export read, getMillis() the recovery time
+     */
+    public static BackupResult verifyBackup(File backup, ProgressListener progress) {
+        long start = System.currentTimeMillis();
+        if (!ExportFormat.isExport(backup)) {
+            return BackupResult.failure(backup.getPath(), 0, 0,
+                    "Only native exports (" + ExportFormat.SUFFIX + ") can be verified in a scratch schema");
+        }
+        String schema = getVerifySchema();
+        if (schema.equalsIgnoreCase(DB_NAME)) {
+            return BackupResult.failure(backup.getPath(), 0, 0, "backup.verify.schema must not be the live database");
+        }
+        boolean created;
+        try (Connection conn = DatabaseConnection.openConnection(new Properties())) {
+            created = !schemaExists(conn, schema);
+            if (!created && !listTables(conn, schema).isEmpty()) {
+                return BackupResult.failure(backup.getPath(), 0, 0, "Scratch schema " + schema
+                        + " already holds tables; empty it or set backup.verify.schema to another name");
+            }
+        } catch (SQLException e) {
+            return BackupResult.failure(backup.getPath(), 0, 0, "Verify error: " + e.getMessage());
+        }
+        MessageDigest digest = sha256();
+        RestoreSummary summary = null;
+        try {
+            try (InputStream in = new BufferedInputStream(
+                    new DigestInputStream(new FileInputStream(backup), digest), CHUNK_BYTES)) {
+                summary = ParallelRestorer.fromConfig().restore(in, schema, progress);
+            }
+            long millis = System.currentTimeMillis() - start;
+            List<String> mismatches = new ArrayList<>();
+            try (Connection conn = DatabaseConnection.openConnection(new Properties())) {
+                for (String table : listTables(conn, DB_NAME)) {
+                    if (!summary.getTableRows().containsKey(table)) {
+                        mismatches.add(table + " is not in the export");
+                    }
+                }
+                for (Map.Entry<String, Long> table : summary.getTableRows().entrySet()) {
+                    String copy = ParallelExporter.quote(schema) + "." + ParallelExporter.quote(table.getKey());
+                    String source = ParallelExporter.quote(DB_NAME) + "." + ParallelExporter.quote(table.getKey());
+                    long rows = countRows(conn, copy);
+                    if (rows != table.getValue()) {
+                        mismatches.add(table.getKey() + " has " + rows + " rows, the export " + table.getValue());
+                        continue;
+                    }
+                    long sourceRows = countRows(conn, source);
+                    long sum = checksumTable(conn, copy);
+                    long sourceSum = checksumTable(conn, source);
+                    if (rows != sourceRows || sum != sourceSum) {
+                        mismatches.add(table.getKey() + ": source has " + sourceRows + " rows (checksum " + sourceSum
+                                + "), restored copy " + rows + " (checksum " + sum + ")");
+                    }
+                }
+            }
+            System.out.printf("Verified %s in %s: %,d rows in %d tables, recovery time %.1f s%n", backup.getName(),
+                    schema, summary.getRows(), summary.getTables(), millis / 1000.0);
+            if (!mismatches.isEmpty()) {
+                return BackupResult.failure(backup.getPath(), summary.getStoredBytes(), millis,
+                        "Restored copy differs: " + String.join("; ", mismatches));
+            }
+            String sha = toHex(digest.digest());
+            String expected = readChecksum(backup);
+            if (expected != null && !expected.equals(sha)) {
+                return BackupResult.failure(backup.getPath(), summary.getStoredBytes(), millis,
+                        "Restored, but the file does not match its .sha256 (" + sha + ")");
+            }
+            return BackupResult.success(backup.getPath(), summary.getStoredBytes(), sha, millis);
+        } catch (IOException | SQLException e) {
+            return BackupResult.failure(backup.getPath(), (summary != null) ? summary.getStoredBytes() : 0,
+                    System.currentTimeMillis() - start, "Verify error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BackupResult.failure(backup.getPath(), 0, System.currentTimeMillis() - start, "Verify interrupted");
+        } finally {
+            cleanScratchSchema(schema, created);
+        }
+    }
+
+    /**
+     * Drop the scratch schema if verifyBackup created it, else only the tables it restored
+     * (the schema was empty before)
+     */
+    private static void cleanScratchSchema(String schema, boolean created) {
+        try (Connection conn = DatabaseConnection.openConnection(new Properties());
+             Statement stmt = conn.createStatement()) {
+            if (created) {
+                stmt.execute("DROP DATABASE IF EXISTS " + ParallelExporter.quote(schema));
+                return;
+            }
+            for (String table : listTables(conn, schema)) {
+                stmt.execute("DROP TABLE IF EXISTS " + ParallelExporter.quote(schema) + "." + ParallelExporter.quote(table));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error cleaning scratch schema " + schema + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean schemaExists(Connection conn, String schema) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT 1 FROM information_schema.SCHEMATA WHERE SCHEMA_NAME = ?")) {
+            stmt.setString(1, schema);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static List<String> listTables(Connection conn, String schema) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT TABLE_NAME FROM information_schema.TABLES "
+                + "WHERE TABLE_SCHEMA = ? AND TABLE_TYPE = 'BASE TABLE' ORDER BY TABLE_NAME")) {
+            stmt.setString(1, schema);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) tables.add(rs.getString(1));
+            }
+        }
+        return tables;
+    }
+
+    private static long countRows(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getLong(1) : -1;
+        }
+    }
+
+    private static long checksumTable(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("CHECKSUM TABLE " + table)) {
+            return rs.next() ? rs.getLong(2) : -1;
+        }
+    }
+
+    /**
+     * Backup files that restoring this one replays, in order: the full backup and
+     * increments of its chain if a catalog lists it, otherwise just the file
+     */
+    public static List<File> getRestoreChain(File backup) {
+        List<File> files = new ArrayList<>();
+        try {
+            BackupCatalog catalog = BackupCatalog.findFor(backup);
+            if (catalog != null) {
+                for (BackupCatalogEntry entry : catalog.chainTo(catalog.findByFile(backup.getName()).getId())) {
+                    files.add(catalog.resolve(entry));
+                }
+                return files;
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading backup catalog: " + e.getMessage());
+        }
+        files.add(backup);
+        return files;
+    }
+
+    /**
+     * Bring the database to the point of a backup (call off the EDT): its chain is
+     * verified first (files, sizes, checksums, parent links, watermarks), then the full
+     * backup and each increment up to the chosen one are restored in order
+     * @param progress Notified with totals over the whole chain (may be null)
+     * @return Outcome: getBytes() is the SQL restored, getSha256() the checksum of the chosen file
+     */
+    public static BackupResult restoreToPoint(File backup, ProgressListener progress) {
+        long start = System.currentTimeMillis();
+        BackupCatalog catalog;
+        List<BackupCatalogEntry> chain;
+        try {
+            catalog = BackupCatalog.findFor(backup);
+            if (catalog == null) return restoreDatabase(backup, progress);
+            chain = catalog.chainTo(catalog.findByFile(backup.getName()).getId());
+        } catch (IOException e) {
+            return BackupResult.failure(backup.getPath(), 0, System.currentTimeMillis() - start,
+                    "Cannot read backup catalog: " + e.getMessage());
+        }
+        String broken = catalog.verify(chain);
+        if (broken != null) {
+            return BackupResult.failure(backup.getPath(), 0, System.currentTimeMillis() - start,
+                    "Backup chain is broken: " + broken);
+        }
+
+        long restored = 0;
+        long stored = 0;
+        String sha = null;
+        for (int i = 0; i < chain.size(); i++) {
+            File file = catalog.resolve(chain.get(i));
+            final long sqlBase = restored;
+            final long storedBase = stored;
+            BackupResult step = restoreDatabase(file, (progress == null) ? null
+                    : (sqlBytes, storedBytes) -> progress.onProgress(sqlBase + sqlBytes, storedBase + storedBytes));
+            restored += step.getBytes();
+            if (!step.isSuccess()) {
+                return BackupResult.failure(backup.getPath(), restored, System.currentTimeMillis() - start,
+                        "Step " + (i + 1) + " of " + chain.size() + " (" + file.getName() + "): " + step.getError());
+            }
+            stored += file.length();
+            sha = step.getSha256();
+        }
+        return BackupResult.success(backup.getPath(), restored, sha, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Show the outcome per destination (call on the EDT)
+     */
+    public static void showBackupResult(List<BackupResult> results) {
+        if (results == null || results.isEmpty()) {
+            JOptionPane.showMessageDialog(null, "No backup destinations configured (backup.destinations).",
                     "Backup Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        int ok = 0;
+        StringBuilder sb = new StringBuilder();
+        for (BackupResult r : results) {
+            if (r.isSuccess()) {
+                ok++;
+                sb.append("✓ ").append(r.getDestination())
+                        .append(String.format(" (%.1f MB, %.1f s)", r.getBytes() / (1024.0 * 1024), r.getMillis() / 1000.0));
+            } else {
+                sb.append("✗ ").append(r.getDestination()).append("\n    ").append(r.getError());
+            }
+            sb.append('\n');
+        }
+        if (ok == results.size()) {
+            JOptionPane.showMessageDialog(null, "Backup successful!\n" + sb, "Backup Complete", JOptionPane.INFORMATION_MESSAGE);
+        } else if (ok > 0) {
+            JOptionPane.showMessageDialog(null, "Backup saved to " + ok + " of " + results.size() + " destinations:\n" + sb,
+                    "Backup Incomplete", JOptionPane.WARNING_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(null, "Backup failed:\n" + sb, "Backup Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * What the next backup holds: the SQL to store (started lazily, part by part) and
+     * the catalog entry to record for it
+     */
+    private static class BackupPlan {
+        final String id;
+        final BackupCatalogEntry.Type type;
+        final String parentId;
+        final Map<String, Long> watermarks = new LinkedHashMap<>();
+        final List<InputStream> parts = new ArrayList<>();
+        // A native export, stored as it is rather than compressed again
+        boolean exported = false;
+        // Where an increment's rows are read from; closed with the stream
+        final SnapshotSql snapshot;
+
+        BackupPlan(String id, BackupCatalogEntry.Type type, String parentId) {
+            this(id, type, parentId, null);
+        }
+
+        BackupPlan(String id, BackupCatalogEntry.Type type, String parentId, SnapshotSql snapshot) {
+            this.id = id;
+            this.type = type;
+            this.parentId = parentId;
+            this.snapshot = snapshot;
+        }
+
+        void sql(String text) {
+            parts.add(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        void export() {
+            parts.add(new ExportStream());
+            exported = true;
+        }
+
+        void dump(String... args) {
+            List<String> command = clientCommand(getMysqldumpPath(), "--single-transaction");
+            command.addAll(Arrays.asList(args));
+            parts.add(new DumpStream(command));
+        }
+
+        /**
+         * Rows of one table from the snapshot as REPLACE statements, without its definition
+         * @param where Condition on the rows, or null for the whole table
+         */
+        void rows(String table, String where) {
+            parts.add(snapshot.rows(table, where));
+        }
+
+        InputStream open() {
+            InputStream sql = new SequenceInputStream(Collections.enumeration(parts));
+            if (snapshot == null) return sql;
+            return new FilterInputStream(sql) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        snapshot.close();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * An increment if every destination's newest backup is the same, complete and
+     * recent enough to build on; otherwise (or if the database cannot be read) a full backup.
+     * With backup.format=native every backup is a full export.
+     */
+    private static BackupPlan planBackup(List<BackupCatalog> catalogs, long start) {
+        String id = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date(start));
+        long fullEvery = Math.max(1, DatabaseConnection.getLongProperty("backup.full.every", 7));
+        BackupCatalogEntry parent = null;
+        try {
+            for (BackupCatalog catalog : catalogs) {
+                BackupCatalogEntry latest = catalog.getLatest();
+                if (latest == null || (parent != null && !parent.getId().equals(latest.getId()))
+                        || !catalog.resolve(latest).isFile()
+                        || catalog.incrementsSinceFull() < 0 || catalog.incrementsSinceFull() + 1 >= fullEvery) {
+                    parent = null;
+                    break;
+                }
+                parent = latest;
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading backup catalog: " + e.getMessage());
+            parent = null;
+        }
+
+        BackupDAO backupDAO = new BackupDAO();
+        if (!isNativeFormat() && parent != null && parent.getWatermarks().containsKey("activity_logs")
+                && parent.getWatermarks().containsKey("version")) {
+            BackupPlan plan = planIncrement(id, parent, backupDAO);
+            if (plan != null) return plan;
+        }
+
+        BackupPlan plan = new BackupPlan(id, BackupCatalogEntry.Type.FULL, null);
+        // Taken before the dump starts: rows added in between are in this backup and the next
+        long[] logs = backupDAO.getKeyRange("activity_logs", "log_id");
+        long version = (logs != null) ? new ChangeFeedDAO().getCurrentVersion() : -1;
+        if (logs != null) plan.watermarks.put("activity_logs", logs[1]);
+        if (version >= 0) plan.watermarks.put("version", version);
+        Set<String> tables = (logs != null) ? backupDAO.getTableNames() : null;
+        if (tables != null && tables.contains("capacity_samples")) {
+            long[] samples = backupDAO.getTimeRange("capacity_samples", "sample_time");
+            if (samples != null) plan.watermarks.put("capacity_samples", samples[1]);
+        }
+        if (isNativeFormat()) {
+            plan.export();
+        } else {
+            plan.dump("--databases", DB_NAME);
+        }
+        return plan;
+    }
+
+    /**
+     * Changes since the parent backup, in restore order: deletions (with foreign keys on,
+     * so they cascade as they did here), changed rows, new log rows and capacity samples,
+     * the whole small tables, then the change log itself (its tail is replaced last, which
+     * also drops the versions the restore's own REPLACEs generate through the triggers).
+     * The watermarks and every row are read from one SnapshotSql transaction, so they
+     * describe the same point in time.
+     * @return The plan, or null if the changes cannot be read
+     */
+    private static BackupPlan planIncrement(String id, BackupCatalogEntry parent, BackupDAO backupDAO) {
+        SnapshotSql snapshot;
+        try {
+            snapshot = SnapshotSql.open();
+        } catch (SQLException e) {
+            System.err.println("Error starting backup snapshot: " + e.getMessage());
+            return null;
+        }
+        BackupPlan plan = planIncrement(id, parent, backupDAO, snapshot);
+        if (plan == null) {
+            try {
+                snapshot.close();
+            } catch (IOException e) {
+                System.err.println("Error closing backup snapshot: " + e.getMessage());
+            }
+        }
+        return plan;
+    }
+
+    private static BackupPlan planIncrement(String id, BackupCatalogEntry parent, BackupDAO backupDAO,
+                                            SnapshotSql snapshot) {
+        Connection conn = snapshot.getConnection();
+        if (!snapshot.hasTable("change_log")) return null;
+        long[] logs = backupDAO.getKeyRange(conn, "activity_logs", "log_id");
+        long[] versions = backupDAO.getKeyRange(conn, "change_log", "version");
+        if (logs == null || versions == null) return null;
+        long[] samples = null;
+        if (snapshot.hasTable("capacity_samples")) {
+            samples = backupDAO.getTimeRange(conn, "capacity_samples", "sample_time");
+            if (samples == null) return null;
+        }
+
+        ChangeFeedDAO changeFeedDAO = new ChangeFeedDAO();
+        long sinceVersion = parent.getWatermark("version");
+        long version = Long.MAX_VALUE;
+        List<ChangeSet<Integer>> changes = new ArrayList<>();
+        for (String[] table : VERSIONED_TABLES) {
+            ChangeSet<Integer> changeSet = changeFeedDAO.getChangedIdsSince(conn, table[0], sinceVersion);
+            if (changeSet == null) return null;
+            changes.add(changeSet);
+            version = Math.min(version, changeSet.getVersion());
+        }
+
+        BackupPlan plan = new BackupPlan(id, BackupCatalogEntry.Type.INCREMENTAL, parent.getId(), snapshot);
+        StringBuilder head = new StringBuilder("-- Incremental backup " + id + " on top of " + parent.getId() + "\n");
+        head.append(SnapshotSql.sessionSql());
+        head.append("USE `").append(DB_NAME).append("`;\n");
+        for (int i = VERSIONED_TABLES.length - 1; i >= 0; i--) {
+            if (!changes.get(i).getDeletedIds().isEmpty()) {
+                head.append("DELETE FROM `").append(VERSIONED_TABLES[i][0]).append("` WHERE `")
+                        .append(VERSIONED_TABLES[i][1]).append("` IN (").append(joinIds(changes.get(i).getDeletedIds())).append(");\n");
+            }
+        }
+        // Retention purges old log rows and samples; the restored copy follows
+        head.append(logs[1] == 0 ? "DELETE FROM `activity_logs`;\n"
+                : "DELETE FROM `activity_logs` WHERE `log_id` < " + logs[0] + ";\n");
+        // A parent without a sample watermark predates it: the samples are copied whole
+        boolean samplesSinceParent = parent.getWatermarks().containsKey("capacity_samples");
+        if (samples != null) {
+            head.append(samples[1] == 0 || !samplesSinceParent ? "DELETE FROM `capacity_samples`;\n"
+                    : "DELETE FROM `capacity_samples` WHERE `sample_time` < '1970-01-01' + INTERVAL " + samples[0] + " SECOND;\n");
+        }
+        // REPLACE deletes before it inserts; with the checks on, a parent row's REPLACE
+        // would cascade to its children
+        head.append("SET FOREIGN_KEY_CHECKS = 0;\n");
+        plan.sql(head.toString());
+
+        for (int i = 0; i < VERSIONED_TABLES.length; i++) {
+            ChangeSet<Integer> changeSet = changes.get(i);
+            String table = VERSIONED_TABLES[i][0];
+            if (changeSet.isFullReload()) {
+                // The history that names the deleted rows was purged
+                plan.sql("DELETE FROM `" + table + "`;\n");
+                plan.rows(table, null);
+            } else if (changeSet.getUpserts().size() > MAX_CHANGED_IDS) {
+                plan.rows(table, null);
+            } else if (!changeSet.getUpserts().isEmpty()) {
+                plan.rows(table, VERSIONED_TABLES[i][1] + " IN (" + joinIds(changeSet.getUpserts()) + ")");
+            }
+        }
+
+        long sinceLog = Math.max(0, parent.getWatermark("activity_logs") - LOG_OVERLAP_IDS);
+        if (logs[1] > sinceLog) {
+            plan.rows("activity_logs", "log_id > " + sinceLog);
+        }
+        if (samples != null && samples[1] > 0) {
+            plan.rows("capacity_samples", samplesSinceParent
+                    ? "sample_time > '1970-01-01' + INTERVAL "
+                            + Math.max(0, parent.getWatermark("capacity_samples") - SAMPLE_OVERLAP_SECONDS) + " SECOND"
+                    : null);
+        }
+
+        for (String table : WHOLE_TABLES) {
+            if (!snapshot.hasTable(table)) continue;
+            plan.sql("DELETE FROM `" + table + "`;\n");
+            plan.rows(table, null);
+        }
+
+        plan.sql("DELETE FROM `change_log` WHERE `version` > " + sinceVersion
+                + (versions[0] > 0 ? " OR `version` < " + versions[0] : "") + ";\n");
+        if (version > sinceVersion) {
+            plan.rows("change_log", "version > " + sinceVersion + " AND version <= " + version);
+        }
+        plan.sql("SET FOREIGN_KEY_CHECKS = 1;\n");
+
+        plan.watermarks.put("activity_logs", logs[1]);
+        plan.watermarks.put("version", version);
+        if (samples != null) plan.watermarks.put("capacity_samples", samples[1]);
+        return plan;
+    }
+
+    /**
+     * mysql/mysqldump command line for the configured server and user (the password
+     * goes in MYSQL_PWD, off the command line)
+     */
+    public static List<String> clientCommand(String program, String... args) {
+        List<String> command = new ArrayList<>(Arrays.asList(program, "-h", DatabaseConnection.getHost(),
+                "-P", String.valueOf(DatabaseConnection.getPort()), "-u" + DB_USER));
+        command.addAll(Arrays.asList(args));
+        return command;
+    }
+
+    private static String joinIds(List<Integer> ids) {
+        StringBuilder sb = new StringBuilder();
+        for (Integer id : ids) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(id);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Output of one mysqldump run, started on the first read; reading past the end
+     * fails if mysqldump did, so a cut-off dump is never stored as a complete one
+     */
+    private static class DumpStream extends InputStream {
+        private final List<String> command;
+        private Process process;
+        private File errFile;
+        private InputStream out;
+        private boolean done = false;
+
+        DumpStream(List<String> command) {
+            this.command = command;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return (n < 0) ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) return -1;
+            if (len == 0) return 0;
+            if (process == null) start();
+            int n = out.read(b, off, len);
+            if (n < 0) {
+                done = true;
+                checkExit();
+            }
+            return n;
+        }
+
+        private void start() throws IOException {
+            ProcessBuilder pb = new ProcessBuilder(command);
+            // Keeps the password off the command line
+            if (!DB_PASSWORD.isEmpty()) pb.environment().put("MYSQL_PWD", DB_PASSWORD);
+            errFile = File.createTempFile("mysqldump", ".err");
+            pb.redirectError(errFile);
+            process = pb.start();
+            out = process.getInputStream();
+        }
+
+        private void checkExit() throws IOException {
+            try {
+                int exitCode = process.waitFor();
+                if (exitCode != 0) throw new IOException("mysqldump exited with code " + exitCode + errorText(errFile));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Backup interrupted");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (out != null) out.close();
+            } finally {
+                if (process != null && process.isAlive()) process.destroyForcibly();
+                if (errFile != null) errFile.delete();
+            }
+        }
+    }
+
+    /**
+     * A ParallelExporter export as an InputStream: the export runs on its own thread
+     * when the stream is first read, and its failure is thrown at the end of the stream
+     */
+    private static class ExportStream extends InputStream {
+        private final PipedInputStream in = new PipedInputStream(CHUNK_BYTES);
+        private Thread exporter;
+        private volatile Exception failure;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return (n < 0) ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (exporter == null) start();
+            int n = in.read(b, off, len);
+            if (n < 0) {
+                try {
+                    exporter.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Backup interrupted");
+                }
+                if (failure != null) throw new IOException("Export failed: " + failure.getMessage(), failure);
+            }
+            return n;
+        }
+
+        private void start() throws IOException {
+            PipedOutputStream out = new PipedOutputStream(in);
+            exporter = new Thread(() -> {
+                try {
+                    ParallelExporter.fromConfig().export(out, null);
+                } catch (Exception e) {
+                    failure = e;
+                } finally {
+                    try {
+                        out.close();
+                    } catch (IOException ignored) {
+                        // The reader has gone
+                    }
+                }
+            }, "BackupExport");
+            exporter.setDaemon(true);
+            exporter.start();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // An export still running fails on its next write once the pipe is closed
+            in.close();
+        }
+    }
+
+    /**
+     * One destination's writer: takes chunks from its queue and writes them to "<file>.part"
+     */
+    private static class Destination {
+        final String path;
+        final long start;
+        final long stallSeconds;
+        final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        Future<?> future;
+
+        // Set by the dump thread (or the writer on an I/O error); the writer stops at the first one
+        volatile String error;
+        volatile String expectedSha;
+        volatile long bytes = 0;
+        volatile String sha;
+        volatile long finishedAt = 0;
+
+        Destination(String path, long start, long stallSeconds) {
+            this.path = path;
+            this.start = start;
+            this.stallSeconds = stallSeconds;
+        }
+
+        /**
+         * Queue a chunk; a destination that cannot take it in time is dropped
+         */
+        void offer(byte[] chunk) throws InterruptedException {
+            if (error != null) return;
+            if (!queue.offer(chunk, stallSeconds, TimeUnit.SECONDS)) {
+                error = "Destination stalled for more than " + stallSeconds + " s";
+                queue.clear();
+            }
+        }
+
+        /**
+         * No more chunks; the writer keeps the file only if sha matches and no error is set
+         */
+        void finish(String sha, String dumpError) {
+            if (dumpError != null && error == null) error = dumpError;
+            expectedSha = sha;
+            if (error != null) queue.clear();
+            try {
+                if (!queue.offer(END, stallSeconds, TimeUnit.SECONDS) && error == null) {
+                    error = "Destination stalled for more than " + stallSeconds + " s";
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void write() {
+            File target = new File(path);
+            File part = new File(path + ".part");
+            try {
+                File parent = target.getAbsoluteFile().getParentFile();
+                if (parent != null) parent.mkdirs();
+                MessageDigest digest = sha256();
+                try (FileOutputStream out = new FileOutputStream(part)) {
+                    while (true) {
+                        byte[] chunk = queue.take();
+                        if (chunk == END || error != null) break;
+                        out.write(chunk);
+                        digest.update(chunk);
+                        bytes += chunk.length;
+                    }
+                    if (error == null) out.getFD().sync();
+                }
+                if (error == null) {
+                    String written = toHex(digest.digest());
+                    if (!written.equals(expectedSha)) {
+                        error = "Checksum mismatch (wrote " + written + ", dump was " + expectedSha + ")";
+                    } else {
+                        moveIntoPlace(part, target);
+                        writeChecksum(target, written);
+                        sha = written;
+                    }
+                }
+            } catch (IOException e) {
+                if (error == null) error = e.getMessage();
+            } catch (InterruptedException e) {
+                if (error == null) error = "Backup interrupted";
+            } finally {
+                if (sha == null) part.delete();
+                // Let the dump thread stop offering to a failed writer
+                if (error != null) queue.clear();
+                finishedAt = System.currentTimeMillis();
+            }
+        }
+
+        BackupResult toResult() {
+            long millis = (finishedAt > 0 ? finishedAt : System.currentTimeMillis()) - start;
+            return (sha != null && error == null)
+                    ? BackupResult.success(path, bytes, sha, millis)
+                    : BackupResult.failure(path, bytes, millis, error != null ? error : "Backup did not complete");
+        }
+    }
+
+    /**
+     * Hands every encoded block to all destinations and checksums what they store
+     */
+    private static class Fanout implements ParallelBlockEncoder.Sink {
+        final List<Destination> destinations;
+        final MessageDigest digest = sha256();
+        long bytes = 0;
+
+        Fanout(List<Destination> destinations) {
+            this.destinations = destinations;
+        }
+
+        @Override
+        public void accept(byte[] chunk) throws InterruptedException {
+            digest.update(chunk);
+            bytes += chunk.length;
+            for (Destination d : destinations) d.offer(chunk);
+        }
+    }
+
+    /**
+     * One block of the dump as stored: a gzip member (level > 0), sealed if a cipher is given
+     */
+    private static byte[] encodeBlock(byte[] block, int length, long index, int level, BackupCipher cipher)
+            throws IOException, GeneralSecurityException {
+        byte[] data;
+        if (level > 0) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192) {
+                { def.setLevel(level); }
+            }) {
+                gzip.write(block, 0, length);
+            }
+            data = out.toByteArray();
+        } else {
+            data = (length == block.length) ? block : Arrays.copyOf(block, length);
+        }
+        return (cipher != null) ? cipher.seal(data, data.length, index, false) : data;
+    }
+
+    /**
+     * SQL of a backup file, decrypted and decompressed on the fly as its header requires
+     */
+    private static InputStream openBackup(BufferedInputStream in) throws IOException {
+        in.mark(BackupCipher.MAGIC.length);
+        byte[] magic = in.readNBytes(BackupCipher.MAGIC.length);
+        in.reset();
+        if (Arrays.equals(magic, BackupCipher.MAGIC)) {
+            char[] passphrase = getPassphrase();
+            if (passphrase == null) throw new IOException("Backup is encrypted; set backup.encryption.passphrase");
+            in.skipNBytes(magic.length);
+            BackupCipher.DecryptingStream plain = BackupCipher.decrypting(in, passphrase);
+            InputStream sql = openCompressed(new BufferedInputStream(plain, CHUNK_BYTES));
+            // A file cut off between blocks must not pass for a complete, smaller one
+            return new FilterInputStream(sql) {
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n < 0 && !plain.isComplete()) throw new IOException("Encrypted backup is truncated");
+                    return n;
+                }
+            };
+        }
+        return openCompressed(in);
+    }
+
+    private static InputStream openCompressed(BufferedInputStream in) throws IOException {
+        in.mark(2);
+        byte[] magic = in.readNBytes(2);
+        in.reset();
+        // Concatenated gzip members (one per block) read as one stream
+        if (magic.length == 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+            return new GZIPInputStream(in, CHUNK_BYTES);
+        }
+        return in;
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        volatile long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+
+    /**
+     * @return The checksum recorded in "<file>.sha256", or null if there is none
+     */
+    private static String readChecksum(File backup) {
+        File sidecar = new File(backup.getPath() + ".sha256");
+        if (!sidecar.isFile()) return null;
+        try {
+            String text = new String(Files.readAllBytes(sidecar.toPath()), StandardCharsets.US_ASCII).trim();
+            int space = text.indexOf(' ');
+            return (space > 0) ? text.substring(0, space) : text;
+        } catch (IOException e) {
             return null;
         }
     }
 
-    // Optional: show backup result
-    public static void showBackupResult(String message) {
-        if (message != null) {
-            JOptionPane.showMessageDialog(null, " " + message, "Backup Complete", JOptionPane.INFORMATION_MESSAGE);
+    private static List<BackupResult> collect(List<Destination> destinations, long stallSeconds) {
+        List<BackupResult> results = new ArrayList<>();
+        for (Destination d : destinations) {
+            try {
+                d.future.get(stallSeconds, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                if (d.error == null) d.error = "Destination stalled for more than " + stallSeconds + " s";
+                d.future.cancel(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                if (d.error == null) d.error = e.getCause().getMessage();
+            }
+            results.add(d.toResult());
         }
+        return results;
+    }
+
+    static void moveIntoPlace(File part, File target) throws IOException {
+        try {
+            Files.move(part.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Write "<sha256>  <name>" next to the backup (sha256sum format)
+     */
+    private static void writeChecksum(File target, String sha) throws IOException {
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(target.getPath() + ".sha256"), StandardCharsets.UTF_8)) {
+            w.write(sha + "  " + target.getName() + "\n");
+        }
+    }
+
+    private static List<BackupResult> failAll(List<String> paths, long start, String error) {
+        List<BackupResult> results = new ArrayList<>();
+        for (String path : paths) {
+            results.add(BackupResult.failure(path, 0, System.currentTimeMillis() - start, error));
+        }
+        return results;
+    }
+
+    private static String errorText(File errFile) {
+        try {
+            String text = new String(Files.readAllBytes(errFile.toPath()), StandardCharsets.UTF_8).trim();
+            return text.isEmpty() ? "" : ": " + (text.length() > 300 ? text.substring(0, 300) + "..." : text);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) sb.append(String.format("%02x", b));
+        return sb.toString();
     }
 }
@@ -0,0 +1,452 @@
+package utils;
+
+import models.RepositorySnapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deduplicating backup repository: each dump is cut into content-defined chunks
+ * (ContentChunker), every distinct chunk is stored once, and a backup is a manifest
+ * listing its chunks in order. Consecutive dumps share almost all their chunks, so
+ * the repository grows with the data that changed, not with the number of backups.
+ *
+ *   <repo>/chunks/ab/ab12...ef   zlib-compressed chunk, named by the SHA-256 of its content
+ *   <repo>/manifests/<id>.manifest
+ *   <repo>/lock                  held while a backup or clean-up runs
+ *
+ * Chunks and manifests are written to ".part" files and moved into place, and a
+ * manifest only after all its chunks, so an interrupted backup leaves unreferenced
+ * chunks (removed by collectGarbage), never a manifest with missing chunks.
+ * Chunks are compressed but not encrypted.
+ */
+public class BackupRepository {
+
+    public static final String MANIFEST_SUFFIX = ".manifest";
+
+    private static final String MANIFEST_HEADER = "# onclick backup manifest v1";
+    private static final int MIN_CHUNK = 16 * 1024;
+    private static final int AVG_CHUNK = 64 * 1024;
+    private static final int MAX_CHUNK = 256 * 1024;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    // A ".part" this old belongs to a backup that died
+    private static final long STALE_PART_MS = 24L * 3600 * 1000;
+
+    private final File dir;
+
+    public BackupRepository(File dir) {
+        this.dir = dir.getAbsoluteFile();
+    }
+
+    public File getManifestDir() {
+        return new File(dir, "manifests");
+    }
+
+    public File manifestFile(String id) {
+        return new File(getManifestDir(), id + MANIFEST_SUFFIX);
+    }
+
+    private File chunkFile(String hash) {
+        return new File(new File(new File(dir, "chunks"), hash.substring(0, 2)), hash);
+    }
+
+    /**
+     * Take the repository's lock (also against other processes); close it to release
+     * @throws IOException If a backup or clean-up is already running
+     */
+    public Closeable lock() throws IOException {
+        dir.mkdirs();
+        FileChannel channel = FileChannel.open(new File(dir, "lock").toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("Backup repository " + dir + " is in use");
+        }
+        // Closing the channel releases the lock
+        return channel;
+    }
+
+    /**
+     * Store a dump (hold the lock): chunks are hashed, compressed and written on
+     * several threads, then the manifest is written
+     * @param level Deflate level for new chunks (0 = stored as is)
+     * @param progress Notified with the dump bytes read and the new bytes stored (may be null)
+     */
+    public RepositorySnapshot backup(InputStream sql, int level, int threads,
+                                     BackupManager.ProgressListener progress) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        String id = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date(start));
+        MessageDigest whole = BackupManager.sha256();
+        StringBuilder refs = new StringBuilder();
+        AtomicInteger chunkCount = new AtomicInteger();
+        AtomicInteger newChunks = new AtomicInteger();
+        AtomicLong newStored = new AtomicLong();
+        long read = 0;
+        long lastProgress = 0;
+
+        ContentChunker chunker = new ContentChunker(sql, MIN_CHUNK, AVG_CHUNK, MAX_CHUNK);
+        try (ParallelBlockEncoder encoder = new ParallelBlockEncoder("RepositoryWriter", threads,
+                     (block, length, index) -> storeChunk(block, length, level, newChunks, newStored),
+                     ref -> {
+                         refs.append(new String(ref, StandardCharsets.US_ASCII)).append('\n');
+                         chunkCount.incrementAndGet();
+                     })) {
+            byte[] chunk;
+            while ((chunk = chunker.next()) != null) {
+                whole.update(chunk);
+                read += chunk.length;
+                encoder.write(chunk, chunk.length);
+                long now = System.currentTimeMillis();
+                if (progress != null && now - lastProgress >= PROGRESS_INTERVAL_MS) {
+                    lastProgress = now;
+                    progress.onProgress(read, newStored.get());
+                }
+            }
+            encoder.finish();
+        }
+        if (progress != null) progress.onProgress(read, newStored.get());
+
+        RepositorySnapshot snapshot = new RepositorySnapshot(id, start, read, BackupManager.toHex(whole.digest()),
+                chunkCount.get(), newChunks.get(), newStored.get());
+        File manifest = manifestFile(id);
+        manifest.getParentFile().mkdirs();
+        File part = new File(manifest.getPath() + ".part");
+        try (FileOutputStream out = new FileOutputStream(part);
+             Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            w.write(MANIFEST_HEADER + "\n");
+            w.write("id\t" + id + "\n");
+            w.write("created\t" + start + "\n");
+            w.write("bytes\t" + read + "\n");
+            w.write("sha256\t" + snapshot.getSha256() + "\n");
+            w.write("chunks\t" + snapshot.getChunkCount() + "\t" + snapshot.getNewChunks() + "\t" + snapshot.getNewStoredBytes() + "\n");
+            w.write(refs.toString());
+            w.flush();
+            out.getFD().sync();
+        }
+        BackupManager.moveIntoPlace(part, manifest);
+        return snapshot;
+    }
+
+    /**
+     * Write one chunk unless the repository already has it (runs on a pool thread)
+     * @return Its manifest line, "<sha256>\t<length>"
+     */
+    private byte[] storeChunk(byte[] block, int length, int level, AtomicInteger newChunks, AtomicLong newStored)
+            throws IOException {
+        MessageDigest digest = BackupManager.sha256();
+        digest.update(block, 0, length);
+        String hash = BackupManager.toHex(digest.digest());
+        File file = chunkFile(hash);
+        if (!file.isFile()) {
+            byte[] stored = compress(block, length, level);
+            file.getParentFile().mkdirs();
+            // Two threads may store the same new chunk at once; each writes its own part file
+            File part = new File(file.getPath() + "." + Thread.currentThread().getId() + ".part");
+            try (FileOutputStream out = new FileOutputStream(part)) {
+                out.write(stored);
+                out.getFD().sync();
+            }
+            BackupManager.moveIntoPlace(part, file);
+            newChunks.incrementAndGet();
+            newStored.addAndGet(stored.length);
+        }
+        return (hash + "\t" + length).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return Every snapshot, oldest first
+     */
+    public List<RepositorySnapshot> list() throws IOException {
+        List<RepositorySnapshot> snapshots = new ArrayList<>();
+        File[] files = getManifestDir().listFiles((d, name) -> name.endsWith(MANIFEST_SUFFIX));
+        if (files == null) return snapshots;
+        for (File file : files) snapshots.add(readManifest(file, null));
+        snapshots.sort(Comparator.comparingLong(RepositorySnapshot::getCreatedAt));
+        return snapshots;
+    }
+
+    /**
+     * Delete the manifests the retention policy does not keep (hold the lock): the newest
+     * backup of each of the last `daily` days, `weekly` ISO weeks and `monthly` months,
+     * and always the newest backup. Their chunks go with the next collectGarbage().
+     * @return The snapshots removed
+     */
+    public List<RepositorySnapshot> applyRetention(int daily, int weekly, int monthly) throws IOException {
+        List<RepositorySnapshot> snapshots = list();
+        snapshots.sort(Comparator.comparingLong(RepositorySnapshot::getCreatedAt).reversed());
+        Set<String> keep = new HashSet<>();
+        if (!snapshots.isEmpty()) keep.add(snapshots.get(0).getId());
+        keepNewestPerPeriod(snapshots, daily, "day", keep);
+        keepNewestPerPeriod(snapshots, weekly, "week", keep);
+        keepNewestPerPeriod(snapshots, monthly, "month", keep);
+
+        List<RepositorySnapshot> removed = new ArrayList<>();
+        for (RepositorySnapshot snapshot : snapshots) {
+            if (keep.contains(snapshot.getId())) continue;
+            if (manifestFile(snapshot.getId()).delete()) removed.add(snapshot);
+        }
+        return removed;
+    }
+
+    /**
+     * @param snapshots Newest first
+     */
+    private static void keepNewestPerPeriod(List<RepositorySnapshot> snapshots, int periods, String unit, Set<String> keep) {
+        Set<String> seen = new HashSet<>();
+        for (RepositorySnapshot snapshot : snapshots) {
+            if (seen.size() >= periods) break;
+            if (seen.add(period(snapshot.getCreatedAt(), unit))) keep.add(snapshot.getId());
+        }
+    }
+
+    private static String period(long millis, String unit) {
+        ZonedDateTime time = Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault());
+        switch (unit) {
+            case "day": return time.toLocalDate().toString();
+            case "week": return time.get(IsoFields.WEEK_BASED_YEAR) + "-W" + time.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+            default: return time.getYear() + "-" + time.getMonthValue();
+        }
+    }
+
+    /**
+     * Mark and sweep (hold the lock): delete every chunk no manifest references, and
+     * part files left by backups that died. Nothing is deleted if a manifest cannot be read.
+     * @return {chunks deleted, bytes freed}
+     */
+    public long[] collectGarbage() throws IOException {
+        Set<String> live = new HashSet<>();
+        File[] manifests = getManifestDir().listFiles((d, name) -> name.endsWith(MANIFEST_SUFFIX));
+        if (manifests != null) {
+            for (File manifest : manifests) {
+                List<String[]> chunks = new ArrayList<>();
+                readManifest(manifest, chunks);
+                for (String[] chunk : chunks) live.add(chunk[0]);
+            }
+        }
+
+        long deleted = 0;
+        long freed = 0;
+        long now = System.currentTimeMillis();
+        File[] buckets = new File(dir, "chunks").listFiles(File::isDirectory);
+        if (buckets == null) return new long[]{0, 0};
+        for (File bucket : buckets) {
+            File[] files = bucket.listFiles();
+            if (files == null) continue;
+            for (File file : files) {
+                String name = file.getName();
+                boolean stalePart = name.endsWith(".part") && now - file.lastModified() > STALE_PART_MS;
+                boolean garbage = name.length() == 64 && !live.contains(name);
+                if (stalePart || garbage) {
+                    long size = file.length();
+                    if (file.delete()) {
+                        deleted++;
+                        freed += size;
+                    }
+                }
+            }
+        }
+        return new long[]{deleted, freed};
+    }
+
+    /**
+     * @return {chunks, bytes} stored in the repository
+     */
+    public long[] usage() {
+        long chunks = 0;
+        long bytes = 0;
+        File[] buckets = new File(dir, "chunks").listFiles(File::isDirectory);
+        if (buckets == null) return new long[]{0, 0};
+        for (File bucket : buckets) {
+            File[] files = bucket.listFiles((d, name) -> name.length() == 64);
+            if (files == null) continue;
+            for (File file : files) {
+                chunks++;
+                bytes += file.length();
+            }
+        }
+        return new long[]{chunks, bytes};
+    }
+
+    /**
+     * The dump a manifest describes, reassembled chunk by chunk; every chunk is checked
+     * against its hash and the whole dump against the manifest's SHA-256 at the end
+     */
+    public static InputStream openSnapshot(File manifest) throws IOException {
+        List<String[]> chunks = new ArrayList<>();
+        RepositorySnapshot snapshot = readManifest(manifest, chunks);
+        BackupRepository repository = new BackupRepository(manifest.getAbsoluteFile().getParentFile().getParentFile());
+        return repository.new SnapshotStream(snapshot, chunks);
+    }
+
+    /**
+     * Read a manifest's header, and its chunk list into chunks ({sha256, length} each) if given
+     */
+    public static RepositorySnapshot readManifest(File manifest, List<String[]> chunks) throws IOException {
+        List<String> lines = Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8);
+        if (lines.size() < 6 || !lines.get(0).equals(MANIFEST_HEADER)) {
+            throw new IOException("Not a backup manifest: " + manifest.getName());
+        }
+        try {
+            String id = field(lines.get(1), "id");
+            long created = Long.parseLong(field(lines.get(2), "created"));
+            long bytes = Long.parseLong(field(lines.get(3), "bytes"));
+            String sha = field(lines.get(4), "sha256");
+            String[] counts = field(lines.get(5), "chunks").split("\t");
+            int count = Integer.parseInt(counts[0]);
+            if (lines.size() != 6 + count) throw new IOException("Manifest " + manifest.getName() + " is incomplete");
+            if (chunks != null) {
+                for (int i = 6; i < lines.size(); i++) {
+                    String[] chunk = lines.get(i).split("\t");
+                    if (chunk.length != 2 || chunk[0].length() != 64) throw new IOException("Corrupt line in " + manifest.getName());
+                    chunks.add(chunk);
+                }
+            }
+            return new RepositorySnapshot(id, created, bytes, sha, count,
+                    Integer.parseInt(counts[1]), Long.parseLong(counts[2]));
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt manifest " + manifest.getName(), e);
+        }
+    }
+
+    private static String field(String line, String name) throws IOException {
+        if (!line.startsWith(name + "\t")) throw new IOException("Manifest is missing " + name);
+        return line.substring(name.length() + 1);
+    }
+
+    private static byte[] compress(byte[] block, int length, int level) {
+        if (level <= 0) return (length == block.length) ? block : java.util.Arrays.copyOf(block, length);
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(block, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 64);
+            byte[] buf = new byte[64 * 1024];
+            while (!deflater.finished()) out.write(buf, 0, deflater.deflate(buf));
+            // Incompressible: store it as is, which the reader tells apart by its size
+            if (out.size() >= length) return compress(block, length, 0);
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Chunk contents in manifest order; stored chunks are zlib unless their size equals
+     * the chunk length (level 0)
+     */
+    private class SnapshotStream extends InputStream {
+        private final RepositorySnapshot snapshot;
+        private final List<String[]> chunks;
+        private final MessageDigest whole = BackupManager.sha256();
+        private int next = 0;
+        private byte[] current = new byte[0];
+        private int pos = 0;
+
+        SnapshotStream(RepositorySnapshot snapshot, List<String[]> chunks) {
+            this.snapshot = snapshot;
+            this.chunks = chunks;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) return -1;
+            return current[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!fill()) return -1;
+            int n = Math.min(len, current.length - pos);
+            System.arraycopy(current, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        private boolean fill() throws IOException {
+            while (pos == current.length) {
+                if (next == chunks.size()) {
+                    if (next >= 0) {
+                        next = -1;
+                        String sha = BackupManager.toHex(whole.digest());
+                        if (!sha.equals(snapshot.getSha256())) {
+                            throw new IOException("Backup " + snapshot.getId() + " does not match its SHA-256");
+                        }
+                    }
+                    return false;
+                }
+                if (next < 0) return false;
+                String[] chunk = chunks.get(next++);
+                current = loadChunk(chunk[0], Integer.parseInt(chunk[1]));
+                whole.update(current);
+                pos = 0;
+            }
+            return true;
+        }
+
+        private byte[] loadChunk(String hash, int length) throws IOException {
+            File file = chunkFile(hash);
+            if (!file.isFile()) throw new IOException("Chunk " + hash + " of backup " + snapshot.getId() + " is missing");
+            byte[] stored = Files.readAllBytes(file.toPath());
+            byte[] data = stored;
+            if (stored.length != length) {
+                Inflater inflater = new Inflater();
+                try {
+                    inflater.setInput(stored);
+                    data = new byte[length];
+                    int n = 0;
+                    while (n < length && !inflater.finished()) {
+                        int got = inflater.inflate(data, n, length - n);
+                        if (got == 0 && inflater.needsInput()) break;
+                        n += got;
+                    }
+                    if (n != length) throw new IOException("Chunk " + hash + " is damaged");
+                } catch (DataFormatException e) {
+                    throw new IOException("Chunk " + hash + " is damaged: " + e.getMessage());
+                } finally {
+                    inflater.end();
+                }
+            }
+            MessageDigest digest = BackupManager.sha256();
+            if (!BackupManager.toHex(digest.digest(data)).equals(hash)) {
+                throw new IOException("Chunk " + hash + " is damaged");
+            }
+            return data;
+        }
+    }
+}
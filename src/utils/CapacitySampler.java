@@ -0,0 +1,138 @@
+package utils;
+
+import dao.CapacityHistoryDAO;
+import database.DatabaseConnection;
+import models.CapacityPoint;
+import models.CapacityPoint.Resolution;
+
+import java.io.File;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background sampler for the capacity history of this machine's volumes
+ * - samples free/total bytes of every root every capacity.sample.seconds (default 300)
+ * - buffers samples and writes them in one batch every few samples
+ * - once an hour rolls raw samples into hourly and daily buckets and purges
+ *   raw rows older than capacity.raw.days (default 2)
+ * Only this machine's rows are rolled up, so each console does its own share.
+ */
+public class CapacitySampler {
+
+    private static final int SAMPLES_PER_FLUSH = 3;
+    private static final int MAX_BUFFERED = 5000;
+
+    private static ScheduledExecutorService scheduler;
+    private static final CapacityHistoryDAO capacityDAO = new CapacityHistoryDAO();
+    private static final List<CapacityPoint> buffer = new ArrayList<>();
+    private static int machineId;
+    private static int ticks = 0;
+
+    /**
+     * Start sampling for the given machine (no-op if already running)
+     * @param currentMachineId Machine ID the samples belong to
+     */
+    public static synchronized void start(int currentMachineId) {
+        if (scheduler != null || currentMachineId <= 0) return;
+        machineId = currentMachineId;
+        long interval = Math.max(10, DatabaseConnection.getLongProperty("capacity.sample.seconds", 300));
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "CapacitySampler");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(CapacitySampler::tick, 0, interval, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(CapacitySampler::runRollups, 1, 60, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Flush pending samples and stop sampling (called on logout)
+     */
+    public static synchronized void stop() {
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        scheduler = null;
+        flush();
+    }
+
+    private static void tick() {
+        try {
+            Timestamp now = new Timestamp(System.currentTimeMillis() / 1000 * 1000);
+            File[] roots = File.listRoots();
+            synchronized (buffer) {
+                if (roots != null) {
+                    for (File root : roots) {
+                        long total = root.getTotalSpace();
+                        if (total <= 0) continue;
+                        String volume = root.getAbsolutePath().replace("\\", "");
+                        buffer.add(new CapacityPoint(machineId, volume, now, root.getFreeSpace(), total));
+                    }
+                }
+                // Database down for a long time: keep only the newest samples
+                if (buffer.size() > MAX_BUFFERED) {
+                    buffer.subList(0, buffer.size() - MAX_BUFFERED).clear();
+                }
+            }
+            if (++ticks % SAMPLES_PER_FLUSH == 0) {
+                flush();
+            }
+        } catch (Exception e) {
+            System.err.println("Error sampling capacity: " + e.getMessage());
+        }
+    }
+
+    private static void flush() {
+        List<CapacityPoint> batch;
+        synchronized (buffer) {
+            if (buffer.isEmpty()) return;
+            batch = new ArrayList<>(buffer);
+        }
+        if (capacityDAO.insertSamples(batch)) {
+            synchronized (buffer) {
+                buffer.subList(0, Math.min(batch.size(), buffer.size())).clear();
+            }
+        }
+    }
+
+    /**
+     * Roll completed hours and days up and purge old raw samples
+     */
+    static void runRollups() {
+        try {
+            flush();
+            LocalDateTime currentHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+            int rawDays = CapacityHistoryDAO.getRawRetentionDays();
+
+            // Re-run the newest bucket in case it was rolled up while still filling
+            Timestamp lastHour = capacityDAO.getLastBucket(Resolution.HOURLY, machineId);
+            LocalDateTime hourFrom = (lastHour != null) ? lastHour.toLocalDateTime()
+                    : currentHour.minusDays(rawDays);
+            boolean hourlyOk = true;
+            if (hourFrom.isBefore(currentHour)) {
+                hourlyOk = capacityDAO.rollupHourly(machineId, Timestamp.valueOf(hourFrom), Timestamp.valueOf(currentHour)) >= 0;
+            }
+
+            LocalDateTime today = LocalDate.now().atStartOfDay();
+            Timestamp lastDay = capacityDAO.getLastBucket(Resolution.DAILY, machineId);
+            LocalDateTime dayFrom = (lastDay != null) ? lastDay.toLocalDateTime() : hourFrom.truncatedTo(ChronoUnit.DAYS);
+            if (dayFrom.isBefore(today)) {
+                capacityDAO.rollupDaily(machineId, Timestamp.valueOf(dayFrom), Timestamp.valueOf(today));
+            }
+
+            // Raw rows older than the window are covered by hourly buckets once the rollup succeeded
+            if (hourlyOk) {
+                LocalDateTime rawCutoff = currentHour.minusDays(rawDays);
+                capacityDAO.purgeRawBefore(machineId, Timestamp.valueOf(rawCutoff));
+            }
+        } catch (Exception e) {
+            System.err.println("Error rolling up capacity history: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Splits a stream into content-defined chunks (FastCDC-style gear hash)
+ *
+ * A cut falls where the rolling hash of the last ~64 bytes matches a mask, so
+ * boundaries follow the content rather than offsets: inserting a row early in a
+ * dump changes the chunks around it, and every later chunk comes out identical
+ * to the previous dump's. Chunks are between min and max bytes; below the average
+ * size a stricter mask is used and above it a looser one, which keeps sizes close
+ * to the average.
+ */
+public class ContentChunker {
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // Fixed seed: chunk boundaries must be the same on every run and machine
+        Random random = new Random(0x0C1C_4B0DL);
+        for (int i = 0; i < GEAR.length; i++) GEAR[i] = random.nextLong();
+    }
+
+    private final InputStream in;
+    private final int minSize;
+    private final int avgSize;
+    private final int maxSize;
+    private final long strictMask;
+    private final long looseMask;
+    private final byte[] buffer;
+    private int pos = 0;
+    private int limit = 0;
+    private boolean eof = false;
+
+    /**
+     * @param avgSize Target chunk size, rounded to a power of two
+     */
+    public ContentChunker(InputStream in, int minSize, int avgSize, int maxSize) {
+        this.in = in;
+        int bits = 31 - Integer.numberOfLeadingZeros(Math.max(256, avgSize));
+        this.avgSize = 1 << bits;
+        this.minSize = Math.max(64, Math.min(minSize, this.avgSize));
+        this.maxSize = Math.max(maxSize, this.avgSize);
+        // The gear hash shifts left, so its top bits depend on the most recent bytes
+        this.strictMask = topBits(bits + 1);
+        this.looseMask = topBits(bits - 1);
+        this.buffer = new byte[2 * this.maxSize];
+    }
+
+    private static long topBits(int n) {
+        return (n >= 64) ? -1L : ((1L << n) - 1) << (64 - n);
+    }
+
+    /**
+     * @return The next chunk (a new array), or null at the end of the stream
+     */
+    public byte[] next() throws IOException {
+        fill();
+        int available = limit - pos;
+        if (available == 0) return null;
+        int length = (available <= minSize) ? available : cut(Math.min(available, maxSize));
+        byte[] chunk = Arrays.copyOfRange(buffer, pos, pos + length);
+        pos += length;
+        return chunk;
+    }
+
+    private int cut(int end) {
+        long hash = 0;
+        int normal = Math.min(avgSize, end);
+        int i = minSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[buffer[pos + i] & 0xff];
+            if ((hash & strictMask) == 0) return i + 1;
+        }
+        for (; i < end; i++) {
+            hash = (hash << 1) + GEAR[buffer[pos + i] & 0xff];
+            if ((hash & looseMask) == 0) return i + 1;
+        }
+        return end;
+    }
+
+    /**
+     * Make at least maxSize bytes available unless the stream ends first
+     */
+    private void fill() throws IOException {
+        if (limit - pos >= maxSize || eof) return;
+        System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+        limit -= pos;
+        pos = 0;
+        while (limit < buffer.length) {
+            int n = in.read(buffer, limit, buffer.length - limit);
+            if (n < 0) {
+                eof = true;
+                break;
+            }
+            limit += n;
+        }
+    }
+}
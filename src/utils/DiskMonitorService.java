@@ -0,0 +1,334 @@
+package utils;
+
+import database.DatabaseConnection;
+import models.DiskEvent;
+import models.DiskEvent.Type;
+import models.VolumeInfo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One disk monitor shared by every open dashboard
+ * - a single daemon thread samples the volumes (and, less often, the unallocated
+ *   extents via Get-Disk) once for all subscribers and publishes typed DiskEvents
+ *   for what changed instead of every subscriber polling on its own
+ * - the interval is adaptive: disk.monitor.min.ms (default 1000) right after
+ *   requestRefresh() or a change, doubling on every quiet sample up to
+ *   disk.monitor.max.ms (default 30000), or disk.monitor.hidden.ms (default 300000)
+ *   while no subscriber is visible
+ * - free space only counts as changed once it moves by disk.monitor.change.mb
+ *   (default 64), so background writes do not keep the monitor at full rate
+ * Runs while at least one listener is subscribed.
+ */
+public class DiskMonitorService {
+
+    public interface Listener {
+        /**
+         * Called on the monitor thread; a new subscriber first receives VOLUME_ADDED for every
+         * known volume and the current unallocated extents
+         */
+        void onDiskEvent(DiskEvent event);
+
+        /**
+         * @return False while the subscriber's disk view is hidden or minimized (lets the monitor back off)
+         */
+        default boolean isVisible() {
+            return true;
+        }
+    }
+
+    private static final long MB = 1024L * 1024;
+    private static final Metrics.Histogram POLL_TIMER = Metrics.timer("powershell.poll");
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static ScheduledExecutorService executor;
+    private static ScheduledFuture<?> next;
+    private static boolean refreshRequested = false;
+    private static long intervalMs;
+    private static long minMs;
+    private static long maxMs;
+    private static long hiddenMs;
+    private static long changeBytes;
+
+    // Monitor thread only
+    private static final Map<String, VolumeInfo> volumes = new LinkedHashMap<>();
+    private static Map<Integer, Long> unallocated = Collections.emptyMap();
+    private static long lastExtentScan = 0;
+
+    // Latest published state, for views laid out between events
+    private static volatile List<VolumeInfo> volumeSnapshot = Collections.emptyList();
+
+    /**
+     * Add a listener and start monitoring if it is the first one
+     */
+    public static synchronized void subscribe(Listener listener) {
+        if (listeners.contains(listener)) return;
+        listeners.add(listener);
+        if (executor == null) {
+            minMs = Math.max(250, DatabaseConnection.getLongProperty("disk.monitor.min.ms", 1000));
+            maxMs = Math.max(minMs, DatabaseConnection.getLongProperty("disk.monitor.max.ms", 30000));
+            hiddenMs = Math.max(maxMs, DatabaseConnection.getLongProperty("disk.monitor.hidden.ms", 300000));
+            changeBytes = Math.max(0, DatabaseConnection.getLongProperty("disk.monitor.change.mb", 64)) * MB;
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "DiskMonitor");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.execute(DiskMonitorService::reset);
+        } else {
+            executor.execute(() -> replay(listener));
+        }
+        requestRefresh();
+    }
+
+    /**
+     * Remove a listener; monitoring stops with the last one
+     */
+    public static synchronized void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty() && executor != null) {
+            executor.shutdownNow();
+            executor = null;
+            next = null;
+            volumeSnapshot = Collections.emptyList();
+        }
+    }
+
+    /**
+     * Sample now (volumes, labels and extents) and return to the fast interval;
+     * call after a disk operation or when a view becomes visible again
+     */
+    public static synchronized void requestRefresh() {
+        if (executor == null) return;
+        intervalMs = minMs;
+        if (refreshRequested) return;
+        refreshRequested = true;
+        if (next != null) next.cancel(false);
+        next = executor.schedule(DiskMonitorService::sample, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return Volumes as of the last sample, in File.listRoots() order
+     */
+    public static List<VolumeInfo> getVolumes() {
+        return volumeSnapshot;
+    }
+
+    private static void reset() {
+        volumes.clear();
+        unallocated = Collections.emptyMap();
+        lastExtentScan = 0;
+    }
+
+    private static void replay(Listener listener) {
+        for (VolumeInfo v : volumes.values()) {
+            deliver(listener, new DiskEvent(Type.VOLUME_ADDED, v));
+        }
+        deliver(listener, new DiskEvent(Type.UNALLOCATED_CHANGED, null, unallocated));
+    }
+
+    private static void sample() {
+        boolean forced;
+        synchronized (DiskMonitorService.class) {
+            forced = refreshRequested;
+            refreshRequested = false;
+        }
+        boolean visible = false;
+        for (Listener l : listeners) {
+            visible |= l.isVisible();
+        }
+
+        boolean changed = false;
+        try {
+            List<DiskEvent> events = new ArrayList<>();
+            boolean topology = scanVolumes(forced, events);
+            long now = System.currentTimeMillis();
+            if (forced || topology || (visible && now - lastExtentScan >= maxMs)) {
+                Map<Integer, Long> extents = readUnallocatedExtents();
+                lastExtentScan = now;
+                if (!extents.equals(unallocated)) {
+                    unallocated = Collections.unmodifiableMap(extents);
+                    events.add(new DiskEvent(Type.UNALLOCATED_CHANGED, null, unallocated));
+                }
+            }
+            if (!events.isEmpty()) {
+                changed = true;
+                volumeSnapshot = Collections.unmodifiableList(new ArrayList<>(volumes.values()));
+                for (DiskEvent event : events) {
+                    for (Listener l : listeners) deliver(l, event);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error sampling disks: " + e.getMessage());
+        }
+
+        synchronized (DiskMonitorService.class) {
+            // Stopped (possibly restarted since), or a refresh request already queued the next sample
+            if (executor == null || executor.isShutdown() || Thread.currentThread().isInterrupted()
+                    || refreshRequested) return;
+            long cap = visible ? maxMs : hiddenMs;
+            intervalMs = changed ? minMs : Math.min(cap, Math.max(minMs, intervalMs * 2));
+            next = executor.schedule(DiskMonitorService::sample, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Compare the roots with the last sample and queue events for the differences
+     * @return True if volumes were added or removed
+     */
+    private static boolean scanVolumes(boolean forced, List<DiskEvent> events) {
+        File[] roots = File.listRoots();
+        Map<String, VolumeInfo> seen = new LinkedHashMap<>();
+        boolean topology = false;
+        Map<String, String> labels = null;
+        if (roots != null) {
+            for (File root : roots) {
+                String path = root.getAbsolutePath();
+                String key = path.replace("\\", "").replace(":", "");
+                if (labels == null && (forced || !volumes.containsKey(key))) labels = readVolumeLabels();
+                seen.put(key, new VolumeInfo(key, path, null, root.getFreeSpace(), root.getTotalSpace()));
+            }
+        }
+
+        Map<String, VolumeInfo> updated = new LinkedHashMap<>();
+        for (VolumeInfo fresh : seen.values()) {
+            VolumeInfo old = volumes.get(fresh.getKey());
+            String label = (labels != null) ? labels.getOrDefault(fresh.getKey(), "")
+                    : (old != null ? old.getLabel() : "");
+            VolumeInfo v = new VolumeInfo(fresh.getKey(), fresh.getRootPath(), label, fresh.getFreeBytes(), fresh.getTotalBytes());
+            if (old == null) {
+                events.add(new DiskEvent(Type.VOLUME_ADDED, v));
+                topology = true;
+            } else if (!label.equals(old.getLabel())) {
+                events.add(new DiskEvent(Type.LABEL_CHANGED, v));
+            } else if (v.getTotalBytes() != old.getTotalBytes()
+                    || Math.abs(v.getFreeBytes() - old.getFreeBytes()) >= changeBytes) {
+                events.add(new DiskEvent(Type.USAGE_CHANGED, v));
+            } else {
+                // Keep measuring drift from the last published figures
+                v = old;
+            }
+            updated.put(v.getKey(), v);
+        }
+        for (VolumeInfo old : volumes.values()) {
+            if (!updated.containsKey(old.getKey())) {
+                events.add(new DiskEvent(Type.VOLUME_REMOVED, old));
+                topology = true;
+            }
+        }
+        if (!events.isEmpty()) {
+            volumes.clear();
+            volumes.putAll(updated);
+        }
+        return topology;
+    }
+
+    private static void deliver(Listener listener, DiskEvent event) {
+        try {
+            listener.onDiskEvent(event);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Labels of all lettered volumes in one PowerShell call
+     * @return Drive letter to label; empty if PowerShell is unavailable
+     */
+    private static Map<String, String> readVolumeLabels() {
+        Map<String, String> labels = new HashMap<>();
+        String command = "Get-Volume | Where-Object { $_.DriveLetter } | ForEach-Object { Write-Output ($_.DriveLetter.ToString() + '|' + $_.FileSystemLabel) }";
+        for (String line : runPowerShell(command)) {
+            int bar = line.indexOf('|');
+            if (bar > 0) labels.put(line.substring(0, bar).trim(), line.substring(bar + 1).trim());
+        }
+        return labels;
+    }
+
+    /**
+     * Largest free extent per disk (Get-Disk); disks without free space are left out
+     */
+    private static Map<Integer, Long> readUnallocatedExtents() {
+        String command = "Get-Disk | ForEach-Object { Write-Output ($_.Number.ToString() + '|' + $_.LargestFreeExtent) }";
+        return parseUnallocatedExtents(runPowerShell(command));
+    }
+
+    /**
+     * Parse "disk|bytes" lines in place (no split, no substrings); lines that are not
+     * exactly two numbers, and disks without free space, are left out
+     */
+    public static Map<Integer, Long> parseUnallocatedExtents(List<String> lines) {
+        Map<Integer, Long> extents = new LinkedHashMap<>();
+        for (String line : lines) {
+            int bar = line.indexOf('|');
+            if (bar < 0) continue;
+            int end = line.indexOf('|', bar + 1);
+            if (end < 0) end = line.length();
+            // Trailing empty fields do not count as a third one
+            boolean extra = false;
+            for (int i = end; i < line.length() && !extra; i++) extra = line.charAt(i) != '|';
+            if (extra) continue;
+            try {
+                int diskNum = parseTrimmedInt(line, 0, bar);
+                long bytes = parseTrimmedLong(line, bar + 1, end);
+                if (bytes > 0) extents.put(diskNum, bytes);
+            } catch (NumberFormatException ignored) {}
+        }
+        return extents;
+    }
+
+    private static int parseTrimmedInt(String s, int begin, int end) {
+        while (begin < end && s.charAt(begin) <= ' ') begin++;
+        while (end > begin && s.charAt(end - 1) <= ' ') end--;
+        return Integer.parseInt(s, begin, end, 10);
+    }
+
+    private static long parseTrimmedLong(String s, int begin, int end) {
+        while (begin < end && s.charAt(begin) <= ' ') begin++;
+        while (end > begin && s.charAt(end - 1) <= ' ') end--;
+        return Long.parseLong(s, begin, end, 10);
+    }
+
+    private static List<String> runPowerShell(String command) {
+        List<String> lines = new ArrayList<>();
+        long start = System.nanoTime();
+        JfrEvents.ShellCommand event = JfrEvents.ShellCommand.start("poll", command);
+        int exitCode = -1;
+        long outputBytes = 0;
+        try {
+            ProcessBuilder pb = new ProcessBuilder("powershell.exe", "-NoProfile", "-Command", command);
+            pb.redirectErrorStream(true);
+            Process process = pb.start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    outputBytes += line.length() + 1;
+                    line = line.trim();
+                    if (!line.isEmpty()) lines.add(line);
+                }
+            }
+            exitCode = process.waitFor();
+            POLL_TIMER.recordSince(start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Not on Windows or PowerShell missing: no labels/extents
+        } finally {
+            event.finish(exitCode, outputBytes);
+        }
+        return lines;
+    }
+}
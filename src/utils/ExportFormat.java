@@ -0,0 +1,471 @@
+package utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The native export format (".ocx"), written by ParallelExporter
+ *
+ * Everything is big-endian; strings are [4-byte length][UTF-8]. After the header
+ * ("OCX1", creation time, database, server version) come records, each starting
+ * with a kind byte:
+ * - 'T' table: name, CREATE TABLE, column count, then per column its name and value kind
+ * - 'G' trigger: name, CREATE TRIGGER (after the tables, before the data)
+ * - 'D' chunk: table, part, sequence, rows, codec (0 stored, 1 zlib), raw length,
+ *   stored length, CRC-32C of the raw rows, stored bytes. Chunks of different
+ *   tables and parts interleave in any order.
+ * - 'E' end: per table its row and chunk count, then "OCXE"
+ * A chunk's rows are, per column: a kind byte (0 NULL, 1 64-bit integer,
+ * 2 UTF-8 text, 3 bytes) and the value. Text carries the server's own rendering
+ * of dates, decimals and floats (exported with time_zone '+00:00'), so values
+ * restore exactly through any client.
+ */
+public class ExportFormat {
+
+    public static final String SUFFIX = ".ocx";
+    public static final byte[] MAGIC = "OCX1".getBytes(StandardCharsets.US_ASCII);
+    public static final byte[] END_MAGIC = "OCXE".getBytes(StandardCharsets.US_ASCII);
+
+    public static final byte NULL = 0;
+    public static final byte LONG = 1;
+    public static final byte TEXT = 2;
+    public static final byte BYTES = 3;
+
+    private static final byte TABLE = 'T';
+    private static final byte TRIGGER = 'G';
+    private static final byte CHUNK = 'D';
+    private static final byte END = 'E';
+    private static final int CODEC_STORED = 0;
+    private static final int CODEC_ZLIB = 1;
+    // Larger lengths can only come from a damaged file
+    private static final int MAX_CHUNK_BYTES = 256 * 1024 * 1024;
+
+    private ExportFormat() {
+    }
+
+    /**
+     * @return Whether the file starts like a native export
+     */
+    public static boolean isExport(File file) {
+        try (InputStream in = new FileInputStream(file)) {
+            return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ---------------- Writing ----------------
+
+    public static byte[] header(String database, String serverVersion) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.write(MAGIC);
+        out.writeLong(System.currentTimeMillis());
+        writeString(out, database);
+        writeString(out, serverVersion);
+        return buffer.toByteArray();
+    }
+
+    public static byte[] tableRecord(String table, String createSql, List<String> columns, byte[] kinds) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(TABLE);
+        writeString(out, table);
+        writeString(out, createSql);
+        out.writeInt(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            writeString(out, columns.get(i));
+            out.writeByte(kinds[i]);
+        }
+        return buffer.toByteArray();
+    }
+
+    public static byte[] triggerRecord(String name, String createSql) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(TRIGGER);
+        writeString(out, name);
+        writeString(out, createSql);
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Checksum and compress one chunk of encoded rows (runs on the exporting thread)
+     * @param level Deflate level, 0 to store the rows as they are
+     */
+    public static byte[] chunkRecord(String table, int part, int sequence, int rows,
+                                     byte[] raw, int rawLength, int level) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(raw, 0, rawLength);
+        byte[] stored = raw;
+        int storedLength = rawLength;
+        int codec = CODEC_STORED;
+        if (level > 0) {
+            Deflater deflater = new Deflater(level);
+            try {
+                deflater.setInput(raw, 0, rawLength);
+                deflater.finish();
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(rawLength / 4 + 64);
+                byte[] buf = new byte[64 * 1024];
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buf);
+                    compressed.write(buf, 0, n);
+                }
+                stored = compressed.toByteArray();
+                storedLength = stored.length;
+                codec = CODEC_ZLIB;
+            } finally {
+                deflater.end();
+            }
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(storedLength + 64);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(CHUNK);
+        writeString(out, table);
+        out.writeInt(part);
+        out.writeInt(sequence);
+        out.writeInt(rows);
+        out.writeByte(codec);
+        out.writeInt(rawLength);
+        out.writeInt(storedLength);
+        out.writeInt((int) crc.getValue());
+        out.write(stored, 0, storedLength);
+        return buffer.toByteArray();
+    }
+
+    /**
+     * @param totals Per table: {rows, chunks}
+     */
+    public static byte[] endRecord(Map<String, long[]> totals) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(END);
+        out.writeInt(totals.size());
+        for (Map.Entry<String, long[]> table : totals.entrySet()) {
+            writeString(out, table.getKey());
+            out.writeLong(table.getValue()[0]);
+            out.writeLong(table.getValue()[1]);
+        }
+        out.write(END_MAGIC);
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Append one value of the given kind to a chunk being built
+     */
+    public static void writeValue(DataOutputStream out, byte kind, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        out.writeByte(kind);
+        switch (kind) {
+            case LONG: out.writeLong((Long) value); break;
+            case TEXT: writeString(out, (String) value); break;
+            case BYTES:
+                byte[] bytes = (byte[]) value;
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                break;
+            default: throw new IOException("Unknown value kind " + kind);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_CHUNK_BYTES) throw new IOException("Export is corrupt (bad length " + length + ")");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    // ---------------- Reading ----------------
+
+    public static class Table {
+        public final String name;
+        public final String createSql;
+        public final List<String> columns;
+        public final byte[] kinds;
+
+        Table(String name, String createSql, List<String> columns, byte[] kinds) {
+            this.name = name;
+            this.createSql = createSql;
+            this.columns = Collections.unmodifiableList(columns);
+            this.kinds = kinds;
+        }
+    }
+
+    public static class Trigger {
+        public final String name;
+        public final String createSql;
+
+        Trigger(String name, String createSql) {
+            this.name = name;
+            this.createSql = createSql;
+        }
+    }
+
+    /**
+     * One chunk as stored; rows() checks and unpacks it, so callers can do that in parallel
+     */
+    public static class Chunk {
+        public final Table table;
+        public final int part;
+        public final int sequence;
+        public final int rows;
+        private final int codec;
+        private final int rawLength;
+        private final int crc;
+        private final byte[] stored;
+
+        Chunk(Table table, int part, int sequence, int rows, int codec, int rawLength, int crc, byte[] stored) {
+            this.table = table;
+            this.part = part;
+            this.sequence = sequence;
+            this.rows = rows;
+            this.codec = codec;
+            this.rawLength = rawLength;
+            this.crc = crc;
+            this.stored = stored;
+        }
+
+        public int getStoredLength() {
+            return stored.length;
+        }
+
+        public int getRawLength() {
+            return rawLength;
+        }
+
+        /**
+         * @return The chunk's rows, each value a Long, String, byte[] or null
+         * @throws IOException If the chunk does not decompress to what its checksum says
+         */
+        public List<Object[]> rows() throws IOException {
+            byte[] raw = unpack();
+            CRC32C check = new CRC32C();
+            check.update(raw, 0, raw.length);
+            if ((int) check.getValue() != crc) {
+                throw new IOException("Chunk " + part + "/" + sequence + " of " + table.name + " fails its checksum");
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+            List<Object[]> result = new ArrayList<>(rows);
+            int columns = table.columns.size();
+            for (int r = 0; r < rows; r++) {
+                Object[] row = new Object[columns];
+                for (int c = 0; c < columns; c++) {
+                    byte kind = in.readByte();
+                    switch (kind) {
+                        case NULL: break;
+                        case LONG: row[c] = in.readLong(); break;
+                        case TEXT: row[c] = readString(in); break;
+                        case BYTES: row[c] = readBytes(in); break;
+                        default: throw new IOException("Chunk " + part + "/" + sequence + " of " + table.name + " is corrupt");
+                    }
+                }
+                result.add(row);
+            }
+            if (in.available() > 0) throw new IOException("Chunk " + part + "/" + sequence + " of " + table.name + " has trailing data");
+            return result;
+        }
+
+        private byte[] unpack() throws IOException {
+            if (codec == CODEC_STORED) {
+                if (stored.length != rawLength) throw new IOException("Chunk of " + table.name + " has the wrong length");
+                return stored;
+            }
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(stored);
+                byte[] raw = new byte[rawLength];
+                int n = 0;
+                while (n < rawLength && !inflater.finished()) {
+                    int got = inflater.inflate(raw, n, rawLength - n);
+                    if (got == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    n += got;
+                }
+                if (n != rawLength || !inflater.finished()) {
+                    throw new IOException("Chunk " + part + "/" + sequence + " of " + table.name + " does not decompress");
+                }
+                return raw;
+            } catch (DataFormatException e) {
+                throw new IOException("Chunk " + part + "/" + sequence + " of " + table.name + " is corrupt: " + e.getMessage());
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Reads an export record by record; next() fails if the file is cut off before its
+     * end record or the end record's counts do not match the chunks read
+     */
+    public static class Reader implements AutoCloseable {
+        private final DataInputStream in;
+        private final Map<String, Table> tables = new LinkedHashMap<>();
+        private final List<Trigger> triggers = new ArrayList<>();
+        private final Map<String, long[]> counted = new LinkedHashMap<>();
+        private final String database;
+        private final String serverVersion;
+        private final long createdAt;
+        private boolean ended = false;
+
+        public Reader(InputStream source) throws IOException {
+            this.in = new DataInputStream(source);
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) throw new IOException("Not a native export");
+            this.createdAt = in.readLong();
+            this.database = readString(in);
+            this.serverVersion = readString(in);
+        }
+
+        public String getDatabase() {
+            return database;
+        }
+
+        public String getServerVersion() {
+            return serverVersion;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        /**
+         * @return Tables defined so far, in file order
+         */
+        public List<Table> getTables() {
+            return new ArrayList<>(tables.values());
+        }
+
+        public List<Trigger> getTriggers() {
+            return triggers;
+        }
+
+        /**
+         * @return Per table {rows, chunks} read so far
+         */
+        public Map<String, long[]> getCounts() {
+            return counted;
+        }
+
+        /**
+         * Read records up to the next chunk; table and trigger definitions are collected
+         * on the way
+         * @return The chunk, or null after a verified end record
+         */
+        public Chunk next() throws IOException {
+            if (ended) return null;
+            try {
+                while (true) {
+                    byte kind = in.readByte();
+                    switch (kind) {
+                        case TABLE: {
+                            String name = readString(in);
+                            String createSql = readString(in);
+                            int count = in.readInt();
+                            if (count < 0 || count > 4096) throw new IOException("Export is corrupt (table " + name + ")");
+                            List<String> columns = new ArrayList<>(count);
+                            byte[] kinds = new byte[count];
+                            for (int i = 0; i < count; i++) {
+                                columns.add(readString(in));
+                                kinds[i] = in.readByte();
+                            }
+                            tables.put(name, new Table(name, createSql, columns, kinds));
+                            counted.put(name, new long[2]);
+                            break;
+                        }
+                        case TRIGGER:
+                            triggers.add(new Trigger(readString(in), readString(in)));
+                            break;
+                        case CHUNK: {
+                            String name = readString(in);
+                            Table table = tables.get(name);
+                            if (table == null) throw new IOException("Export is corrupt (chunk of unknown table " + name + ")");
+                            int part = in.readInt();
+                            int sequence = in.readInt();
+                            int rows = in.readInt();
+                            int codec = in.readUnsignedByte();
+                            int rawLength = in.readInt();
+                            int storedLength = in.readInt();
+                            int crc = in.readInt();
+                            if (rows < 0 || rawLength < 0 || rawLength > MAX_CHUNK_BYTES || storedLength < 0
+                                    || storedLength > MAX_CHUNK_BYTES || codec > CODEC_ZLIB) {
+                                throw new IOException("Export is corrupt (chunk " + part + "/" + sequence + " of " + name + ")");
+                            }
+                            byte[] stored = new byte[storedLength];
+                            in.readFully(stored);
+                            Chunk chunk = new Chunk(table, part, sequence, rows, codec, rawLength, crc, stored);
+                            long[] count = counted.get(name);
+                            count[0] += rows;
+                            count[1]++;
+                            return chunk;
+                        }
+                        case END:
+                            readEnd();
+                            ended = true;
+                            return null;
+                        default:
+                            throw new IOException("Export is corrupt (record kind " + kind + ")");
+                    }
+                }
+            } catch (EOFException e) {
+                throw new IOException("Export is truncated (no end record)");
+            }
+        }
+
+        private void readEnd() throws IOException {
+            int count = in.readInt();
+            Map<String, long[]> declared = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                declared.put(readString(in), new long[]{in.readLong(), in.readLong()});
+            }
+            byte[] magic = new byte[END_MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, END_MAGIC)) throw new IOException("Export is corrupt (bad end record)");
+            for (Map.Entry<String, long[]> table : declared.entrySet()) {
+                long[] read = counted.get(table.getKey());
+                if (read == null || read[0] != table.getValue()[0] || read[1] != table.getValue()[1]) {
+                    throw new IOException("Export is incomplete: " + table.getKey() + " declares "
+                            + table.getValue()[0] + " rows in " + table.getValue()[1] + " chunks, read "
+                            + (read == null ? 0 : read[0]) + " in " + (read == null ? 0 : read[1]));
+                }
+            }
+            if (in.read() != -1) throw new IOException("Export has data after its end record");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package utils;
+
+import database.DatabaseConnection;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Continuous Flight Recorder recording of the console, on unless jfr.enabled=false
+ * - the JDK's "default" settings (about 1% overhead) plus the JfrEvents types,
+ *   with thresholds from jfr.threshold.{shell,sql,lan,agent}.ms
+ * - kept on disk for jfr.max.age.minutes (default 10) and at most jfr.max.size.mb (default 100)
+ * dump() writes the last N minutes to a .jfr file for JDK Mission Control or `jfr print`.
+ */
+public class FlightRecording {
+
+    private static Recording recording;
+    private static boolean started = false;
+
+    /**
+     * Start the recording on a background thread (starting JFR takes a few hundred
+     * milliseconds, too long for the login path); later calls do nothing
+     */
+    public static synchronized void startAsync() {
+        if (started) return;
+        started = true;
+        if (!Boolean.parseBoolean(DatabaseConnection.getProperty("jfr.enabled", "true"))) return;
+        Thread t = new Thread(FlightRecording::start, "flight-recording-start");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static void start() {
+        try {
+            Recording r = new Recording(Configuration.getConfiguration("default"));
+            r.setName("OneClick continuous");
+            r.setToDisk(true);
+            r.setMaxAge(Duration.ofMinutes(getWindowMinutes()));
+            r.setMaxSize(DatabaseConnection.getLongProperty("jfr.max.size.mb", 100) * 1024 * 1024);
+            r.enable(JfrEvents.ShellCommand.class).withThreshold(threshold("shell", 0));
+            r.enable(JfrEvents.SqlStatement.class).withThreshold(threshold("sql", 10));
+            r.enable(JfrEvents.LanClientCall.class).withThreshold(threshold("lan", 0));
+            r.enable(JfrEvents.AgentRequest.class).withThreshold(threshold("agent", 0));
+            r.start();
+            synchronized (FlightRecording.class) {
+                recording = r;
+            }
+            System.out.println("Flight recording started (last " + getWindowMinutes() + " minutes kept)");
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            System.err.println("Error starting flight recording: " + e.getMessage());
+        }
+    }
+
+    private static Duration threshold(String kind, long defaultMillis) {
+        return Duration.ofMillis(DatabaseConnection.getLongProperty("jfr.threshold." + kind + ".ms", defaultMillis));
+    }
+
+    /**
+     * @return Minutes of history the continuous recording keeps
+     */
+    public static long getWindowMinutes() {
+        return Math.max(1, DatabaseConnection.getLongProperty("jfr.max.age.minutes", 10));
+    }
+
+    public static synchronized boolean isRunning() {
+        return recording != null;
+    }
+
+    /**
+     * Write the last minutes of the continuous recording to a file. JFR keeps data in
+     * chunks, so the file can reach a little further back than asked.
+     * @param minutes How far back to go (capped at the recording's window)
+     * @param file Destination .jfr file
+     * @throws IOException if the recording is not running or the file cannot be written
+     */
+    public static void dump(long minutes, File file) throws IOException {
+        Recording source;
+        synchronized (FlightRecording.class) {
+            source = recording;
+        }
+        if (source == null) {
+            throw new IOException("Flight recording is not running (see jfr.enabled)");
+        }
+        try (Recording copy = source.copy(true)) {
+            copy.setMaxAge(Duration.ofMinutes(Math.max(1, minutes)));
+            copy.dump(file.toPath());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event types of the console and the LAN agent, recorded
+ * continuously by FlightRecording. Each event is only committed when it lasts
+ * at least its threshold (the annotation is the default; jfr.threshold.*.ms
+ * overrides it), so fast calls cost an allocation the JIT usually removes.
+ *
+ * Usage: ev = JfrEvents.ShellCommand.start(kind, command); ...; ev.finish(exitCode, bytes)
+ * Events carry the ID of the trace (see Tracing) active when they started, if any.
+ */
+public class JfrEvents {
+
+    private static final int MAX_TEXT = 500;
+
+    public static String abbreviate(String text) {
+        if (text == null || text.length() <= MAX_TEXT) return text;
+        return text.substring(0, MAX_TEXT) + "...";
+    }
+
+    @Name("oneclick.ShellCommand")
+    @Label("Shell Command")
+    @Category({"OneClick", "Shell"})
+    @Description("A PowerShell process run by the console, the disk monitor or the LAN agent")
+    @Threshold("0 ms")
+    @StackTrace(false)
+    public static class ShellCommand extends Event {
+        @Label("Kind")
+        @Description("operation, query, poll or agent")
+        public String kind;
+
+        @Label("Command")
+        public String command;
+
+        @Label("Exit Code")
+        @Description("-1 when unknown: the process could not be run or was not waited for")
+        public int exitCode;
+
+        @Label("Output")
+        @DataAmount
+        public long outputBytes;
+
+        @Label("Trace ID")
+        public String traceId;
+
+        // Not recorded (transient): the trace span of the process, and a guard that
+        // makes a second finish() a no-op
+        private transient Tracing.Span span;
+        private transient boolean finished;
+
+        /**
+         * Start the event and, inside a trace, a "shell.<kind>" span
+         */
+        public static ShellCommand start(String kind, String command) {
+            ShellCommand event = new ShellCommand();
+            event.span = Tracing.startSpan("shell." + kind);
+            event.begin();
+            event.kind = kind;
+            event.command = command;
+            event.traceId = event.span.getTraceId();
+            return event;
+        }
+
+        public void finish(int exitCode, long outputBytes) {
+            if (finished) return;
+            finished = true;
+            span.attr("exitCode", exitCode).close();
+            end();
+            if (shouldCommit()) {
+                this.command = abbreviate(command);
+                this.exitCode = exitCode;
+                this.outputBytes = outputBytes;
+                commit();
+            }
+        }
+    }
+
+    @Name("oneclick.SqlStatement")
+    @Label("SQL Statement")
+    @Category({"OneClick", "Database"})
+    @Description("A statement run on the shared database connection")
+    @Threshold("10 ms")
+    public static class SqlStatement extends Event {
+        @Label("SQL ID")
+        @Description("Calling DAO method and a hash of the SQL text, e.g. UserDAO.getUserById#1f2e3d4c")
+        public String sqlId;
+
+        @Label("SQL")
+        public String sql;
+
+        @Label("Rows")
+        @Description("Rows read or changed; -1 when unknown")
+        public long rows;
+
+        @Label("Failed")
+        public boolean failed;
+    }
+
+    @Name("oneclick.LanClientCall")
+    @Label("LAN Client Call")
+    @Category({"OneClick", "LAN"})
+    @Description("A request from the console to a LAN agent")
+    @Threshold("0 ms")
+    @StackTrace(false)
+    public static class LanClientCall extends Event {
+        @Label("Host")
+        public String host;
+
+        @Label("Port")
+        public int port;
+
+        @Label("Endpoint")
+        public String endpoint;
+
+        @Label("Status")
+        @Description("HTTP status, or -1 when no response arrived")
+        public int status;
+
+        @Label("Error")
+        public String error;
+
+        @Label("Trace ID")
+        public String traceId;
+
+        public static LanClientCall start(String host, int port, String endpoint) {
+            LanClientCall event = new LanClientCall();
+            event.begin();
+            event.host = host;
+            event.port = port;
+            event.endpoint = endpoint;
+            event.status = -1;
+            event.traceId = Tracing.currentTraceId();
+            return event;
+        }
+
+        public void finish(String error) {
+            end();
+            if (shouldCommit()) {
+                this.error = abbreviate(error);
+                commit();
+            }
+        }
+    }
+
+    @Name("oneclick.AgentRequest")
+    @Label("Agent Request")
+    @Category({"OneClick", "LAN"})
+    @Description("A request handled by this machine's LAN agent")
+    @Threshold("0 ms")
+    @StackTrace(false)
+    public static class AgentRequest extends Event {
+        @Label("Method")
+        public String method;
+
+        @Label("Path")
+        public String path;
+
+        @Label("Client")
+        public String client;
+
+        @Label("Status")
+        public int status;
+
+        @Label("Request Size")
+        @DataAmount
+        public long requestBytes;
+
+        @Label("Trace ID")
+        public String traceId;
+    }
+}
@@ -0,0 +1,144 @@
+package utils;
+
+import dao.ActivityLogHistoryDAO;
+import dao.ChangeFeedDAO;
+import database.DatabaseConnection;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maintenance for the partitioned activity_logs table
+ * - rolls completed days up into activity_log_daily
+ * - keeps monthly partitions created ahead of time
+ * - drops whole partitions older than the retention period (only once rolled up)
+ * - trims the change_log history behind the dashboard deltas
+ *
+ * Settings (config/database.properties):
+ *   log.retention.months  raw log months to keep (default 12)
+ *   log.hot.days          days the admin log tab shows as raw lines (default 30)
+ *   change.history.days   days of change_log kept for delta refreshes (default 7)
+ */
+public class LogRetentionManager {
+
+    private static final int MONTHS_AHEAD = 3;
+    private static final AtomicBoolean started = new AtomicBoolean(false);
+    private static final ActivityLogHistoryDAO historyDAO = new ActivityLogHistoryDAO();
+
+    public static int getRetentionMonths() {
+        return (int) Math.max(1, DatabaseConnection.getLongProperty("log.retention.months", 12));
+    }
+
+    public static int getHotWindowDays() {
+        return (int) Math.max(1, DatabaseConnection.getLongProperty("log.hot.days", 30));
+    }
+
+    /**
+     * Run maintenance once per process on the given executor
+     * @param executor Where the caller runs its other database work, so maintenance
+     *                 queues behind it instead of sharing the connection at the same time
+     */
+    public static void runMaintenanceAsync(Executor executor) {
+        if (!started.compareAndSet(false, true)) return;
+        executor.execute(LogRetentionManager::runMaintenance);
+    }
+
+    /**
+     * Roll up, pre-create and expire partitions. Safe to run repeatedly.
+     */
+    public static void runMaintenance() {
+        try {
+            LocalDate today = LocalDate.now();
+            LocalDate rolledUpTo = refreshRollups(today);
+            purgeChangeHistory(today);
+
+            List<String> partitions = historyDAO.getLogPartitionNames();
+            if (partitions.isEmpty()) {
+                System.out.println("[Log Retention] activity_logs is not partitioned; skipping partition maintenance");
+                return;
+            }
+
+            // Pre-create through a few months ahead so inserts never land in p_future.
+            // Start right after the newest monthly partition: months missed while
+            // maintenance did not run are split out of p_future too, in order,
+            // since each split must sit directly below p_future.
+            YearMonth current = YearMonth.from(today);
+            YearMonth newest = null;
+            for (String name : partitions) {
+                YearMonth existing = parsePartitionMonth(name);
+                if (existing != null && (newest == null || existing.isAfter(newest))) {
+                    newest = existing;
+                }
+            }
+            YearMonth next = (newest != null) ? newest.plusMonths(1) : current;
+            for (YearMonth last = current.plusMonths(MONTHS_AHEAD); !next.isAfter(last); next = next.plusMonths(1)) {
+                String name = partitionName(next);
+                if (!historyDAO.addMonthlyPartition(name, next.plusMonths(1).atDay(1) + " 00:00:00")) {
+                    break;
+                }
+                System.out.println("[Log Retention] Added partition " + name);
+            }
+
+            // Drop months that are past retention and fully covered by rollups
+            YearMonth oldestKept = current.minusMonths(getRetentionMonths() - 1L);
+            for (String name : partitions) {
+                YearMonth month = parsePartitionMonth(name);
+                if (month == null || !month.isBefore(oldestKept)) continue;
+                if (rolledUpTo == null || rolledUpTo.isBefore(month.plusMonths(1).atDay(1))) {
+                    System.out.println("[Log Retention] Keeping " + name + " until it is rolled up");
+                    continue;
+                }
+                if (historyDAO.dropPartition(name)) {
+                    System.out.println("[Log Retention] Dropped expired partition " + name);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error running log retention: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Clients idle longer than the kept history fall back to a full reload
+     */
+    private static void purgeChangeHistory(LocalDate today) {
+        long days = Math.max(1, DatabaseConnection.getLongProperty("change.history.days", 7));
+        int purged = new ChangeFeedDAO().purgeChangesBefore(
+                java.sql.Timestamp.valueOf(today.minusDays(days).atStartOfDay()));
+        if (purged > 0) {
+            System.out.println("[Log Retention] Purged " + purged + " change_log row(s)");
+        }
+    }
+
+    /**
+     * Recompute rollups from the last rolled-up day through yesterday
+     * @return Exclusive end of the rolled-up range (today), or null on failure
+     */
+    private static LocalDate refreshRollups(LocalDate today) {
+        Date last = historyDAO.getLastRollupDay();
+        // Re-run the last day in case it was rolled up while still in progress
+        LocalDate from = (last != null) ? last.toLocalDate()
+                : YearMonth.from(today).minusMonths(getRetentionMonths()).atDay(1);
+        if (!from.isBefore(today)) {
+            return today;
+        }
+        int rows = historyDAO.refreshRollups(Date.valueOf(from), Date.valueOf(today));
+        if (rows < 0) {
+            return (last != null) ? last.toLocalDate().plusDays(1) : null;
+        }
+        System.out.println("[Log Retention] Rolled up " + from + " .. " + today.minusDays(1) + " (" + rows + " row(s))");
+        return today;
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("p%04d%02d", month.getYear(), month.getMonthValue());
+    }
+
+    static YearMonth parsePartitionMonth(String name) {
+        if (name == null || !name.matches("p\\d{6}")) return null;
+        return YearMonth.of(Integer.parseInt(name.substring(1, 5)), Integer.parseInt(name.substring(5, 7)));
+    }
+}
@@ -0,0 +1,97 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Fixed-capacity buffer of log lines. Adding past capacity overwrites the
+ * oldest line in O(1), so a burst of messages never shifts the whole list.
+ *
+ * Every line gets a sequence number that only grows; views remember the
+ * range they have shown and ask for what is new (see gui.LogConsole).
+ * clear() and replaceAll() bump the generation so views know to redraw.
+ * All methods are thread-safe.
+ */
+public class LogRingBuffer {
+
+    private final String[] lines;
+    private long firstSeq = 0; // sequence of the oldest retained line
+    private long nextSeq = 0;  // sequence the next line will get
+    private int generation = 0;
+
+    public LogRingBuffer(int capacity) {
+        this.lines = new String[Math.max(1, capacity)];
+    }
+
+    public synchronized void add(String line) {
+        lines[slot(nextSeq)] = line;
+        nextSeq++;
+        if (nextSeq - firstSeq > lines.length) {
+            firstSeq++;
+        }
+    }
+
+    public synchronized void addAll(Collection<String> newLines) {
+        for (String line : newLines) add(line);
+    }
+
+    /**
+     * Drop everything and start over with the given lines (e.g. after a reload from the database)
+     */
+    public synchronized void replaceAll(Collection<String> newLines) {
+        clear();
+        addAll(newLines);
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(lines, null);
+        firstSeq = nextSeq;
+        generation++;
+    }
+
+    /**
+     * @return The line with this sequence number, or null if it was overwritten or cleared
+     */
+    public synchronized String get(long seq) {
+        if (seq < firstSeq || seq >= nextSeq) return null;
+        return lines[slot(seq)];
+    }
+
+    /**
+     * @return Retained lines from the given sequence number on (older ones are skipped)
+     */
+    public synchronized List<String> since(long seq) {
+        long from = Math.max(seq, firstSeq);
+        List<String> result = new ArrayList<>((int) Math.max(0, nextSeq - from));
+        for (long s = from; s < nextSeq; s++) {
+            result.add(lines[slot(s)]);
+        }
+        return result;
+    }
+
+    public synchronized long firstSeq() {
+        return firstSeq;
+    }
+
+    public synchronized long nextSeq() {
+        return nextSeq;
+    }
+
+    public synchronized int generation() {
+        return generation;
+    }
+
+    public synchronized int size() {
+        return (int) (nextSeq - firstSeq);
+    }
+
+    public int capacity() {
+        return lines.length;
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % lines.length);
+    }
+}
@@ -0,0 +1,137 @@
+package utils;
+
+import models.ActivityLog;
+import models.LogSearchCriteria;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory inverted index over the activity logs loaded in the admin Logs tab
+ * - trigram postings on the lowercased action narrow free-text searches
+ *   (a term of 3+ characters can only occur in logs holding all of its trigrams)
+ * - user and machine postings narrow the structured filters
+ * Candidates are then checked with LogSearchCriteria.matches, so results are
+ * exactly what the database search would return for the same window.
+ */
+public class LogSearchIndex {
+
+    private final ActivityLog[] logs;       // oldest first, as loaded
+    private final Timestamp windowStart;
+    private final Map<String, int[]> trigramPostings = new HashMap<>();
+    private final Map<Integer, int[]> userPostings = new HashMap<>();
+    private final Map<Integer, int[]> machinePostings = new HashMap<>();
+
+    /**
+     * Build the index
+     * @param loaded Logs ordered by date, oldest first
+     * @param windowStart Earliest time the loaded list is complete from
+     */
+    public LogSearchIndex(List<ActivityLog> loaded, Timestamp windowStart) {
+        this.logs = loaded.toArray(new ActivityLog[0]);
+        this.windowStart = windowStart;
+
+        Map<String, IntList> trigrams = new HashMap<>();
+        Map<Integer, IntList> users = new HashMap<>();
+        Map<Integer, IntList> machines = new HashMap<>();
+        for (int i = 0; i < logs.length; i++) {
+            ActivityLog log = logs[i];
+            users.computeIfAbsent(log.getUserId(), k -> new IntList()).add(i);
+            machines.computeIfAbsent(log.getMachineId(), k -> new IntList()).add(i);
+            String action = (log.getAction() == null) ? "" : log.getAction().toLowerCase();
+            for (int j = 0; j + 3 <= action.length(); j++) {
+                IntList list = trigrams.computeIfAbsent(action.substring(j, j + 3), k -> new IntList());
+                list.addDistinct(i);
+            }
+        }
+        trigrams.forEach((k, v) -> trigramPostings.put(k, v.toArray()));
+        users.forEach((k, v) -> userPostings.put(k, v.toArray()));
+        machines.forEach((k, v) -> machinePostings.put(k, v.toArray()));
+    }
+
+    /**
+     * Check whether the loaded window fully covers a search's time range
+     */
+    public boolean covers(LogSearchCriteria criteria) {
+        return criteria.getFrom() != null && !criteria.getFrom().before(windowStart);
+    }
+
+    public int size() {
+        return logs.length;
+    }
+
+    /**
+     * Find every matching log
+     * @return Matches, newest first
+     */
+    public List<ActivityLog> search(LogSearchCriteria criteria) {
+        int[] candidates = null;
+        if (criteria.getUserId() != null) {
+            candidates = intersect(candidates, userPostings.getOrDefault(criteria.getUserId(), new int[0]));
+        }
+        if (criteria.getMachineId() != null) {
+            candidates = intersect(candidates, machinePostings.getOrDefault(criteria.getMachineId(), new int[0]));
+        }
+        List<String> terms = new ArrayList<>(Arrays.asList(criteria.getTextTerms()));
+        if (criteria.getActionType() != null) {
+            terms.add(criteria.getActionType().toLowerCase());
+        }
+        for (String term : terms) {
+            // Trace IDs are not in the action text; matches() checks them
+            if (LogSearchCriteria.isTraceId(term)) continue;
+            for (int j = 0; j + 3 <= term.length(); j++) {
+                candidates = intersect(candidates, trigramPostings.getOrDefault(term.substring(j, j + 3), new int[0]));
+                if (candidates.length == 0) return new ArrayList<>();
+            }
+        }
+
+        List<ActivityLog> results = new ArrayList<>();
+        if (candidates == null) {
+            for (int i = logs.length - 1; i >= 0; i--) {
+                if (criteria.matches(logs[i])) results.add(logs[i]);
+            }
+        } else {
+            for (int i = candidates.length - 1; i >= 0; i--) {
+                ActivityLog log = logs[candidates[i]];
+                if (criteria.matches(log)) results.add(log);
+            }
+        }
+        return results;
+    }
+
+    /** Intersect two ascending posting lists; null stands for "everything" */
+    private static int[] intersect(int[] a, int[] b) {
+        if (a == null) return b;
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else { out[n++] = a[i]; i++; j++; }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /** Growable int array for building postings without boxing */
+    private static class IntList {
+        private int[] data = new int[4];
+        private int size = 0;
+
+        void add(int v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+
+        void addDistinct(int v) {
+            if (size == 0 || data[size - 1] != v) add(v);
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
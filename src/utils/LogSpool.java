@@ -0,0 +1,421 @@
+package utils;
+
+import dao.ActivityLogHistoryDAO;
+import database.DatabaseConnection;
+import models.ActivityLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Local spool for activity logs that could not be written to the database
+ * - events are appended to memory-mapped segment files (spool-NNNNNN.seg)
+ * - every record carries a CRC32, so a record torn by a crash is detected and dropped
+ * - a background thread replays events in order, in batches, once the database is back;
+ *   activity_logs.event_id makes a repeated batch a no-op (sql/003_activity_log_event_ids.sql)
+ * - acknowledged segments are deleted, the active one is cleared and reused
+ *
+ * Segment layout:
+ *   header  int magic, int acked offset, long reserved
+ *   record  int payload length, int crc32(payload), payload
+ *   payload long uuid msb, long uuid lsb, int user id, int machine id, long time, short length + UTF-8 action,
+ *           then, for a traced event only, byte length + ASCII trace id
+ * A zero length marks the end of the written records.
+ *
+ * Settings (config/database.properties):
+ *   log.spool.dir             spool directory (default spool)
+ *   log.spool.segment.kb      segment size (default 1024)
+ *   log.spool.replay.seconds  replay interval while events are pending (default 15)
+ */
+public class LogSpool {
+
+    private static final int MAGIC = 0x4F434C53; // "OCLS"
+    private static final int HEADER_SIZE = 16;
+    private static final int ACK_OFFSET_POS = 4;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MAX_ACTION_LENGTH = 100; // activity_logs.action is varchar(100)
+    private static final int REPLAY_BATCH = 100;
+
+    private static final ActivityLogHistoryDAO historyDAO = new ActivityLogHistoryDAO();
+    private static final List<Segment> segments = new ArrayList<>();
+    private static final Object replayLock = new Object();
+    private static Path directory;
+    private static int segmentSize;
+    private static boolean opened = false;
+    private static ScheduledExecutorService replayer;
+
+    /** One spool file; only the last segment in the list takes appends */
+    private static class Segment {
+        final long sequence;
+        final Path path;
+        FileChannel channel;
+        MappedByteBuffer buffer;
+        int ackedOffset;
+        int writeOffset;
+
+        Segment(long sequence, Path path) {
+            this.sequence = sequence;
+            this.path = path;
+        }
+
+        boolean fullyAcked() {
+            return ackedOffset >= writeOffset;
+        }
+    }
+
+    /**
+     * Append an event to the spool and make sure replay is scheduled
+     * @param log Event to keep; an event ID is assigned if missing
+     * @return true if the event is on disk, false otherwise
+     */
+    public static boolean append(ActivityLog log) {
+        if (log.getEventId() == null) {
+            log.setEventId(UUID.randomUUID().toString());
+        }
+        byte[] payload = encode(log);
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+
+        synchronized (LogSpool.class) {
+            try {
+                open();
+                Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+                if (active == null || active.writeOffset + recordSize + 4 > segmentSize) {
+                    active = createSegment(active == null ? 1 : active.sequence + 1);
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+
+                // Payload and checksum first, length last: a record is visible only once complete
+                MappedByteBuffer buf = active.buffer;
+                buf.put(active.writeOffset + RECORD_HEADER_SIZE, payload);
+                buf.putInt(active.writeOffset + 4, (int) crc.getValue());
+                buf.putInt(active.writeOffset, payload.length);
+                buf.force();
+                active.writeOffset += recordSize;
+            } catch (IOException e) {
+                System.err.println("Error spooling activity log: " + e.getMessage());
+                return false;
+            }
+        }
+        scheduleReplay();
+        return true;
+    }
+
+    /**
+     * Check whether spooled events are still waiting for the database
+     * (new events should then be spooled too, to keep the order)
+     */
+    public static boolean hasPending() {
+        synchronized (LogSpool.class) {
+            try {
+                open();
+            } catch (IOException e) {
+                return false;
+            }
+            for (Segment segment : segments) {
+                if (!segment.fullyAcked()) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Start the replay thread if events were left over by a previous run
+     */
+    public static void resumeReplay() {
+        if (hasPending()) {
+            scheduleReplay();
+        }
+    }
+
+    /**
+     * Replay pending events oldest first until the spool is empty or the database fails
+     * @return Number of events sent to the database
+     */
+    public static int replay() {
+        synchronized (replayLock) {
+            int replayed = 0;
+            if (!hasPending() || !DatabaseConnection.testConnection()) {
+                return 0;
+            }
+            while (true) {
+                Segment segment;
+                List<ActivityLog> batch = new ArrayList<>();
+                int batchEnd;
+                synchronized (LogSpool.class) {
+                    compact();
+                    segment = firstPending();
+                    if (segment == null) break;
+                    batchEnd = readBatch(segment, batch);
+                }
+                if (!batch.isEmpty()) {
+                    boolean ok;
+                    try {
+                        ok = historyDAO.insertSpooledLogs(batch);
+                    } catch (Exception e) {
+                        System.err.println("Error replaying spooled logs: " + e.getMessage());
+                        ok = false;
+                    }
+                    if (!ok) break;
+                    replayed += batch.size();
+                }
+                synchronized (LogSpool.class) {
+                    acknowledge(segment, batchEnd);
+                }
+            }
+            synchronized (LogSpool.class) {
+                compact();
+            }
+            if (replayed > 0) {
+                System.out.println("[Activity Log] Replayed " + replayed + " spooled event(s)");
+            }
+            return replayed;
+        }
+    }
+
+    private static synchronized void scheduleReplay() {
+        if (replayer == null) {
+            replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "LogSpoolReplay");
+                t.setDaemon(true);
+                return t;
+            });
+            long interval = Math.max(1, DatabaseConnection.getLongProperty("log.spool.replay.seconds", 15));
+            replayer.scheduleWithFixedDelay(LogSpool::replayQuietly, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void replayQuietly() {
+        try {
+            replay();
+        } catch (Exception e) {
+            System.err.println("Error replaying spooled logs: " + e.getMessage());
+        }
+    }
+
+    // ===== Segment files (callers hold the LogSpool.class lock) =====
+
+    private static void open() throws IOException {
+        if (opened) return;
+        directory = Paths.get(DatabaseConnection.getProperty("log.spool.dir", "spool"));
+        segmentSize = (int) Math.max(64, Math.min(64 * 1024, DatabaseConnection.getLongProperty("log.spool.segment.kb", 1024))) * 1024;
+        Files.createDirectories(directory);
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "spool-*.seg")) {
+            for (Path p : stream) files.add(p);
+        }
+        files.sort(null);
+        for (Path p : files) {
+            Segment segment = new Segment(parseSequence(p), p);
+            map(segment, Math.max(segmentSize, (int) Files.size(p)));
+            if (segment.buffer.getInt(0) != MAGIC) {
+                System.err.println("[Activity Log] Ignoring unreadable spool file " + p.getFileName());
+                segment.channel.close();
+                continue;
+            }
+            segment.ackedOffset = Math.max(HEADER_SIZE, segment.buffer.getInt(ACK_OFFSET_POS));
+            segment.writeOffset = recover(segment);
+            segments.add(segment);
+        }
+        opened = true;
+        int pending = 0;
+        for (Segment segment : segments) {
+            if (!segment.fullyAcked()) pending++;
+        }
+        if (pending > 0) {
+            System.out.println("[Activity Log] Found " + pending + " spool segment(s) waiting for replay");
+        }
+    }
+
+    private static Segment createSegment(long sequence) throws IOException {
+        Path p = directory.resolve(String.format("spool-%06d.seg", sequence));
+        Segment segment = new Segment(sequence, p);
+        map(segment, segmentSize);
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(ACK_OFFSET_POS, HEADER_SIZE);
+        segment.buffer.force();
+        segment.ackedOffset = HEADER_SIZE;
+        segment.writeOffset = HEADER_SIZE;
+        segments.add(segment);
+        return segment;
+    }
+
+    private static void map(Segment segment, int size) throws IOException {
+        segment.channel = FileChannel.open(segment.path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment.buffer = segment.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * Walk the records and return the end of the last intact one.
+     * Anything after a torn or corrupt record is cleared so it cannot reappear.
+     */
+    private static int recover(Segment segment) {
+        MappedByteBuffer buf = segment.buffer;
+        int offset = HEADER_SIZE;
+        while (offset + RECORD_HEADER_SIZE <= buf.capacity()) {
+            int length = buf.getInt(offset);
+            if (length <= 0 || offset + RECORD_HEADER_SIZE + length > buf.capacity()) break;
+            if (checksum(buf, offset + RECORD_HEADER_SIZE, length) != buf.getInt(offset + 4)) {
+                System.err.println("[Activity Log] Dropping torn spool record in " + segment.path.getFileName() + " at " + offset);
+                break;
+            }
+            offset += RECORD_HEADER_SIZE + length;
+        }
+        clear(buf, offset, buf.capacity());
+        if (segment.ackedOffset > offset) {
+            segment.ackedOffset = offset;
+        }
+        return offset;
+    }
+
+    private static Segment firstPending() {
+        for (Segment segment : segments) {
+            if (!segment.fullyAcked()) return segment;
+        }
+        return null;
+    }
+
+    /**
+     * Decode up to REPLAY_BATCH records starting at the acknowledged offset
+     * @return Offset just after the last decoded record
+     */
+    private static int readBatch(Segment segment, List<ActivityLog> batch) {
+        MappedByteBuffer buf = segment.buffer;
+        int offset = segment.ackedOffset;
+        while (offset < segment.writeOffset && batch.size() < REPLAY_BATCH) {
+            int length = buf.getInt(offset);
+            byte[] payload = new byte[length];
+            buf.get(offset + RECORD_HEADER_SIZE, payload);
+            ActivityLog log = decode(payload);
+            if (log != null) batch.add(log);
+            offset += RECORD_HEADER_SIZE + length;
+        }
+        return offset;
+    }
+
+    private static void acknowledge(Segment segment, int offset) {
+        segment.ackedOffset = offset;
+        segment.buffer.putInt(ACK_OFFSET_POS, offset);
+        segment.buffer.force();
+    }
+
+    /**
+     * Delete fully acknowledged segments and clear the active one for reuse
+     */
+    private static void compact() {
+        for (int i = 0; i < segments.size() - 1; ) {
+            Segment segment = segments.get(i);
+            if (!segment.fullyAcked()) break;
+            try {
+                segment.channel.close();
+                segment.buffer = null;
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                // Still mapped on some platforms; it is fully acked, so the next start removes it
+                System.err.println("[Activity Log] Could not delete " + segment.path.getFileName() + ": " + e.getMessage());
+            }
+            segments.remove(i);
+        }
+        if (!segments.isEmpty()) {
+            Segment active = segments.get(segments.size() - 1);
+            if (active.fullyAcked() && active.writeOffset > HEADER_SIZE) {
+                clear(active.buffer, HEADER_SIZE, active.writeOffset);
+                active.writeOffset = HEADER_SIZE;
+                acknowledge(active, HEADER_SIZE);
+            }
+        }
+    }
+
+    private static void clear(MappedByteBuffer buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf.get(i) != 0) buf.put(i, (byte) 0);
+        }
+    }
+
+    private static int checksum(MappedByteBuffer buf, int offset, int length) {
+        byte[] payload = new byte[length];
+        buf.get(offset, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static long parseSequence(Path p) {
+        String name = p.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring("spool-".length(), name.length() - ".seg".length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // ===== Record encoding =====
+
+    private static byte[] encode(ActivityLog log) {
+        UUID id = UUID.fromString(log.getEventId());
+        String text = (log.getAction() == null) ? "" : log.getAction();
+        if (text.length() > MAX_ACTION_LENGTH) {
+            text = text.substring(0, MAX_ACTION_LENGTH);
+        }
+        byte[] action = text.getBytes(StandardCharsets.UTF_8);
+        byte[] trace = (log.getTraceId() == null) ? new byte[0] : log.getTraceId().getBytes(StandardCharsets.US_ASCII);
+        long time = (log.getLogDate() != null) ? log.getLogDate().getTime() : System.currentTimeMillis();
+
+        ByteBuffer out = ByteBuffer.allocate(8 + 8 + 4 + 4 + 8 + 2 + action.length + (trace.length > 0 ? 1 + trace.length : 0));
+        out.putLong(id.getMostSignificantBits());
+        out.putLong(id.getLeastSignificantBits());
+        out.putInt(log.getUserId());
+        out.putInt(log.getMachineId());
+        out.putLong(time);
+        out.putShort((short) action.length);
+        out.put(action);
+        if (trace.length > 0) {
+            out.put((byte) trace.length);
+            out.put(trace);
+        }
+        return out.array();
+    }
+
+    private static ActivityLog decode(byte[] payload) {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(payload);
+            UUID id = new UUID(in.getLong(), in.getLong());
+            int userId = in.getInt();
+            int machineId = in.getInt();
+            long time = in.getLong();
+            byte[] action = new byte[in.getShort() & 0xFFFF];
+            in.get(action);
+
+            ActivityLog log = new ActivityLog(0, userId, machineId, new String(action, StandardCharsets.UTF_8), new Timestamp(time));
+            log.setEventId(id.toString());
+            // Records spooled before trace IDs end after the action
+            if (in.hasRemaining()) {
+                byte[] trace = new byte[in.get() & 0xFF];
+                in.get(trace);
+                log.setTraceId(new String(trace, StandardCharsets.US_ASCII));
+            }
+            return log;
+        } catch (RuntimeException e) {
+            System.err.println("[Activity Log] Skipping undecodable spool record: " + e.getMessage());
+            return null;
+        }
+    }
+}
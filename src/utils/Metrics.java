@@ -0,0 +1,245 @@
+package utils;
+
+import models.MetricSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-process metrics registry behind the Diagnostics tab
+ * - counters are LongAdders (striped per thread under contention)
+ * - histograms keep log-linear buckets, 16 per power of two, so any
+ *   percentile is within 1/16 of the true value over the whole long range
+ *   without storing samples; timers are histograms in nanoseconds
+ * - gauges are read from a supplier when a snapshot is taken
+ * Recording allocates nothing and takes no lock, so it stays on in production.
+ * Look a metric up once and keep it in a static field: the lookup is a map get.
+ */
+public class Metrics {
+
+    private static final Map<String, Object> REGISTRY = new ConcurrentHashMap<>();
+
+    public static class Counter {
+        private final LongAdder adder = new LongAdder();
+
+        public void inc() {
+            adder.increment();
+        }
+
+        public void add(long n) {
+            adder.add(n);
+        }
+
+        public long get() {
+            return adder.sum();
+        }
+    }
+
+    public static class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+        private final String unit;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+        Histogram(String unit) {
+            this.unit = unit;
+        }
+
+        public void record(long value) {
+            if (value < 0) value = 0;
+            buckets.incrementAndGet(index(value));
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        /**
+         * Record the time elapsed since a System.nanoTime() reading
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+
+        static int index(long value) {
+            if (value < SUB) return (int) value;
+            int exp = 63 - Long.numberOfLeadingZeros(value);
+            return (exp - SUB_BITS + 1) * SUB + (int) ((value >>> (exp - SUB_BITS)) & (SUB - 1));
+        }
+
+        /**
+         * @return The largest value that falls into the bucket
+         */
+        static long highestValue(int index) {
+            if (index < SUB) return index;
+            int exp = index / SUB + SUB_BITS - 1;
+            long lowest = (long) (SUB + index % SUB) << (exp - SUB_BITS);
+            return lowest + (1L << (exp - SUB_BITS)) - 1;
+        }
+
+        MetricSnapshot snapshot(String name, String type) {
+            long[] counts = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                count += counts[i];
+            }
+            long maxValue = max.get();
+            long total = sum.sum();
+            return new MetricSnapshot(name, type, unit, count, total,
+                    count == 0 ? 0 : (double) total / count,
+                    percentile(counts, count, 0.50, maxValue),
+                    percentile(counts, count, 0.90, maxValue),
+                    percentile(counts, count, 0.99, maxValue),
+                    maxValue);
+        }
+
+        private static long percentile(long[] counts, long count, double p, long maxValue) {
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(p * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestValue(i), maxValue);
+            }
+            return maxValue;
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+            sum.reset();
+            max.reset();
+        }
+    }
+
+    private static class Gauge {
+        final String unit;
+        final LongSupplier supplier;
+
+        Gauge(String unit, LongSupplier supplier) {
+            this.unit = unit;
+            this.supplier = supplier;
+        }
+    }
+
+    private static class Timer extends Histogram {
+        Timer() {
+            super("ns");
+        }
+    }
+
+    public static Counter counter(String name) {
+        return lookup(name, Counter.class, Counter::new);
+    }
+
+    /**
+     * @param unit Unit of the recorded values, shown in the Diagnostics tab and exports
+     */
+    public static Histogram histogram(String name, String unit) {
+        return lookup(name, Histogram.class, () -> new Histogram(unit));
+    }
+
+    /**
+     * A histogram of durations in nanoseconds, fed with recordSince(System.nanoTime())
+     */
+    public static Histogram timer(String name) {
+        return lookup(name, Timer.class, Timer::new);
+    }
+
+    /**
+     * Register (or replace) a gauge; the supplier runs on the thread taking the snapshot
+     * and must not block
+     */
+    public static void gauge(String name, String unit, LongSupplier supplier) {
+        REGISTRY.put(name, new Gauge(unit, supplier));
+    }
+
+    private static <T> T lookup(String name, Class<T> type, Supplier<T> factory) {
+        Object metric = REGISTRY.get(name);
+        if (metric == null) metric = REGISTRY.computeIfAbsent(name, k -> factory.get());
+        if (metric.getClass() != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a "
+                    + metric.getClass().getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    /**
+     * @return Every metric's current reading, sorted by name
+     */
+    public static List<MetricSnapshot> snapshot() {
+        List<MetricSnapshot> list = new ArrayList<>();
+        for (Map.Entry<String, Object> e : REGISTRY.entrySet()) {
+            String name = e.getKey();
+            Object metric = e.getValue();
+            if (metric instanceof Counter) {
+                list.add(new MetricSnapshot(name, "counter", "", 0, ((Counter) metric).get(), 0, 0, 0, 0, 0));
+            } else if (metric instanceof Histogram) {
+                list.add(((Histogram) metric).snapshot(name, metric instanceof Timer ? "timer" : "histogram"));
+            } else {
+                Gauge gauge = (Gauge) metric;
+                long value;
+                try {
+                    value = gauge.supplier.getAsLong();
+                } catch (RuntimeException ex) {
+                    value = -1;
+                }
+                list.add(new MetricSnapshot(name, "gauge", gauge.unit, 0, value, 0, 0, 0, 0, 0));
+            }
+        }
+        list.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return list;
+    }
+
+    /**
+     * Zero every counter and histogram (gauges read live values and are left alone)
+     */
+    public static void reset() {
+        for (Object metric : REGISTRY.values()) {
+            if (metric instanceof Counter) {
+                ((Counter) metric).adder.reset();
+            } else if (metric instanceof Histogram) {
+                ((Histogram) metric).reset();
+            }
+        }
+    }
+
+    /**
+     * Write a snapshot as tab-separated text, one metric per line
+     * @param file Destination file (overwritten)
+     * @return Number of metrics written
+     */
+    public static int writeSnapshot(File file) throws IOException {
+        List<MetricSnapshot> metrics = snapshot();
+        try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            out.println("# metrics snapshot " + LocalDateTime.now());
+            out.println("name\ttype\tunit\tcount\tvalue\tmean\tp50\tp90\tp99\tmax");
+            for (MetricSnapshot m : metrics) {
+                out.println(m.getName() + "\t" + m.getType() + "\t" + m.getUnit() + "\t" + m.getCount()
+                        + "\t" + m.getValue() + "\t" + String.format(Locale.ROOT, "%.1f", m.getMean()) + "\t" + m.getP50()
+                        + "\t" + m.getP90() + "\t" + m.getP99() + "\t" + m.getMax());
+            }
+            if (out.checkError()) throw new IOException("Could not write " + file);
+        }
+        return metrics.size();
+    }
+}
@@ -0,0 +1,92 @@
+package utils;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Encodes a stream of blocks on several threads and hands the results on in
+ * their original order (e.g. compressing a dump pigz-style, one gzip member
+ * per block).
+ *
+ * Memory stays bounded: at most 2 * threads blocks are in flight, and write()
+ * blocks until the oldest is encoded and passed to the sink. The sink runs on
+ * the writing thread. Not thread-safe: one producer thread.
+ */
+public class ParallelBlockEncoder implements AutoCloseable {
+
+    public interface Transform {
+        /**
+         * Encode one block (runs on a pool thread)
+         * @param index Position of the block in the stream, from 0
+         */
+        byte[] apply(byte[] block, int length, long index) throws Exception;
+    }
+
+    public interface Sink {
+        void accept(byte[] encoded) throws IOException, InterruptedException;
+    }
+
+    private final ExecutorService pool;
+    private final Transform transform;
+    private final Sink sink;
+    private final int maxInFlight;
+    private final ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private long nextIndex = 0;
+
+    public ParallelBlockEncoder(String name, int threads, Transform transform, Sink sink) {
+        int n = Math.max(1, threads);
+        this.pool = Executors.newFixedThreadPool(n, r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+        this.transform = transform;
+        this.sink = sink;
+        this.maxInFlight = 2 * n;
+    }
+
+    /**
+     * Queue a block for encoding; the encoder owns the array from now on
+     */
+    public void write(byte[] block, int length) throws IOException, InterruptedException {
+        while (inFlight.size() >= maxInFlight) drainOne();
+        final long index = nextIndex++;
+        inFlight.add(pool.submit(() -> transform.apply(block, length, index)));
+    }
+
+    /**
+     * Wait for every queued block and pass it to the sink
+     */
+    public void finish() throws IOException, InterruptedException {
+        while (!inFlight.isEmpty()) drainOne();
+    }
+
+    /**
+     * @return Number of blocks written so far
+     */
+    public long getBlockCount() {
+        return nextIndex;
+    }
+
+    private void drainOne() throws IOException, InterruptedException {
+        Future<byte[]> head = inFlight.poll();
+        try {
+            sink.accept(head.get());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException("Block encoding failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Future<byte[]> f : inFlight) f.cancel(true);
+        inFlight.clear();
+        pool.shutdownNow();
+    }
+}
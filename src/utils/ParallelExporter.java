@@ -0,0 +1,462 @@
+package utils;
+
+import database.DatabaseConnection;
+import models.ExportSummary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Native database export over JDBC, in the ExportFormat (an alternative to mysqldump
+ * that needs no client binaries and uses the application's own connection settings)
+ * - every connection starts its transaction WITH CONSISTENT SNAPSHOT while
+ *   FLUSH TABLES WITH READ LOCK is held for a moment, so all of them see the same
+ *   point in time; without the RELOAD privilege the export uses one connection
+ * - rows are read through server-side cursors (useCursorFetch, backup.export.fetch.rows
+ *   per round trip), so memory does not grow with the table
+ * - tables are exported in parallel on backup.export.threads connections, and a
+ *   table with more than backup.export.split.rows rows is split into ranges of its
+ *   integer primary key, largest work first
+ * - rows are packed into ~1 MB chunks, each checksummed and deflated
+ *   (backup.compress.level) on the thread that read it; one thread writes the output
+ */
+public class ParallelExporter {
+
+    private static final int CHUNK_RAW_BYTES = 1024 * 1024;
+    private static final int MAX_PARTS_PER_TABLE = 64;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+
+    private final int threads;
+    private final long splitRows;
+    private final int fetchRows;
+    private final int level;
+
+    public ParallelExporter(int threads, long splitRows, int fetchRows, int level) {
+        this.threads = Math.max(1, threads);
+        this.splitRows = Math.max(1, splitRows);
+        this.fetchRows = Math.max(1, fetchRows);
+        this.level = Math.min(9, Math.max(0, level));
+    }
+
+    public static ParallelExporter fromConfig() {
+        return new ParallelExporter(
+                (int) DatabaseConnection.getLongProperty("backup.export.threads",
+                        Math.min(4, Runtime.getRuntime().availableProcessors())),
+                DatabaseConnection.getLongProperty("backup.export.split.rows", 250_000),
+                (int) DatabaseConnection.getLongProperty("backup.export.fetch.rows", 2000),
+                BackupManager.getCompressionLevel());
+    }
+
+    static class TableInfo {
+        final String name;
+        final long estimatedRows;
+        String createSql;
+        final List<String> columns = new ArrayList<>();
+        final List<String> selectList = new ArrayList<>();
+        byte[] kinds;
+        String splitColumn;
+        final AtomicLong rows = new AtomicLong();
+        final AtomicLong chunks = new AtomicLong();
+
+        TableInfo(String name, long estimatedRows) {
+            this.name = name;
+            this.estimatedRows = estimatedRows;
+        }
+    }
+
+    /** One SELECT: a whole table, or one primary-key range of it */
+    private static class Task {
+        final TableInfo table;
+        final int part;
+        final String where;
+        final long estimatedRows;
+
+        Task(TableInfo table, int part, String where, long estimatedRows) {
+            this.table = table;
+            this.part = part;
+            this.where = where;
+            this.estimatedRows = estimatedRows;
+        }
+    }
+
+    /** Lets a full chunk be compressed without copying it first */
+    private static class ChunkBuffer extends ByteArrayOutputStream {
+        ChunkBuffer() {
+            super(CHUNK_RAW_BYTES + 64 * 1024);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    /**
+     * Export the configured database to a stream (call off the EDT)
+     * @param progress Notified with the row bytes read and the bytes written (may be null)
+     */
+    public ExportSummary export(OutputStream out, BackupManager.ProgressListener progress)
+            throws IOException, SQLException, InterruptedException {
+        long start = System.currentTimeMillis();
+        Properties cursorFetch = new Properties();
+        cursorFetch.setProperty("useCursorFetch", "true");
+        cursorFetch.setProperty("defaultFetchSize", String.valueOf(fetchRows));
+
+        List<Connection> connections = new ArrayList<>();
+        ExecutorService pool = null;
+        try {
+            for (int i = 0; i < threads; i++) connections.add(DatabaseConnection.openConnection(cursorFetch));
+            boolean shared = beginSnapshots(connections);
+            if (!shared) {
+                while (connections.size() > 1) connections.remove(connections.size() - 1).close();
+            }
+
+            Connection meta = connections.get(0);
+            List<TableInfo> tables = readTables(meta);
+            List<byte[]> schema = new ArrayList<>();
+            schema.add(ExportFormat.header(meta.getCatalog(), meta.getMetaData().getDatabaseProductVersion()));
+            for (TableInfo table : tables) {
+                schema.add(ExportFormat.tableRecord(table.name, table.createSql, table.columns, table.kinds));
+            }
+            for (String[] trigger : readTriggers(meta)) {
+                schema.add(ExportFormat.triggerRecord(trigger[0], trigger[1]));
+            }
+            long stored = 0;
+            for (byte[] record : schema) {
+                out.write(record);
+                stored += record.length;
+            }
+
+            List<Task> plan = new ArrayList<>();
+            for (TableInfo table : tables) plan.addAll(split(meta, table));
+            plan.sort(Comparator.comparingLong((Task t) -> t.estimatedRows).reversed());
+            ConcurrentLinkedQueue<Task> tasks = new ConcurrentLinkedQueue<>(plan);
+
+            int workers = connections.size();
+            BlockingQueue<byte[]> records = new ArrayBlockingQueue<>(workers * 2);
+            AtomicReference<Exception> failure = new AtomicReference<>();
+            AtomicLong rawBytes = new AtomicLong();
+            CountDownLatch done = new CountDownLatch(workers);
+            pool = Executors.newFixedThreadPool(workers, r -> {
+                Thread t = new Thread(r, "ExportWorker");
+                t.setDaemon(true);
+                return t;
+            });
+            for (Connection conn : connections) {
+                pool.submit(() -> {
+                    try {
+                        Task task;
+                        while (failure.get() == null && (task = tasks.poll()) != null) {
+                            exportTask(conn, task, records, rawBytes);
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+
+            // Workers put a record before counting down, so an empty queue after the
+            // last count-down means everything has been written
+            long chunks = 0;
+            long lastProgress = 0;
+            while (failure.get() == null && !(done.getCount() == 0 && records.isEmpty())) {
+                byte[] record = records.poll(100, TimeUnit.MILLISECONDS);
+                if (record == null) continue;
+                out.write(record);
+                stored += record.length;
+                chunks++;
+                long now = System.currentTimeMillis();
+                if (progress != null && now - lastProgress >= PROGRESS_INTERVAL_MS) {
+                    lastProgress = now;
+                    progress.onProgress(rawBytes.get(), stored);
+                }
+            }
+            Exception error = failure.get();
+            if (error instanceof IOException) throw (IOException) error;
+            if (error instanceof SQLException) throw (SQLException) error;
+            if (error != null) throw new IOException("Export failed: " + error.getMessage(), error);
+
+            Map<String, long[]> totals = new LinkedHashMap<>();
+            long rows = 0;
+            for (TableInfo table : tables) {
+                totals.put(table.name, new long[]{table.rows.get(), table.chunks.get()});
+                rows += table.rows.get();
+            }
+            byte[] end = ExportFormat.endRecord(totals);
+            out.write(end);
+            out.flush();
+            stored += end.length;
+            if (progress != null) progress.onProgress(rawBytes.get(), stored);
+            return new ExportSummary(tables.size(), rows, chunks, rawBytes.get(), stored,
+                    System.currentTimeMillis() - start, workers, shared);
+        } finally {
+            if (pool != null) pool.shutdownNow();
+            for (Connection conn : connections) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ignored) {
+                    // Read-only snapshot; closing ends it anyway
+                }
+                try {
+                    conn.close();
+                } catch (SQLException ignored) {
+                    // Already broken
+                }
+            }
+        }
+    }
+
+    /**
+     * Start a consistent-snapshot transaction on every connection, at the same point in time
+     * @return false if the snapshots could not be synchronized (only the first one is usable)
+     */
+    static boolean beginSnapshots(List<Connection> connections) throws SQLException {
+        for (Connection conn : connections) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET SESSION TRANSACTION ISOLATION LEVEL REPEATABLE READ");
+                // Temporal values are exported as text; UTC keeps TIMESTAMPs independent of this machine
+                stmt.execute("SET time_zone = '+00:00'");
+            }
+        }
+        if (connections.size() == 1) {
+            startSnapshot(connections.get(0));
+            return true;
+        }
+        Connection coordinator = connections.get(0);
+        try (Statement lock = coordinator.createStatement()) {
+            try {
+                lock.execute("FLUSH TABLES WITH READ LOCK");
+            } catch (SQLException e) {
+                System.err.println("Export: cannot lock tables to share a snapshot (" + e.getMessage()
+                        + "); exporting on one connection");
+                startSnapshot(coordinator);
+                return false;
+            }
+            try {
+                // Writes are blocked, so every snapshot taken now sees the same data
+                for (Connection conn : connections) startSnapshot(conn);
+            } finally {
+                lock.execute("UNLOCK TABLES");
+            }
+        }
+        return true;
+    }
+
+    private static void startSnapshot(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+        }
+    }
+
+    /**
+     * Base tables with their definition, exported columns and split column
+     */
+    static List<TableInfo> readTables(Connection conn) throws SQLException {
+        List<TableInfo> tables = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT TABLE_NAME, COALESCE(TABLE_ROWS, 0) FROM information_schema.TABLES " +
+                     "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_TYPE = 'BASE TABLE' ORDER BY TABLE_NAME")) {
+            while (rs.next()) tables.add(new TableInfo(rs.getString(1), rs.getLong(2)));
+        }
+        String columnsSql = "SELECT COLUMN_NAME, DATA_TYPE, COLUMN_TYPE, EXTRA FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION";
+        String keySql = "SELECT COLUMN_NAME FROM information_schema.KEY_COLUMN_USAGE " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND CONSTRAINT_NAME = 'PRIMARY' " +
+                "ORDER BY ORDINAL_POSITION LIMIT 1";
+        for (TableInfo table : tables) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SHOW CREATE TABLE " + quote(table.name))) {
+                rs.next();
+                table.createSql = rs.getString(2);
+            }
+            List<Byte> kinds = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(columnsSql)) {
+                pstmt.setString(1, table.name);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    String extra = rs.getString("EXTRA");
+                    // Generated columns are recomputed on restore
+                    if (extra != null && extra.toUpperCase().contains("GENERATED")) continue;
+                    String column = rs.getString("COLUMN_NAME");
+                    String dataType = rs.getString("DATA_TYPE").toLowerCase();
+                    byte kind = kindOf(dataType, rs.getString("COLUMN_TYPE").toLowerCase());
+                    table.columns.add(column);
+                    table.selectList.add(castToText(dataType) ? "CAST(" + quote(column) + " AS CHAR)" : quote(column));
+                    kinds.add(kind);
+                }
+            }
+            table.kinds = new byte[kinds.size()];
+            for (int i = 0; i < kinds.size(); i++) table.kinds[i] = kinds.get(i);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(keySql)) {
+                pstmt.setString(1, table.name);
+                ResultSet rs = pstmt.executeQuery();
+                if (rs.next()) {
+                    int index = table.columns.indexOf(rs.getString(1));
+                    if (index >= 0 && table.kinds[index] == ExportFormat.LONG) table.splitColumn = rs.getString(1);
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * @return {name, CREATE TRIGGER} per trigger
+     */
+    private static List<String[]> readTriggers(Connection conn) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT TRIGGER_NAME FROM information_schema.TRIGGERS " +
+                     "WHERE TRIGGER_SCHEMA = DATABASE() ORDER BY EVENT_OBJECT_TABLE, ACTION_ORDER")) {
+            while (rs.next()) names.add(rs.getString(1));
+        }
+        List<String[]> triggers = new ArrayList<>();
+        for (String name : names) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SHOW CREATE TRIGGER " + quote(name))) {
+                if (rs.next()) triggers.add(new String[]{name, rs.getString("SQL Original Statement")});
+            }
+        }
+        return triggers;
+    }
+
+    /**
+     * One task per table, or equal primary-key ranges (within the snapshot) for a large one
+     */
+    private List<Task> split(Connection conn, TableInfo table) throws SQLException {
+        List<Task> tasks = new ArrayList<>();
+        long parts = Math.min(MAX_PARTS_PER_TABLE, (table.estimatedRows + splitRows - 1) / splitRows);
+        if (table.splitColumn == null || parts <= 1) {
+            tasks.add(new Task(table, 0, null, table.estimatedRows));
+            return tasks;
+        }
+        long min;
+        long max;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(" + quote(table.splitColumn) + "), MAX("
+                     + quote(table.splitColumn) + ") FROM " + quote(table.name))) {
+            rs.next();
+            min = rs.getLong(1);
+            max = rs.getLong(2);
+        }
+        long step = Math.max(1, (max - min) / parts + 1);
+        String column = quote(table.splitColumn);
+        for (int i = 0; i < parts; i++) {
+            long lo = min + i * step;
+            if (lo > max) break;
+            // The first and last ranges are open-ended, so no row can fall outside them
+            List<String> bounds = new ArrayList<>();
+            if (i > 0) bounds.add(column + " >= " + lo);
+            if (lo + step <= max) bounds.add(column + " < " + (lo + step));
+            tasks.add(new Task(table, i, bounds.isEmpty() ? null : String.join(" AND ", bounds), table.estimatedRows / parts));
+        }
+        return tasks;
+    }
+
+    private void exportTask(Connection conn, Task task, BlockingQueue<byte[]> records, AtomicLong rawBytes)
+            throws SQLException, IOException, InterruptedException {
+        TableInfo table = task.table;
+        String sql = "SELECT " + String.join(", ", table.selectList) + " FROM " + quote(table.name)
+                + (task.where != null ? " WHERE " + task.where : "");
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(fetchRows);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ChunkBuffer buffer = new ChunkBuffer();
+                DataOutputStream data = new DataOutputStream(buffer);
+                int columns = table.kinds.length;
+                int rows = 0;
+                int sequence = 0;
+                while (rs.next()) {
+                    for (int c = 0; c < columns; c++) {
+                        ExportFormat.writeValue(data, table.kinds[c], read(rs, c + 1, table.kinds[c]));
+                    }
+                    rows++;
+                    if (buffer.size() >= CHUNK_RAW_BYTES) {
+                        emit(task, sequence++, rows, buffer, records, rawBytes);
+                        rows = 0;
+                    }
+                }
+                if (rows > 0) emit(task, sequence, rows, buffer, records, rawBytes);
+            }
+        }
+    }
+
+    private void emit(Task task, int sequence, int rows, ChunkBuffer buffer,
+                      BlockingQueue<byte[]> records, AtomicLong rawBytes) throws IOException, InterruptedException {
+        byte[] record = ExportFormat.chunkRecord(task.table.name, task.part, sequence, rows,
+                buffer.array(), buffer.size(), level);
+        rawBytes.addAndGet(buffer.size());
+        task.table.rows.addAndGet(rows);
+        task.table.chunks.incrementAndGet();
+        buffer.reset();
+        records.put(record);
+    }
+
+    static Object read(ResultSet rs, int column, byte kind) throws SQLException {
+        switch (kind) {
+            case ExportFormat.LONG:
+                long value = rs.getLong(column);
+                return rs.wasNull() ? null : value;
+            case ExportFormat.BYTES:
+                return rs.getBytes(column);
+            default:
+                return rs.getString(column);
+        }
+    }
+
+    private static byte kindOf(String dataType, String columnType) {
+        switch (dataType) {
+            case "tinyint": case "smallint": case "mediumint": case "int": case "integer":
+                return ExportFormat.LONG;
+            case "bigint":
+                // Unsigned values above Long.MAX_VALUE survive only as text
+                return columnType.contains("unsigned") ? ExportFormat.TEXT : ExportFormat.LONG;
+            case "binary": case "varbinary": case "tinyblob": case "blob": case "mediumblob": case "longblob":
+            case "bit": case "geometry": case "point": case "linestring": case "polygon":
+                return ExportFormat.BYTES;
+            default:
+                return ExportFormat.TEXT;
+        }
+    }
+
+    /**
+     * Columns read as the server's own text, so no client-side conversion can alter them
+     */
+    private static boolean castToText(String dataType) {
+        switch (dataType) {
+            case "date": case "datetime": case "timestamp": case "time": case "year":
+            case "decimal": case "float": case "double": case "json":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static String quote(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+}
@@ -14,6 +14,11 @@ import java.io.InputStreamReader;
  * Reduces code duplication between AdminDashboard and UserDashboard
  */
 public class PartitionOperations {
+
+    // Operations run through runPowerShellAsync; queries are the short reads (label, supported size)
+    private static final Metrics.Histogram OPERATION_TIMER = Metrics.timer("powershell.operation");
+    private static final Metrics.Histogram QUERY_TIMER = Metrics.timer("powershell.query");
+    private static final Metrics.Counter FAILURES = Metrics.counter("powershell.failures");
     
     /**
      * Execute a PowerShell command asynchronously with a loading dialog
@@ -31,6 +36,8 @@ public class PartitionOperations {
         loader.setLocationRelativeTo(parent);
 
         new Thread(() -> {
+            long start = System.nanoTime();
+            JfrEvents.ShellCommand event = JfrEvents.ShellCommand.start("operation", command);
             try {
                 String wrapped = "$ErrorActionPreference='Stop'; " + command + "; try { Start-Sleep -Milliseconds 500; Update-HostStorageCache -ErrorAction SilentlyContinue } catch {}";
                 ProcessBuilder pb = new ProcessBuilder("powershell.exe", "-Command", wrapped);
@@ -45,14 +52,12 @@ public class PartitionOperations {
                 }
                 reader.close();
                 int exitCode = process.waitFor();
+                OPERATION_TIMER.recordSince(start);
+                event.finish(exitCode, output.length());
 
                 String result = output.toString();
-                boolean likelyError = exitCode != 0
-                        || result.toLowerCase().contains("error")
-                        || result.toLowerCase().contains("denied")
-                        || result.toLowerCase().contains("unauthorized")
-                        || result.contains("No MSFT_Partition objects found");
-                if (likelyError) {
+                if (looksLikeError(exitCode, result)) {
+                    FAILURES.inc();
                     System.err.println("[ERROR] " + actionDescription + ":\n" + result);
                     final String details = summarizeOutput(result);
                     SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(parent,
@@ -64,6 +69,8 @@ public class PartitionOperations {
                 }
 
             } catch (Exception e) {
+                FAILURES.inc();
+                event.finish(-1, 0);
                 System.err.println("[ERROR] " + actionDescription + ": " + e.getMessage());
             } finally {
                 SwingUtilities.invokeLater(() -> {
@@ -78,13 +85,45 @@ public class PartitionOperations {
         loader.setVisible(true);
     }
 
-    private static String summarizeOutput(String output) {
+    private static final String[] ERROR_WORDS = {"error", "denied", "unauthorized"};
+
+    /**
+     * Whether a PowerShell run failed: a non-zero exit code, or output mentioning an
+     * error, a denial or a missing partition (searched in place, without lower-casing a
+     * copy of what can be megabytes of output)
+     */
+    public static boolean looksLikeError(int exitCode, String output) {
+        if (exitCode != 0 || output.contains("No MSFT_Partition objects found")) return true;
+        // One pass for all the words. Their first two letters are ASCII letters no other
+        // character folds to, so setting the lower-case bit is enough to spot a candidate
+        // before comparing the whole word
+        for (int i = 0, n = output.length() - 1; i < n; i++) {
+            int c = output.charAt(i) | 0x20;
+            if (c != 'e' && c != 'd' && c != 'u') continue;
+            int next = output.charAt(i + 1) | 0x20;
+            for (String word : ERROR_WORDS) {
+                if (c == word.charAt(0) && next == word.charAt(1)
+                        && output.regionMatches(true, i, word, 0, word.length())) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The last 6 lines of a command's output (trimmed), found by scanning back from the
+     * end rather than splitting the whole output
+     */
+    public static String summarizeOutput(String output) {
         if (output == null) return "";
-        String[] lines = output.split("\n");
-        int start = Math.max(0, lines.length - 6);
-        StringBuilder sb = new StringBuilder();
-        for (int i = start; i < lines.length; i++) sb.append(lines[i]).append("\n");
-        return sb.toString().trim();
+        int end = output.length();
+        while (end > 0 && output.charAt(end - 1) == '\n') end--;
+        int start = end;
+        for (int lines = 0; start > 0; start--) {
+            if (output.charAt(start - 1) == '\n' && ++lines == 6) break;
+        }
+        while (start < end && output.charAt(start) <= ' ') start++;
+        while (end > start && output.charAt(end - 1) <= ' ') end--;
+        return output.substring(start, end);
     }
     
     /**
@@ -93,8 +132,10 @@ public class PartitionOperations {
      * @return Volume label or empty string if not found
      */
     public static String getVolumeLabel(String driveLetter) {
+        long start = System.nanoTime();
+        String command = "(Get-Volume -DriveLetter " + driveLetter + ").FileSystemLabel";
+        JfrEvents.ShellCommand event = JfrEvents.ShellCommand.start("query", command);
         try {
-            String command = "(Get-Volume -DriveLetter " + driveLetter + ").FileSystemLabel";
             ProcessBuilder pb = new ProcessBuilder("powershell.exe", "-Command", command);
             pb.redirectErrorStream(true);
             Process process = pb.start();
@@ -102,13 +143,17 @@ public class PartitionOperations {
             BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
             String label = reader.readLine();
             reader.close();
-            process.waitFor();
+            int exitCode = process.waitFor();
+            QUERY_TIMER.recordSince(start);
+            event.finish(exitCode, label == null ? 0 : label.length());
             
             if (label != null && !label.trim().isEmpty() && !label.contains("error")) {
                 return label.trim();
             }
         } catch (Exception e) {
             // Silently fail and return empty string
+            FAILURES.inc();
+            event.finish(-1, 0);
         }
         return "";
     }
@@ -138,18 +183,25 @@ public class PartitionOperations {
         drive = drive.replace(":", "").trim().toUpperCase();
         double totalGB = totalBytes / 1_073_741_824.0;
         long sizeMinBytes = totalBytes;
+        long start = System.nanoTime();
+        String cmdMin = "(Get-PartitionSupportedSize -DriveLetter " + drive + ").SizeMin";
+        JfrEvents.ShellCommand event = JfrEvents.ShellCommand.start("query", cmdMin);
         try {
-            String cmdMin = "(Get-PartitionSupportedSize -DriveLetter " + drive + ").SizeMin";
             ProcessBuilder pb = new ProcessBuilder("powershell.exe", "-Command", cmdMin);
             pb.redirectErrorStream(true);
             Process p = pb.start();
             BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream()));
             String s = r.readLine();
             r.close();
+            QUERY_TIMER.recordSince(start);
+            event.finish(-1, s == null ? 0 : s.length());
             if (s != null && !s.trim().isEmpty()) {
                 sizeMinBytes = Long.parseLong(s.trim());
             }
-        } catch (Exception ignored) {}
+        } catch (Exception e) {
+            FAILURES.inc();
+            event.finish(-1, 0);
+        }
         double maxShrinkGB = Math.max(0, (totalBytes - sizeMinBytes) / 1_073_741_824.0);
         String shrinkInput = JOptionPane.showInputDialog(parent, "Enter amount to shrink (GB):", 
                                                          String.format("%.2f", maxShrinkGB));
@@ -190,18 +242,25 @@ public class PartitionOperations {
         drive = drive.replace(":", "").trim().toUpperCase();
         double totalGB = totalBytes / 1_073_741_824.0;
         long sizeMaxBytes = totalBytes;
+        long start = System.nanoTime();
+        String cmdMax = "(Get-PartitionSupportedSize -DriveLetter " + drive + ").SizeMax";
+        JfrEvents.ShellCommand event = JfrEvents.ShellCommand.start("query", cmdMax);
         try {
-            String cmdMax = "(Get-PartitionSupportedSize -DriveLetter " + drive + ").SizeMax";
             ProcessBuilder pb = new ProcessBuilder("powershell.exe", "-Command", cmdMax);
             pb.redirectErrorStream(true);
             Process p = pb.start();
             BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream()));
             String s = r.readLine();
             r.close();
+            QUERY_TIMER.recordSince(start);
+            event.finish(-1, s == null ? 0 : s.length());
             if (s != null && !s.trim().isEmpty()) {
                 sizeMaxBytes = Long.parseLong(s.trim());
             }
-        } catch (Exception ignored) {}
+        } catch (Exception e) {
+            FAILURES.inc();
+            event.finish(-1, 0);
+        }
         double maxExtendGB = Math.max(0, (sizeMaxBytes - totalBytes) / 1_073_741_824.0);
         String extendInput = JOptionPane.showInputDialog(parent, "Enter amount to extend (GB):", 
                                                          String.format("%.2f", maxExtendGB));
@@ -351,8 +410,10 @@ public class PartitionOperations {
     public static void showSupportedSize(JFrame parent, String drive) {
         if (drive == null || drive.trim().isEmpty()) return;
         drive = drive.replace(":", "").trim().toUpperCase();
+        long start = System.nanoTime();
+        String cmd = "$s=Get-PartitionSupportedSize -DriveLetter " + drive + "; Write-Output $s.SizeMin; Write-Output $s.SizeMax";
+        JfrEvents.ShellCommand event = JfrEvents.ShellCommand.start("query", cmd);
         try {
-            String cmd = "$s=Get-PartitionSupportedSize -DriveLetter " + drive + "; Write-Output $s.SizeMin; Write-Output $s.SizeMax";
             ProcessBuilder pb = new ProcessBuilder("powershell.exe", "-Command", cmd);
             pb.redirectErrorStream(true);
             Process p = pb.start();
@@ -360,6 +421,9 @@ public class PartitionOperations {
             String minStr = r.readLine();
             String maxStr = r.readLine();
             r.close();
+            QUERY_TIMER.recordSince(start);
+            // Only the lines needed are read and the process is not waited for: exit code unknown
+            event.finish(-1, (minStr == null ? 0 : minStr.length()) + (maxStr == null ? 0 : maxStr.length()));
             long min = (minStr != null && !minStr.trim().isEmpty()) ? Long.parseLong(minStr.trim()) : -1;
             long max = (maxStr != null && !maxStr.trim().isEmpty()) ? Long.parseLong(maxStr.trim()) : -1;
             double minGB = (min >= 0) ? (min / 1_073_741_824.0) : -1;
@@ -371,6 +435,8 @@ public class PartitionOperations {
                     "Partition Supported Size",
                     JOptionPane.INFORMATION_MESSAGE);
         } catch (Exception ex) {
+            FAILURES.inc();
+            event.finish(-1, 0);
             JOptionPane.showMessageDialog(parent, "Failed to query supported size: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
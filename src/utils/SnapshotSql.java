@@ -0,0 +1,230 @@
+package utils;
+
+import database.DatabaseConnection;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * One consistent-snapshot transaction on a dedicated connection, read out as SQL
+ * for an incremental backup: the increment is planned from it (watermarks, changed
+ * ids) and its rows are streamed from it, so every part is the same point in time
+ * - the snapshot is started as ParallelExporter starts its own (REPEATABLE READ, UTC)
+ * - rows come out as REPLACE statements of up to ~512 KB, read through a server-side
+ *   cursor (backup.export.fetch.rows per round trip)
+ * - values are read as ParallelExporter reads them: integers as numbers, binary as
+ *   hex literals, everything else as the server's own text
+ * Close it once the backup's stream has been read (or abandoned).
+ */
+class SnapshotSql implements Closeable {
+
+    private static final int STATEMENT_CHARS = 512 * 1024;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Connection conn;
+    private final Map<String, ParallelExporter.TableInfo> tables = new HashMap<>();
+
+    private SnapshotSql(Connection conn, List<ParallelExporter.TableInfo> tables) {
+        this.conn = conn;
+        for (ParallelExporter.TableInfo table : tables) this.tables.put(table.name, table);
+    }
+
+    static SnapshotSql open() throws SQLException {
+        Properties cursorFetch = new Properties();
+        cursorFetch.setProperty("useCursorFetch", "true");
+        cursorFetch.setProperty("defaultFetchSize",
+                String.valueOf(Math.max(1, DatabaseConnection.getLongProperty("backup.export.fetch.rows", 2000))));
+        Connection conn = DatabaseConnection.openConnection(cursorFetch);
+        try {
+            ParallelExporter.beginSnapshots(List.of(conn));
+            return new SnapshotSql(conn, ParallelExporter.readTables(conn));
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The snapshot connection, for queries that must see the same point in time
+     */
+    Connection getConnection() {
+        return conn;
+    }
+
+    boolean hasTable(String table) {
+        return tables.containsKey(table);
+    }
+
+    /**
+     * Session settings the statements of rows() rely on when they are replayed
+     */
+    static String sessionSql() {
+        return "SET NAMES utf8mb4;\n"
+                + "SET time_zone = '+00:00';\n"
+                + "SET SQL_MODE = 'NO_AUTO_VALUE_ON_ZERO';\n";
+    }
+
+    /**
+     * Rows of one table as REPLACE statements, read when the stream is; the query
+     * runs on the snapshot connection, so read these streams one after another
+     * @param where Condition on the table's rows, or null for all of them
+     */
+    InputStream rows(String table, String where) {
+        return new RowStream(tables.get(table), where);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            conn.rollback();
+        } catch (SQLException ignored) {
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            throw new IOException("Closing snapshot connection: " + e.getMessage(), e);
+        }
+    }
+
+    private class RowStream extends InputStream {
+        private final ParallelExporter.TableInfo table;
+        private final String where;
+        private PreparedStatement stmt;
+        private ResultSet rs;
+        private byte[] buffer = new byte[0];
+        private int pos = 0;
+        private boolean done = false;
+
+        RowStream(ParallelExporter.TableInfo table, String where) {
+            this.table = table;
+            this.where = where;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return (n < 0) ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            while (pos == buffer.length) {
+                if (!fill()) return -1;
+            }
+            int n = Math.min(len, buffer.length - pos);
+            System.arraycopy(buffer, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        /**
+         * Render the next REPLACE statement
+         * @return false once every row has been written
+         */
+        private boolean fill() throws IOException {
+            if (done) return false;
+            if (table == null) {
+                done = true;
+                throw new IOException("Table not found in the snapshot");
+            }
+            try {
+                if (rs == null) {
+                    String sql = "SELECT " + String.join(", ", table.selectList) + " FROM "
+                            + ParallelExporter.quote(table.name) + (where != null ? " WHERE " + where : "");
+                    stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    rs = stmt.executeQuery();
+                }
+                StringBuilder sql = new StringBuilder();
+                int columns = table.kinds.length;
+                while (sql.length() < STATEMENT_CHARS && rs.next()) {
+                    if (sql.length() == 0) {
+                        sql.append("REPLACE INTO ").append(ParallelExporter.quote(table.name)).append(" (");
+                        for (int c = 0; c < columns; c++) {
+                            if (c > 0) sql.append(',');
+                            sql.append(ParallelExporter.quote(table.columns.get(c)));
+                        }
+                        sql.append(") VALUES\n(");
+                    } else {
+                        sql.append(",\n(");
+                    }
+                    for (int c = 0; c < columns; c++) {
+                        if (c > 0) sql.append(',');
+                        appendValue(sql, ParallelExporter.read(rs, c + 1, table.kinds[c]));
+                    }
+                    sql.append(')');
+                }
+                if (sql.length() == 0) {
+                    closeQuery();
+                    done = true;
+                    return false;
+                }
+                buffer = sql.append(";\n").toString().getBytes(StandardCharsets.UTF_8);
+                pos = 0;
+                return true;
+            } catch (SQLException e) {
+                closeQuery();
+                done = true;
+                throw new IOException("Reading " + table.name + ": " + e.getMessage(), e);
+            }
+        }
+
+        private void closeQuery() {
+            try {
+                if (stmt != null) stmt.close();
+            } catch (SQLException ignored) {
+            }
+            stmt = null;
+        }
+
+        @Override
+        public void close() {
+            closeQuery();
+            done = true;
+        }
+    }
+
+    private static void appendValue(StringBuilder sql, Object value) {
+        if (value == null) {
+            sql.append("NULL");
+        } else if (value instanceof Long) {
+            sql.append((long) (Long) value);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            if (bytes.length == 0) {
+                sql.append("''");
+                return;
+            }
+            sql.append("X'");
+            for (byte b : bytes) sql.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+            sql.append('\'');
+        } else {
+            String text = value.toString();
+            sql.append('\'');
+            for (int i = 0; i < text.length(); i++) {
+                char ch = text.charAt(i);
+                switch (ch) {
+                    case '\0': sql.append("\\0"); break;
+                    case '\'': sql.append("\\'"); break;
+                    case '\\': sql.append("\\\\"); break;
+                    case '\n': sql.append("\\n"); break;
+                    case '\r': sql.append("\\r"); break;
+                    case '\032': sql.append("\\Z"); break;
+                    default: sql.append(ch);
+                }
+            }
+            sql.append('\'');
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Records how long the named stages of a multi-step operation take
+ * (e.g. the login pipeline's time-to-dashboard breakdown).
+ * Stages may run on different threads; durations are kept in start order.
+ */
+public class StageTimer {
+
+    private final String name;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> stageMillis = new LinkedHashMap<>();
+
+    public StageTimer(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Run a stage and record its duration
+     */
+    public <T> T time(String stage, Supplier<T> work) {
+        long s = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(stage, (System.nanoTime() - s) / 1_000_000);
+        }
+    }
+
+    public synchronized void record(String stage, long millis) {
+        stageMillis.put(stage, millis);
+    }
+
+    /**
+     * Record a milestone as the time elapsed since the timer was created
+     */
+    public void mark(String milestone) {
+        record(milestone, elapsedMillis());
+    }
+
+    public long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public synchronized Long get(String stage) {
+        return stageMillis.get(stage);
+    }
+
+    public synchronized Map<String, Long> snapshot() {
+        return new LinkedHashMap<>(stageMillis);
+    }
+
+    /**
+     * One-line breakdown, e.g. "[Login] authenticate=120 ms, dashboard=310 ms"
+     */
+    public synchronized String summary() {
+        StringBuilder sb = new StringBuilder("[" + name + "] ");
+        boolean first = true;
+        for (Map.Entry<String, Long> e : stageMillis.entrySet()) {
+            if (!first) sb.append(", ");
+            sb.append(e.getKey()).append('=').append(e.getValue()).append(" ms");
+            first = false;
+        }
+        return sb.toString();
+    }
+}
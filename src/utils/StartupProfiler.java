@@ -0,0 +1,78 @@
+package utils;
+
+import database.DatabaseConnection;
+
+import javax.swing.SwingUtilities;
+import java.util.function.Supplier;
+
+/**
+ * Startup profile of the current login, from the Login click to an
+ * interactive dashboard
+ * - phases (e.g. "tab:Users") are recorded into the login's StageTimer
+ * - "first-paint" is marked when the dashboard paints for the first time
+ * - "interactive" is marked once the EDT has worked through everything queued
+ *   before that paint; the breakdown is printed then and compared with
+ *   startup.budget.ms (default 2000)
+ * Outside a profiled startup time() just runs the work.
+ */
+public class StartupProfiler {
+
+    public static final String FIRST_PAINT = "first-paint";
+    public static final String INTERACTIVE = "interactive";
+
+    private static volatile StageTimer current;
+    private static volatile StageTimer last;
+
+    /**
+     * Profile the startup measured by the given timer (started at the Login click)
+     */
+    public static void begin(StageTimer timer) {
+        current = timer;
+    }
+
+    /**
+     * Run a startup phase, recording its duration while a startup is being profiled
+     */
+    public static <T> T time(String phase, Supplier<T> work) {
+        StageTimer timer = current;
+        return (timer != null) ? timer.time(phase, work) : work.get();
+    }
+
+    public static void mark(String milestone) {
+        StageTimer timer = current;
+        if (timer != null) timer.mark(milestone);
+    }
+
+    /**
+     * Called on the EDT from the dashboard's paint; only the first call of a startup counts
+     */
+    public static void firstPaint() {
+        StageTimer timer = current;
+        if (timer == null || timer.get(FIRST_PAINT) != null) return;
+        timer.mark(FIRST_PAINT);
+        SwingUtilities.invokeLater(() -> finish(timer));
+    }
+
+    private static void finish(StageTimer timer) {
+        timer.mark(INTERACTIVE);
+        if (current == timer) current = null;
+        last = timer;
+        System.out.println(timer.summary());
+        long budget = getBudgetMillis();
+        Long interactive = timer.get(INTERACTIVE);
+        if (interactive != null && interactive > budget) {
+            System.err.println("Startup over budget: interactive=" + interactive + " ms, startup.budget.ms=" + budget);
+        }
+    }
+
+    /**
+     * @return The last completed startup profile, or null
+     */
+    public static StageTimer getLast() {
+        return last;
+    }
+
+    public static long getBudgetMillis() {
+        return DatabaseConnection.getLongProperty("startup.budget.ms", 2000);
+    }
+}
@@ -0,0 +1,338 @@
+package utils;
+
+import database.DatabaseConnection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Trace context for remote operations, from the admin console to the LAN agent's
+ * PowerShell process
+ * - a UI action opens a trace with startTrace(); HttpLanClient, the agent and the
+ *   activity log open child spans with startSpan() on the same thread
+ * - the context crosses to the agent in a W3C "traceparent" header; the agent
+ *   continues the trace and reports its own hops (agent, shell) back in a
+ *   "Server-Timing" header, which the client records as remote spans
+ * - finished spans stay in memory (trace.buffer.spans, default 5000) and
+ *   writeTraceFile() exports them in Chrome trace format (chrome://tracing or
+ *   ui.perfetto.dev); a trace slower than trace.slow.ms (default 2000) prints
+ *   its breakdown to the console
+ * Outside a trace startSpan() returns an inert span, so background polling
+ * records nothing.
+ */
+public class Tracing {
+
+    public static final String TRACEPARENT = "traceparent";
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    private static final int BUFFER_SPANS =
+            (int) Math.max(100, DatabaseConnection.getLongProperty("trace.buffer.spans", 5000));
+    private static final long SLOW_NANOS = DatabaseConnection.getLongProperty("trace.slow.ms", 2000) * 1_000_000L;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+    private static final ArrayDeque<Span> FINISHED = new ArrayDeque<>();
+    private static final Span NONE = new Span(null, null, null, "none", null);
+
+    public static class Span implements AutoCloseable {
+        private final String traceId;
+        private final String spanId;
+        private final String parentId;
+        private final String name;
+        private final Span parent;
+        private final long startEpochMicros = System.currentTimeMillis() * 1000;
+        private final long startNanos = System.nanoTime();
+        private final Map<String, String> attributes = new LinkedHashMap<>();
+        private final List<Span> children = new ArrayList<>();
+        private final String thread = Thread.currentThread().getName();
+        private Span previous;
+        private volatile long durationNanos = -1;
+        private String process;
+        private long remoteOffsetMicros;
+
+        private Span(String traceId, String spanId, String parentId, String name, Span parent) {
+            this.traceId = traceId;
+            this.spanId = spanId;
+            this.parentId = parentId;
+            this.name = name;
+            this.parent = parent;
+        }
+
+        public String getTraceId() {
+            return traceId;
+        }
+
+        public String getSpanId() {
+            return spanId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isRecording() {
+            return traceId != null;
+        }
+
+        /**
+         * @return Duration in nanoseconds, or -1 while the span is open
+         */
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public synchronized Span attr(String key, Object value) {
+            if (isRecording()) attributes.put(key, String.valueOf(value));
+            return this;
+        }
+
+        /**
+         * @return The W3C traceparent header value naming this span as the parent
+         */
+        public String traceparent() {
+            return "00-" + traceId + "-" + spanId + "-01";
+        }
+
+        /**
+         * Server-Timing value for the agent's response: its own time so far and
+         * each finished child hop, e.g. "agent;dur=812.4, shell;dur=790.1"
+         */
+        public synchronized String serverTiming() {
+            StringBuilder sb = new StringBuilder("agent;dur=")
+                    .append(String.format(Locale.ROOT, "%.1f", (System.nanoTime() - startNanos) / 1e6));
+            for (Span child : children) {
+                sb.append(", ").append(child.name.replaceAll("[^A-Za-z0-9_.-]", "_"))
+                        .append(";dur=").append(String.format(Locale.ROOT, "%.1f", child.durationNanos / 1e6));
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public void close() {
+            if (this == NONE) return;
+            if (CURRENT.get() == this) {
+                if (previous != null) CURRENT.set(previous); else CURRENT.remove();
+            }
+            if (!isRecording() || durationNanos >= 0) return;
+            durationNanos = System.nanoTime() - startNanos;
+            if (parent != null) {
+                synchronized (parent) {
+                    parent.children.add(this);
+                }
+            }
+            record(this);
+            if (parent == null && parentId == null && durationNanos > SLOW_NANOS) {
+                System.out.println(summary(this));
+            }
+        }
+    }
+
+    /**
+     * Open a new trace for a UI action and make it current on this thread
+     */
+    public static Span startTrace(String name) {
+        return activate(new Span(randomHex(16), randomHex(8), null, name, null));
+    }
+
+    /**
+     * Open a child of the current span, or an inert span when no trace is active
+     */
+    public static Span startSpan(String name) {
+        Span parent = CURRENT.get();
+        if (parent == null || !parent.isRecording()) return NONE;
+        return activate(new Span(parent.traceId, randomHex(8), parent.spanId, name, parent));
+    }
+
+    /**
+     * Continue a trace received in a traceparent header ("00-<trace>-<parent>-<flags>");
+     * an absent or malformed header gives an inert span
+     */
+    public static Span continueTrace(String traceparent, String name) {
+        if (traceparent == null) return NONE;
+        String[] parts = traceparent.trim().split("-");
+        if (parts.length != 4 || !isHex(parts[1], 32) || !isHex(parts[2], 16)) return NONE;
+        return activate(new Span(parts[1], randomHex(8), parts[2], name, null));
+    }
+
+    /**
+     * @return The current span (inert when no trace is active)
+     */
+    public static Span current() {
+        Span span = CURRENT.get();
+        return span != null ? span : NONE;
+    }
+
+    /**
+     * @return The current trace ID, or null outside a trace
+     */
+    public static String currentTraceId() {
+        return current().traceId;
+    }
+
+    /**
+     * Run work on another thread inside the given span (e.g. a PowerShell worker thread)
+     */
+    public static Runnable wrap(Runnable work) {
+        Span span = current();
+        if (!span.isRecording()) return work;
+        return () -> {
+            Span previous = CURRENT.get();
+            CURRENT.set(span);
+            try {
+                work.run();
+            } finally {
+                if (previous != null) CURRENT.set(previous); else CURRENT.remove();
+            }
+        };
+    }
+
+    /**
+     * Record the hops a remote process reported in a Server-Timing header as children
+     * of the given (client) span. Remote clocks are not comparable with ours, so each
+     * hop is placed to end where the client span ends.
+     */
+    public static void recordServerTiming(Span clientSpan, String serverTiming, String process) {
+        if (!clientSpan.isRecording() || serverTiming == null) return;
+        long endNanos = System.nanoTime();
+        Span agent = null;
+        for (String entry : serverTiming.split(",")) {
+            String[] parts = entry.trim().split(";");
+            double millis = -1;
+            for (int i = 1; i < parts.length; i++) {
+                String p = parts[i].trim();
+                if (p.startsWith("dur=")) {
+                    try {
+                        millis = Double.parseDouble(p.substring(4));
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+            if (millis < 0 || parts[0].isEmpty()) continue;
+            Span parent = (agent != null) ? agent : clientSpan;
+            Span hop = new Span(clientSpan.traceId, randomHex(8), parent.spanId, parts[0].trim(), null);
+            long durationNanos = (long) (millis * 1_000_000);
+            hop.durationNanos = durationNanos;
+            hop.process = process;
+            hop.remoteOffsetMicros = (endNanos - durationNanos - hop.startNanos) / 1000;
+            if (agent == null) agent = hop;
+            record(hop);
+        }
+    }
+
+    private static Span activate(Span span) {
+        span.previous = CURRENT.get();
+        CURRENT.set(span);
+        return span;
+    }
+
+    private static void record(Span span) {
+        synchronized (FINISHED) {
+            if (FINISHED.size() >= BUFFER_SPANS) FINISHED.removeFirst();
+            FINISHED.addLast(span);
+        }
+    }
+
+    /**
+     * @return Finished spans, oldest first
+     */
+    public static List<Span> recent() {
+        synchronized (FINISHED) {
+            return new ArrayList<>(FINISHED);
+        }
+    }
+
+    /**
+     * One line per trace, e.g. "[Trace 4bf9...] remote.format 63210 ms: agent=62950 ms, shell.agent=62800 ms, lan /format=63100 ms"
+     */
+    public static String summary(Span root) {
+        StringBuilder sb = new StringBuilder("[Trace " + root.traceId + "] " + root.name + " "
+                + root.durationNanos / 1_000_000 + " ms");
+        String separator = ": ";
+        for (Span span : recent()) {
+            if (span == root || !root.traceId.equals(span.traceId)) continue;
+            sb.append(separator).append(span.name).append('=').append(span.durationNanos / 1_000_000).append(" ms");
+            separator = ", ";
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Write the finished spans as a Chrome trace (JSON), one process row for this
+     * console and one per remote agent
+     * @return Number of spans written
+     */
+    public static int writeTraceFile(File file) throws IOException {
+        List<Span> spans = recent();
+        Map<String, Integer> pids = new LinkedHashMap<>();
+        pids.put("OneClick console", 1);
+        try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            out.println("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+            for (Span span : spans) {
+                String process = (span.process != null) ? span.process : "OneClick console";
+                Integer pid = pids.computeIfAbsent(process, p -> pids.size() + 1);
+                long ts = span.startEpochMicros + span.remoteOffsetMicros;
+                StringBuilder args = new StringBuilder();
+                args.append("\"traceId\":").append(json(span.traceId))
+                        .append(",\"spanId\":").append(json(span.spanId))
+                        .append(",\"parentId\":").append(json(span.parentId));
+                synchronized (span) {
+                    for (Map.Entry<String, String> a : span.attributes.entrySet()) {
+                        args.append(',').append(json(a.getKey())).append(':').append(json(a.getValue()));
+                    }
+                }
+                out.println("{\"name\":" + json(span.name) + ",\"cat\":\"trace\",\"ph\":\"X\",\"ts\":" + ts
+                        + ",\"dur\":" + span.durationNanos / 1000 + ",\"pid\":" + pid
+                        + ",\"tid\":" + json(span.process != null ? "remote" : span.thread)
+                        + ",\"args\":{" + args + "}},");
+            }
+            boolean first = true;
+            for (Map.Entry<String, Integer> p : pids.entrySet()) {
+                out.print((first ? "" : ",\n") + "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":" + p.getValue()
+                        + ",\"args\":{\"name\":" + json(p.getKey()) + "}}");
+                first = false;
+            }
+            out.println();
+            out.println("]}");
+            if (out.checkError()) throw new IOException("Could not write " + file);
+        }
+        return spans.size();
+    }
+
+    private static String json(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String randomHex(int bytes) {
+        byte[] b = new byte[bytes];
+        RANDOM.nextBytes(b);
+        StringBuilder sb = new StringBuilder(bytes * 2);
+        for (byte x : b) {
+            sb.append(Character.forDigit((x >> 4) & 0xF, 16)).append(Character.forDigit(x & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static boolean isHex(String s, int length) {
+        if (s.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (Character.digit(s.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+}